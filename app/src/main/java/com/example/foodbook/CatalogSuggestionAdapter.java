@@ -0,0 +1,61 @@
+package com.example.foodbook;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @class CatalogSuggestionAdapter
+ * @extends ArrayAdapter
+ * @description Feeds an AutoCompleteTextView with the names of the catalogue products starting with
+ * what has been typed. The lookup runs in the filter, which AutoCompleteTextView calls on a background
+ * thread, so typing never waits on the mapped file being paged in.
+ */
+public class CatalogSuggestionAdapter extends ArrayAdapter<String> {
+
+    private static final int SUGGESTIONS = 8;
+
+    private final FoodBookApplication application;
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering( CharSequence prefix ) {
+            FilterResults results = new FilterResults();
+            ProductCatalog catalog = application.getCatalog();
+            List<String> names = new ArrayList<>();
+            if( catalog != null && prefix != null ) {
+                for( CatalogProduct product : catalog.suggest( prefix.toString(), SUGGESTIONS ) ) {
+                    names.add( product.getName() );
+                }
+            }
+            results.values = names;
+            results.count = names.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        protected void publishResults( CharSequence prefix, FilterResults results ) {
+            setNotifyOnChange( false );
+            clear();
+            addAll( (List<String>) results.values );
+            notifyDataSetChanged();
+        }
+    };
+
+    /**
+     * Constructor
+     * @param context Activity the suggestions are shown in.
+     * @param application Holds the catalogue, which may still be loading.
+     */
+    public CatalogSuggestionAdapter( Context context, FoodBookApplication application ) {
+        super( context, android.R.layout.simple_dropdown_item_1line );
+        this.application = application;
+    }
+
+    @Override
+    public Filter getFilter() { return filter; }
+}
@@ -0,0 +1,70 @@
+package com.example.foodbook;
+
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+/**
+ * @class DisplayStrings
+ * @description Caches the strings shown for numbers and dates in the food list so binding a row does
+ * not format, and so does not allocate, once the values on screen have been seen.
+ * Small numbers are kept in an array indexed by value. Dates are kept in a direct mapped table keyed by
+ * their epoch day, so a miss simply overwrites the slot. Not thread safe, meant to be used on the UI thread.
+ */
+public class DisplayStrings {
+
+    private static final int NUMBER_CACHE_SIZE = 4096;
+    private static final int DATE_CACHE_SIZE = 512;
+
+    private final String[] numbers = new String[ NUMBER_CACHE_SIZE ];
+    private final long[] dateKeys = new long[ DATE_CACHE_SIZE ];
+    private final String[] dates = new String[ DATE_CACHE_SIZE ];
+    private final TimeZone zone;
+
+    /**
+     * Constructor
+     * Dates are shown in the time zone that is the default when this is created.
+     */
+    public DisplayStrings() {
+        this( TimeZone.getDefault() );
+    }
+
+    /**
+     * Constructor
+     * @param zone Time zone the dates are shown in.
+     */
+    public DisplayStrings( TimeZone zone ) {
+        this.zone = zone;
+    }
+
+    /**
+     * @description Gets the text for a whole number.
+     * @param value Number to show.
+     * @return The number in decimal, cached for 0 up to 4095.
+     */
+    public String number( int value ) {
+        if( value < 0 || value >= NUMBER_CACHE_SIZE ) return String.valueOf( value );
+        String text = numbers[ value ];
+        if( text == null ) {
+            text = String.valueOf( value );
+            numbers[ value ] = text;
+        }
+        return text;
+    }
+
+    /**
+     * @description Gets the text for the day a timestamp falls on.
+     * @param millis Milliseconds since the epoch.
+     * @return The day formatted as yyyy-MM-dd.
+     */
+    public String date( long millis ) {
+        long day = EpochDays.fromMillis( millis, zone );
+        int slot = (int) ( day & ( DATE_CACHE_SIZE - 1 ) );
+        String text = dates[ slot ];
+        if( text == null || dateKeys[ slot ] != day ) {
+            text = LocalDate.ofEpochDay( day ).toString();
+            dates[ slot ] = text;
+            dateKeys[ slot ] = day;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.foodbook;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Process;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.IOException;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class ExpiryJobService
+ * @extends JobService
+ * @description Periodic background job which scans the stored foods for ones that have expired or
+ * are about to, and posts a single notification listing all of them.
+ * The scan runs on its own low priority thread and reads the stored foods a page at a time, yielding
+ * between pages and stopping early if the system asks the job to stop, in which case the job is run
+ * again later. The runtime of each run is kept in shared preferences.
+ */
+public class ExpiryJobService extends JobService {
+
+    private static final int JOB_ID = 1001;
+    private static final int NOTIFICATION_ID = 1;
+    private static final String CHANNEL_ID = "expiry";
+    private static final String METRICS_PREFS = "expiry_scan_metrics";
+
+    private static final int WARNING_DAYS = 3;
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_LISTED_FOODS = 5;
+
+    private volatile boolean stopped;
+
+    /**
+     * @description Schedules the job to run twice a day, unless it is already scheduled.
+     * @param context Any context of the app.
+     */
+    public static void schedule( Context context ) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService( Context.JOB_SCHEDULER_SERVICE );
+        if( scheduler.getPendingJob( JOB_ID ) != null ) return;
+
+        JobInfo job = new JobInfo.Builder( JOB_ID, new ComponentName( context, ExpiryJobService.class ) )
+                .setPeriodic( TimeUnit.HOURS.toMillis( 12 ) )
+                .setRequiresBatteryNotLow( true )
+                .setPersisted( true )
+                .build();
+        scheduler.schedule( job );
+    }
+
+    @Override
+    public boolean onStartJob( JobParameters params ) {
+        stopped = false;
+        Thread worker = new Thread( () -> {
+            Process.setThreadPriority( Process.THREAD_PRIORITY_BACKGROUND );
+            runScan();
+            // A stopped job has already been rescheduled by onStopJob.
+            if( !stopped ) jobFinished( params, false );
+        }, "ExpiryScan" );
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob( JobParameters params ) {
+        stopped = true;
+        // Run again later, the scan has not finished.
+        return true;
+    }
+
+    /**
+     * @description Scans the stored foods a page at a time and posts the notification, then compacts
+     * the consumption history. Only one page is held in memory and decoding happens on this thread,
+     * not on the repository's writer thread.
+     * Runs on the worker thread.
+     */
+    private void runScan() {
+        ExpiryScanner scanner = new ExpiryScanner( ExpiryScanner.SYSTEM_CLOCK, TimeZone.getDefault(),
+                WARNING_DAYS, CHUNK_SIZE );
+        ExpiryScanner.Scan scan = scanner.start();
+        try ( FoodPageSource source = ((FoodBookApplication) getApplication()).openPageSource() ) {
+            int size = source.size();
+            for( int start = 0; !stopped && start < size; start += CHUNK_SIZE ) {
+                scan.step( source.loadPage( start, Math.min( CHUNK_SIZE, size - start ) ) );
+                Thread.yield();
+            }
+        } catch ( IOException e ) {
+            return;
+        }
+        ExpiryScanner.Report report = scan.finish();
+        saveMetrics( scanner.getMetrics() );
+        if( stopped ) return;
+
+        if( !report.isEmpty() ) notify( report );
+
+        // The consumption history is compacted on the same schedule as the scan.
+        ConsumptionLog history = ((FoodBookApplication) getApplication()).getHistory();
+        try {
+            history.compact( EpochDays.fromMillis( System.currentTimeMillis() ) ).get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } catch ( ExecutionException e ) {
+            // The old checkpoint and log are still intact, the next run tries again.
+        }
+    }
+
+    private void saveMetrics( ExpiryScanner.Metrics metrics ) {
+        SharedPreferences prefs = getSharedPreferences( METRICS_PREFS, MODE_PRIVATE );
+        prefs.edit()
+                .putInt( "runs", prefs.getInt( "runs", 0 ) + metrics.runs )
+                .putLong( "last_run_nanos", metrics.lastRunNanos )
+                .putLong( "last_longest_chunk_nanos", metrics.longestChunkNanos )
+                .putLong( "last_items_scanned", metrics.itemsScanned )
+                .putLong( "last_run_at", System.currentTimeMillis() )
+                .apply();
+    }
+
+    /**
+     * @description Posts one notification covering every food in the report.
+     * @param report Result of the scan.
+     */
+    private void notify( ExpiryScanner.Report report ) {
+        NotificationManager manager = (NotificationManager) getSystemService( Context.NOTIFICATION_SERVICE );
+        manager.createNotificationChannel( new NotificationChannel( CHANNEL_ID,
+                getString( R.string.expiry_channel_name ), NotificationManager.IMPORTANCE_DEFAULT ) );
+
+        String summary = getString( R.string.expiry_summary, report.expired.size(), report.expiringSoon.size() );
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setSummaryText( summary );
+        int listed = 0;
+        for( Food food : report.expired ) {
+            if( listed == MAX_LISTED_FOODS ) break;
+            style.addLine( getString( R.string.expiry_line_expired, food.getName(), food.getLocation() ) );
+            listed++;
+        }
+        for( Food food : report.expiringSoon ) {
+            if( listed == MAX_LISTED_FOODS ) break;
+            style.addLine( getString( R.string.expiry_line_soon, food.getName(), food.getLocation() ) );
+            listed++;
+        }
+
+        PendingIntent openApp = PendingIntent.getActivity( this, 0, new Intent( this, MainActivity.class ),
+                PendingIntent.FLAG_IMMUTABLE );
+        NotificationCompat.Builder builder = new NotificationCompat.Builder( this, CHANNEL_ID )
+                .setSmallIcon( android.R.drawable.ic_dialog_alert )
+                .setContentTitle( getString( R.string.expiry_title ) )
+                .setContentText( summary )
+                .setStyle( style )
+                .setContentIntent( openApp )
+                .setAutoCancel( true );
+        manager.notify( NOTIFICATION_ID, builder.build() );
+    }
+}
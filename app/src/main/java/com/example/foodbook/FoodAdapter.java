@@ -1,7 +1,6 @@
 package com.example.foodbook;
 
 import android.content.Context;
-import android.text.format.DateFormat;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -11,9 +10,12 @@ import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @class FoodAdapter
@@ -22,21 +24,31 @@ import java.util.List;
  * This class will be responsible for translating the data onto the view and sending the view to
  * whatever class instantiates it. This class will also hold the function for a long click popup menu
  * item selections.
+ * The adapter shows an immutable snapshot of the foods. A new snapshot is handed over with submitList and
+ * compared to the old one on a background thread, so only the rows which actually changed are rebound.
+ * Long pressing a row offers to start selecting; while selecting, a tap toggles a row and the ids of the
+ * selected foods are handed to MainActivity for its batch actions.
  */
 public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
 
+    // Payload for rows where only the selected state needs rebinding.
+    private static final Object SELECTION_CHANGED = new Object();
+
     /**
      * @class ViewHolder
      * @extends RecylerView.ViewHolder
      * @description Defines the views used in the recylerView and holds them for later use.
+     * Each holder also owns the popup menu for editing or removing its food. The menu is built once
+     * when the holder is created and looks up which food it belongs to when an item is clicked.
      */
-    public class ViewHolder extends RecyclerView.ViewHolder {
+    public class ViewHolder extends RecyclerView.ViewHolder implements PopupMenu.OnMenuItemClickListener {
 
         public TextView nameTextView, countTextView, dateTextView, descriptionTextView, locationView, costView;
         public LinearLayout mainLayout;
+        public PopupMenu deleteMenu;
 
         /**
-         * @description Constructor. Binds all the view variables.
+         * @description Constructor. Binds all the view variables and builds the popup menu.
          * @param itemView The view which is being transled to the RecylerView
          */
         public ViewHolder( View itemView ) {
@@ -49,6 +61,48 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
             descriptionTextView = (TextView) itemView.findViewById(R.id.food_description);
             locationView = (TextView) itemView.findViewById(R.id.food_location);
             costView = (TextView) itemView.findViewById(R.id.food_cost);
+
+            deleteMenu = new PopupMenu( mainLayout.getContext(), nameTextView );
+            deleteMenu.inflate(R.menu.delete_menu);
+            deleteMenu.setOnMenuItemClickListener( this );
+
+            mainLayout.setOnClickListener(view -> {
+                if( selecting ) toggleSelection( getBindingAdapterPosition() );
+            });
+            mainLayout.setOnLongClickListener(view -> {
+                if( selecting ) {
+                    toggleSelection( getBindingAdapterPosition() );
+                } else {
+                    deleteMenu.show();
+                }
+                return true;
+            });
+        }
+
+        /**
+         * @description Edits or removes the food this holder is currently showing.
+         * @param menuItem The menu item which was clicked.
+         * @return true as the click is always handled.
+         */
+        @Override
+        public boolean onMenuItemClick( MenuItem menuItem ) {
+            int position = getBindingAdapterPosition();
+            if( position == RecyclerView.NO_POSITION ) return true;
+
+            switch ( menuItem.getItemId() ) {
+                case R.id.delete:
+                    editContext.deleteFood( getFood( position ) );
+                    break;
+                case R.id.edit:
+                    editContext.editFood( getFood( position ) );
+                    break;
+                case R.id.select:
+                    selecting = true;
+                    toggleSelection( position );
+                    break;
+                default:
+            }
+            return true;
         }
     }
 
@@ -61,91 +115,141 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.ViewHolder> {
      */
     @Override
     public FoodAdapter.ViewHolder onCreateViewHolder( @NonNull ViewGroup parent, int viewType ) {
+        long start = BuildConfig.METRICS ? System.nanoTime() : 0;
         Context context = parent.getContext();
         LayoutInflater inflater = LayoutInflater.from(context);
 
         View foodView = inflater.inflate(R.layout.food_item, parent, false);
 
         ViewHolder viewHolder = new ViewHolder(foodView);
+        if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.CREATE_VIEW_HOLDER, System.nanoTime() - start );
         return viewHolder;
     }
 
     /**
      * @description Binds the viewHolder's view to data fields of the Food object.
      * This allows the view to show the correct data on view for the user.
-     * When the binding happens a popup menu is also binded to the parent view which
-     * allows a menu to apear for either editing or removal.
+     * Numbers and dates come from a cache of display strings and the popup menu already belongs to the
+     * holder, so once the values on screen have been seen a bind does not allocate.
      * @param holder View holder of this class
      * @param position Position of the view on the RecylerView.
      */
     @Override
     public void onBindViewHolder( FoodAdapter.ViewHolder holder, int position) {
-        Food food = mFoods.get(position);
-
-        TextView nameView = holder.nameTextView;
-        TextView countView = holder.countTextView;
-        TextView dateView = holder.dateTextView;
-        TextView descView = holder.descriptionTextView;
-        TextView locationView = holder.locationView;
-        TextView costView = holder.costView;
-
-        nameView.setText(food.getName());
-        countView.setText( food.getCount().toString() );
-        dateView.setText( DateFormat.format("yyyy-MM-dd", food.getBestBeforeDate() ).toString() );
-        descView.setText( food.getDescription().toString() );
-        locationView.setText( food.getLocation().toString() );
-        costView.setText( food.getCost().toString() );
-
-        PopupMenu deleteMenu = new PopupMenu( holder.mainLayout.getContext(), holder.nameTextView );
-        deleteMenu.inflate(R.menu.delete_menu);
-
-        deleteMenu.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener() {
-            @Override
-            public boolean onMenuItemClick(MenuItem menuItem) {
-                switch ( menuItem.getItemId() ) {
-                    case R.id.delete:
-                        mFoods.remove( holder.getAdapterPosition() );
-                        editContext.refreshCostView();
-                        notifyDataSetChanged();
-                        break;
-                    case R.id.edit:
-                        editContext.editFood( holder.getAdapterPosition() );
-                        break;
-                    default:
-                }
-                return true;
-            }
-        });
+        long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+        Food food = getFood(position);
+        holder.mainLayout.setActivated( selectedIds.contains( food.getId() ) );
+
+        holder.nameTextView.setText( food.getName() );
+        holder.countTextView.setText( displayStrings.number( food.getCountValue() ) );
+        holder.dateTextView.setText( displayStrings.date( food.getBestBeforeMillis() ) );
+        holder.descriptionTextView.setText( food.getDescription() );
+        holder.locationView.setText( food.getLocation() );
+        holder.costView.setText( displayStrings.number( food.getCostValue() ) );
+        if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.BIND_VIEW_HOLDER, System.nanoTime() - start );
+    }
 
-        holder.mainLayout.setOnLongClickListener(view -> {
-            deleteMenu.show();
-            return true;
-        });
+    /**
+     * @description Rebinds only the selected state when that is all that changed.
+     * @param holder View holder of this class
+     * @param position Position of the view on the RecylerView.
+     * @param payloads SELECTION_CHANGED if only the selection changed.
+     */
+    @Override
+    public void onBindViewHolder( @NonNull FoodAdapter.ViewHolder holder, int position, @NonNull List<Object> payloads ) {
+        if( payloads.contains( SELECTION_CHANGED ) ) {
+            holder.mainLayout.setActivated( selectedIds.contains( getFood( position ).getId() ) );
+            return;
+        }
+        onBindViewHolder( holder, position );
     }
 
     /**
      * @description Gets the count of how many Food Objects are being viewed on the RecylerView.
-     * @return The size of the data array being used to store Food objects.
+     * @return The size of the snapshot currently shown.
      */
     @Override
     public int getItemCount() {
-        return mFoods.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * @description Gets the stable id of the food in a row so rows keep their identity across updates.
+     * @param position Position of the view on the RecylerView.
+     * @return The id the food was given when it was stored.
+     */
+    @Override
+    public long getItemId( int position ) {
+        return getFood( position ).getId();
+    }
+
+    /**
+     * @description Gets the food shown in a row.
+     * @param position Position of the view on the RecylerView.
+     * @return The food at that position of the current snapshot.
+     */
+    public Food getFood( int position ) {
+        return differ.getCurrentList().get( position );
+    }
+
+    /**
+     * @description Gets the ids of the selected foods. The rows shown may lag behind the inventory, so
+     * the ids are resolved against it with Inventory.findAll before acting on them.
+     * @return A copy of the selected ids.
+     */
+    public Set<Long> getSelectedIds() {
+        return new HashSet<>( selectedIds );
+    }
+
+    /**
+     * @description Leaves selection mode and unmarks every row.
+     */
+    public void clearSelection() {
+        selecting = false;
+        if( selectedIds.isEmpty() ) return;
+        selectedIds.clear();
+        notifyItemRangeChanged( 0, getItemCount(), SELECTION_CHANGED );
+    }
+
+    private void toggleSelection( int position ) {
+        if( position == RecyclerView.NO_POSITION ) return;
+        Food food = getFood( position );
+        if( !selectedIds.remove( food.getId() ) ) selectedIds.add( food.getId() );
+        notifyItemChanged( position, SELECTION_CHANGED );
+        if( selectedIds.isEmpty() ) selecting = false;
+        editContext.onSelectionChanged( selectedIds.size() );
+    }
+
+    /**
+     * @description Shows a new state of the food list. The list is kept as it is, not copied, so it must
+     * never change afterwards, e.g. InventorySnapshot.asList. The differences to the current snapshot
+     * are worked out in the background and only the changed rows are rebound.
+     * @param foods The foods to show.
+     */
+    public void submitList( List<Food> foods ) {
+        differ.submitList( foods );
     }
 
-    private List<Food> mFoods;
+    private final DisplayStrings displayStrings = new DisplayStrings();
+    private final AsyncListDiffer<Food> differ = new AsyncListDiffer<>( this, new FoodDiffCallback() );
     private MainActivity editContext;
+    // Only set, and only used, when BuildConfig.METRICS is on.
+    private final MetricsRegistry metrics;
+    // Ids of the selected foods, kept by id so the selection survives the list being replaced.
+    private final Set<Long> selectedIds = new HashSet<>();
+    private boolean selecting;
 
     /**
      * Constructor
-     * @param foods List of Foods which will be used to fetch data and display on each binded view.
      * @param contextForEdit The context of the MainActivty so that a non-static method can be called
      *                       to edit one of the food items.
      *                       *NOTE*
      *                       This should later be changed out for a better
      *                       alternative as passing a scope through is prone to error.
      */
-    public FoodAdapter( List<Food> foods, MainActivity contextForEdit ) {
-        mFoods = foods;
+    public FoodAdapter( MainActivity contextForEdit ) {
         editContext = contextForEdit;
+        metrics = ((FoodBookApplication) contextForEdit.getApplication()).getMetrics();
+        setHasStableIds( true );
     }
 }
@@ -0,0 +1,148 @@
+package com.example.foodbook;
+
+import android.app.Application;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @class FoodBookApplication
+ * @extends Application
+ * @description Holds the objects which have to outlive a single activity. The food repository lives
+ * here so that every activity instance, including ones re-created on rotation, writes through the
+ * same background writer, and the edit sessions live here so an edit survives either activity being
+ * re-created while it is open. The consumption log is shared the same way, and compacted by the
+ * periodic expiry job. The depletion forecast is shared too, and saved whenever the main activity
+ * stops. The product catalogue is built from the bundled CSV the first time each app version runs,
+ * then memory mapped.
+ */
+public class FoodBookApplication extends Application {
+
+    private static final String TAG = "FoodBookApplication";
+
+    private JournaledFoodRepository repository;
+    // Null unless BuildConfig.METRICS is set.
+    private MetricsRegistry metrics;
+    private final EditSessionStore editSessions = new EditSessionStore();
+    private ConsumptionLog history;
+    private DepletionForecast forecast;
+    // Saves the forecast off the UI thread, one save at a time.
+    private final ExecutorService forecastWriter = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "DepletionForecast" );
+        thread.setDaemon( true );
+        return thread;
+    });
+    // Null until the catalogue has been built or mapped in the background.
+    private volatile ProductCatalog catalog;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        JournaledFoodRepository journaled = new JournaledFoodRepository( new File( getFilesDir(), "inventory" ) );
+        if( BuildConfig.METRICS ) {
+            metrics = new MetricsRegistry();
+            journaled.setMetrics( metrics );
+        }
+        repository = journaled;
+        history = new ConsumptionLog( new File( getFilesDir(), "history" ), TimeZone.getDefault() );
+        forecast = readForecast();
+        ExpiryJobService.schedule( this );
+        Thread loader = new Thread( this::loadCatalog, "ProductCatalog" );
+        loader.setDaemon( true );
+        loader.start();
+    }
+
+    /**
+     * @description Maps the product catalogue, first building it from assets/products.csv if this
+     * version of the app has not built it yet. Runs on a background thread.
+     */
+    private void loadCatalog() {
+        File file = new File( getFilesDir(), "catalog-" + BuildConfig.VERSION_CODE + ".bin" );
+        try {
+            if( !file.exists() ) {
+                try ( Reader in = new InputStreamReader( getAssets().open( "products.csv" ), StandardCharsets.UTF_8 ) ) {
+                    ProductCatalogWriter.write( ProductCatalogWriter.readCsv( in ), file );
+                }
+                // Drop the catalogues built by older versions.
+                File[] old = getFilesDir().listFiles( ( dir, name ) -> name.startsWith( "catalog-" ) && !name.equals( file.getName() ) );
+                if( old != null ) for( File stale : old ) stale.delete();
+            }
+            catalog = ProductCatalog.open( file );
+        } catch ( IOException e ) {
+            // New foods are then entered by hand, as before.
+            Log.w( TAG, "Could not load the product catalogue", e );
+        }
+    }
+
+    /**
+     * @description Reads the saved depletion forecast. Read before any activity starts, since changes
+     * are recorded into it from then on. The file holds one short record per item, so this is quick.
+     * @return The forecast, or a new one if none was saved or it could not be read.
+     */
+    private DepletionForecast readForecast() {
+        File file = new File( getFilesDir(), "forecast.bin" );
+        if( !file.exists() ) return new DepletionForecast();
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+            return DepletionForecast.read( in );
+        } catch ( IOException e ) {
+            Log.w( TAG, "Could not read the depletion forecast", e );
+            return new DepletionForecast();
+        }
+    }
+
+    /**
+     * @description Saves the depletion forecast in the background. Does not block.
+     */
+    public void saveForecast() {
+        forecastWriter.execute( this::writeForecast );
+    }
+
+    /**
+     * @description Writes the depletion forecast through a temporary file, so a crash part way through
+     * leaves the old one in place. Runs on the forecast writer thread.
+     */
+    private void writeForecast() {
+        File file = new File( getFilesDir(), "forecast.bin" );
+        File tmp = new File( getFilesDir(), "forecast.bin.tmp" );
+        try {
+            // Written to memory first, so the UI thread is never kept waiting on disk for the lock.
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            forecast.write( new DataOutputStream( bytes ) );
+            try ( FileOutputStream stream = new FileOutputStream( tmp ) ) {
+                bytes.writeTo( stream );
+                stream.getFD().sync();
+            }
+            if( !tmp.renameTo( file ) ) throw new IOException( "Could not replace " + file );
+        } catch ( IOException e ) {
+            // The rates are kept in memory and saved by the next stop.
+            Log.w( TAG, "Could not save the depletion forecast", e );
+        }
+    }
+
+    public FoodRepository getRepository() { return repository; }
+
+    /**
+     * @description Opens a paged view of the stored foods, read straight from storage.
+     * @return The source. Must be closed.
+     * @throws IOException If the storage could not be read.
+     */
+    public FoodPageSource openPageSource() throws IOException { return repository.openPageSource(); }
+    public EditSessionStore getEditSessions() { return editSessions; }
+    public MetricsRegistry getMetrics() { return metrics; }
+    public ConsumptionLog getHistory() { return history; }
+    public DepletionForecast getForecast() { return forecast; }
+    public ProductCatalog getCatalog() { return catalog; }
+}
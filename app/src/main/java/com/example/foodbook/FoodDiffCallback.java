@@ -0,0 +1,30 @@
+package com.example.foodbook;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * @class FoodDiffCallback
+ * @extends DiffUtil.ItemCallback
+ * @description Tells the list differ which rows are the same food and whether a food's shown values
+ * have changed. Foods are matched by their stored id. An edited food has to be a new object for its
+ * row to be rebound, since an object mutated in place looks unchanged when compared to itself.
+ */
+public class FoodDiffCallback extends DiffUtil.ItemCallback<Food> {
+
+    @Override
+    public boolean areItemsTheSame( @NonNull Food oldFood, @NonNull Food newFood ) {
+        return oldFood.getId() == newFood.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame( @NonNull Food oldFood, @NonNull Food newFood ) {
+        return oldFood.getName().equals( newFood.getName() )
+                && oldFood.getDescription().equals( newFood.getDescription() )
+                && oldFood.getCount().equals( newFood.getCount() )
+                && oldFood.getBestBeforeDate().equals( newFood.getBestBeforeDate() )
+                && oldFood.getLocation().equals( newFood.getLocation() )
+                && oldFood.getLocationPosition() == newFood.getLocationPosition()
+                && oldFood.getCost().equals( newFood.getCost() );
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.foodbook;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @class FoodFilterController
+ * @description Runs the user's search against the search index and feeds the matches to the adapter.
+ * Filter changes are debounced so typing a word runs one query rather than one per key press, and the
+ * query itself runs on a background thread, where the matches are also sorted if the inventory has a
+ * sort order. Results from a query that has since been replaced by a newer one are dropped.
+ */
+public class FoodFilterController {
+
+    private static final long DEBOUNCE_MS = 200;
+
+    private final Inventory inventory;
+    private final FoodAdapter adapter;
+    private final Handler handler = new Handler( Looper.getMainLooper() );
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Runnable runQuery = this::runQuery;
+
+    private FoodFilter filter = FoodFilter.text( "" );
+    // Bumped every time a query is started, only touched on the UI thread.
+    private int generation;
+
+    /**
+     * Constructor
+     * @param inventory Inventory whose search index is queried.
+     * @param adapter Adapter which shows the results.
+     */
+    public FoodFilterController( Inventory inventory, FoodAdapter adapter ) {
+        this.inventory = inventory;
+        this.adapter = adapter;
+    }
+
+    /**
+     * @description Changes what is being searched for. The search runs once the filter has stopped
+     * changing for a moment.
+     * @param filter The new filter.
+     */
+    public void setFilter( FoodFilter filter ) {
+        this.filter = filter;
+        handler.removeCallbacks( runQuery );
+        handler.postDelayed( runQuery, DEBOUNCE_MS );
+    }
+
+    /**
+     * @description Shows the inventory again after it has changed, running the current filter straight
+     * away if there is one.
+     */
+    public void refresh() {
+        handler.removeCallbacks( runQuery );
+        runQuery();
+    }
+
+    /**
+     * @description Stops the background thread. Called when the activity is destroyed.
+     */
+    public void shutdown() {
+        handler.removeCallbacks( runQuery );
+        executor.shutdownNow();
+    }
+
+    /**
+     * @description Gets the foods to show when there is no filter, as a list which never changes. Without
+     * a sort order that is the latest snapshot's own list, so nothing is copied. A sorted list is
+     * edited in place by the inventory, so that one is copied.
+     * @return The foods in the order they are shown.
+     */
+    private List<Food> displayedFoods() {
+        if( inventory.getSortOrder() == null ) return inventory.getSnapshot().asList();
+        return new ArrayList<>( inventory.getDisplayedFoods() );
+    }
+
+    private void runQuery() {
+        int started = ++generation;
+        FoodFilter current = filter;
+        if( current.isEmpty() ) {
+            adapter.submitList( displayedFoods() );
+            return;
+        }
+        FoodSearchIndex index = inventory.getSearchIndex();
+        FoodSortOrder order = inventory.getSortOrder();
+        executor.execute( () -> {
+            List<Food> found = index.query( current );
+            List<Food> matches = order == null ? found : SortedFoodList.sort( found, order );
+            handler.post( () -> {
+                if( started == generation ) adapter.submitList( matches );
+            });
+        });
+    }
+}
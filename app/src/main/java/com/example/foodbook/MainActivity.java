@@ -2,16 +2,52 @@ package com.example.foodbook;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import java.util.ArrayList;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /*
 Disclaimer:
@@ -36,11 +72,44 @@ public class MainActivity extends AppCompatActivity {
     public static int CANCEL = 1;
     public static int FAILURE = 0;
 
-    ArrayList<Food> foods;
+    private static final String TAG = "MainActivity";
+
+    // Foods read from a CSV file are stored and shown this many at a time.
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    Inventory inventory;
+    private InventoryWriter inventoryWriter;
+    private ConsumptionLog history;
+    private DepletionForecast forecast;
     FoodAdapter adapter;
+    private FoodRepository repository;
+    private TextView totalCostView;
+    private FoodFilterController filterController;
+    private EditText searchText, searchMinCost, searchMaxCost, searchMinCount;
+    private Spinner searchLocation;
+    // Shown while foods are selected for a batch action, null otherwise.
+    private ActionMode selectionMode;
+    // How far ahead the shopping list looks, and how long what it lists should last.
+    private static final int SHOPPING_DAYS = 7;
+    // Reads and writes CSV files off the UI thread, one file at a time.
+    private final ExecutorService csvExecutor = Executors.newSingleThreadExecutor();
+    // Sorts the foods off the UI thread when the sort order is changed.
+    private final ExecutorService sortExecutor = Executors.newSingleThreadExecutor();
 
-    // Used in order to edit a specific food on the list instead of adding a new food to the bottom on edit.
-    private int editingIndex;
+    // Sort orders matching the entries of R.array.sort_orders. The first entry is the order added.
+    private static final FoodSortOrder[] SORT_ORDERS = {
+            null,
+            new FoodSortOrder( FoodSortOrder.Key.EXPIRY, FoodSortOrder.Key.NAME, false ),
+            new FoodSortOrder( FoodSortOrder.Key.NAME, FoodSortOrder.Key.EXPIRY, false ),
+            new FoodSortOrder( FoodSortOrder.Key.COST, FoodSortOrder.Key.NAME, false ),
+            new FoodSortOrder( FoodSortOrder.Key.TOTAL_VALUE, FoodSortOrder.Key.NAME, true ),
+            new FoodSortOrder( FoodSortOrder.Key.LOCATION, FoodSortOrder.Key.EXPIRY, false ),
+    };
+
+    // Hands foods to NewFoodActivity for editing, shared through the application.
+    private EditSessionStore editSessions;
+    // Only set, and only used, when BuildConfig.METRICS is on.
+    private MetricsRegistry metrics;
 
     /**
      * @class
@@ -53,32 +122,369 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         RecyclerView rvFoods = (RecyclerView) findViewById(R.id.rv_food_list);
+        totalCostView = (TextView) findViewById(R.id.total_cost_view);
 
-        foods = new ArrayList<>();
-        adapter = new FoodAdapter(foods, this);
+        inventory = new Inventory();
+        // The main thread makes every change, background threads read snapshots. Changes wait until the
+        // stored foods are loaded, by which time the repository has its id counter back and adds never block.
+        inventoryWriter = new InventoryWriter( inventory, ContextCompat.getMainExecutor( this ) );
+        inventoryWriter.hold();
+        adapter = new FoodAdapter(this);
+        filterController = new FoodFilterController( inventory, adapter );
+        setUpSearchFields();
 
         rvFoods.setAdapter(adapter);
         rvFoods.setLayoutManager(new GridLayoutManager(this, 1));
 
+        // The stored foods are read on the repository's thread and handed back to the UI thread.
+        repository = ((FoodBookApplication) getApplication()).getRepository();
+        editSessions = ((FoodBookApplication) getApplication()).getEditSessions();
+        metrics = ((FoodBookApplication) getApplication()).getMetrics();
+        history = ((FoodBookApplication) getApplication()).getHistory();
+        forecast = ((FoodBookApplication) getApplication()).getForecast();
+        repository.load( loaded -> inventoryWriter.release( target -> {
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            target.addAll( loaded );
+            forecast.track( loaded, System.currentTimeMillis() );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            filterController.refresh();
+            refreshCostView();
+        }));
+    }
+
+    /**
+     * @description Stops the background search thread along with the activity.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        filterController.shutdown();
+        csvExecutor.shutdownNow();
+        sortExecutor.shutdownNow();
+    }
+
+    /**
+     * @description Writes out any batched changes and the depletion forecast when the activity leaves
+     * the screen since the process may be killed at any point after this.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        repository.flush();
+        ((FoodBookApplication) getApplication()).saveForecast();
     }
 
     ActivityResultLauncher<Intent> activityResultLaunch = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == this.SUCCESS ) {
-                    Food newFood = (Food) result.getData()
-                            .getSerializableExtra( String.valueOf(R.string.new_food) );
-                    foods.add( newFood );
-                    adapter.notifyDataSetChanged();
-                    refreshCostView();
+                    Food newFood = ((ParcelableFood) result.getData()
+                            .getParcelableExtra( String.valueOf(R.string.new_food) )).getFood();
+                    // Buying more of something already stored with the same best before date is
+                    // offered as a merge, a different date always makes a lot of its own.
+                    Food lot = inventory.findMergeTarget( newFood );
+                    if( lot == null ) {
+                        addFood( newFood );
+                        return;
+                    }
+                    // A DialogFragment, so the pending food is not lost if the activity is re-created.
+                    MergeDialogFragment.newInstance( lot, newFood,
+                            getString( R.string.merge_message, lot.getCountValue(), lot.getName(), lot.getLocation() ) )
+                            .show( getSupportFragmentManager(), MergeDialogFragment.TAG );
                 } else if ( result.getResultCode() == this.SAVED ) {
-                    Food savedFood = (Food) result.getData().
-                            getSerializableExtra( String.valueOf( R.string.new_food ));
-                    foods.set( editingIndex, savedFood );
-                    adapter.notifyDataSetChanged();
-                    refreshCostView();
+                    long id = result.getData().getLongExtra( String.valueOf( R.string.food_object ), 0 );
+                    EditSessionStore.Session session = editSessions.take( id );
+                    if( session == null || session.getDelta() == null || session.getDelta().isEmpty() ) return;
+                    saveEdit( id, session );
+                }
+            });
+
+    /**
+     * @description Stores an edit made in NewFoodActivity.
+     * @param id Id of the edited food.
+     * @param session The finished edit session, holding the changed fields.
+     */
+    private void saveEdit( long id, EditSessionStore.Session session ) {
+        inventoryWriter.submit( target -> {
+            // Looked up by id, the food may have moved or been deleted while it was being edited.
+            int index = target.indexOfId( id, session.getPositionHint() );
+            if( index < 0 ) return;
+            Food before = target.get( index );
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            Food savedFood = target.applyEdit( id, index, session.getDelta() );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            repository.update( savedFood );
+            history.recordChange( before, savedFood, System.currentTimeMillis() );
+            forecast.recordChange( before, savedFood, System.currentTimeMillis() );
+            filterController.refresh();
+            refreshCostView();
+        } );
+    }
+
+    /**
+     * @description Stores a new food and adds it to the list as a lot of its own.
+     * @param newFood Food returned by NewFoodActivity.
+     */
+    void addFood( Food newFood ) {
+        inventoryWriter.submit( target -> {
+            repository.add( newFood );
+            history.recordChange( null, newFood, System.currentTimeMillis() );
+            forecast.recordChange( null, newFood, System.currentTimeMillis() );
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            target.add( newFood );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            filterController.refresh();
+            refreshCostView();
+        } );
+    }
+
+    /**
+     * @description Adds a new food's count to a stored lot of the same item instead of storing it.
+     * @param lotId Id of the stored food found by Inventory.findMergeTarget.
+     * @param newFood Food returned by NewFoodActivity.
+     */
+    void mergeFood( long lotId, Food newFood ) {
+        inventoryWriter.submit( target -> {
+            // The lot may have been edited or deleted while the dialog was open.
+            int index = target.indexOfId( lotId, -1 );
+            if( index < 0 ) {
+                addFood( newFood );
+                return;
+            }
+            Food before = target.get( index );
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            Food merged = target.merge( before, index, newFood );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            repository.update( merged );
+            history.recordChange( before, merged, System.currentTimeMillis() );
+            forecast.recordChange( before, merged, System.currentTimeMillis() );
+            filterController.refresh();
+            refreshCostView();
+        } );
+    }
+
+    ActivityResultLauncher<String[]> importLaunch = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if( uri != null ) importCsv( uri );
+            });
+
+    ActivityResultLauncher<String> exportLaunch = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument( "text/csv" ),
+            uri -> {
+                if( uri != null ) exportCsv( uri );
+            });
+
+    @Override
+    public boolean onCreateOptionsMenu( Menu menu ) {
+        getMenuInflater().inflate( R.menu.main_menu, menu );
+        menu.findItem( R.id.dump_metrics ).setVisible( BuildConfig.METRICS );
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected( MenuItem item ) {
+        if( item.getItemId() == R.id.import_csv ) {
+            importLaunch.launch( new String[] { "text/csv", "text/comma-separated-values", "text/plain" } );
+            return true;
+        } else if( item.getItemId() == R.id.export_csv ) {
+            exportLaunch.launch( "foods.csv" );
+            return true;
+        } else if( item.getItemId() == R.id.shopping_list ) {
+            showShoppingList();
+            return true;
+        } else if( BuildConfig.METRICS && item.getItemId() == R.id.dump_metrics ) {
+            dumpMetrics();
+            return true;
+        }
+        return super.onOptionsItemSelected( item );
+    }
+
+    /**
+     * @description Reads foods from a CSV file on a background thread. Each batch of foods is stored
+     * and shown with a single list update, and the reader waits for that before reading on so only one
+     * batch is ever held in memory. Rows which can not be read are logged and counted.
+     * @param uri The file picked by the user.
+     */
+    private void importCsv( Uri uri ) {
+        long today = EpochDays.fromMillis( System.currentTimeMillis(), TimeZone.getDefault() );
+        csvExecutor.execute( () -> {
+            FoodCsv.ImportListener listener = new FoodCsv.ImportListener() {
+                @Override
+                public void onBatch( List<Food> batch ) {
+                    Future<InventorySnapshot> apply = inventoryWriter.submit( target -> {
+                        repository.addAll( batch );
+                        long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+                        target.addAll( batch );
+                        if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+                        history.recordChanges( Collections.emptyList(), batch, System.currentTimeMillis() );
+                        forecast.recordChanges( Collections.emptyList(), batch, System.currentTimeMillis() );
+                        filterController.refresh();
+                        refreshCostView();
+                    } );
+                    try {
+                        apply.get();
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException( e );
+                    } catch ( ExecutionException e ) {
+                        throw new IllegalStateException( e.getCause() );
+                    }
                 }
+
+                @Override
+                public void onProgress( long rowsRead ) {
+                    runOnUiThread( () -> setTitle( getString( R.string.import_progress, rowsRead ) ) );
+                }
+
+                @Override
+                public void onRowError( long line, String message ) {
+                    Log.w( TAG, "Skipped CSV line " + line + ": " + message );
+                }
+            };
+
+            String message;
+            try ( InputStream in = getContentResolver().openInputStream( uri ) ) {
+                if( in == null ) throw new IOException( "Could not open " + uri );
+                FoodCsv.Result result = FoodCsv.read(
+                        new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) ),
+                        IMPORT_BATCH_SIZE, today, listener );
+                message = getString( R.string.import_done, result.imported, result.rejected );
+            } catch ( IOException | IllegalStateException e ) {
+                message = getString( R.string.import_failed, e.getMessage() );
+            }
+            String shown = message;
+            runOnUiThread( () -> {
+                setTitle( R.string.app_name );
+                repository.flush();
+                Toast.makeText( this, shown, Toast.LENGTH_LONG ).show();
             });
+        });
+    }
+
+    /**
+     * @description Writes every food to a CSV file on a background thread. The thread writes the latest
+     * inventory snapshot, which stays the same however the UI changes the inventory meanwhile.
+     * @param uri The file created by the user.
+     */
+    private void exportCsv( Uri uri ) {
+        csvExecutor.execute( () -> {
+            InventorySnapshot foods = inventoryWriter.getSnapshot();
+            String message;
+            try ( OutputStream out = getContentResolver().openOutputStream( uri ) ) {
+                if( out == null ) throw new IOException( "Could not open " + uri );
+                Writer writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) );
+                FoodCsv.write( writer, foods.getFoods() );
+                message = getString( R.string.export_done, foods.size() );
+            } catch ( IOException e ) {
+                message = getString( R.string.export_failed, e.getMessage() );
+            }
+            String shown = message;
+            runOnUiThread( () -> Toast.makeText( this, shown, Toast.LENGTH_LONG ).show() );
+        });
+    }
+
+    /**
+     * @description Binds the search fields so that any change to them updates the filter on the list.
+     */
+    private void setUpSearchFields() {
+        searchText = (EditText) findViewById(R.id.search_text);
+        searchMinCost = (EditText) findViewById(R.id.search_min_cost);
+        searchMaxCost = (EditText) findViewById(R.id.search_max_cost);
+        searchMinCount = (EditText) findViewById(R.id.search_min_count);
+        searchLocation = (Spinner) findViewById(R.id.search_location);
+
+        TextWatcher watcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence charSequence, int i, int i1, int i2) {}
+
+            @Override
+            public void onTextChanged(CharSequence charSequence, int i, int i1, int i2) {}
+
+            @Override
+            public void afterTextChanged(Editable editable) {
+                updateFilter();
+            }
+        };
+        searchText.addTextChangedListener( watcher );
+        searchMinCost.addTextChangedListener( watcher );
+        searchMaxCost.addTextChangedListener( watcher );
+        searchMinCount.addTextChangedListener( watcher );
+
+        ArrayAdapter<CharSequence> locations = ArrayAdapter.createFromResource(this, R.array.location_filters, android.R.layout.simple_spinner_item);
+        locations.setDropDownViewResource(android.R.layout.simple_spinner_item);
+        searchLocation.setAdapter( locations );
+        searchLocation.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> adapterView, View view, int position, long id) {
+                updateFilter();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> adapterView) {}
+        });
+
+        Spinner sortOrder = (Spinner) findViewById(R.id.sort_order);
+        ArrayAdapter<CharSequence> orders = ArrayAdapter.createFromResource(this, R.array.sort_orders, android.R.layout.simple_spinner_item);
+        orders.setDropDownViewResource(android.R.layout.simple_spinner_item);
+        sortOrder.setAdapter( orders );
+        sortOrder.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> adapterView, View view, int position, long id) {
+                setSortOrder( SORT_ORDERS[ position ] );
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> adapterView) {}
+        });
+    }
+
+    /**
+     * @description Changes how the list is sorted. The foods of the latest snapshot are sorted on a
+     * background thread and handed to the inventory through the writer, which only sorts them again if
+     * the inventory changed in the meantime.
+     * @param order The order, or null for the order the foods were added in.
+     */
+    private void setSortOrder( FoodSortOrder order ) {
+        if( order == null ) {
+            inventoryWriter.submit( target -> {
+                target.setSortOrder( null );
+                filterController.refresh();
+            } );
+            return;
+        }
+        InventorySnapshot snapshot = inventoryWriter.getSnapshot();
+        sortExecutor.execute( () -> {
+            SortedFoodList sorted = new SortedFoodList( order );
+            sorted.setAll( snapshot.asList() );
+            inventoryWriter.submit( target -> {
+                target.setSortOrder( sorted, snapshot.getVersion() );
+                filterController.refresh();
+            } );
+        });
+    }
+
+    /**
+     * @description Builds a filter from the search fields and hands it to the filter controller.
+     * The first entry of the location spinner is "All", the rest follow the locations string array.
+     */
+    private void updateFilter() {
+        filterController.setFilter( new FoodFilter(
+                searchText.getText().toString(),
+                searchLocation.getSelectedItemPosition() - 1,
+                parseOr( searchMinCost, Integer.MIN_VALUE ),
+                parseOr( searchMaxCost, Integer.MAX_VALUE ),
+                parseOr( searchMinCount, Integer.MIN_VALUE ) ) );
+    }
+
+    private static int parseOr( EditText field, int fallback ) {
+        if( TextUtils.isEmpty( field.getText() ) ) return fallback;
+        try {
+            return Integer.parseInt( field.getText().toString() );
+        } catch ( NumberFormatException e ) {
+            return fallback;
+        }
+    }
 
     /**
      * @description Launches activity where user can define a new food to add to the list of foods.
@@ -92,28 +498,206 @@ public class MainActivity extends AppCompatActivity {
     /**
      * @description This method will launch the add new food activity while passing in the data from
      * the food the user wants to edit.
-     * @param position Positing on the list of stored foods which holds the food to edit.
+     * @param food The food to edit, as shown by the adapter.
      */
-    public void editFood( int position ) {
+    public void editFood( Food food ) {
+        int position = inventory.indexOf( food );
+        if( position < 0 ) return;
+
+        // The editor reads the food from the edit session, only the id goes in the intent.
+        Food stored = inventory.get( position );
+        editSessions.open( stored, position );
         Intent intent = new Intent(this, NewFoodActivity.class );
         intent.putExtra( String.valueOf( R.string.edit_food ), true );
-        intent.putExtra(String.valueOf( R.string.food_object ), foods.get( position ) );
-
-        editingIndex = position;
+        intent.putExtra(String.valueOf( R.string.food_object ), stored.getId() );
 
         activityResultLaunch.launch( intent );
     }
 
     /**
-     * @description Used to re-calculate the total cost of all the food. Defined as
-     * sum( cost * count ) for all food.
+     * @description Removes a food from the list and from storage.
+     * @param food The food to remove, as shown by the adapter.
+     */
+    public void deleteFood( Food food ) {
+        inventoryWriter.submit( target -> {
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            boolean removed = target.remove( food );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            if( !removed ) return;
+            repository.delete( food );
+            history.recordChange( food, null, System.currentTimeMillis() );
+            forecast.recordChange( food, null, System.currentTimeMillis() );
+            filterController.refresh();
+            refreshCostView();
+        } );
+    }
+
+    /**
+     * @description Shows or updates the batch action bar as rows are selected, and closes it once the
+     * last row is unselected.
+     * @param selectedCount How many foods are selected now.
+     */
+    public void onSelectionChanged( int selectedCount ) {
+        if( selectedCount == 0 ) {
+            if( selectionMode != null ) selectionMode.finish();
+            return;
+        }
+        if( selectionMode == null ) selectionMode = startSupportActionMode( selectionCallback );
+        if( selectionMode != null ) selectionMode.setTitle( getString( R.string.selected_count, selectedCount ) );
+    }
+
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode( ActionMode mode, Menu menu ) {
+            mode.getMenuInflater().inflate( R.menu.selection_menu, menu );
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode( ActionMode mode, Menu menu ) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked( ActionMode mode, MenuItem item ) {
+            switch ( item.getItemId() ) {
+                case R.id.delete_selected:
+                    deleteFoods( adapter.getSelectedIds() );
+                    break;
+                case R.id.move_fridge:
+                    replaceFoods( adapter.getSelectedIds(), selected -> BatchEdits.moveTo( selected, 0 ) );
+                    break;
+                case R.id.move_pantry:
+                    replaceFoods( adapter.getSelectedIds(), selected -> BatchEdits.moveTo( selected, 1 ) );
+                    break;
+                case R.id.move_freezer:
+                    replaceFoods( adapter.getSelectedIds(), selected -> BatchEdits.moveTo( selected, 2 ) );
+                    break;
+                case R.id.count_up:
+                    replaceFoods( adapter.getSelectedIds(), selected -> BatchEdits.adjustCount( selected, 1 ) );
+                    return true;
+                case R.id.count_down:
+                    replaceFoods( adapter.getSelectedIds(), selected -> BatchEdits.adjustCount( selected, -1 ) );
+                    return true;
+                default:
+                    // Opening the move submenu.
+                    return false;
+            }
+            mode.finish();
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode( ActionMode mode ) {
+            selectionMode = null;
+            adapter.clearSelection();
+        }
+    };
+
+    /**
+     * @description Removes a batch of foods as one operation: one pass over the inventory, one storage
+     * write and one update of the list.
+     * @param ids Ids of the foods to remove, looked up in the inventory once the writer gets to them.
+     */
+    public void deleteFoods( Set<Long> ids ) {
+        inventoryWriter.submit( target -> {
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            List<Food> removed = target.removeAll( target.findAll( ids ) );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            if( removed.isEmpty() ) return;
+            repository.deleteAll( removed );
+            history.recordChanges( removed, Collections.emptyList(), System.currentTimeMillis() );
+            forecast.recordChanges( removed, Collections.emptyList(), System.currentTimeMillis() );
+            filterController.refresh();
+            refreshCostView();
+        } );
+    }
+
+    /**
+     * @description Stores a batch of edited foods as one operation: one pass over the inventory, one
+     * storage write and one update of the list. The edit is applied to the foods as they are stored when
+     * the writer gets to it, not as they were shown, so pressing count up twice adds two and a food
+     * deleted since it was selected is not brought back.
+     * @param ids Ids of the foods to edit.
+     * @param edit Makes the edited foods from the stored ones, e.g. one of the BatchEdits.
+     */
+    private void replaceFoods( Set<Long> ids, Function<List<Food>, List<Food>> edit ) {
+        inventoryWriter.submit( target -> {
+            long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+            Inventory.Replacement replaced = target.replaceAll( edit.apply( target.findAll( ids ) ) );
+            if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.LIST_MUTATION, System.nanoTime() - start );
+            if( replaced.isEmpty() ) return;
+            repository.updateAll( replaced.after );
+            history.recordChanges( replaced.before, replaced.after, System.currentTimeMillis() );
+            forecast.recordChanges( replaced.before, replaced.after, System.currentTimeMillis() );
+            filterController.refresh();
+            refreshCostView();
+        } );
+    }
+
+    /**
+     * @description Shows the total cost of all the food. Defined as sum( cost * count ) for all food.
+     * The total itself is kept up to date by InventoryTotals as foods are added, edited and removed.
      */
     public void refreshCostView() {
-        int totalSum = 0;
-        for( Food food : foods ) {
-            totalSum += (food.getCost() * food.getCount() );
+        long start = BuildConfig.METRICS ? System.nanoTime() : 0;
+        totalCostView.setText( String.valueOf( inventory.getTotals().getTotal() ) );
+        if( BuildConfig.METRICS ) metrics.record( MetricsRegistry.Operation.TOTAL_COST, System.nanoTime() - start );
+    }
+
+    /**
+     * @description Adds the metrics snapshot to the activity's dump, so
+     * "adb shell dumpsys activity com.example.foodbook" prints it.
+     */
+    @Override
+    public void dump( String prefix, FileDescriptor fd, PrintWriter writer, String[] args ) {
+        super.dump( prefix, fd, writer, args );
+        if( !BuildConfig.METRICS ) return;
+        writer.println( prefix + "Metrics:" );
+        try {
+            metrics.dump( writer );
+        } catch ( IOException e ) {
+            // A PrintWriter does not throw.
+        }
+    }
+
+    /**
+     * @description Shows what is predicted to run out within the next week, with enough of each to last
+     * another week at the rate it is being used, and the estimated cost.
+     */
+    private void showShoppingList() {
+        DepletionForecast.ShoppingList list = forecast.shoppingList( System.currentTimeMillis(),
+                SHOPPING_DAYS, SHOPPING_DAYS );
+        DisplayStrings displayStrings = new DisplayStrings();
+        StringBuilder text = new StringBuilder();
+        for( DepletionForecast.Entry entry : list.getEntries() ) {
+            text.append( getString( R.string.shopping_list_line, entry.quantity, entry.name,
+                    displayStrings.date( entry.runOutMillis ), entry.getCost() ) ).append( '\n' );
+        }
+        if( list.getEntries().isEmpty() ) text.append( getString( R.string.shopping_list_empty ) );
+        else text.append( '\n' ).append( getString( R.string.shopping_list_total, list.getTotalCost() ) );
+        new AlertDialog.Builder( this )
+                .setTitle( R.string.shopping_list )
+                .setMessage( text )
+                .setPositiveButton( android.R.string.ok, null )
+                .show();
+    }
+
+    /**
+     * @description Writes the metrics snapshot to metrics.txt in the app's files and to logcat.
+     */
+    private void dumpMetrics() {
+        StringBuilder text = new StringBuilder();
+        try {
+            metrics.dump( text );
+            try ( Writer out = new OutputStreamWriter(
+                    new FileOutputStream( new File( getFilesDir(), "metrics.txt" ) ), StandardCharsets.UTF_8 ) ) {
+                out.write( text.toString() );
+            }
+        } catch ( IOException e ) {
+            Log.w( TAG, "Could not write metrics.txt", e );
         }
-        TextView totalCostView = (TextView) findViewById(R.id.total_cost_view);
-        totalCostView.setText( String.valueOf( totalSum ) );
+        for( String line : text.toString().split( "\n" ) ) Log.i( TAG, line );
+        Toast.makeText( this, R.string.metrics_dumped, Toast.LENGTH_SHORT ).show();
     }
 }
\ No newline at end of file
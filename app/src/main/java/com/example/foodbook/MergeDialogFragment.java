@@ -0,0 +1,58 @@
+package com.example.foodbook;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.fragment.app.DialogFragment;
+
+import android.app.Dialog;
+import android.os.Bundle;
+
+/**
+ * @class MergeDialogFragment
+ * @extends DialogFragment
+ * @description Asks whether a new food should be merged into a stored lot of the same item or kept as
+ * a lot of its own. The new food and the lot's id are held in the fragment's arguments, so the question
+ * and its answer survive the activity being re-created, e.g. on rotation, while the dialog is open.
+ * The answer is handed to MainActivity.
+ */
+public class MergeDialogFragment extends DialogFragment {
+
+    static final String TAG = "MergeDialogFragment";
+
+    private static final String LOT_ID = "lotId";
+    private static final String MESSAGE = "message";
+    private static final String NEW_FOOD = "newFood";
+
+    /**
+     * @description Creates the dialog for a new food and the lot it could be merged into.
+     * @param lot Stored food found by Inventory.findMergeTarget.
+     * @param newFood Food returned by NewFoodActivity.
+     * @param message Question shown to the user.
+     * @return The dialog, ready to be shown.
+     */
+    public static MergeDialogFragment newInstance( Food lot, Food newFood, String message ) {
+        Bundle arguments = new Bundle();
+        arguments.putLong( LOT_ID, lot.getId() );
+        arguments.putString( MESSAGE, message );
+        arguments.putParcelable( NEW_FOOD, new ParcelableFood( newFood ) );
+        MergeDialogFragment fragment = new MergeDialogFragment();
+        fragment.setArguments( arguments );
+        return fragment;
+    }
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog( Bundle savedInstanceState ) {
+        Bundle arguments = requireArguments();
+        long lotId = arguments.getLong( LOT_ID );
+        Food newFood = ((ParcelableFood) arguments.getParcelable( NEW_FOOD )).getFood();
+        // Either answer stores the food, so the dialog can not be dismissed without one.
+        setCancelable( false );
+        return new AlertDialog.Builder( requireContext() )
+                .setTitle( R.string.merge_title )
+                .setMessage( arguments.getString( MESSAGE ) )
+                .setPositiveButton( R.string.merge_counts, ( dialog, which ) -> ((MainActivity) requireActivity()).mergeFood( lotId, newFood ) )
+                .setNegativeButton( R.string.merge_keep_separate, ( dialog, which ) -> ((MainActivity) requireActivity()).addFood( newFood ) )
+                .create();
+    }
+}
@@ -9,7 +9,9 @@ import android.text.Editable;
 import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.CalendarView;
 import android.widget.EditText;
@@ -30,8 +32,18 @@ public class NewFoodActivity extends AppCompatActivity {
     private Button confirmButton;
     private Food alreadyStoredFood;
     private boolean isEditing = false;
+    private long editingId;
+    private EditSessionStore editSessions;
     private CalendarView calendar;
     private long currentSelectedDate;
+    // Whether the user picked the date or the location themselves, which a catalogue match must not undo.
+    private boolean dateChosen, locationChosen;
+    // The location position last set from code rather than by the user.
+    private int proposedLocation;
+
+    private static final String DATE_CHOSEN = "dateChosen";
+    private static final String LOCATION_CHOSEN = "locationChosen";
+    private static final String PROPOSED_LOCATION = "proposedLocation";
 
     /**
      * @class
@@ -45,6 +57,11 @@ public class NewFoodActivity extends AppCompatActivity {
         setContentView(R.layout.activity_new_food);
 
         intent = getIntent();
+        if( savedInstanceState != null ) {
+            dateChosen = savedInstanceState.getBoolean( DATE_CHOSEN );
+            locationChosen = savedInstanceState.getBoolean( LOCATION_CHOSEN );
+            proposedLocation = savedInstanceState.getInt( PROPOSED_LOCATION );
+        }
 
         confirmButton = (Button) findViewById(R.id.confirm_new_food);
         confirmButton.setEnabled( false );
@@ -64,6 +81,8 @@ public class NewFoodActivity extends AppCompatActivity {
                 c.set( year, month, day );
                 currentSelectedDate = c.getTimeInMillis();
                 calendar.setDate( currentSelectedDate );
+                // Only a tap on the calendar gets here, setDate from code does not.
+                dateChosen = true;
             }
         });
 
@@ -72,14 +91,114 @@ public class NewFoodActivity extends AppCompatActivity {
 
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_item);
         locationChoices.setAdapter( adapter );
+        locationChoices.setOnItemSelectedListener( new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected( AdapterView<?> parent, View view, int position, long id ) {
+                // setSelection from code also lands here, but always on the proposed position.
+                if( position != proposedLocation ) locationChosen = true;
+            }
+
+            @Override
+            public void onNothingSelected( AdapterView<?> parent ) {}
+        });
 
         if( intent.getBooleanExtra(String.valueOf( R.string.edit_food ), false) ) {
             // We need to get the food object and prefill everything.
+            // The food itself is read from the edit session, only its id comes through the intent.
             isEditing = true;
-            alreadyStoredFood = (Food) intent.getSerializableExtra( String.valueOf( R.string.food_object ));
+            editSessions = ((FoodBookApplication) getApplication()).getEditSessions();
+            editingId = intent.getLongExtra( String.valueOf( R.string.food_object ), 0 );
+            alreadyStoredFood = editSessions.get( editingId );
+            if( alreadyStoredFood == null ) {
+                // The session did not survive, e.g. the process was restarted while this screen was away.
+                setResult( MainActivity.CANCEL );
+                finish();
+                return;
+            }
             preFillFields();
         }
+        else {
+            setUpCatalog();
+        }
+
+    }
+
+    /**
+     * @description Suggests catalogue products as the name is typed, and fills in the other fields
+     * from the product picked, from the product whose barcode was typed or scanned, or from the product
+     * whose name was typed in full once the name field is left.
+     */
+    private void setUpCatalog() {
+        FoodBookApplication application = (FoodBookApplication) getApplication();
+        AutoCompleteTextView foodName = (AutoCompleteTextView) findViewById( R.id.new_found_name );
+        foodName.setAdapter( new CatalogSuggestionAdapter( this, application ) );
+
+        foodName.setOnItemClickListener( ( parent, view, position, id ) -> {
+            ProductCatalog catalog = application.getCatalog();
+            if( catalog != null ) fillFromProduct( catalog.find( (String) parent.getItemAtPosition( position ) ) );
+        });
+        foodName.addTextChangedListener( new TextWatcher() {
+            @Override
+            public void beforeTextChanged( CharSequence charSequence, int i, int i1, int i2 ) {}
 
+            @Override
+            public void onTextChanged( CharSequence charSequence, int i, int i1, int i2 ) {}
+
+            @Override
+            public void afterTextChanged( Editable editable ) {
+                ProductCatalog catalog = application.getCatalog();
+                String typed = editable.toString().trim();
+                if( catalog == null || !isBarcode( typed ) ) return;
+                CatalogProduct product = catalog.findByBarcode( Long.parseLong( typed ) );
+                if( product == null ) return;
+                // Swap the code for the product name without popping up its suggestions.
+                foodName.setText( product.getName(), false );
+                foodName.setSelection( foodName.length() );
+                fillFromProduct( product );
+            }
+        });
+        foodName.setOnFocusChangeListener( ( view, hasFocus ) -> {
+            ProductCatalog catalog = application.getCatalog();
+            if( hasFocus || catalog == null ) return;
+            fillFromProduct( catalog.find( foodName.getText().toString() ) );
+        });
+    }
+
+    /**
+     * @description Whether typed text looks like an EAN/UPC barcode rather than a name.
+     */
+    private static boolean isBarcode( String text ) {
+        if( text.length() < 8 || text.length() > 14 ) return false;
+        for( int i = 0; i < text.length(); i++ ) {
+            if( !Character.isDigit( text.charAt( i ) ) ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @description Fills in the fields from a catalogue product. The description and cost are only
+     * filled in if still empty, and the location and the expiry date, proposed from the product's shelf
+     * life counted from today, only until the user picks them, so nothing they entered is overwritten
+     * when the name field loses focus again.
+     * @param product The product, or null to leave the fields alone.
+     */
+    private void fillFromProduct( CatalogProduct product ) {
+        if( product == null ) return;
+        EditText foodDescription = (EditText) findViewById(R.id.new_food_description);
+        EditText foodCost = (EditText) findViewById(R.id.new_food_cost);
+        Spinner foodLocation = (Spinner) findViewById(R.id.new_food_location_choice);
+
+        if( TextUtils.isEmpty( foodDescription.getText() ) ) foodDescription.setText( product.getDescription() );
+        if( TextUtils.isEmpty( foodCost.getText() ) ) foodCost.setText( String.valueOf( product.getCost() ) );
+        if( !locationChosen && product.getLocationPosition() < foodLocation.getCount() ) {
+            proposedLocation = product.getLocationPosition();
+            foodLocation.setSelection( proposedLocation );
+        }
+        if( !dateChosen ) {
+            long today = EpochDays.fromMillis( System.currentTimeMillis() );
+            currentSelectedDate = EpochDays.toMillis( product.bestBeforeDay( today ) );
+            calendar.setDate( currentSelectedDate );
+        }
     }
 
     /**
@@ -100,8 +219,14 @@ public class NewFoodActivity extends AppCompatActivity {
         foodName.setFocusable( false );
         foodName.setClickable( false );
         foodCount.setText( alreadyStoredFood.getCount().toString() );
-        foodExpDate.setDate( alreadyStoredFood.getBestBeforeDate() );
-        foodLocation.setSelection( alreadyStoredFood.getLocationPosition() );
+        foodExpDate.setDate( alreadyStoredFood.getBestBeforeMillis() );
+        // A custom location imported from CSV has no entry in the spinner, which then stays on the first one.
+        // It is kept on save unless the user picks another location, see editedFood.
+        if( alreadyStoredFood.getLocationPosition() < foodLocation.getCount() ) {
+            // Set first, so the selection made here is not taken as the user's.
+            if( !locationChosen ) proposedLocation = alreadyStoredFood.getLocationPosition();
+            foodLocation.setSelection( alreadyStoredFood.getLocationPosition() );
+        }
         foodDescription.setText( alreadyStoredFood.getDescription() );
         foodCost.setText( alreadyStoredFood.getCost().toString() );
     }
@@ -175,21 +300,54 @@ public class NewFoodActivity extends AppCompatActivity {
             setResult( MainActivity.SUCCESS , intent );
         }
         else {
-            alreadyStoredFood.setCount( count );
-            alreadyStoredFood.setBestBeforeDate( date );
-            alreadyStoredFood.setLocation( location );
-            alreadyStoredFood.setLocationPosition( locationPosition );
-            alreadyStoredFood.setDescription( description );
-            alreadyStoredFood.setCost( cost );
-
-            newFood = alreadyStoredFood;
+            // The stored food is left untouched, only the fields which changed are committed back.
+            Food entered = new Food(alreadyStoredFood.getName(), description, count, date, location, locationPosition, cost);
+            Food edited = editedFood( alreadyStoredFood, entered, locationChosen );
+            editSessions.commit( editingId, FoodDelta.diff( alreadyStoredFood, edited ) );
             setResult( MainActivity.SAVED , intent );
-
+            finish();
+            return;
         }
-        intent.putExtra( String.valueOf(R.string.new_food), newFood);
+        intent.putExtra( String.valueOf(R.string.new_food), new ParcelableFood( newFood ) );
         finish();
     }
 
+    /**
+     * @description Works out the food an edit is saved as. The spinner only holds the fixed locations, so
+     * a food at a custom location shows the first one; unless the user picked a location, the stored one
+     * is kept rather than moving the food there.
+     * @param stored The food as the editor was given it.
+     * @param entered A food holding the values in the fields.
+     * @param locationChosen Whether the user picked a location in the spinner.
+     * @return entered, or a copy of it at the stored location.
+     */
+    static Food editedFood( Food stored, Food entered, boolean locationChosen ) {
+        if( locationChosen ) return entered;
+        return new Food( entered.getName(), entered.getDescription(), entered.getCountValue(),
+                new Date( entered.getBestBeforeMillis() ), stored.getLocation(), stored.getLocationPosition(),
+                entered.getCostValue() );
+    }
+
+    /**
+     * @description Keeps track of which fields the user picked across a rotation.
+     */
+    @Override
+    protected void onSaveInstanceState( @NonNull Bundle outState ) {
+        super.onSaveInstanceState( outState );
+        outState.putBoolean( DATE_CHOSEN, dateChosen );
+        outState.putBoolean( LOCATION_CHOSEN, locationChosen );
+        outState.putInt( PROPOSED_LOCATION, proposedLocation );
+    }
+
+    /**
+     * @description Closes the edit session if the editor is leaving without saving, e.g. on back.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if( isEditing && isFinishing() ) editSessions.cancel( editingId );
+    }
+
     /**
      * @description Should be called by the cancel button on the activity_new_food.xml layout.
      * Will close the activity sending an empty intent back.
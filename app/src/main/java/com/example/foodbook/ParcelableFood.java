@@ -0,0 +1,47 @@
+package com.example.foodbook;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * @class ParcelableFood
+ * @impliments Parcelable
+ * @description Wraps a Food so it can be put in an Intent. The food is written to the parcel in the
+ * FoodCodec format rather than through java.io.Serializable.
+ */
+public class ParcelableFood implements Parcelable {
+
+    private final Food food;
+
+    /**
+     * Constructor
+     * @param food The food to send.
+     */
+    public ParcelableFood( Food food ) {
+        this.food = food;
+    }
+
+    public Food getFood() { return food; }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel( Parcel dest, int flags ) {
+        dest.writeByteArray( FoodCodec.encode( food ) );
+    }
+
+    public static final Creator<ParcelableFood> CREATOR = new Creator<ParcelableFood>() {
+        @Override
+        public ParcelableFood createFromParcel( Parcel source ) {
+            return new ParcelableFood( FoodCodec.decode( source.createByteArray() ) );
+        }
+
+        @Override
+        public ParcelableFood[] newArray( int size ) {
+            return new ParcelableFood[ size ];
+        }
+    };
+}
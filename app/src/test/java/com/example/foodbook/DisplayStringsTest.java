@@ -0,0 +1,87 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cached display strings, plus an allocation count of the values the food
+ * list reads and formats when binding 10k rows.
+ */
+public class DisplayStringsTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone( "UTC" );
+
+    @Test
+    public void date_isFormattedByDay() {
+        DisplayStrings strings = new DisplayStrings( UTC );
+        assertEquals( "2022-09-14", strings.date( 1663113600000L ) );
+        assertEquals( "2022-09-14", strings.date( 1663113600000L + 23 * 3_600_000L ) );
+        assertEquals( "1969-12-31", strings.date( -1 ) );
+    }
+
+    @Test
+    public void date_collidingDaysDoNotMixUp() {
+        DisplayStrings strings = new DisplayStrings( UTC );
+        String first = strings.date( 0 );
+        String second = strings.date( 512 * EpochDays.MILLIS_PER_DAY );
+        assertEquals( "1970-01-01", first );
+        assertEquals( "1971-05-28", second );
+        assertEquals( "1970-01-01", strings.date( 0 ) );
+    }
+
+    @Test
+    public void number_isCachedInRangeAndFormattedOutside() {
+        DisplayStrings strings = new DisplayStrings( UTC );
+        assertSame( strings.number( 12 ), strings.number( 12 ) );
+        assertEquals( "-4", strings.number( -4 ) );
+        assertEquals( "100000", strings.number( 100_000 ) );
+    }
+
+    /**
+     * Does the same reads and lookups as FoodAdapter.onBindViewHolder for 10k rows and checks that
+     * once the strings are cached none of it allocates.
+     */
+    @Test
+    public void bind10kRows_allocatesNothingAtSteadyState() {
+        int rows = 10_000;
+        Food[] foods = new Food[ rows ];
+        for( int i = 0; i < rows; i++ ) {
+            foods[ i ] = new Food( "Food " + i, "Description", i % 40, new Date( EpochDays.toMillis( 19_000 + i % 300 ) ),
+                    "Pantry", 1, 200 + i % 1000 );
+        }
+        DisplayStrings strings = new DisplayStrings();
+
+        // First pass fills the caches and lets the JIT compile the loop.
+        for( int i = 0; i < 20; i++ ) bindAll( foods, strings );
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long overhead = threads.getThreadAllocatedBytes( thread );
+        overhead = threads.getThreadAllocatedBytes( thread ) - overhead;
+
+        long before = threads.getThreadAllocatedBytes( thread );
+        int checksum = bindAll( foods, strings );
+        long allocated = threads.getThreadAllocatedBytes( thread ) - before - overhead;
+
+        System.out.println( "Binding " + rows + " rows allocated " + allocated + " bytes (checksum " + checksum + ")" );
+        assertEquals( 0, allocated );
+    }
+
+    private static int bindAll( Food[] foods, DisplayStrings strings ) {
+        int checksum = 0;
+        for( Food food : foods ) {
+            checksum += food.getName().length();
+            checksum += strings.number( food.getCountValue() ).length();
+            checksum += strings.date( food.getBestBeforeMillis() ).length();
+            checksum += food.getDescription().length();
+            checksum += food.getLocation().length();
+            checksum += strings.number( food.getCostValue() ).length();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.foodbook;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests counting how many rows the adapter would rebind for each kind of mutation.
+ * A row is rebound for every position reported as changed or inserted.
+ */
+public class FoodDiffCallbackTest {
+
+    private static class BindCounter implements ListUpdateCallback {
+        int binds, removed, moved;
+
+        @Override public void onInserted( int position, int count ) { binds += count; }
+        @Override public void onRemoved( int position, int count ) { removed += count; }
+        @Override public void onMoved( int fromPosition, int toPosition ) { moved++; }
+        @Override public void onChanged( int position, int count, @Nullable Object payload ) { binds += count; }
+    }
+
+    private static Food food( long id ) {
+        Food food = new Food( "Food " + id, "", 1, new Date( 0 ), "Fridge", 0, 3 );
+        food.setId( id );
+        return food;
+    }
+
+    private static Food copy( Food food ) {
+        Food copy = new Food( food.getName(), food.getDescription(), food.getCount(),
+                new Date( food.getBestBeforeDate() ), food.getLocation(), food.getLocationPosition(), food.getCost() );
+        copy.setId( food.getId() );
+        return copy;
+    }
+
+    private static BindCounter diff( List<Food> oldList, List<Food> newList ) {
+        FoodDiffCallback callback = new FoodDiffCallback();
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff( new DiffUtil.Callback() {
+            @Override public int getOldListSize() { return oldList.size(); }
+            @Override public int getNewListSize() { return newList.size(); }
+            @Override public boolean areItemsTheSame( int oldPosition, int newPosition ) {
+                return callback.areItemsTheSame( oldList.get( oldPosition ), newList.get( newPosition ) );
+            }
+            @Override public boolean areContentsTheSame( int oldPosition, int newPosition ) {
+                return callback.areContentsTheSame( oldList.get( oldPosition ), newList.get( newPosition ) );
+            }
+        });
+        BindCounter counter = new BindCounter();
+        result.dispatchUpdatesTo( counter );
+        return counter;
+    }
+
+    private static List<Food> list( int size ) {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 1; i <= size; i++ ) foods.add( food( i ) );
+        return foods;
+    }
+
+    @Test
+    public void singleEdit_rebindsOneRow() {
+        List<Food> before = list( 1000 );
+        List<Food> after = new ArrayList<>( before );
+        Food edited = copy( before.get( 500 ) );
+        edited.setCount( 7 );
+        after.set( 500, edited );
+
+        BindCounter counter = diff( before, after );
+        assertEquals( 1, counter.binds );
+        assertEquals( 0, counter.removed );
+    }
+
+    @Test
+    public void add_bindsOnlyTheNewRow() {
+        List<Food> before = list( 1000 );
+        List<Food> after = new ArrayList<>( before );
+        after.add( food( 1001 ) );
+
+        assertEquals( 1, diff( before, after ).binds );
+    }
+
+    @Test
+    public void delete_rebindsNothing() {
+        List<Food> before = list( 1000 );
+        List<Food> after = new ArrayList<>( before );
+        after.remove( 10 );
+
+        BindCounter counter = diff( before, after );
+        assertEquals( 0, counter.binds );
+        assertEquals( 1, counter.removed );
+    }
+
+    @Test
+    public void unchangedCopy_rebindsNothing() {
+        List<Food> before = list( 100 );
+        List<Food> after = new ArrayList<>();
+        for( Food food : before ) after.add( copy( food ) );
+
+        assertEquals( 0, diff( before, after ).binds );
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the location an edit is saved with.
+ */
+public class NewFoodActivityTest {
+
+    private static final Date DATE = new Date( EpochDays.toMillis( 19_000 ) );
+
+    private static Food garagePaint() {
+        Food paint = new Food( "Paint", "", 1, DATE, "Garage", FoodCsv.CUSTOM_LOCATION_POSITION, 30 );
+        paint.setId( 7 );
+        return paint;
+    }
+
+    @Test
+    public void editingCustomLocation_keepsItUnlessAnotherIsPicked() {
+        Food stored = garagePaint();
+        // The spinner has no entry for the custom location and shows the first one.
+        Food entered = new Food( "Paint", "", 2, DATE, "Fridge", 0, 30 );
+
+        FoodDelta delta = FoodDelta.diff( stored, NewFoodActivity.editedFood( stored, entered, false ) );
+        Food saved = delta.applyTo( stored );
+        assertEquals( "Garage", saved.getLocation() );
+        assertEquals( FoodCsv.CUSTOM_LOCATION_POSITION, saved.getLocationPosition() );
+        assertEquals( 2, saved.getCountValue() );
+
+        saved = FoodDelta.diff( stored, NewFoodActivity.editedFood( stored, entered, true ) ).applyTo( stored );
+        assertEquals( "Fridge", saved.getLocation() );
+        assertEquals( 0, saved.getLocationPosition() );
+    }
+}
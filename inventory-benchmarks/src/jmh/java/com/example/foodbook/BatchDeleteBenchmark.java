@@ -0,0 +1,63 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class BatchDeleteBenchmark
+ * @description Cost of deleting a number of foods from an inventory of 100,000 at once with removeAll,
+ * which makes one pass over the list and each index, and one at a time with remove. Each run needs a
+ * full inventory, so every iteration is a single delete on a freshly built one.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class BatchDeleteBenchmark {
+
+    @Param( { "100000" } )
+    public int size;
+
+    @Param( { "100", "1000", "10000" } )
+    public int removed;
+
+    private List<Food> foods;
+    private Inventory inventory;
+    private List<Food> selected;
+
+    @Setup( Level.Trial )
+    public void generate() {
+        foods = BenchmarkFoods.generate( size );
+        // Spread over the whole list, the way a selection made while scrolling would be.
+        selected = new ArrayList<>( removed );
+        for( int i = 0; i < removed; i++ ) selected.add( foods.get( (int) ( (long) i * size / removed ) ) );
+    }
+
+    @Setup( Level.Iteration )
+    public void setUp() {
+        inventory = new Inventory();
+        inventory.setSortOrder( new FoodSortOrder( FoodSortOrder.Key.EXPIRY, FoodSortOrder.Key.NAME, false ) );
+        inventory.addAll( foods );
+    }
+
+    @Benchmark
+    public List<Food> removeAll() {
+        return inventory.removeAll( selected );
+    }
+
+    @Benchmark
+    public int removeOneAtATime() {
+        for( Food food : selected ) inventory.remove( food );
+        return inventory.size();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @class BenchmarkFoods
+ * @description Builds the same pseudo random inventory for every benchmark: names and descriptions drawn
+ * from a realistic number of products, spread over the three locations and about a year of dates.
+ */
+final class BenchmarkFoods {
+
+    private BenchmarkFoods() {}
+
+    /**
+     * @description Builds an inventory of stored foods.
+     * @param size How many foods to build.
+     * @return Foods with ids 1 to size.
+     */
+    static List<Food> generate( int size ) {
+        Random random = new Random( size );
+        List<Food> foods = new ArrayList<>( size );
+        for( int i = 0; i < size; i++ ) foods.add( food( random, i + 1 ) );
+        return foods;
+    }
+
+    /**
+     * @description Builds one stored food.
+     * @param random Source of the values.
+     * @param id Id to give the food.
+     * @return The food.
+     */
+    static Food food( Random random, long id ) {
+        int location = random.nextInt( FoodCodec.LOCATIONS.length );
+        Food food = new Food( "Product " + random.nextInt( 5000 ), "Brand " + random.nextInt( 500 ),
+                1 + random.nextInt( 12 ), new Date( EpochDays.toMillis( 19_000 + random.nextInt( 400 ) ) ),
+                FoodCodec.LOCATIONS[ location ], location, random.nextInt( 5000 ) );
+        food.setId( id );
+        return food;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class CatalogBenchmark
+ * @description Cost of a name lookup, a barcode lookup and an autocomplete of eight suggestions on a
+ * memory mapped catalogue of a given number of products.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class CatalogBenchmark {
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private ProductCatalog catalog;
+    private String[] names;
+    private Random random;
+
+    @Setup
+    public void setUp() throws IOException {
+        random = new Random( size );
+        List<CatalogProduct> products = new ArrayList<>( size );
+        names = new String[ size ];
+        for( int i = 0; i < size; i++ ) {
+            names[ i ] = "Product " + Integer.toString( i, 36 ) + " " + ( i % 97 );
+            products.add( new CatalogProduct( names[ i ], 4_000_000_000_000L + i, "Description " + i,
+                    random.nextInt( 1000 ), random.nextInt( 400 ), i % 3 ) );
+        }
+        File file = File.createTempFile( "catalog", ".bin" );
+        file.deleteOnExit();
+        ProductCatalogWriter.write( products, file );
+        catalog = ProductCatalog.open( file );
+    }
+
+    @Benchmark
+    public CatalogProduct find() {
+        return catalog.find( names[ random.nextInt( size ) ] );
+    }
+
+    @Benchmark
+    public CatalogProduct findByBarcode() {
+        return catalog.findByBarcode( 4_000_000_000_000L + random.nextInt( size ) );
+    }
+
+    @Benchmark
+    public List<CatalogProduct> suggest() {
+        String name = names[ random.nextInt( size ) ];
+        return catalog.suggest( name.substring( 0, Math.min( name.length(), 10 ) ), 8 );
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class EditSessionBenchmark
+ * @description Cost of one edit from opening the editor to the inventory holding the result: through an
+ * edit session which hands over only what changed, and the way it was done before, by encoding the food
+ * into the Intent, decoding it in the editor and doing the same again with the result.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class EditSessionBenchmark {
+
+    @Param( { "1000", "100000" } )
+    public int size;
+
+    private Inventory inventory;
+    private EditSessionStore store;
+    private int edits;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        inventory = new Inventory();
+        inventory.addAll( BenchmarkFoods.generate( size ) );
+        store = new EditSessionStore();
+    }
+
+    @Benchmark
+    public Food intentRoundTrip() {
+        int index = nextIndex();
+        Food inEditor = FoodCodec.decode( FoodCodec.encode( inventory.get( index ) ) );
+        inEditor.setCount( edits % 12 );
+        inEditor.setCost( edits % 50 );
+        Food saved = FoodCodec.decode( FoodCodec.encode( inEditor ) );
+        inventory.replace( index, saved );
+        return saved;
+    }
+
+    @Benchmark
+    public Food editSession() {
+        int index = nextIndex();
+        Food food = inventory.get( index );
+        store.open( food, index );
+        // What NewFoodActivity does on confirm: build a food from the fields and commit the difference.
+        Food stored = store.get( food.getId() );
+        Food edited = new Food( stored.getName(), stored.getDescription(), edits % 12,
+                new Date( stored.getBestBeforeMillis() ), stored.getLocation(), stored.getLocationPosition(), edits % 50 );
+        store.commit( food.getId(), FoodDelta.diff( stored, edited ) );
+        EditSessionStore.Session session = store.take( food.getId() );
+        return inventory.applyEdit( food.getId(), session.getPositionHint(), session.getDelta() );
+    }
+
+    private int nextIndex() {
+        edits++;
+        return (int) ( edits * 7919L % size );
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class ExpiryBenchmark
+ * @description Cost of finding the foods expiring in the next week with the expiry index and by scanning
+ * the food list, of peeking at the next day anything expires, and of building the index from scratch.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class ExpiryBenchmark {
+
+    // BenchmarkFoods spreads the dates over 400 days from day 19,000.
+    private static final long TODAY = 19_200;
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private List<Food> foods;
+    private long[] ids, days;
+    private ExpiryIndex index;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        foods = BenchmarkFoods.generate( size );
+        ids = new long[ size ];
+        days = new long[ size ];
+        for( int i = 0; i < size; i++ ) {
+            ids[ i ] = foods.get( i ).getId();
+            days[ i ] = EpochDays.fromMillis( foods.get( i ).getBestBeforeMillis() );
+        }
+        index = build();
+    }
+
+    @Benchmark
+    public long[] indexWeek() {
+        return index.idsBetween( TODAY, TODAY + 7 );
+    }
+
+    @Benchmark
+    public List<Food> scanWeek() {
+        List<Food> matches = new ArrayList<>();
+        for( Food food : foods ) {
+            long day = EpochDays.fromMillis( food.getBestBeforeMillis() );
+            if( day >= TODAY && day <= TODAY + 7 ) matches.add( food );
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public long nextExpiringDay() {
+        return index.nextExpiringDay( TODAY );
+    }
+
+    @Benchmark
+    public ExpiryIndex build() {
+        ExpiryIndex built = new ExpiryIndex();
+        built.addAll( ids, days, size );
+        return built;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class ForecastBenchmark
+ * @description Cost of recording one count change into a depletion forecast tracking a given number of
+ * items, which updates the item's rate and moves it in the run-out queue, and of building a week's
+ * shopping list from the top of the queue.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class ForecastBenchmark {
+
+    @Param( { "1000", "100000" } )
+    public int size;
+
+    private DepletionForecast forecast;
+    private List<Food> foods;
+    private Random random;
+    private long millis;
+
+    // Rebuilt for every iteration so the counts do not run down to 0 over the run.
+    @Setup( Level.Iteration )
+    public void setUp() {
+        foods = BenchmarkFoods.generate( size );
+        millis = EpochDays.toMillis( 19_000 );
+        forecast = new DepletionForecast();
+        forecast.track( foods, millis );
+        random = new Random( size );
+        // A few days of use, so every item has a rate and a place in the queue.
+        for( int i = 0; i < 3 * size; i++ ) recordUse();
+    }
+
+    @Benchmark
+    public int recordChange() {
+        return recordUse();
+    }
+
+    @Benchmark
+    public DepletionForecast.ShoppingList shoppingList() {
+        return forecast.shoppingList( millis, 7, 7 );
+    }
+
+    private int recordUse() {
+        millis += 60_000;
+        int index = random.nextInt( size );
+        Food before = foods.get( index );
+        int count = before.getCountValue() > 0 ? before.getCountValue() - 1 : 12;
+        Food after = new Food( before.getName(), before.getDescription(), count, new Date( before.getBestBeforeMillis() ),
+                before.getLocation(), before.getLocationPosition(), before.getCostValue() );
+        after.setId( before.getId() );
+        foods.set( index, after );
+        forecast.recordChange( before, after, millis );
+        return count;
+    }
+}
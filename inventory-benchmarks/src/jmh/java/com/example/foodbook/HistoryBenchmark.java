@@ -0,0 +1,77 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class HistoryBenchmark
+ * @description Cost of recording one consumption event into a history already holding a given number
+ * of events spread over four years, and of reading the last year back at each granularity.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class HistoryBenchmark {
+
+    private static final long FIRST_DAY = 18_000;
+    private static final int DAYS = 4 * 365;
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private ConsumptionHistory history;
+    private Random random;
+    private long millis;
+
+    // Rebuilt for every iteration so the ingest benchmark does not keep growing the history.
+    @Setup( Level.Iteration )
+    public void setUp() {
+        history = new ConsumptionHistory( TimeZone.getTimeZone( "UTC" ) );
+        random = new Random( size );
+        for( int i = 0; i < size; i++ ) {
+            long day = FIRST_DAY + (long) i * DAYS / size;
+            history.record( day * EpochDays.MILLIS_PER_DAY, random.nextInt( 10_000 ), random.nextInt( 3 ),
+                    random.nextInt( 7 ) - 4, random.nextInt( 2000 ) - 1200 );
+        }
+        millis = ( FIRST_DAY + DAYS - 1 ) * EpochDays.MILLIS_PER_DAY;
+    }
+
+    @Benchmark
+    public int ingest() {
+        millis += 1000;
+        history.record( millis, random.nextInt( 10_000 ), random.nextInt( 3 ), -1, -120 );
+        return history.eventCount();
+    }
+
+    @Benchmark
+    public List<ConsumptionHistory.Point> queryYearByDay() {
+        return queryYear( ConsumptionHistory.Granularity.DAY );
+    }
+
+    @Benchmark
+    public List<ConsumptionHistory.Point> queryYearByWeek() {
+        return queryYear( ConsumptionHistory.Granularity.WEEK );
+    }
+
+    @Benchmark
+    public List<ConsumptionHistory.Point> queryYearByMonth() {
+        return queryYear( ConsumptionHistory.Granularity.MONTH );
+    }
+
+    private List<ConsumptionHistory.Point> queryYear( ConsumptionHistory.Granularity granularity ) {
+        long lastDay = FIRST_DAY + DAYS - 1;
+        return history.query( granularity, 1, lastDay - 364, lastDay );
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class InsertBenchmark
+ * @description Throughput of adding foods the way the app does: each new food is first looked up in the
+ * name index and merged into a stored lot of the same item, location and best before day if there is
+ * one, otherwise added as a lot of its own.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+public class InsertBenchmark {
+
+    @Param( { "1000", "100000" } )
+    public int size;
+
+    private Inventory inventory;
+    private Random random;
+    private long nextId;
+
+    // Rebuilt for every iteration so the inventory does not keep growing across the run.
+    @Setup( Level.Iteration )
+    public void setUp() {
+        inventory = new Inventory();
+        inventory.addAll( BenchmarkFoods.generate( size ) );
+        random = new Random( 1 );
+        nextId = size + 1;
+    }
+
+    @Benchmark
+    public Food insert() {
+        Food food = BenchmarkFoods.food( random, nextId++ );
+        Food lot = inventory.findMergeTarget( food );
+        if( lot != null ) return inventory.merge( lot, food );
+        inventory.add( food );
+        return food;
+    }
+
+    /**
+     * Only the lookup, to separate the cost of the index from the cost of storing the food.
+     */
+    @Benchmark
+    public Food findMergeTarget() {
+        return inventory.findMergeTarget( BenchmarkFoods.food( random, 0 ) );
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class InventoryBenchmark
+ * @description Cost of a single add, edit and delete on an inventory of a given size, including keeping
+ * the totals, expiry index, search index, name index and sorted view up to date.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class InventoryBenchmark {
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private Inventory inventory;
+    private Random random;
+    private long nextId;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        inventory = new Inventory();
+        inventory.setSortOrder( new FoodSortOrder( FoodSortOrder.Key.EXPIRY, FoodSortOrder.Key.NAME, false ) );
+        inventory.addAll( BenchmarkFoods.generate( size ) );
+        random = new Random( 1 );
+        nextId = size + 1;
+    }
+
+    /**
+     * A new food is added at the end and deleted again, so the inventory keeps its size.
+     */
+    @Benchmark
+    public boolean addThenDelete() {
+        Food food = BenchmarkFoods.food( random, nextId++ );
+        inventory.add( food );
+        return inventory.remove( food );
+    }
+
+    @Benchmark
+    public Food edit() {
+        int index = random.nextInt( inventory.size() );
+        Food edited = BatchEdits.adjustCount( Collections.singletonList( inventory.get( index ) ), 1 ).get( 0 );
+        return inventory.replace( index, edited );
+    }
+
+    /**
+     * A food from anywhere in the list is deleted and added back at the end.
+     */
+    @Benchmark
+    public int deleteThenAdd() {
+        Food food = inventory.get( random.nextInt( inventory.size() ) );
+        inventory.remove( food );
+        inventory.add( food );
+        return inventory.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class SearchBenchmark
+ * @description Cost of a search index query for each prefix typed on the way to a full product name,
+ * with the location, cost and count filters set, and of re-indexing one edited food.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class SearchBenchmark {
+
+    @Param( { "100000" } )
+    public int size;
+
+    @Param( { "p", "pro", "product", "product 12", "product 1234" } )
+    public String typed;
+
+    private List<Food> foods;
+    private FoodSearchIndex index;
+    private FoodFilter filter;
+    private Random random;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        foods = BenchmarkFoods.generate( size );
+        index = new FoodSearchIndex();
+        for( Food food : foods ) index.add( food );
+        filter = new FoodFilter( typed, 0, Integer.MIN_VALUE, 3000, 1 );
+        random = new Random( 1 );
+    }
+
+    @Benchmark
+    public List<Food> query() {
+        return index.query( filter );
+    }
+
+    @Benchmark
+    public Food update() {
+        Food before = foods.get( random.nextInt( size ) );
+        Food after = new Food( "Product " + random.nextInt( 5000 ), before.getDescription(), before.getCountValue(),
+                new Date( before.getBestBeforeMillis() ), before.getLocation(), before.getLocationPosition(),
+                before.getCostValue() );
+        after.setId( before.getId() );
+        index.update( after );
+        return after;
+    }
+}
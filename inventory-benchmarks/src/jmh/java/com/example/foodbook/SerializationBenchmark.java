@@ -0,0 +1,89 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class SerializationBenchmark
+ * @description Cost of writing the whole inventory out and reading it back, in the FoodCodec storage
+ * format and as CSV, and of handing each food over through java.io.Serializable the way an Intent extra
+ * holding a single food would.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class SerializationBenchmark {
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private List<Food> foods;
+    private ByteBuffer buffer;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        foods = BenchmarkFoods.generate( size );
+        int bytes = 0;
+        for( Food food : foods ) bytes += FoodCodec.encodedSize( food );
+        buffer = ByteBuffer.allocate( bytes );
+    }
+
+    @Benchmark
+    public void codecRoundTrip( Blackhole blackhole ) {
+        // The zone is looked up once for the batch, as the storage does.
+        TimeZone zone = TimeZone.getDefault();
+        buffer.clear();
+        for( Food food : foods ) FoodCodec.write( buffer, food, zone );
+        buffer.flip();
+        while( buffer.hasRemaining() ) blackhole.consume( FoodCodec.read( buffer, zone ) );
+    }
+
+    @Benchmark
+    public void csvRoundTrip( Blackhole blackhole ) throws IOException {
+        StringWriter out = new StringWriter();
+        FoodCsv.write( out, foods );
+        FoodCsv.read( new StringReader( out.toString() ), 500, 19_000, new FoodCsv.ImportListener() {
+            @Override
+            public void onBatch( List<Food> batch ) { blackhole.consume( batch ); }
+
+            @Override
+            public void onProgress( long rowsRead ) {}
+
+            @Override
+            public void onRowError( long line, String message ) {}
+        });
+    }
+
+    @Benchmark
+    public void javaSerialization( Blackhole blackhole ) throws IOException, ClassNotFoundException {
+        for( Food food : foods ) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+                out.writeObject( food );
+            }
+            try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) ) {
+                blackhole.consume( in.readObject() );
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class SnapshotBenchmark
+ * @description Throughput of readers taking inventory snapshots while one writer keeps editing foods.
+ * The writer is the only thread changing the inventory, the way InventoryWriter runs changes. "lookup"
+ * readers fetch one food from the latest snapshot, "scan" readers walk a whole snapshot summing its
+ * cost, both without any locking against the writer.
+ */
+@State( Scope.Group )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class SnapshotBenchmark {
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private Inventory inventory;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        inventory = new Inventory();
+        inventory.addAll( BenchmarkFoods.generate( size ) );
+    }
+
+    @Benchmark
+    @Group( "lookup" )
+    @GroupThreads( 3 )
+    public Food lookupRead() {
+        InventorySnapshot snapshot = inventory.getSnapshot();
+        return snapshot.getFoods().get( ThreadLocalRandom.current().nextInt( snapshot.size() ) );
+    }
+
+    @Benchmark
+    @Group( "lookup" )
+    @GroupThreads( 1 )
+    public Food lookupWrite() {
+        return edit();
+    }
+
+    @Benchmark
+    @Group( "scan" )
+    @GroupThreads( 3 )
+    public long scanRead() {
+        long total = 0;
+        for( Food food : inventory.getSnapshot().getFoods() ) total += (long) food.getCost() * food.getCount();
+        return total;
+    }
+
+    @Benchmark
+    @Group( "scan" )
+    @GroupThreads( 1 )
+    public Food scanWrite() {
+        return edit();
+    }
+
+    private Food edit() {
+        int index = ThreadLocalRandom.current().nextInt( inventory.size() );
+        Food edited = BatchEdits.adjustCount( Collections.singletonList( inventory.get( index ) ), 1 ).get( 0 );
+        return inventory.replace( index, edited );
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class SortBenchmark
+ * @description Cost of sorting the whole inventory with the extracted keys of SortedFoodList and with
+ * Collections.sort over the boxed getters of Food, and of putting one edited food back in order with
+ * each. Both sides start from the same unsorted list and end with a new sorted one, so the copy is
+ * counted on both.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class SortBenchmark {
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    // Soonest to expire first, and most valuable first, each then by name.
+    @Param( { "EXPIRY", "TOTAL_VALUE" } )
+    public String primary;
+
+    private List<Food> foods;
+    private FoodSortOrder order;
+    private Comparator<Food> comparator;
+    private SortedFoodList sortedFoodList;
+    private List<Food> sortedList;
+    private Random random;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        foods = BenchmarkFoods.generate( size );
+        boolean byExpiry = primary.equals( "EXPIRY" );
+        order = new FoodSortOrder( FoodSortOrder.Key.valueOf( primary ), FoodSortOrder.Key.NAME, !byExpiry );
+        Comparator<Food> byPrimary = byExpiry
+                ? Comparator.comparing( Food::getBestBeforeDate )
+                : Comparator.<Food>comparingLong( food -> (long) food.getCost() * food.getCount() ).reversed();
+        comparator = byPrimary
+                .thenComparing( Food::getName, String.CASE_INSENSITIVE_ORDER )
+                .thenComparingLong( Food::getId );
+
+        sortedFoodList = new SortedFoodList( order );
+        sortedFoodList.setAll( foods );
+        sortedList = new ArrayList<>( foods );
+        Collections.sort( sortedList, comparator );
+        random = new Random( size );
+    }
+
+    @Benchmark
+    public List<Food> sortedFoodList() {
+        return SortedFoodList.sort( foods, order );
+    }
+
+    @Benchmark
+    public List<Food> collectionsSort() {
+        List<Food> sorted = new ArrayList<>( foods );
+        Collections.sort( sorted, comparator );
+        return sorted;
+    }
+
+    @Benchmark
+    public int repositionEdit() {
+        int index = random.nextInt( size );
+        Food before = sortedFoodList.get( index );
+        return sortedFoodList.replace( before, edited( before ) );
+    }
+
+    @Benchmark
+    public List<Food> collectionsSortAfterEdit() {
+        int index = random.nextInt( size );
+        sortedList.set( index, edited( sortedList.get( index ) ) );
+        Collections.sort( sortedList, comparator );
+        return sortedList;
+    }
+
+    private Food edited( Food before ) {
+        Food after = new Food( before.getName(), before.getDescription(), 1 + random.nextInt( 12 ),
+                new Date( EpochDays.toMillis( 19_000 + random.nextInt( 400 ) ) ), before.getLocation(),
+                before.getLocationPosition(), before.getCostValue() );
+        after.setId( before.getId() );
+        return after;
+    }
+}
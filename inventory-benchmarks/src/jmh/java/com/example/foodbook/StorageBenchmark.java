@@ -0,0 +1,63 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class StorageBenchmark
+ * @description Cost of a cold start of the journaled repository: opening a directory holding a given
+ * number of foods, half folded into the snapshot and half still in the journal, and loading them all.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class StorageBenchmark {
+
+    @Param( { "10000", "100000" } )
+    public int size;
+
+    private File directory;
+
+    @Setup( Level.Trial )
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory( "foodbook-storage" ).toFile();
+        List<Food> foods = BenchmarkFoods.generate( size );
+        JournaledFoodRepository repository = new JournaledFoodRepository( directory, 0, Integer.MAX_VALUE );
+        for( int i = 0; i < size / 2; i++ ) repository.add( foods.get( i ) );
+        repository.loadAll();
+        repository.compact();
+        for( int i = size / 2; i < size; i++ ) repository.add( foods.get( i ) );
+        repository.close();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if( files != null ) for( File file : files ) file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<Food> coldLoad() throws IOException {
+        JournaledFoodRepository repository = new JournaledFoodRepository( directory );
+        try {
+            return repository.loadAll();
+        } finally {
+            repository.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class SyncBenchmark
+ * @description Cost of one delta sync between two devices holding the same inventory, after 1% of the
+ * items changed on one of them: the changing device sending its changes, and the other receiving them
+ * and putting them into its inventory.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class SyncBenchmark {
+
+    /**
+     * @class NullRepository
+     * @description Storage which only hands out ids, so the benchmark measures the sync and not the disk.
+     */
+    private static final class NullRepository implements FoodRepository {
+        private long nextId = 1;
+
+        @Override public void load( LoadCallback callback ) { callback.onLoaded( new ArrayList<Food>() ); }
+        @Override public List<Food> loadAll() { return new ArrayList<>(); }
+        @Override public void add( Food food ) { food.setId( nextId++ ); }
+        @Override public void addAll( Collection<Food> foods ) { for( Food food : foods ) add( food ); }
+        @Override public void update( Food food ) {}
+        @Override public void delete( Food food ) {}
+        @Override public void updateAll( Collection<Food> foods ) {}
+        @Override public void deleteAll( Collection<Food> foods ) {}
+        @Override public void flush() {}
+        @Override public void close() {}
+    }
+
+    @Param( { "10000" } )
+    public int size;
+
+    private LocalSyncTransport transport;
+    private SyncEngine phone, tablet;
+    private Inventory tabletInventory;
+    private FoodRepository tabletRepository;
+    private List<Food> phoneFoods;
+    private Random random;
+
+    @Setup( Level.Trial )
+    public void setUp() throws IOException {
+        transport = new LocalSyncTransport( new SyncServer() );
+        phone = new SyncEngine( 1 );
+        tablet = new SyncEngine( 2 );
+        phoneFoods = BenchmarkFoods.generate( size );
+        phone.track( phoneFoods );
+        phone.sync( transport );
+        tabletInventory = new Inventory();
+        tabletRepository = new NullRepository();
+        tablet.apply( tablet.sync( transport ), tabletInventory, tabletRepository );
+        random = new Random( 1 );
+    }
+
+    @Benchmark
+    public int deltaSync() throws IOException {
+        int churn = size / 100;
+        for( int i = 0; i < churn; i++ ) {
+            int index = random.nextInt( size );
+            Food before = phoneFoods.get( index );
+            Food after = new Food( before.getName(), before.getDescription(), random.nextInt( 12 ),
+                    new Date( before.getBestBeforeMillis() ), before.getLocation(), before.getLocationPosition(),
+                    before.getCostValue() );
+            after.setId( before.getId() );
+            phoneFoods.set( index, after );
+            phone.recordChange( before, after );
+        }
+        phone.sync( transport );
+        SyncEngine.Result result = tablet.sync( transport );
+        tablet.apply( result, tabletInventory, tabletRepository );
+        return result.getItemsReceived();
+    }
+}
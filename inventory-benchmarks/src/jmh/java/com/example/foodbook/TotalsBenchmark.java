@@ -0,0 +1,56 @@
+package com.example.foodbook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class TotalsBenchmark
+ * @description Cost of the total cost shown under the list: recomputed over a list of foods the way
+ * MainActivity once did, scanned over the columnar store, and read from the running totals.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+public class TotalsBenchmark {
+
+    @Param( { "1000", "100000", "1000000" } )
+    public int size;
+
+    private List<Food> foods;
+    private FoodColumns columns;
+    private InventoryTotals totals;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        foods = BenchmarkFoods.generate( size );
+        columns = new FoodColumns();
+        columns.addAll( foods );
+        totals = new InventoryTotals();
+        totals.reset( foods );
+    }
+
+    @Benchmark
+    public long recomputeOverList() {
+        return InventoryTotals.recompute( foods );
+    }
+
+    @Benchmark
+    public long scanColumns() {
+        return columns.totalValue();
+    }
+
+    @Benchmark
+    public long runningTotal() {
+        return totals.getTotal();
+    }
+}
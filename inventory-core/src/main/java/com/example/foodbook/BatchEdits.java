@@ -0,0 +1,57 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @class BatchEdits
+ * @description Builds the edited copies of a selection of foods for the batch actions of the main list.
+ * Foods are never changed in place, each edit returns new foods holding the same ids, ready to be handed
+ * to Inventory.replaceAll and FoodRepository.updateAll.
+ */
+public final class BatchEdits {
+
+    private BatchEdits() {}
+
+    /**
+     * @description Moves foods to another storage location.
+     * @param foods Foods to move.
+     * @param locationPosition 0 = Fridge, 1 = Pantry, 2 = Freezer.
+     * @return The moved copies.
+     */
+    public static List<Food> moveTo( Collection<Food> foods, int locationPosition ) {
+        List<Food> moved = new ArrayList<>( foods.size() );
+        for( Food food : foods ) {
+            Food copy = copy( food );
+            copy.setLocationPosition( locationPosition );
+            copy.setLocation( FoodCodec.LOCATIONS[ locationPosition ] );
+            moved.add( copy );
+        }
+        return moved;
+    }
+
+    /**
+     * @description Changes the count of foods by the same amount. Counts do not go below zero.
+     * @param foods Foods to change.
+     * @param delta Amount added to each count, negative to take away.
+     * @return The changed copies.
+     */
+    public static List<Food> adjustCount( Collection<Food> foods, int delta ) {
+        List<Food> adjusted = new ArrayList<>( foods.size() );
+        for( Food food : foods ) {
+            Food copy = copy( food );
+            copy.setCount( (int) Math.max( 0, Math.min( Integer.MAX_VALUE, (long) food.getCountValue() + delta ) ) );
+            adjusted.add( copy );
+        }
+        return adjusted;
+    }
+
+    private static Food copy( Food food ) {
+        Food copy = new Food( food.getName(), food.getDescription(), food.getCountValue(),
+                new Date( food.getBestBeforeMillis() ), food.getLocation(), food.getLocationPosition(), food.getCostValue() );
+        copy.setId( food.getId() );
+        return copy;
+    }
+}
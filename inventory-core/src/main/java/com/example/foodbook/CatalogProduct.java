@@ -0,0 +1,48 @@
+package com.example.foodbook;
+
+/**
+ * @class CatalogProduct
+ * @description One entry of the offline product catalogue: the defaults a new food is filled in with
+ * when its name or barcode is found.
+ */
+public class CatalogProduct {
+
+    private final String name;
+    private final long barcode;
+    private final String description;
+    private final int cost;
+    private final int shelfLifeDays;
+    private final int locationPosition;
+
+    /**
+     * Constructor
+     * @param name Product name, also what it is looked up by.
+     * @param barcode EAN/UPC code, or 0 if it has none.
+     * @param description Default description.
+     * @param cost Typical cost per item.
+     * @param shelfLifeDays How many days the product usually keeps from when it is bought.
+     * @param locationPosition Where it is usually kept: 0 = Fridge, 1 = Pantry, 2 = Freezer.
+     */
+    public CatalogProduct( String name, long barcode, String description, int cost, int shelfLifeDays, int locationPosition ) {
+        this.name = name;
+        this.barcode = barcode;
+        this.description = description;
+        this.cost = cost;
+        this.shelfLifeDays = shelfLifeDays;
+        this.locationPosition = locationPosition;
+    }
+
+    public String getName() { return name; }
+    public long getBarcode() { return barcode; }
+    public String getDescription() { return description; }
+    public int getCost() { return cost; }
+    public int getShelfLifeDays() { return shelfLifeDays; }
+    public int getLocationPosition() { return locationPosition; }
+
+    /**
+     * @description Proposes a best before date for the product bought on a given day.
+     * @param today Day it was bought, as days since 1970-01-01.
+     * @return The day it is likely to keep until.
+     */
+    public long bestBeforeDay( long today ) { return today + shelfLifeDays; }
+}
@@ -0,0 +1,229 @@
+package com.example.foodbook;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * @class ConsumptionHistory
+ * @description Time series of the count and cost changes made to foods. Each change is kept as a
+ * compact raw event in parallel arrays, and is also added straight away to daily, weekly and monthly
+ * rollups per storage location. Charting a range reads the few hundred rollup points covering it and
+ * never scans the raw events.
+ * Raw events are only kept for a while: compact() drops the ones older than RAW_RETENTION_DAYS, which
+ * the rollups already hold, and the daily rollups older than DAILY_RETENTION_DAYS, which the weekly
+ * and monthly ones still cover.
+ * All methods are synchronized so a chart can read while the log thread records.
+ */
+public class ConsumptionHistory {
+
+    public static final int ALL_LOCATIONS = -1;
+    public static final int RAW_RETENTION_DAYS = 90;
+    public static final int DAILY_RETENTION_DAYS = 2 * 366;
+
+    // Size of one raw event as written by writeEvent.
+    static final int EVENT_BYTES = 8 + 8 + 1 + 4 + 8;
+
+    /**
+     * @class Granularity
+     * @description Size of the buckets a query is read in.
+     */
+    public enum Granularity {
+        DAY, WEEK, MONTH;
+
+        /**
+         * @description Gets the bucket a day falls in.
+         * @param epochDay Days since 1970-01-01.
+         * @return The first day of the bucket.
+         */
+        public long bucketOf( long epochDay ) {
+            switch ( this ) {
+                case WEEK: return EpochDays.startOfWeek( epochDay );
+                case MONTH: return EpochDays.startOfMonth( epochDay );
+                default: return epochDay;
+            }
+        }
+    }
+
+    /**
+     * @class Point
+     * @description Sums over one bucket. Counts are items, values are cost * count.
+     */
+    public static class Point {
+        public final long startDay;
+        public final long addedCount, usedCount, addedValue, usedValue;
+
+        Point( long startDay, long addedCount, long usedCount, long addedValue, long usedValue ) {
+            this.startDay = startDay;
+            this.addedCount = addedCount;
+            this.usedCount = usedCount;
+            this.addedValue = addedValue;
+            this.usedValue = usedValue;
+        }
+    }
+
+    private final TimeZone zone;
+    private final RollupSeries days = new RollupSeries();
+    private final RollupSeries weeks = new RollupSeries();
+    private final RollupSeries months = new RollupSeries();
+
+    // Raw events, oldest first.
+    private long[] times = new long[ 64 ];
+    private long[] foodIds = new long[ 64 ];
+    private byte[] locations = new byte[ 64 ];
+    private int[] countDeltas = new int[ 64 ];
+    private long[] valueDeltas = new long[ 64 ];
+    private int size;
+
+    public ConsumptionHistory() {
+        this( TimeZone.getDefault() );
+    }
+
+    /**
+     * Constructor
+     * @param zone Time zone events are bucketed into days in.
+     */
+    public ConsumptionHistory( TimeZone zone ) {
+        this.zone = zone;
+    }
+
+    /**
+     * @description Records one change.
+     * @param millis When it was made.
+     * @param foodId Id of the changed food.
+     * @param location Location position of the food.
+     * @param countDelta Change in count, negative when items were used up or thrown away.
+     * @param valueDelta Change in cost * count.
+     */
+    public synchronized void record( long millis, long foodId, int location, int countDelta, long valueDelta ) {
+        if( size == times.length ) grow();
+        times[ size ] = millis;
+        foodIds[ size ] = foodId;
+        locations[ size ] = (byte) location;
+        countDeltas[ size ] = countDelta;
+        valueDeltas[ size ] = valueDelta;
+        size++;
+
+        long day = EpochDays.fromMillis( millis, zone );
+        days.add( day, location, countDelta, valueDelta );
+        weeks.add( EpochDays.startOfWeek( day ), location, countDelta, valueDelta );
+        months.add( EpochDays.startOfMonth( day ), location, countDelta, valueDelta );
+    }
+
+    /**
+     * @description Reads the rollup points of a range.
+     * @param granularity Bucket size.
+     * @param location A location position, or ALL_LOCATIONS.
+     * @param fromDay First day of the range.
+     * @param toDay Last day of the range.
+     * @return One point per bucket in the range with any events, oldest first. Buckets partly inside the
+     * range are included whole.
+     */
+    public synchronized List<Point> query( Granularity granularity, int location, long fromDay, long toDay ) {
+        return series( granularity ).query( location, granularity.bucketOf( fromDay ), toDay );
+    }
+
+    /**
+     * @description Drops the raw events and daily rollups which are past their retention. The weekly
+     * and monthly rollups are kept for good.
+     * @param today The current day.
+     * @return How many raw events were dropped.
+     */
+    public synchronized int compact( long today ) {
+        long rawCutoff = today - RAW_RETENTION_DAYS;
+        int kept = 0;
+        for( int i = 0; i < size; i++ ) {
+            if( EpochDays.fromMillis( times[ i ], zone ) < rawCutoff ) continue;
+            times[ kept ] = times[ i ];
+            foodIds[ kept ] = foodIds[ i ];
+            locations[ kept ] = locations[ i ];
+            countDeltas[ kept ] = countDeltas[ i ];
+            valueDeltas[ kept ] = valueDeltas[ i ];
+            kept++;
+        }
+        int dropped = size - kept;
+        size = kept;
+        days.removeBefore( today - DAILY_RETENTION_DAYS );
+        return dropped;
+    }
+
+    public synchronized int eventCount() { return size; }
+
+    /**
+     * @description Drops every raw event and rollup.
+     */
+    synchronized void clear() {
+        size = 0;
+        days.removeBefore( Long.MAX_VALUE );
+        weeks.removeBefore( Long.MAX_VALUE );
+        months.removeBefore( Long.MAX_VALUE );
+    }
+
+    /**
+     * @description Writes the rollups and the raw events.
+     * @param out Where to write them.
+     * @throws IOException If out could not be written.
+     */
+    synchronized void write( DataOutputStream out ) throws IOException {
+        days.write( out );
+        weeks.write( out );
+        months.write( out );
+        out.writeInt( size );
+        for( int i = 0; i < size; i++ ) writeEvent( out, times[ i ], foodIds[ i ], locations[ i ], countDeltas[ i ], valueDeltas[ i ] );
+    }
+
+    /**
+     * @description Replaces everything held with what write() wrote.
+     * @param in Where to read it from.
+     * @throws IOException If in could not be read or does not hold a history.
+     */
+    synchronized void read( DataInputStream in ) throws IOException {
+        days.read( in );
+        weeks.read( in );
+        months.read( in );
+        int count = in.readInt();
+        if( count < 0 ) throw new IOException( "Bad event count " + count );
+        size = 0;
+        while( times.length < count ) grow();
+        for( int i = 0; i < count; i++ ) {
+            times[ i ] = in.readLong();
+            foodIds[ i ] = in.readLong();
+            locations[ i ] = in.readByte();
+            countDeltas[ i ] = in.readInt();
+            valueDeltas[ i ] = in.readLong();
+        }
+        size = count;
+    }
+
+    /**
+     * @description Writes one raw event as a fixed size record of EVENT_BYTES.
+     */
+    static void writeEvent( DataOutputStream out, long millis, long foodId, int location, int countDelta, long valueDelta )
+            throws IOException {
+        out.writeLong( millis );
+        out.writeLong( foodId );
+        out.writeByte( location );
+        out.writeInt( countDelta );
+        out.writeLong( valueDelta );
+    }
+
+    private RollupSeries series( Granularity granularity ) {
+        switch ( granularity ) {
+            case WEEK: return weeks;
+            case MONTH: return months;
+            default: return days;
+        }
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf( times, capacity );
+        foodIds = Arrays.copyOf( foodIds, capacity );
+        locations = Arrays.copyOf( locations, capacity );
+        countDeltas = Arrays.copyOf( countDeltas, capacity );
+        valueDeltas = Arrays.copyOf( valueDeltas, capacity );
+    }
+}
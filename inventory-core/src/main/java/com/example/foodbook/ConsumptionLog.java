@@ -0,0 +1,315 @@
+package com.example.foodbook;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class ConsumptionLog
+ * @description Keeps a ConsumptionHistory on disk as a checkpoint file plus an append-only log of the
+ * raw events recorded since, the same way JournaledFoodRepository keeps the foods.
+ * Each count or cost change becomes one fixed size event. Events are handed to a single background
+ * thread, which adds them to the history and appends them to the log, so the caller never waits on
+ * disk. Compaction drops expired raw events and daily rollups from the history, writes the rest as a
+ * new checkpoint and starts the log over. Loading reads the checkpoint and replays the log tail.
+ * Replaying adds to the sums, so the checkpoint and the log both carry a generation number. A log
+ * whose generation is older than the checkpoint's was folded into it before a crash kept it from
+ * being deleted, and is dropped instead of being counted twice.
+ */
+public class ConsumptionLog {
+
+    static final String CHECKPOINT_FILE = "history.checkpoint";
+    static final String LOG_FILE = "history.log";
+
+    private static final int CHECKPOINT_MAGIC = 0x46424843;
+    private static final int CHECKPOINT_VERSION = 2;
+    private static final int LOG_MAGIC = 0x4642484C;
+    // Magic number and generation.
+    static final int LOG_HEADER_SIZE = 12;
+
+    private final File checkpointFile, logFile;
+    private final ConsumptionHistory history;
+    private final ExecutorService writer;
+
+    // Open while there is a log to append to. Only touched on the writer thread.
+    private DataOutputStream log;
+    // Generation of the checkpoint on disk, which the log being appended to follows. Writer thread only.
+    private long generation;
+    // Set when files which could not be read could not be moved aside either. Writer thread only.
+    private boolean unreadable;
+    // Length of the log up to its last whole event while it is open. Writer thread only.
+    private long logLength;
+    // Set when a failed append could not be cut back off the log. Cleared when a checkpoint replaces
+    // the log. Writer thread only.
+    private boolean logBroken;
+
+    /**
+     * Constructor. Starts loading the stored history in the background.
+     * @param directory Directory which will hold the checkpoint and log. Created if missing.
+     * @param zone Time zone events are bucketed into days in.
+     */
+    public ConsumptionLog( File directory, TimeZone zone ) {
+        directory.mkdirs();
+        this.checkpointFile = new File( directory, CHECKPOINT_FILE );
+        this.logFile = new File( directory, LOG_FILE );
+        this.history = new ConsumptionHistory( zone );
+        this.writer = Executors.newSingleThreadExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "ConsumptionLog" );
+            thread.setDaemon( true );
+            return thread;
+        });
+        writer.execute( () -> {
+            try {
+                readHistory();
+            } catch ( IOException e ) {
+                setAside();
+            }
+        });
+    }
+
+    /**
+     * @description Gets the history for queries. Until loading has finished it may still be missing
+     * older events.
+     * @return The history.
+     */
+    public ConsumptionHistory getHistory() { return history; }
+
+    /**
+     * @description Records how a food changed. Nothing is recorded if neither its count nor its value
+     * changed, so moves and renames leave no event.
+     * @param before The food before the change, or null if it was added.
+     * @param after The food after the change, or null if it was deleted.
+     * @param millis When the change was made.
+     */
+    public void recordChange( Food before, Food after, long millis ) {
+        long[] event = event( before, after );
+        if( event == null ) return;
+        writer.execute( () -> append( new long[][]{ event }, millis ) );
+    }
+
+    /**
+     * @description Records a batch of changes with a single write to the log.
+     * @param before The foods before the change. Foods missing from after were deleted.
+     * @param after The foods after the change, matched by id. Foods missing from before were added.
+     * @param millis When the change was made.
+     */
+    public void recordChanges( Collection<Food> before, Collection<Food> after, long millis ) {
+        Map<Long, Food> afterById = new HashMap<>( after.size() * 2 );
+        for( Food food : after ) afterById.put( food.getId(), food );
+        long[][] events = new long[ before.size() + after.size() ][];
+        int count = 0;
+        for( Food food : before ) {
+            long[] event = event( food, afterById.remove( food.getId() ) );
+            if( event != null ) events[ count++ ] = event;
+        }
+        for( Food food : afterById.values() ) {
+            long[] event = event( null, food );
+            if( event != null ) events[ count++ ] = event;
+        }
+        if( count == 0 ) return;
+        long[][] recorded = count == events.length ? events : Arrays.copyOf( events, count );
+        writer.execute( () -> append( recorded, millis ) );
+    }
+
+    /**
+     * @description Drops expired raw events and daily rollups, writes the rest as a new checkpoint and
+     * empties the log. Meant to be run on a schedule, such as the periodic expiry job.
+     * @param today The current day.
+     * @return Completes with how many raw events were dropped, or fails if the stored history could not
+     * be read and is still in the way.
+     */
+    public Future<Integer> compact( long today ) {
+        return writer.submit( () -> {
+            int dropped = history.compact( today );
+            writeCheckpoint();
+            return dropped;
+        });
+    }
+
+    /**
+     * @description Waits for every recorded event to reach the log, then stops the background thread.
+     */
+    public void close() {
+        writer.execute( this::closeLog );
+        writer.shutdown();
+        try {
+            writer.awaitTermination( 10, TimeUnit.SECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return { food id, location, count delta, value delta }, or null if nothing changed.
+     */
+    private static long[] event( Food before, Food after ) {
+        int countDelta = ( after == null ? 0 : after.getCountValue() ) - ( before == null ? 0 : before.getCountValue() );
+        long valueDelta = value( after ) - value( before );
+        if( countDelta == 0 && valueDelta == 0 ) return null;
+        Food food = after != null ? after : before;
+        return new long[]{ food.getId(), food.getLocationPosition(), countDelta, valueDelta };
+    }
+
+    private static long value( Food food ) {
+        return food == null ? 0 : (long) food.getCostValue() * food.getCountValue();
+    }
+
+    /**
+     * @description Adds events to the history and to the end of the log. Runs on the writer thread.
+     */
+    private void append( long[][] events, long millis ) {
+        for( long[] event : events ) history.record( millis, event[ 0 ], (int) event[ 1 ], (int) event[ 2 ], event[ 3 ] );
+        if( unreadable || logBroken ) return;
+        try {
+            if( log == null ) {
+                // A log too short to hold its header is started over rather than appended to.
+                boolean fresh = logFile.length() < LOG_HEADER_SIZE;
+                logLength = fresh ? 0 : logFile.length();
+                log = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( logFile, !fresh ) ) );
+                if( fresh ) {
+                    log.writeInt( LOG_MAGIC );
+                    log.writeLong( generation );
+                    log.flush();
+                    logLength = LOG_HEADER_SIZE;
+                }
+            }
+            for( long[] event : events ) {
+                ConsumptionHistory.writeEvent( log, millis, event[ 0 ], (int) event[ 1 ], (int) event[ 2 ], event[ 3 ] );
+            }
+            log.flush();
+            logLength += (long) events.length * ConsumptionHistory.EVENT_BYTES;
+        } catch ( IOException e ) {
+            // The events are still in the history and will be saved by the next checkpoint.
+            closeLog();
+            trimLog();
+        }
+    }
+
+    /**
+     * @description Cuts a failed append back off the end of the log, so the next one starts on an event
+     * boundary. If that fails too, nothing more is appended until a checkpoint replaces the log, since
+     * every later event would be read from the wrong offset. Runs on the writer thread.
+     */
+    private void trimLog() {
+        try ( RandomAccessFile file = new RandomAccessFile( logFile, "rw" ) ) {
+            file.setLength( logLength );
+        } catch ( IOException e ) {
+            logBroken = true;
+        }
+    }
+
+    /**
+     * @description Writes the history to a new checkpoint through a temporary file, so a crash part way
+     * through leaves the old one in place, then removes the log. The new checkpoint is a generation
+     * ahead of the log, so a log left behind by a crash after the rename is not replayed on top of it.
+     * Runs on the writer thread.
+     * @throws IOException If the checkpoint could not be written.
+     */
+    private void writeCheckpoint() throws IOException {
+        if( unreadable ) throw new IOException( "Stored history could not be read or moved aside" );
+        closeLog();
+        File tmp = new File( checkpointFile.getPath() + ".tmp" );
+        try ( FileOutputStream file = new FileOutputStream( tmp ) ) {
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( file ) );
+            out.writeInt( CHECKPOINT_MAGIC );
+            out.writeInt( CHECKPOINT_VERSION );
+            out.writeLong( generation + 1 );
+            history.write( out );
+            out.flush();
+            file.getFD().sync();
+        }
+        if( !tmp.renameTo( checkpointFile ) ) throw new IOException( "Could not replace " + checkpointFile );
+        generation++;
+        logFile.delete();
+        logBroken = false;
+    }
+
+    /**
+     * @description Reads the checkpoint and replays the log on top of it, unless the log belongs to an
+     * older generation, in which case it is already in the checkpoint and is deleted. An event cut short
+     * by a crash at the end of the log is dropped and trimmed from the file. Runs on the writer thread.
+     * @throws IOException If the files could not be read.
+     */
+    private void readHistory() throws IOException {
+        if( checkpointFile.exists() ) {
+            try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( checkpointFile ) ) ) ) {
+                if( in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION ) {
+                    throw new IOException( "Unknown checkpoint format in " + checkpointFile );
+                }
+                long checkpointGeneration = in.readLong();
+                history.read( in );
+                generation = checkpointGeneration;
+            }
+        }
+        if( logFile.length() < LOG_HEADER_SIZE ) return;
+
+        long length = logFile.length();
+        long complete = ( length - LOG_HEADER_SIZE ) / ConsumptionHistory.EVENT_BYTES;
+        long logGeneration;
+        try ( DataInputStream in = new DataInputStream( new FileInputStream( logFile ) ) ) {
+            if( in.readInt() != LOG_MAGIC ) throw new IOException( "Unknown log format in " + logFile );
+            logGeneration = in.readLong();
+        }
+        if( logGeneration < generation ) {
+            if( !logFile.delete() ) throw new IOException( "Could not delete " + logFile );
+            return;
+        }
+        if( logGeneration != generation ) throw new IOException( "Log is newer than " + checkpointFile );
+
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( logFile ) ) ) ) {
+            if( in.skipBytes( LOG_HEADER_SIZE ) != LOG_HEADER_SIZE ) throw new EOFException();
+            for( long i = 0; i < complete; i++ ) {
+                history.record( in.readLong(), in.readLong(), in.readByte(), in.readInt(), in.readLong() );
+            }
+        } catch ( EOFException e ) {
+            throw new IOException( "Log shrank while being read", e );
+        }
+        long end = LOG_HEADER_SIZE + complete * ConsumptionHistory.EVENT_BYTES;
+        if( end != length ) {
+            try ( RandomAccessFile file = new RandomAccessFile( logFile, "rw" ) ) {
+                file.setLength( end );
+            }
+        }
+    }
+
+    /**
+     * @description Moves the checkpoint and the log aside after they could not be read, keeping their
+     * names with a suffix so they can still be recovered, and empties the history so nothing half read
+     * is written into the next checkpoint. If they can not be moved, nothing more is written to disk,
+     * so neither file is ever overwritten or appended to. Runs on the writer thread.
+     */
+    private void setAside() {
+        history.clear();
+        generation = 0;
+        String suffix = ".unreadable-" + System.currentTimeMillis();
+        for( File file : new File[] { checkpointFile, logFile } ) {
+            if( file.exists() && !file.renameTo( new File( file.getPath() + suffix ) ) ) unreadable = true;
+        }
+    }
+
+    private void closeLog() {
+        if( log == null ) return;
+        try {
+            log.close();
+        } catch ( IOException e ) {
+            // Everything written has been flushed already.
+        }
+        log = null;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.foodbook;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * @class DepletionForecast
+ * @description Forecasts when each item runs out from how fast its count has been dropping. An item is
+ * every lot sharing a name, matched the same way as FoodNameIndex, counted over all locations.
+ * Each item keeps an exponentially weighted moving average of the items used per day. Changes arrive
+ * at uneven times, so the weight of a change depends on the time since the previous one: a use of n
+ * items dt days after the last moves the rate towards n / dt by 1 - e^( -dt / tau ). Each count change
+ * is O( 1 ) on the rate plus O( log n ) to move the item in a heap ordered by predicted run-out time,
+ * so the items to reorder are always at the top and nothing is recomputed across the inventory.
+ * The run-out time is predicted when the item's count changes and is not aged in between.
+ * Items are kept in parallel arrays indexed by slot, and never dropped: an item used up and not
+ * bought again stays at the top of the list, which is what the shopping list is for.
+ * All methods are synchronized so the shopping list can be read while changes are recorded.
+ */
+public class DepletionForecast {
+
+    public static final long NEVER = Long.MAX_VALUE;
+    public static final double DEFAULT_HALF_LIFE_DAYS = 14;
+
+    private static final int MAGIC = 0x46424446;
+    private static final int VERSION = 1;
+
+    /**
+     * @class Entry
+     * @description One line of a shopping list.
+     */
+    public static class Entry {
+        public final String name;
+        public final int stock;
+        public final double dailyRate;
+        public final long runOutMillis;
+        public final int quantity;
+        public final int unitCost;
+
+        Entry( String name, int stock, double dailyRate, long runOutMillis, int quantity, int unitCost ) {
+            this.name = name;
+            this.stock = stock;
+            this.dailyRate = dailyRate;
+            this.runOutMillis = runOutMillis;
+            this.quantity = quantity;
+            this.unitCost = unitCost;
+        }
+
+        /**
+         * @description Gets the estimated cost of the line, in the units of Food.getCost().
+         */
+        public long getCost() { return (long) quantity * unitCost; }
+    }
+
+    /**
+     * @class ShoppingList
+     * @description The items to buy, soonest to run out first, with the estimated total.
+     */
+    public static class ShoppingList {
+        private final List<Entry> entries;
+        private final long totalCost;
+
+        ShoppingList( List<Entry> entries ) {
+            long total = 0;
+            for( Entry entry : entries ) total += entry.getCost();
+            this.entries = Collections.unmodifiableList( entries );
+            this.totalCost = total;
+        }
+
+        public List<Entry> getEntries() { return entries; }
+        public long getTotalCost() { return totalCost; }
+    }
+
+    private final double halfLifeDays;
+    // Time constant of the average, in days.
+    private final double tau;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    // The same slots by every spelling seen, so a change to a known food skips normalizing its name.
+    private final Map<String, Integer> slotsByName = new HashMap<>();
+    private String[] names = new String[ 16 ];
+    private int[] stocks = new int[ 16 ];
+    private double[] rates = new double[ 16 ];
+    // Time of the last use, or of when the item was first seen if it has not been used yet.
+    private long[] lastMillis = new long[ 16 ];
+    private long[] runOuts = new long[ 16 ];
+    private int[] costs = new int[ 16 ];
+    private int size;
+
+    // Min-heap of slots by run-out time, and where each slot sits in it. Each entry's run-out time is
+    // copied next to it, so sifting reads one array instead of following every slot.
+    private int[] heap = new int[ 16 ];
+    private long[] heapKeys = new long[ 16 ];
+    private int[] heapPositions = new int[ 16 ];
+
+    public DepletionForecast() {
+        this( DEFAULT_HALF_LIFE_DAYS );
+    }
+
+    /**
+     * Constructor
+     * @param halfLifeDays How many days it takes for a use to count for half as much in the rate.
+     */
+    public DepletionForecast( double halfLifeDays ) {
+        if( !( halfLifeDays > 0 ) ) throw new IllegalArgumentException( "Bad half life " + halfLifeDays );
+        this.halfLifeDays = halfLifeDays;
+        this.tau = halfLifeDays / Math.log( 2 );
+    }
+
+    public synchronized int size() { return size; }
+
+    /**
+     * @description Sets the stock of every item from the stored foods, as when the inventory is loaded.
+     * The rates are kept. Items with no stored food are set to a stock of 0.
+     * @param foods Every stored food.
+     * @param millis The current time.
+     */
+    public synchronized void track( Collection<Food> foods, long millis ) {
+        Arrays.fill( stocks, 0, size, 0 );
+        for( Food food : foods ) {
+            int slot = slotOf( food, millis );
+            stocks[ slot ] += Math.max( 0, food.getCountValue() );
+        }
+        for( int slot = 0; slot < size; slot++ ) runOuts[ slot ] = predict( slot );
+        for( int position = 0; position < size; position++ ) heapKeys[ position ] = runOuts[ heap[ position ] ];
+        for( int position = size / 2 - 1; position >= 0; position-- ) siftDown( position, heap[ position ], heapKeys[ position ] );
+    }
+
+    /**
+     * @description Records how a food changed. A drop in count, or a deletion, is a use. A rise is a
+     * purchase and only adds to the stock. A rename moves the count from one item to the other.
+     * @param before The food before the change, or null if it was added.
+     * @param after The food after the change, or null if it was deleted.
+     * @param millis When the change was made.
+     */
+    public synchronized void recordChange( Food before, Food after, long millis ) {
+        if( before != null && after != null && ( before.getName().equals( after.getName() )
+                || FoodNameIndex.normalize( before.getName() ).equals( FoodNameIndex.normalize( after.getName() ) ) ) ) {
+            int slot = slotOf( after, millis );
+            int delta = after.getCountValue() - before.getCountValue();
+            if( delta < 0 ) use( slot, -delta, millis );
+            else stocks[ slot ] += delta;
+            update( slot );
+            return;
+        }
+        if( before != null ) {
+            int slot = slotOf( before, millis );
+            if( after == null ) use( slot, before.getCountValue(), millis );
+            else stocks[ slot ] = Math.max( 0, stocks[ slot ] - before.getCountValue() );
+            update( slot );
+        }
+        if( after != null ) {
+            int slot = slotOf( after, millis );
+            stocks[ slot ] += after.getCountValue();
+            update( slot );
+        }
+    }
+
+    /**
+     * @description Records a batch of changes, matched by id the same way as ConsumptionLog.recordChanges.
+     * @param before The foods before the change. Foods missing from after were deleted.
+     * @param after The foods after the change. Foods missing from before were added.
+     * @param millis When the change was made.
+     */
+    public synchronized void recordChanges( Collection<Food> before, Collection<Food> after, long millis ) {
+        Map<Long, Food> afterById = new HashMap<>( after.size() * 2 );
+        for( Food food : after ) afterById.put( food.getId(), food );
+        for( Food food : before ) recordChange( food, afterById.remove( food.getId() ), millis );
+        for( Food food : afterById.values() ) recordChange( null, food, millis );
+    }
+
+    /**
+     * @description Gets when an item is predicted to run out.
+     * @param name Name of the item, in any case and spacing.
+     * @return The time in millis, NEVER if the item has not been used.
+     */
+    public synchronized long getRunOutMillis( String name ) {
+        Integer slot = slots.get( FoodNameIndex.normalize( name ) );
+        return slot == null ? NEVER : runOuts[ slot ];
+    }
+
+    /**
+     * @description Gets how many of an item are used per day, as of its last use.
+     * @param name Name of the item, in any case and spacing.
+     * @return The average, 0 if the item has not been used.
+     */
+    public synchronized double getDailyRate( String name ) {
+        Integer slot = slots.get( FoodNameIndex.normalize( name ) );
+        return slot == null ? 0 : rates[ slot ];
+    }
+
+    /**
+     * @description Lists the items predicted to run out within a number of days, soonest first. Only
+     * those items are visited, O( k log k ) for k items listed.
+     * @param nowMillis The current time.
+     * @param withinDays How far ahead to look, typically the days until the next shop.
+     * @param coverDays How many days each item bought should last at its current rate.
+     * @return The list, with at least one of each item and its estimated cost.
+     */
+    public synchronized ShoppingList shoppingList( long nowMillis, int withinDays, int coverDays ) {
+        long cutoff = nowMillis + withinDays * EpochDays.MILLIS_PER_DAY;
+        List<Entry> entries = new ArrayList<>();
+        PriorityQueue<Integer> frontier = new PriorityQueue<>( ( a, b ) -> Long.compare( heapKeys[ a ], heapKeys[ b ] ) );
+        if( size > 0 ) frontier.add( 0 );
+        while( !frontier.isEmpty() ) {
+            int position = frontier.poll();
+            if( heapKeys[ position ] > cutoff ) break;
+            int slot = heap[ position ];
+            int quantity = (int) Math.max( 1, Math.min( Integer.MAX_VALUE, Math.ceil( rates[ slot ] * coverDays ) ) );
+            entries.add( new Entry( names[ slot ], stocks[ slot ], rates[ slot ], runOuts[ slot ], quantity, costs[ slot ] ) );
+            if( 2 * position + 1 < size ) frontier.add( 2 * position + 1 );
+            if( 2 * position + 2 < size ) frontier.add( 2 * position + 2 );
+        }
+        return new ShoppingList( entries );
+    }
+
+    /**
+     * @description Writes the rates, so the forecast survives a restart. The stocks are not written,
+     * track() sets them from the stored foods.
+     * @param out Where to write them.
+     * @throws IOException If out could not be written.
+     */
+    public synchronized void write( DataOutput out ) throws IOException {
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeDouble( halfLifeDays );
+        out.writeInt( size );
+        for( int slot = 0; slot < size; slot++ ) {
+            out.writeUTF( names[ slot ] );
+            out.writeDouble( rates[ slot ] );
+            out.writeLong( lastMillis[ slot ] );
+            out.writeInt( costs[ slot ] );
+        }
+    }
+
+    /**
+     * @description Reads a forecast written by write(). Every stock is 0 until track() is called.
+     * @param in Where to read it from.
+     * @return The forecast.
+     * @throws IOException If in could not be read or does not hold a forecast.
+     */
+    public static DepletionForecast read( DataInput in ) throws IOException {
+        if( in.readInt() != MAGIC || in.readInt() != VERSION ) throw new IOException( "Not a depletion forecast" );
+        double halfLifeDays = in.readDouble();
+        int count = in.readInt();
+        if( !( halfLifeDays > 0 ) || count < 0 ) throw new IOException( "Bad depletion forecast" );
+        DepletionForecast forecast = new DepletionForecast( halfLifeDays );
+        for( int i = 0; i < count; i++ ) {
+            String name = in.readUTF();
+            double rate = in.readDouble();
+            long last = in.readLong();
+            int cost = in.readInt();
+            int slot = forecast.slotOf( name, last );
+            forecast.rates[ slot ] = rate;
+            forecast.costs[ slot ] = cost;
+            forecast.update( slot );
+        }
+        return forecast;
+    }
+
+    /**
+     * @description Takes a use of some items into the rate and the stock.
+     */
+    private void use( int slot, int used, long millis ) {
+        if( used <= 0 ) return;
+        double days = Math.max( 0, millis - lastMillis[ slot ] ) / (double) EpochDays.MILLIS_PER_DAY;
+        if( rates[ slot ] == 0 ) {
+            // The first use starts the average off, rather than pulling it up from 0 over several half
+            // lives. A use right after the item was bought is taken as a day's worth.
+            rates[ slot ] = used / Math.max( 1, days );
+        } else {
+            double decay = Math.exp( -days / tau );
+            // As days goes to 0, used * ( 1 - decay ) / days goes to used / tau.
+            rates[ slot ] = rates[ slot ] * decay + ( days > 0 ? used * ( 1 - decay ) / days : used / tau );
+        }
+        lastMillis[ slot ] = Math.max( lastMillis[ slot ], millis );
+        stocks[ slot ] = Math.max( 0, stocks[ slot ] - used );
+    }
+
+    private long predict( int slot ) {
+        if( !( rates[ slot ] > 0 ) ) return NEVER;
+        double millis = stocks[ slot ] / rates[ slot ] * EpochDays.MILLIS_PER_DAY;
+        return millis >= NEVER - lastMillis[ slot ] ? NEVER - 1 : lastMillis[ slot ] + (long) millis;
+    }
+
+    private int slotOf( Food food, long millis ) {
+        int slot = slotOf( food.getName(), millis );
+        names[ slot ] = food.getName();
+        costs[ slot ] = food.getCostValue();
+        return slot;
+    }
+
+    /**
+     * @description Finds an item's slot, adding it at the bottom of the heap if it is new.
+     */
+    private int slotOf( String name, long millis ) {
+        Integer known = slotsByName.get( name );
+        if( known != null ) return known;
+        String key = FoodNameIndex.normalize( name );
+        Integer existing = slots.get( key );
+        if( existing != null ) {
+            slotsByName.put( name, existing );
+            return existing;
+        }
+        if( size == names.length ) grow();
+        int slot = size++;
+        slots.put( key, slot );
+        slotsByName.put( name, slot );
+        names[ slot ] = name;
+        lastMillis[ slot ] = millis;
+        runOuts[ slot ] = NEVER;
+        place( slot, NEVER, slot );
+        return slot;
+    }
+
+    /**
+     * @description Predicts an item's run-out time again and moves it to its place in the heap.
+     */
+    private void update( int slot ) {
+        long runOut = predict( slot );
+        long previous = runOuts[ slot ];
+        runOuts[ slot ] = runOut;
+        if( runOut < previous ) siftUp( heapPositions[ slot ], slot, runOut );
+        else if( runOut > previous ) siftDown( heapPositions[ slot ], slot, runOut );
+    }
+
+    private void siftUp( int position, int slot, long key ) {
+        while( position > 0 ) {
+            int parent = ( position - 1 ) / 2;
+            if( heapKeys[ parent ] <= key ) break;
+            place( heap[ parent ], heapKeys[ parent ], position );
+            position = parent;
+        }
+        place( slot, key, position );
+    }
+
+    private void siftDown( int position, int slot, long key ) {
+        while( true ) {
+            int child = 2 * position + 1;
+            if( child >= size ) break;
+            if( child + 1 < size && heapKeys[ child + 1 ] < heapKeys[ child ] ) child++;
+            if( heapKeys[ child ] >= key ) break;
+            place( heap[ child ], heapKeys[ child ], position );
+            position = child;
+        }
+        place( slot, key, position );
+    }
+
+    private void place( int slot, long key, int position ) {
+        heap[ position ] = slot;
+        heapKeys[ position ] = key;
+        heapPositions[ slot ] = position;
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf( names, capacity );
+        stocks = Arrays.copyOf( stocks, capacity );
+        rates = Arrays.copyOf( rates, capacity );
+        lastMillis = Arrays.copyOf( lastMillis, capacity );
+        runOuts = Arrays.copyOf( runOuts, capacity );
+        costs = Arrays.copyOf( costs, capacity );
+        heap = Arrays.copyOf( heap, capacity );
+        heapKeys = Arrays.copyOf( heapKeys, capacity );
+        heapPositions = Arrays.copyOf( heapPositions, capacity );
+    }
+}
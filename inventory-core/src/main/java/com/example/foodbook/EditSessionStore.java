@@ -0,0 +1,102 @@
+package com.example.foodbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @class EditSessionStore
+ * @description Hands a food over to the editor without copying it into an Intent. MainActivity opens a
+ * session for the food it wants edited and passes only the food's id; the editor reads the live food
+ * from here and commits back the fields it changed as a FoodDelta. Sessions are keyed by id, not by
+ * position, so foods added or removed while the editor is open can not make the edit land on another food.
+ * The store belongs to the application so sessions survive either activity being re-created.
+ * All methods are synchronized.
+ */
+public class EditSessionStore {
+
+    /**
+     * @class Session
+     * @description One food being edited.
+     */
+    public static class Session {
+        private final Food food;
+        private final int positionHint;
+        private FoodDelta delta;
+
+        Session( Food food, int positionHint ) {
+            this.food = food;
+            this.positionHint = positionHint;
+        }
+
+        /**
+         * @description Gets the food as it was when the session was opened. Must not be changed.
+         */
+        public Food getFood() { return food; }
+
+        /**
+         * @description Gets where the food was in the inventory when the session was opened. Checked
+         * against the id before use, it only saves a search when nothing has moved.
+         */
+        public int getPositionHint() { return positionHint; }
+
+        /**
+         * @description Gets the committed changes.
+         * @return The delta, or null if the edit was not committed.
+         */
+        public FoodDelta getDelta() { return delta; }
+    }
+
+    private final Map<Long, Session> sessions = new HashMap<>();
+
+    /**
+     * @description Opens a session for a food, replacing any earlier one for the same food.
+     * @param food The live food to edit.
+     * @param position Where the food is in the inventory now.
+     */
+    public synchronized void open( Food food, int position ) {
+        sessions.put( food.getId(), new Session( food, position ) );
+    }
+
+    /**
+     * @description Gets the food an open session is editing.
+     * @param id Id of the food.
+     * @return The food, or null if there is no session for it, as after the process was restarted.
+     */
+    public synchronized Food get( long id ) {
+        Session session = sessions.get( id );
+        return session == null ? null : session.food;
+    }
+
+    /**
+     * @description Records the changes the editor made. The session stays open until it is taken.
+     * @param id Id of the food.
+     * @param delta The changed fields.
+     * @return false if there is no session for the food.
+     */
+    public synchronized boolean commit( long id, FoodDelta delta ) {
+        Session session = sessions.get( id );
+        if( session == null ) return false;
+        session.delta = delta;
+        return true;
+    }
+
+    /**
+     * @description Closes a session and hands it back, committed or not.
+     * @param id Id of the food.
+     * @return The session, or null if there was none.
+     */
+    public synchronized Session take( long id ) {
+        return sessions.remove( id );
+    }
+
+    /**
+     * @description Closes a session without keeping its changes.
+     * @param id Id of the food.
+     */
+    public synchronized void cancel( long id ) {
+        Session session = sessions.get( id );
+        if( session != null && session.delta == null ) sessions.remove( id );
+    }
+
+    public synchronized int size() { return sessions.size(); }
+}
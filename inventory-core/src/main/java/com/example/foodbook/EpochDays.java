@@ -0,0 +1,85 @@
+package com.example.foodbook;
+
+import java.util.TimeZone;
+
+/**
+ * @class EpochDays
+ * @description Converts between millisecond timestamps and whole days since 1970-01-01 in the
+ * device's time zone. Best before dates are only ever shown and picked as a day, so storing them as a
+ * day number keeps them small and cheap to compare.
+ */
+public final class EpochDays {
+
+    public static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private EpochDays() {}
+
+    /**
+     * @description Gets the local day a timestamp falls on.
+     * @param millis Milliseconds since the epoch.
+     * @return Days since 1970-01-01 in the default time zone.
+     */
+    public static long fromMillis( long millis ) {
+        return fromMillis( millis, TimeZone.getDefault() );
+    }
+
+    /**
+     * @description Gets the day a timestamp falls on in the given zone. TimeZone.getDefault returns a
+     * copy on every call, so callers converting many dates should look the zone up once and use this.
+     * @param millis Milliseconds since the epoch.
+     * @param zone Time zone the day is counted in.
+     * @return Days since 1970-01-01 in that zone.
+     */
+    public static long fromMillis( long millis, TimeZone zone ) {
+        long local = millis + zone.getOffset( millis );
+        return Math.floorDiv( local, MILLIS_PER_DAY );
+    }
+
+    /**
+     * @description Gets the Monday of the week a day falls in.
+     * @param epochDay Days since 1970-01-01.
+     * @return The day the week starts on.
+     */
+    public static long startOfWeek( long epochDay ) {
+        // 1970-01-01 was a Thursday, three days after the Monday which started its week.
+        return epochDay - Math.floorMod( epochDay + 3, 7 );
+    }
+
+    /**
+     * @description Gets the first day of the month a day falls in, worked out arithmetically on the
+     * proleptic Gregorian calendar so it costs no Calendar or LocalDate allocation.
+     * @param epochDay Days since 1970-01-01.
+     * @return The day the month starts on.
+     */
+    public static long startOfMonth( long epochDay ) {
+        // Count from 0000-03-01 so the leap day falls at the end of each counted year.
+        long shifted = epochDay + 719_468;
+        long era = Math.floorDiv( shifted, 146_097 );
+        long dayOfEra = shifted - era * 146_097;
+        long yearOfEra = ( dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096 ) / 365;
+        long dayOfYear = dayOfEra - ( 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100 );
+        long month = ( 5 * dayOfYear + 2 ) / 153;
+        long dayOfMonth = dayOfYear - ( 153 * month + 2 ) / 5;
+        return epochDay - dayOfMonth;
+    }
+
+    /**
+     * @description Gets the timestamp of local midnight at the start of a day.
+     * @param epochDay Days since 1970-01-01 in the default time zone.
+     * @return Milliseconds since the epoch.
+     */
+    public static long toMillis( long epochDay ) {
+        return toMillis( epochDay, TimeZone.getDefault() );
+    }
+
+    /**
+     * @description Gets the timestamp of midnight at the start of a day in the given zone.
+     * @param epochDay Days since 1970-01-01 in that zone.
+     * @param zone Time zone the day is counted in.
+     * @return Milliseconds since the epoch.
+     */
+    public static long toMillis( long epochDay, TimeZone zone ) {
+        long utc = epochDay * MILLIS_PER_DAY;
+        return utc - zone.getOffset( utc );
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.foodbook;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * @class ExpiryIndex
+ * @description Index of food ids ordered by the epoch day their best before date falls on, for asking
+ * which foods expire within the next few days. Entries are kept in two parallel primitive arrays sorted
+ * by ( day, id ), so nothing is boxed. A range query is a binary search followed by a walk over the k
+ * matching entries, O( log n + k ). Adding or removing an entry is a binary search plus an array copy.
+ */
+public class ExpiryIndex {
+
+    // Returned by the peek methods when no food expires on or after the given day.
+    public static final long NONE = Long.MIN_VALUE;
+
+    private long[] days = new long[ 16 ];
+    private long[] ids = new long[ 16 ];
+    private int size;
+
+    public int size() { return size; }
+
+    /**
+     * @description Adds a food to the index.
+     * @param id Id of the food.
+     * @param epochDay Day the food's best before date falls on.
+     */
+    public void add( long id, long epochDay ) {
+        int position = lowerBound( epochDay, id );
+        if( size == days.length ) {
+            days = Arrays.copyOf( days, size * 2 );
+            ids = Arrays.copyOf( ids, size * 2 );
+        }
+        System.arraycopy( days, position, days, position + 1, size - position );
+        System.arraycopy( ids, position, ids, position + 1, size - position );
+        days[ position ] = epochDay;
+        ids[ position ] = id;
+        size++;
+    }
+
+    /**
+     * @description Adds many foods at once, as when the inventory is loaded or a CSV file is imported in
+     * batches. Only the new entries are sorted, O( k log k ), and they are then merged into the index
+     * from the back, so each entry already there is moved at most once and none is compared again.
+     * @param newIds Ids of the foods.
+     * @param newDays Day each food's best before date falls on, matching newIds by position.
+     * @param count How many entries of the arrays to add.
+     */
+    public void addAll( long[] newIds, long[] newDays, int count ) {
+        if( count == 0 ) return;
+        long[] batchDays = Arrays.copyOf( newDays, count ), batchIds = Arrays.copyOf( newIds, count );
+        sort( batchDays, batchIds, count );
+
+        if( size + count > days.length ) {
+            int capacity = Math.max( size + count, days.length * 2 );
+            days = Arrays.copyOf( days, capacity );
+            ids = Arrays.copyOf( ids, capacity );
+        }
+        int stored = size - 1, batch = count - 1;
+        for( int out = size + count - 1; batch >= 0; out-- ) {
+            if( stored >= 0 && ( days[ stored ] > batchDays[ batch ]
+                    || ( days[ stored ] == batchDays[ batch ] && ids[ stored ] > batchIds[ batch ] ) ) ) {
+                days[ out ] = days[ stored ];
+                ids[ out ] = ids[ stored ];
+                stored--;
+            } else {
+                days[ out ] = batchDays[ batch ];
+                ids[ out ] = batchIds[ batch ];
+                batch--;
+            }
+        }
+        size += count;
+    }
+
+    /**
+     * @description Removes a food from the index.
+     * @param id Id of the food.
+     * @param epochDay Day the food was indexed under.
+     * @return true if the food was in the index.
+     */
+    public boolean remove( long id, long epochDay ) {
+        int position = lowerBound( epochDay, id );
+        if( position == size || days[ position ] != epochDay || ids[ position ] != id ) return false;
+        System.arraycopy( days, position + 1, days, position, size - position - 1 );
+        System.arraycopy( ids, position + 1, ids, position, size - position - 1 );
+        size--;
+        return true;
+    }
+
+    /**
+     * @description Removes every food matching a test in a single pass over the index, O( n ) however
+     * many are removed, where removing them one at a time would copy the arrays once per food.
+     * @param isRemoved Given each id, true if that food should be removed.
+     * @return How many entries were removed.
+     */
+    public int removeIf( LongPredicate isRemoved ) {
+        int kept = 0;
+        for( int i = 0; i < size; i++ ) {
+            if( isRemoved.test( ids[ i ] ) ) continue;
+            days[ kept ] = days[ i ];
+            ids[ kept ] = ids[ i ];
+            kept++;
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * @description Moves a food to a new day, for when its best before date has been edited.
+     * @param id Id of the food.
+     * @param oldEpochDay Day the food was indexed under.
+     * @param newEpochDay Day the food now expires on.
+     */
+    public void update( long id, long oldEpochDay, long newEpochDay ) {
+        if( oldEpochDay == newEpochDay ) return;
+        remove( id, oldEpochDay );
+        add( id, newEpochDay );
+    }
+
+    /**
+     * @description Empties the index.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @description Gets the first day on or after the given one on which any food expires.
+     * @param fromEpochDay First day to look at, usually today.
+     * @return That day, or NONE if nothing expires on or after it.
+     */
+    public long nextExpiringDay( long fromEpochDay ) {
+        int position = lowerBound( fromEpochDay, Long.MIN_VALUE );
+        return position < size ? days[ position ] : NONE;
+    }
+
+    /**
+     * @description Gets the id of the food which expires first on or after the given day.
+     * @param fromEpochDay First day to look at, usually today.
+     * @return The id, or NONE if nothing expires on or after that day.
+     */
+    public long nextExpiringId( long fromEpochDay ) {
+        int position = lowerBound( fromEpochDay, Long.MIN_VALUE );
+        return position < size ? ids[ position ] : NONE;
+    }
+
+    /**
+     * @description Counts the foods expiring within a range of days. Does not walk the matches.
+     * @param fromEpochDay First day of the range.
+     * @param toEpochDay Last day of the range, inclusive.
+     * @return The number of foods expiring in the range.
+     */
+    public int countBetween( long fromEpochDay, long toEpochDay ) {
+        if( toEpochDay < fromEpochDay ) return 0;
+        return upperBound( toEpochDay ) - lowerBound( fromEpochDay, Long.MIN_VALUE );
+    }
+
+    /**
+     * @description Hands the id of every food expiring within a range of days to the consumer,
+     * soonest first.
+     * @param fromEpochDay First day of the range.
+     * @param toEpochDay Last day of the range, inclusive.
+     * @param consumer Receives each id.
+     */
+    public void forEachBetween( long fromEpochDay, long toEpochDay, LongConsumer consumer ) {
+        for( int i = lowerBound( fromEpochDay, Long.MIN_VALUE ); i < size && days[ i ] <= toEpochDay; i++ ) {
+            consumer.accept( ids[ i ] );
+        }
+    }
+
+    /**
+     * @description Gets the ids of every food expiring within a range of days, soonest first.
+     * @param fromEpochDay First day of the range.
+     * @param toEpochDay Last day of the range, inclusive.
+     * @return The ids in a new array.
+     */
+    public long[] idsBetween( long fromEpochDay, long toEpochDay ) {
+        if( toEpochDay < fromEpochDay ) return new long[ 0 ];
+        int from = lowerBound( fromEpochDay, Long.MIN_VALUE );
+        return Arrays.copyOfRange( ids, from, upperBound( toEpochDay ) );
+    }
+
+    /**
+     * @description Sorts entries by ( day, id ) with a bottom up merge sort over the parallel arrays.
+     * @param days Days of the entries, sorted in place.
+     * @param ids Ids of the entries, moved along with their days.
+     * @param count How many entries of the arrays to sort.
+     */
+    private static void sort( long[] days, long[] ids, int count ) {
+        long[] fromDays = days, fromIds = ids;
+        long[] toDays = new long[ count ], toIds = new long[ count ];
+        for( int width = 1; width < count; width *= 2 ) {
+            for( int low = 0; low < count; low += 2 * width ) {
+                int mid = Math.min( low + width, count ), high = Math.min( low + 2 * width, count );
+                int left = low, right = mid;
+                for( int out = low; out < high; out++ ) {
+                    boolean takeLeft = right >= high || ( left < mid && ( fromDays[ left ] < fromDays[ right ]
+                            || ( fromDays[ left ] == fromDays[ right ] && fromIds[ left ] <= fromIds[ right ] ) ) );
+                    int from = takeLeft ? left++ : right++;
+                    toDays[ out ] = fromDays[ from ];
+                    toIds[ out ] = fromIds[ from ];
+                }
+            }
+            long[] swap = fromDays; fromDays = toDays; toDays = swap;
+            swap = fromIds; fromIds = toIds; toIds = swap;
+        }
+        if( fromDays != days ) {
+            System.arraycopy( fromDays, 0, days, 0, count );
+            System.arraycopy( fromIds, 0, ids, 0, count );
+        }
+    }
+
+    /**
+     * @description Finds the first entry which is not ordered before ( day, id ).
+     */
+    private int lowerBound( long day, long id ) {
+        int low = 0, high = size;
+        while( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if( days[ mid ] < day || ( days[ mid ] == day && ids[ mid ] < id ) ) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @description Finds the first entry with a day after the given one.
+     */
+    private int upperBound( long day ) {
+        int low = 0, high = size;
+        while( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if( days[ mid ] <= day ) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * @class ExpiryScanner
+ * @description Finds the foods which have passed their best before date or will within a few days.
+ * A scan walks the inventory in chunks of a fixed size so the caller can yield or stop between them,
+ * which keeps a large inventory from holding a thread for one long stretch. The chunks can also be
+ * handed in by the caller, e.g. read a page at a time from a FoodPageSource, so the whole inventory
+ * never has to be in memory. The result of a whole scan
+ * is a single report, so it can be turned into one notification rather than one per food.
+ * Time is read from a Clock so the scanner can be tested with a fake one.
+ */
+public class ExpiryScanner {
+
+    /**
+     * @class Clock
+     * @description Source of the current date and of timings for the metrics.
+     */
+    public interface Clock {
+        long currentTimeMillis();
+        long nanoTime();
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override public long currentTimeMillis() { return System.currentTimeMillis(); }
+        @Override public long nanoTime() { return System.nanoTime(); }
+    };
+
+    /**
+     * @class Report
+     * @description The foods found by one complete scan.
+     */
+    public static class Report {
+        public final List<Food> expired = new ArrayList<>();
+        public final List<Food> expiringSoon = new ArrayList<>();
+        public int scanned;
+
+        public boolean isEmpty() { return expired.isEmpty() && expiringSoon.isEmpty(); }
+    }
+
+    /**
+     * @class Metrics
+     * @description Running figures about the scans this scanner has done.
+     */
+    public static class Metrics {
+        public int runs;
+        public long itemsScanned;
+        public long lastRunNanos;
+        public long totalRunNanos;
+        public long longestChunkNanos;
+    }
+
+    /**
+     * @class Scan
+     * @description One pass over a list of foods, advanced a chunk at a time with step.
+     */
+    public class Scan {
+        private final List<Food> foods;
+        private final Report report = new Report();
+        private final long today;
+        private int position;
+        private long runNanos;
+
+        private Scan( List<Food> foods ) {
+            this.foods = foods;
+            this.today = EpochDays.fromMillis( clock.currentTimeMillis(), zone );
+        }
+
+        /**
+         * @description Checks the next chunk of foods.
+         * @return true while there are foods left to check.
+         */
+        public boolean step() {
+            if( position < foods.size() ) step( foods.subList( position, Math.min( position + chunkSize, foods.size() ) ) );
+            return position < foods.size();
+        }
+
+        /**
+         * @description Checks a chunk of foods handed in by the caller, for a scan started without a list.
+         * @param chunk The next foods to check.
+         */
+        public void step( List<Food> chunk ) {
+            long start = clock.nanoTime();
+            for( Food food : chunk ) {
+                long day = EpochDays.fromMillis( food.getBestBeforeMillis(), zone );
+                if( day < today ) report.expired.add( food );
+                else if( day - today <= warningDays ) report.expiringSoon.add( food );
+            }
+            position += chunk.size();
+            long chunkNanos = clock.nanoTime() - start;
+            runNanos += chunkNanos;
+            metrics.longestChunkNanos = Math.max( metrics.longestChunkNanos, chunkNanos );
+        }
+
+        /**
+         * @description Ends the scan and records it in the metrics. Only the foods checked so far are
+         * in the report if the scan is finished early.
+         * @return The foods found.
+         */
+        public Report finish() {
+            report.scanned = position;
+            metrics.runs++;
+            metrics.itemsScanned += position;
+            metrics.lastRunNanos = runNanos;
+            metrics.totalRunNanos += runNanos;
+            return report;
+        }
+    }
+
+    private final Clock clock;
+    private final TimeZone zone;
+    private final int warningDays;
+    private final int chunkSize;
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * Constructor
+     * @param clock Source of the current date and timings.
+     * @param zone Time zone the days are counted in.
+     * @param warningDays How many days ahead a food counts as expiring soon. 0 means only today.
+     * @param chunkSize How many foods are checked by each step.
+     */
+    public ExpiryScanner( Clock clock, TimeZone zone, int warningDays, int chunkSize ) {
+        if( chunkSize <= 0 ) throw new IllegalArgumentException( "chunkSize must be positive" );
+        this.clock = clock;
+        this.zone = zone;
+        this.warningDays = warningDays;
+        this.chunkSize = chunkSize;
+    }
+
+    public Metrics getMetrics() { return metrics; }
+
+    /**
+     * @description Starts a scan over a list of foods. The list must not change while it is scanned.
+     * @param foods Foods to check.
+     * @return The scan, to be advanced with step.
+     */
+    public Scan start( List<Food> foods ) {
+        return new Scan( foods );
+    }
+
+    /**
+     * @description Starts a scan whose foods are handed to Scan.step( List ) a chunk at a time.
+     * @return The scan.
+     */
+    public Scan start() {
+        return new Scan( Collections.emptyList() );
+    }
+
+    /**
+     * @description Scans a whole list in one go, for callers which do not need to pause between chunks.
+     * @param foods Foods to check.
+     * @return The foods found.
+     */
+    public Report scan( List<Food> foods ) {
+        Scan scan = start( foods );
+        while( scan.step() ) { }
+        return scan.finish();
+    }
+}
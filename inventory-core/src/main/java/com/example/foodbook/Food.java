@@ -14,6 +14,8 @@ public class Food implements Serializable {
     private String foodName, description, location;
     private Date bestBeforeDate;
     private int count, locationPosition, cost;
+    // Assigned by the FoodRepository when the food is first stored. 0 means not yet stored.
+    private long id;
 
     /**
      * Constructor
@@ -38,6 +40,7 @@ public class Food implements Serializable {
         this.cost = cost;
     }
 
+    public long getId() { return id; }
     public String getName() { return foodName; }
     public String getDescription() { return description; }
     public Integer getCount() { return count;}
@@ -46,7 +49,13 @@ public class Food implements Serializable {
     public int getLocationPosition() { return locationPosition; }
     public Integer getCost() { return cost; };
 
+    // Unboxed versions of the getters above for hot paths which should not allocate.
+    public int getCountValue() { return count; }
+    public int getCostValue() { return cost; }
+    public long getBestBeforeMillis() { return bestBeforeDate.getTime(); }
 
+
+    public void setId( long id ) { this.id = id; }
     public void setDescription( String description ) { this.description = description; }
     public void setCount( int count ) { this.count = count; }
     public void setBestBeforeDate( Date bestBeforeDate ) { this.bestBeforeDate = bestBeforeDate; }
@@ -0,0 +1,317 @@
+package com.example.foodbook;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * @class FoodCodec
+ * @description Hand written binary format for a Food, used for storage and for handing foods between
+ * activities. Compared to java.io.Serializable it writes no class descriptors, stores numbers as
+ * varints, the best before date as a day number and the location as its position in the locations
+ * string array.
+ *
+ * Layout (version 2):
+ *   byte    version
+ *   byte    flags, FLAG_CUSTOM_LOCATION when a custom location string follows
+ *   varint  locationPosition (zig-zag)
+ *   varint  id
+ *   string  name
+ *   string  description
+ *   varint  count (zig-zag)
+ *   varint  cost (zig-zag)
+ *   varint  best before epoch day (zig-zag)
+ *   string  location, only present when flagged above
+ * Strings are a varint byte length followed by UTF-8.
+ * Days are counted in the default time zone. Callers coding many foods pass the zone in, since looking
+ * it up copies it every time.
+ * Version 1 kept the position and the flag together in one byte, so only positions 0 to 127 survived.
+ * It is still read, because parcels and saved sync state written by an older build may hold it.
+ */
+public final class FoodCodec {
+
+    public static final int VERSION = 2;
+
+    private static final int VERSION_1 = 1;
+
+    // Must match the order of R.array.locations.
+    static final String[] LOCATIONS = { "Fridge", "Pantry", "Freezer" };
+
+    private static final int FLAG_CUSTOM_LOCATION = 0x01;
+
+    // Version 1 flagged a custom location in the high bit of the position byte.
+    private static final int V1_CUSTOM_LOCATION = 0x80;
+
+    private FoodCodec() {}
+
+    /**
+     * @description Encodes a food into a new array of exactly the right size.
+     * @param food Food to encode.
+     * @return The encoded bytes.
+     */
+    public static byte[] encode( Food food ) {
+        return encode( food, TimeZone.getDefault() );
+    }
+
+    /**
+     * @description Encodes a food, counting its best before day in the given zone.
+     * @param food Food to encode.
+     * @param zone Time zone of the day, usually the default one looked up once for a batch.
+     * @return The encoded bytes.
+     */
+    public static byte[] encode( Food food, TimeZone zone ) {
+        long epochDay = EpochDays.fromMillis( food.getBestBeforeMillis(), zone );
+        byte[] bytes = new byte[ encodedSize( food, epochDay ) ];
+        write( ByteBuffer.wrap( bytes ), food, epochDay );
+        return bytes;
+    }
+
+    /**
+     * @description Decodes a food from an array made by encode.
+     * @param bytes The encoded bytes.
+     * @return A new Food holding the decoded values.
+     * @throws IllegalArgumentException If the bytes are not a food in a known version.
+     */
+    public static Food decode( byte[] bytes ) {
+        return read( ByteBuffer.wrap( bytes ) );
+    }
+
+    /**
+     * @description Decodes a food whose best before day was counted in the given zone.
+     * @param bytes The encoded bytes.
+     * @param zone Time zone of the day.
+     * @return A new Food holding the decoded values.
+     * @throws IllegalArgumentException If the bytes are not a food in a known version.
+     */
+    public static Food decode( byte[] bytes, TimeZone zone ) {
+        return read( ByteBuffer.wrap( bytes ), zone );
+    }
+
+    /**
+     * @description Counts how many bytes write will use for a food.
+     * @param food Food to measure.
+     * @return Size in bytes.
+     */
+    public static int encodedSize( Food food ) {
+        return encodedSize( food, TimeZone.getDefault() );
+    }
+
+    /**
+     * @description Counts how many bytes write will use for a food.
+     * @param food Food to measure.
+     * @param zone Time zone its best before day will be counted in.
+     * @return Size in bytes.
+     */
+    public static int encodedSize( Food food, TimeZone zone ) {
+        return encodedSize( food, EpochDays.fromMillis( food.getBestBeforeMillis(), zone ) );
+    }
+
+    /**
+     * @description Writes a food at the buffer's position and advances it.
+     * @param out Buffer with at least encodedSize( food ) bytes remaining.
+     * @param food Food to write.
+     */
+    public static void write( ByteBuffer out, Food food ) {
+        write( out, food, TimeZone.getDefault() );
+    }
+
+    /**
+     * @description Writes a food at the buffer's position and advances it.
+     * @param out Buffer with at least encodedSize( food, zone ) bytes remaining.
+     * @param food Food to write.
+     * @param zone Time zone its best before day is counted in.
+     */
+    public static void write( ByteBuffer out, Food food, TimeZone zone ) {
+        write( out, food, EpochDays.fromMillis( food.getBestBeforeMillis(), zone ) );
+    }
+
+    private static int encodedSize( Food food, long epochDay ) {
+        int size = 2
+                + varintSize( zigZag( food.getLocationPosition() ) )
+                + varintSize( food.getId() )
+                + stringSize( food.getName() )
+                + stringSize( food.getDescription() )
+                + varintSize( zigZag( food.getCountValue() ) )
+                + varintSize( zigZag( food.getCostValue() ) )
+                + varintSize( zigZag( epochDay ) );
+        if( isCustomLocation( food ) ) size += stringSize( food.getLocation() );
+        return size;
+    }
+
+    private static void write( ByteBuffer out, Food food, long epochDay ) {
+        boolean customLocation = isCustomLocation( food );
+        out.put( (byte) VERSION );
+        out.put( (byte) ( customLocation ? FLAG_CUSTOM_LOCATION : 0 ) );
+        writeVarint( out, zigZag( food.getLocationPosition() ) );
+        writeVarint( out, food.getId() );
+        writeString( out, food.getName() );
+        writeString( out, food.getDescription() );
+        writeVarint( out, zigZag( food.getCountValue() ) );
+        writeVarint( out, zigZag( food.getCostValue() ) );
+        writeVarint( out, zigZag( epochDay ) );
+        if( customLocation ) writeString( out, food.getLocation() );
+    }
+
+    /**
+     * @description Reads a food at the buffer's position and advances past it.
+     * @param in Buffer positioned at the start of an encoded food.
+     * @return A new Food holding the decoded values.
+     * @throws IllegalArgumentException If the bytes are not a food in a known version.
+     */
+    public static Food read( ByteBuffer in ) {
+        return read( in, TimeZone.getDefault() );
+    }
+
+    /**
+     * @description Reads a food at the buffer's position and advances past it.
+     * @param in Buffer positioned at the start of an encoded food.
+     * @param zone Time zone its best before day was counted in.
+     * @return A new Food holding the decoded values.
+     * @throws IllegalArgumentException If the bytes are not a food in a known version.
+     */
+    public static Food read( ByteBuffer in, TimeZone zone ) {
+        int version = in.get();
+        boolean customLocation;
+        int locationPosition;
+        if( version == VERSION ) {
+            customLocation = ( in.get() & FLAG_CUSTOM_LOCATION ) != 0;
+            locationPosition = (int) unZigZag( readVarint( in ) );
+        } else if( version == VERSION_1 ) {
+            int locationByte = in.get() & 0xFF;
+            customLocation = ( locationByte & V1_CUSTOM_LOCATION ) != 0;
+            locationPosition = locationByte & ~V1_CUSTOM_LOCATION;
+        } else {
+            throw new IllegalArgumentException( "Unknown Food encoding version " + version );
+        }
+
+        long id = readVarint( in );
+        String name = readString( in );
+        String description = readString( in );
+        int count = (int) unZigZag( readVarint( in ) );
+        int cost = (int) unZigZag( readVarint( in ) );
+        long epochDay = unZigZag( readVarint( in ) );
+        String location;
+        if( customLocation ) {
+            location = readString( in );
+        } else if( locationPosition >= 0 && locationPosition < LOCATIONS.length ) {
+            location = LOCATIONS[ locationPosition ];
+        } else {
+            throw new IllegalArgumentException( "Unknown location position " + locationPosition );
+        }
+
+        Food food = new Food( name, description, count, new Date( EpochDays.toMillis( epochDay, zone ) ),
+                location, locationPosition, cost );
+        food.setId( id );
+        return food;
+    }
+
+    static boolean isCustomLocation( Food food ) {
+        int position = food.getLocationPosition();
+        return position < 0 || position >= LOCATIONS.length
+                || !LOCATIONS[ position ].equals( food.getLocation() );
+    }
+
+    static long zigZag( long value ) {
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+
+    static long unZigZag( long value ) {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    static int varintSize( long value ) {
+        int size = 1;
+        while( ( value & ~0x7FL ) != 0 ) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void writeVarint( ByteBuffer out, long value ) {
+        while( ( value & ~0x7FL ) != 0 ) {
+            out.put( (byte) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        out.put( (byte) value );
+    }
+
+    static long readVarint( ByteBuffer in ) {
+        long value = 0;
+        for( int shift = 0; shift < 64; shift += 7 ) {
+            byte b = in.get();
+            value |= (long) ( b & 0x7F ) << shift;
+            if( b >= 0 ) return value;
+        }
+        throw new IllegalArgumentException( "Malformed varint" );
+    }
+
+    /**
+     * @description Counts the UTF-8 bytes of a string without encoding it.
+     */
+    static int utf8Length( String value ) {
+        int length = 0;
+        for( int i = 0; i < value.length(); i++ ) {
+            char c = value.charAt( i );
+            if( c < 0x80 ) {
+                length += 1;
+            } else if( c < 0x800 ) {
+                length += 2;
+            } else if( Character.isHighSurrogate( c ) && i + 1 < value.length()
+                    && Character.isLowSurrogate( value.charAt( i + 1 ) ) ) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int stringSize( String value ) {
+        int length = utf8Length( value );
+        return varintSize( length ) + length;
+    }
+
+    private static void writeString( ByteBuffer out, String value ) {
+        writeVarint( out, utf8Length( value ) );
+        for( int i = 0; i < value.length(); i++ ) {
+            char c = value.charAt( i );
+            if( c < 0x80 ) {
+                out.put( (byte) c );
+            } else if( c < 0x800 ) {
+                out.put( (byte) ( 0xC0 | ( c >> 6 ) ) );
+                out.put( (byte) ( 0x80 | ( c & 0x3F ) ) );
+            } else if( Character.isHighSurrogate( c ) && i + 1 < value.length()
+                    && Character.isLowSurrogate( value.charAt( i + 1 ) ) ) {
+                int codePoint = Character.toCodePoint( c, value.charAt( ++i ) );
+                out.put( (byte) ( 0xF0 | ( codePoint >> 18 ) ) );
+                out.put( (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) ) );
+                out.put( (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) ) );
+                out.put( (byte) ( 0x80 | ( codePoint & 0x3F ) ) );
+            } else {
+                // Unpaired surrogates are written as the replacement character like String.getBytes does.
+                if( Character.isSurrogate( c ) ) c = '\uFFFD';
+                out.put( (byte) ( 0xE0 | ( c >> 12 ) ) );
+                out.put( (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) ) );
+                out.put( (byte) ( 0x80 | ( c & 0x3F ) ) );
+            }
+        }
+    }
+
+    private static String readString( ByteBuffer in ) {
+        int length = (int) readVarint( in );
+        if( length < 0 || length > in.remaining() ) throw new IllegalArgumentException( "Malformed string length" );
+        String value;
+        if( in.hasArray() ) {
+            value = new String( in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8 );
+        } else {
+            byte[] bytes = new byte[ length ];
+            in.duplicate().get( bytes );
+            value = new String( bytes, StandardCharsets.UTF_8 );
+        }
+        in.position( in.position() + length );
+        return value;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.foodbook;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * @class FoodColumns
+ * @description Stores foods as parallel primitive columns rather than one object per food: ids,
+ * counts, costs, best before days and location positions each live in their own array, and the strings
+ * are kept as codes into a StringPool so a name used by many foods is held once. The location string
+ * is only stored when it is not simply the name of its location position.
+ * Scans over a single column, such as the total value, walk straight through arrays of numbers instead
+ * of chasing a pointer per food. Food objects are only built when asked for, for the UI to show.
+ * Best before dates are kept to the day, the same as in storage.
+ */
+public class FoodColumns {
+
+    private static final int NO_LOCATION_NAME = -1;
+
+    private long[] ids = new long[ 16 ];
+    private int[] counts = new int[ 16 ];
+    private int[] costs = new int[ 16 ];
+    private int[] expiryDays = new int[ 16 ];
+    private byte[] locations = new byte[ 16 ];
+    private int[] names = new int[ 16 ];
+    private int[] descriptions = new int[ 16 ];
+    private int[] locationNames = new int[ 16 ];
+    private int size;
+
+    private StringPool pool = new StringPool();
+    // Strings dropped from the columns since the pool was last rebuilt.
+    private int droppedStrings;
+
+    public int size() { return size; }
+    public long getId( int row ) { return ids[ row ]; }
+    public int getCount( int row ) { return counts[ row ]; }
+    public int getCost( int row ) { return costs[ row ]; }
+    public int getExpiryDay( int row ) { return expiryDays[ row ]; }
+    public int getLocationPosition( int row ) { return locations[ row ]; }
+    public String getName( int row ) { return pool.get( names[ row ] ); }
+    public String getDescription( int row ) { return pool.get( descriptions[ row ] ); }
+    public StringPool getStringPool() { return pool; }
+
+    public String getLocation( int row ) {
+        int code = locationNames[ row ];
+        return code == NO_LOCATION_NAME ? FoodCodec.LOCATIONS[ locations[ row ] ] : pool.get( code );
+    }
+
+    /**
+     * @description Adds a food to the end of the columns.
+     * @param food Food to copy in.
+     */
+    public void add( Food food ) {
+        if( size == ids.length ) grow( size * 2 );
+        write( size++, food );
+    }
+
+    /**
+     * @description Adds foods to the end of the columns, growing them once for the lot.
+     * @param foods Foods to copy in.
+     */
+    public void addAll( Collection<Food> foods ) {
+        if( size + foods.size() > ids.length ) grow( Math.max( size + foods.size(), size * 2 ) );
+        for( Food food : foods ) write( size++, food );
+    }
+
+    /**
+     * @description Replaces the values in a row.
+     * @param row Row to overwrite.
+     * @param food Food holding the new values.
+     */
+    public void set( int row, Food food ) {
+        droppedStrings += 2;
+        write( row, food );
+        rebuildPoolIfStale();
+    }
+
+    /**
+     * @description Removes a row, moving the rows after it up by one.
+     * @param row Row to remove.
+     */
+    public void remove( int row ) {
+        int moved = size - row - 1;
+        System.arraycopy( ids, row + 1, ids, row, moved );
+        System.arraycopy( counts, row + 1, counts, row, moved );
+        System.arraycopy( costs, row + 1, costs, row, moved );
+        System.arraycopy( expiryDays, row + 1, expiryDays, row, moved );
+        System.arraycopy( locations, row + 1, locations, row, moved );
+        System.arraycopy( names, row + 1, names, row, moved );
+        System.arraycopy( descriptions, row + 1, descriptions, row, moved );
+        System.arraycopy( locationNames, row + 1, locationNames, row, moved );
+        size--;
+        droppedStrings += 2;
+        rebuildPoolIfStale();
+    }
+
+    /**
+     * @description Finds the row holding a food.
+     * @param id Id of the food.
+     * @return The row, or -1 if no row has that id.
+     */
+    public int indexOfId( long id ) {
+        for( int row = 0; row < size; row++ ) {
+            if( ids[ row ] == id ) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * @description Builds a Food holding the values of a row, for the UI to show or edit.
+     * @param row Row to read.
+     * @return A new Food, not connected to the columns.
+     */
+    public Food get( int row ) {
+        Food food = new Food( getName( row ), getDescription( row ), counts[ row ],
+                new Date( EpochDays.toMillis( expiryDays[ row ] ) ), getLocation( row ), locations[ row ], costs[ row ] );
+        food.setId( ids[ row ] );
+        return food;
+    }
+
+    /**
+     * @description Gets a read only list which builds each Food as it is asked for.
+     * @return A view of the columns, only valid until they next change.
+     */
+    public List<Food> asList() {
+        return new FoodView();
+    }
+
+    /**
+     * @description Works out the total cost of every food, defined as sum( cost * count ).
+     * @return The total, summed in long.
+     */
+    public long totalValue() {
+        long total = 0;
+        for( int row = 0; row < size; row++ ) total += (long) costs[ row ] * counts[ row ];
+        return total;
+    }
+
+    /**
+     * @description Works out the total cost of the foods in one location.
+     * @param locationPosition 0 = Fridge, 1 = Pantry, 2 = Freezer.
+     * @return sum( cost * count ) over the foods in that location.
+     */
+    public long totalValue( int locationPosition ) {
+        long total = 0;
+        for( int row = 0; row < size; row++ ) {
+            if( locations[ row ] == locationPosition ) total += (long) costs[ row ] * counts[ row ];
+        }
+        return total;
+    }
+
+    private void write( int row, Food food ) {
+        ids[ row ] = food.getId();
+        counts[ row ] = food.getCountValue();
+        costs[ row ] = food.getCostValue();
+        expiryDays[ row ] = (int) EpochDays.fromMillis( food.getBestBeforeMillis() );
+        locations[ row ] = (byte) food.getLocationPosition();
+        names[ row ] = pool.intern( food.getName() );
+        descriptions[ row ] = pool.intern( food.getDescription() );
+        locationNames[ row ] = FoodCodec.isCustomLocation( food ) ? pool.intern( food.getLocation() ) : NO_LOCATION_NAME;
+    }
+
+    private void grow( int capacity ) {
+        ids = Arrays.copyOf( ids, capacity );
+        counts = Arrays.copyOf( counts, capacity );
+        costs = Arrays.copyOf( costs, capacity );
+        expiryDays = Arrays.copyOf( expiryDays, capacity );
+        locations = Arrays.copyOf( locations, capacity );
+        names = Arrays.copyOf( names, capacity );
+        descriptions = Arrays.copyOf( descriptions, capacity );
+        locationNames = Arrays.copyOf( locationNames, capacity );
+    }
+
+    /**
+     * @description Re-interns every string still in use into a new pool once about as many strings have
+     * been dropped as there are rows, so edits and removals can not grow the pool without bound.
+     */
+    private void rebuildPoolIfStale() {
+        if( droppedStrings < Math.max( 1024, 2 * size ) ) return;
+        StringPool old = pool;
+        pool = new StringPool();
+        for( int row = 0; row < size; row++ ) {
+            names[ row ] = pool.intern( old.get( names[ row ] ) );
+            descriptions[ row ] = pool.intern( old.get( descriptions[ row ] ) );
+            if( locationNames[ row ] != NO_LOCATION_NAME ) locationNames[ row ] = pool.intern( old.get( locationNames[ row ] ) );
+        }
+        droppedStrings = 0;
+    }
+
+    private class FoodView extends AbstractList<Food> implements RandomAccess {
+        @Override
+        public Food get( int index ) {
+            if( index < 0 || index >= size ) throw new IndexOutOfBoundsException( "Row " + index + " of " + size );
+            return FoodColumns.this.get( index );
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+}
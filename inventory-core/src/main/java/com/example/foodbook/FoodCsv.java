@@ -0,0 +1,305 @@
+package com.example.foodbook;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @class FoodCsv
+ * @description Streams foods to and from CSV files with the columns
+ * name, description, count, best_before, location, cost.
+ * Reading works a record at a time and hands the foods over in fixed size batches, so a file of any
+ * length is imported in constant memory. Each row is checked the same way NewFoodActivity checks its
+ * fields: name, count and cost are required and may not be negative. Rows which fail are reported and skipped, they do not
+ * stop the import. A location which is not one of the fixed ones is kept as a custom location, the
+ * way FoodCodec stores it, so an export reads back the same. Quoting follows RFC 4180.
+ */
+public final class FoodCsv {
+
+    public static final String HEADER = "name,description,count,best_before,location,cost";
+
+    private static final int NAME = 0, DESCRIPTION = 1, COUNT = 2, BEST_BEFORE = 3, LOCATION = 4, COST = 5;
+
+    // Position given to a custom location: after the fixed ones, so it sorts after them and is left out
+    // of their totals.
+    static final int CUSTOM_LOCATION_POSITION = FoodCodec.LOCATIONS.length;
+
+    // Longest field read, in chars. A quote which is never closed would otherwise pull the rest of the
+    // file into one field.
+    static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+    /**
+     * @class ImportListener
+     * @description Receives the results of an import as it runs. Called on the thread doing the import.
+     */
+    public interface ImportListener {
+        void onBatch( List<Food> batch );
+        void onProgress( long rowsRead );
+        void onRowError( long line, String message );
+    }
+
+    /**
+     * @class Result
+     * @description Totals of a finished import.
+     */
+    public static class Result {
+        public long rows, imported, rejected;
+    }
+
+    private FoodCsv() {}
+
+    /**
+     * @description Reads foods from CSV. A first row starting with "name" is taken as the header and skipped.
+     * @param in Source of the CSV text. Not closed.
+     * @param batchSize How many foods are handed to the listener at a time.
+     * @param defaultEpochDay Best before day given to rows which leave it empty, like the date picker
+     *                        which starts on today.
+     * @param listener Receives the foods, progress and row errors.
+     * @return The totals of the import.
+     * @throws IOException If the source could not be read.
+     */
+    public static Result read( Reader in, int batchSize, long defaultEpochDay, ImportListener listener ) throws IOException {
+        RecordReader records = new RecordReader( in );
+        List<String> fields = new ArrayList<>();
+        List<Food> batch = new ArrayList<>( batchSize );
+        Result result = new Result();
+        boolean first = true;
+
+        while( records.next( fields ) ) {
+            if( first ) {
+                first = false;
+                if( !fields.isEmpty() && fields.get( 0 ).trim().equalsIgnoreCase( "name" ) ) continue;
+            }
+            if( fields.size() == 1 && fields.get( 0 ).isEmpty() ) continue;
+            result.rows++;
+
+            try {
+                batch.add( parse( fields, defaultEpochDay ) );
+                result.imported++;
+            } catch ( IllegalArgumentException | DateTimeException e ) {
+                result.rejected++;
+                listener.onRowError( records.getRecordLine(), e.getMessage() );
+            }
+
+            if( batch.size() == batchSize ) {
+                listener.onBatch( batch );
+                listener.onProgress( result.rows );
+                batch = new ArrayList<>( batchSize );
+            }
+        }
+        if( !batch.isEmpty() ) listener.onBatch( batch );
+        listener.onProgress( result.rows );
+        return result;
+    }
+
+    /**
+     * @description Writes foods as CSV, header first.
+     * @param out Destination of the CSV text. Not closed.
+     * @param foods Foods to write.
+     * @throws IOException If the destination could not be written.
+     */
+    public static void write( Writer out, Iterable<Food> foods ) throws IOException {
+        out.write( HEADER );
+        out.write( "\r\n" );
+        for( Food food : foods ) {
+            writeField( out, food.getName() );
+            out.write( ',' );
+            writeField( out, food.getDescription() );
+            out.write( ',' );
+            out.write( Integer.toString( food.getCountValue() ) );
+            out.write( ',' );
+            out.write( LocalDate.ofEpochDay( EpochDays.fromMillis( food.getBestBeforeMillis() ) ).toString() );
+            out.write( ',' );
+            writeField( out, food.getLocation() );
+            out.write( ',' );
+            out.write( Integer.toString( food.getCostValue() ) );
+            out.write( "\r\n" );
+        }
+        out.flush();
+    }
+
+    /**
+     * @description Builds a food from the fields of one row.
+     * @throws IllegalArgumentException If a required field is missing or a field can not be read.
+     */
+    static Food parse( List<String> fields, long defaultEpochDay ) {
+        String name = field( fields, NAME );
+        String countText = field( fields, COUNT );
+        String costText = field( fields, COST );
+        if( name.isEmpty() ) throw new IllegalArgumentException( "Missing name" );
+        if( countText.isEmpty() ) throw new IllegalArgumentException( "Missing count" );
+        if( costText.isEmpty() ) throw new IllegalArgumentException( "Missing cost" );
+
+        int count;
+        double costValue;
+        try {
+            count = Integer.parseInt( countText );
+            costValue = Double.parseDouble( costText );
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Count and cost must be numbers" );
+        }
+        if( count < 0 ) throw new IllegalArgumentException( "Count must not be negative" );
+        if( costValue < 0 ) throw new IllegalArgumentException( "Cost must not be negative" );
+        // Also false for NaN. parseDouble takes "NaN" and "Infinity", which the cast would turn into 0 and MAX_VALUE.
+        if( !( costValue >= 0 && costValue <= Integer.MAX_VALUE ) ) {
+            throw new IllegalArgumentException( "Cost out of range" );
+        }
+        // Cost is typed as a decimal in NewFoodActivity and kept as a whole number, do the same here.
+        int cost = (int) costValue;
+
+        String dateText = field( fields, BEST_BEFORE );
+        long epochDay = dateText.isEmpty() ? defaultEpochDay : parseDate( dateText );
+
+        String location = field( fields, LOCATION );
+        int locationPosition = 0;
+        if( location.isEmpty() ) {
+            location = FoodCodec.LOCATIONS[ 0 ];
+        } else {
+            locationPosition = CUSTOM_LOCATION_POSITION;
+            for( int i = 0; i < FoodCodec.LOCATIONS.length; i++ ) {
+                if( FoodCodec.LOCATIONS[ i ].equalsIgnoreCase( location ) ) {
+                    locationPosition = i;
+                    location = FoodCodec.LOCATIONS[ i ];
+                }
+            }
+        }
+
+        return new Food( name, field( fields, DESCRIPTION ), count, new Date( EpochDays.toMillis( epochDay ) ),
+                location, locationPosition, cost );
+    }
+
+    /**
+     * @description Reads a yyyy-MM-dd date without going through a formatter.
+     */
+    private static long parseDate( String text ) {
+        if( text.length() != 10 || text.charAt( 4 ) != '-' || text.charAt( 7 ) != '-' ) {
+            throw new IllegalArgumentException( "Best before must be yyyy-MM-dd" );
+        }
+        try {
+            int year = Integer.parseInt( text.substring( 0, 4 ) );
+            int month = Integer.parseInt( text.substring( 5, 7 ) );
+            int day = Integer.parseInt( text.substring( 8, 10 ) );
+            return LocalDate.of( year, month, day ).toEpochDay();
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Best before must be yyyy-MM-dd" );
+        }
+    }
+
+    private static String field( List<String> fields, int index ) {
+        return index < fields.size() ? fields.get( index ).trim() : "";
+    }
+
+    private static void writeField( Writer out, String value ) throws IOException {
+        boolean quote = false;
+        for( int i = 0; i < value.length() && !quote; i++ ) {
+            char c = value.charAt( i );
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if( !quote ) {
+            out.write( value );
+            return;
+        }
+        out.write( '"' );
+        for( int i = 0; i < value.length(); i++ ) {
+            char c = value.charAt( i );
+            if( c == '"' ) out.write( '"' );
+            out.write( c );
+        }
+        out.write( '"' );
+    }
+
+    /**
+     * @class RecordReader
+     * @description Splits CSV text into records of fields, reading through a fixed size buffer and
+     * reusing one builder for the field being read. A field longer than MAX_FIELD_LENGTH fails the read.
+     */
+    static class RecordReader {
+        private final Reader in;
+        private final char[] buffer = new char[ 8192 ];
+        private final StringBuilder field = new StringBuilder();
+        private int position, limit;
+        private long line = 1, recordLine;
+
+        RecordReader( Reader in ) {
+            this.in = in;
+        }
+
+        /**
+         * @description Line the last record read by next started on, counting from 1.
+         */
+        long getRecordLine() { return recordLine; }
+
+        /**
+         * @description Reads the next record.
+         * @param fields Cleared and filled with the record's fields.
+         * @return false once there are no records left.
+         */
+        boolean next( List<String> fields ) throws IOException {
+            fields.clear();
+            field.setLength( 0 );
+            recordLine = line;
+            int c = read();
+            if( c < 0 ) return false;
+
+            boolean quoted = false;
+            while( true ) {
+                if( quoted ) {
+                    if( c < 0 ) throw new IOException( "Unterminated quote starting on line " + recordLine );
+                    if( c == '"' ) {
+                        int after = read();
+                        if( after == '"' ) {
+                            field.append( '"' );
+                        } else {
+                            quoted = false;
+                            c = after;
+                            continue;
+                        }
+                    } else {
+                        if( c == '\n' ) line++;
+                        append( c );
+                    }
+                } else if( c == '"' && field.length() == 0 ) {
+                    quoted = true;
+                } else if( c == ',' ) {
+                    fields.add( field.toString() );
+                    field.setLength( 0 );
+                } else if( c == '\n' || c == '\r' || c < 0 ) {
+                    if( c == '\r' ) {
+                        int after = read();
+                        if( after != '\n' && after >= 0 ) position--;
+                    }
+                    if( c >= 0 ) line++;
+                    fields.add( field.toString() );
+                    return true;
+                } else {
+                    append( c );
+                }
+                c = read();
+            }
+        }
+
+        private void append( int c ) throws IOException {
+            if( field.length() == MAX_FIELD_LENGTH ) {
+                throw new IOException( "Field longer than " + MAX_FIELD_LENGTH + " characters on line " + recordLine );
+            }
+            field.append( (char) c );
+        }
+
+        private int read() throws IOException {
+            if( position == limit ) {
+                limit = in.read( buffer, 0, buffer.length );
+                position = 0;
+                if( limit <= 0 ) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[ position++ ];
+        }
+    }
+}
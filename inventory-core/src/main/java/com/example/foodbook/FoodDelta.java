@@ -0,0 +1,79 @@
+package com.example.foodbook;
+
+import java.util.Date;
+
+/**
+ * @class FoodDelta
+ * @description The fields an edit changed on a food, and their new values. Applying a delta only
+ * touches those fields, so an edit made against an older copy of a food does not undo changes made to
+ * its other fields in the meantime.
+ */
+public class FoodDelta {
+
+    static final int NAME = 1, DESCRIPTION = 1 << 1, COUNT = 1 << 2, BEST_BEFORE = 1 << 3,
+            LOCATION = 1 << 4, COST = 1 << 5;
+
+    private int changed;
+    private String name, description, location;
+    private int count, locationPosition, cost;
+    private long bestBeforeMillis;
+
+    /**
+     * @description Works out what an edit changed.
+     * @param before The food as the editor was given it.
+     * @param after A food holding the values in the editor when it was confirmed.
+     * @return The changed fields. Best before dates on the same day count as unchanged.
+     */
+    public static FoodDelta diff( Food before, Food after ) {
+        FoodDelta delta = new FoodDelta();
+        if( !before.getName().equals( after.getName() ) ) delta.setName( after.getName() );
+        if( !before.getDescription().equals( after.getDescription() ) ) delta.setDescription( after.getDescription() );
+        if( before.getCountValue() != after.getCountValue() ) delta.setCount( after.getCountValue() );
+        if( EpochDays.fromMillis( before.getBestBeforeMillis() ) != EpochDays.fromMillis( after.getBestBeforeMillis() ) ) {
+            delta.setBestBeforeMillis( after.getBestBeforeMillis() );
+        }
+        if( before.getLocationPosition() != after.getLocationPosition() || !before.getLocation().equals( after.getLocation() ) ) {
+            delta.setLocation( after.getLocation(), after.getLocationPosition() );
+        }
+        if( before.getCostValue() != after.getCostValue() ) delta.setCost( after.getCostValue() );
+        return delta;
+    }
+
+    public void setName( String name ) { this.name = name; changed |= NAME; }
+    public void setDescription( String description ) { this.description = description; changed |= DESCRIPTION; }
+    public void setCount( int count ) { this.count = count; changed |= COUNT; }
+    public void setBestBeforeMillis( long millis ) { this.bestBeforeMillis = millis; changed |= BEST_BEFORE; }
+    public void setCost( int cost ) { this.cost = cost; changed |= COST; }
+
+    public void setLocation( String location, int locationPosition ) {
+        this.location = location;
+        this.locationPosition = locationPosition;
+        changed |= LOCATION;
+    }
+
+    /**
+     * @description Checks whether the edit changed anything.
+     * @return true if no field was changed.
+     */
+    public boolean isEmpty() { return changed == 0; }
+
+    boolean changes( int field ) { return ( changed & field ) != 0; }
+
+    /**
+     * @description Builds the edited food without changing the one given.
+     * @param food The current state of the food.
+     * @return A new food with the same id, holding the changed fields of this delta and the rest of food.
+     */
+    public Food applyTo( Food food ) {
+        Food edited = new Food(
+                changes( NAME ) ? name : food.getName(),
+                changes( DESCRIPTION ) ? description : food.getDescription(),
+                changes( COUNT ) ? count : food.getCountValue(),
+                new Date( changes( BEST_BEFORE ) ? bestBeforeMillis : food.getBestBeforeMillis() ),
+                changes( LOCATION ) ? location : food.getLocation(),
+                changes( LOCATION ) ? locationPosition : food.getLocationPosition(),
+                changes( COST ) ? cost : food.getCostValue() );
+        edited.setId( food.getId() );
+        return edited;
+    }
+}
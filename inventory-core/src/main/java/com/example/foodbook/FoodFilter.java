@@ -0,0 +1,52 @@
+package com.example.foodbook;
+
+/**
+ * @class FoodFilter
+ * @description What the user is searching for in the food list. Every part is optional, a food is shown
+ * when it matches all the parts which are set.
+ */
+public class FoodFilter {
+
+    public static final int ANY_LOCATION = -1;
+
+    // Words which must each start a word of the food's name or description. Empty matches everything.
+    public final String text;
+    // 0 = Fridge, 1 = Pantry, 2 = Freezer, or ANY_LOCATION.
+    public final int locationPosition;
+    public final int minCost, maxCost;
+    public final int minCount;
+
+    /**
+     * Constructor
+     * @param text Words to look for in the name and description.
+     * @param locationPosition Location the food must be in, or ANY_LOCATION.
+     * @param minCost Lowest cost per item, inclusive.
+     * @param maxCost Highest cost per item, inclusive.
+     * @param minCount Lowest count, inclusive.
+     */
+    public FoodFilter( String text, int locationPosition, int minCost, int maxCost, int minCount ) {
+        this.text = text == null ? "" : text.trim();
+        this.locationPosition = locationPosition;
+        this.minCost = minCost;
+        this.maxCost = maxCost;
+        this.minCount = minCount;
+    }
+
+    /**
+     * @description Makes a filter which only searches the text.
+     * @param text Words to look for in the name and description.
+     * @return The filter.
+     */
+    public static FoodFilter text( String text ) {
+        return new FoodFilter( text, ANY_LOCATION, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE );
+    }
+
+    /**
+     * @description Checks if the filter lets every food through.
+     * @return true if nothing is set.
+     */
+    public boolean isEmpty() {
+        return text.isEmpty() && locationPosition == ANY_LOCATION && minCost == Integer.MIN_VALUE
+                && maxCost == Integer.MAX_VALUE && minCount == Integer.MIN_VALUE;
+    }
+}
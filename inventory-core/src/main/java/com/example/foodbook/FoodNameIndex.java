@@ -0,0 +1,164 @@
+package com.example.foodbook;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @class FoodNameIndex
+ * @description Hash index from a food's name to the foods holding it, bucketed by location, so adding
+ * a food can find the stored lots of the same item in O( 1 ) instead of scanning the list.
+ * Names are compared after normalize(): case folded and with runs of spaces collapsed, so "Milk" and
+ * " milk " are the same item. Each location has its own map from normalized name to the lots stored
+ * there, oldest first; there is usually one lot and rarely more than a few, so they are kept in a
+ * small array. The built in locations are looked up in an array by position. Any other position, such
+ * as the negative or large ones FoodCodec allows for custom locations, has its map in a hash map.
+ * Like Inventory, which keeps it up to date on every add, edit and delete, it belongs to one thread.
+ */
+public class FoodNameIndex {
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private final Map<String, Food[]>[] locations = new Map[ FoodCodec.LOCATIONS.length ];
+    private final Map<Integer, Map<String, Food[]>> otherLocations = new HashMap<>();
+    private int size;
+
+    /**
+     * @description Folds a name to the form it is indexed under.
+     * @param name A food name.
+     * @return The name trimmed, lower case and with each run of whitespace replaced by one space.
+     */
+    public static String normalize( String name ) {
+        StringBuilder normalized = new StringBuilder( name.length() );
+        boolean space = false;
+        for( int i = 0; i < name.length(); i++ ) {
+            char c = name.charAt( i );
+            if( Character.isWhitespace( c ) ) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if( space ) normalized.append( ' ' );
+            space = false;
+            normalized.append( c );
+        }
+        return normalized.toString().toLowerCase( Locale.ROOT );
+    }
+
+    public int size() { return size; }
+
+    /**
+     * @description Gets the stored lots of an item.
+     * @param name Name of the item, in any case or spacing.
+     * @param location Location position to look in.
+     * @return The foods with that name in that location, oldest first, as they are now. Empty if there
+     * are none.
+     */
+    public List<Food> find( String name, int location ) {
+        Map<String, Food[]> names = names( location, false );
+        Food[] lots = names == null ? null : names.get( normalize( name ) );
+        return lots == null ? Collections.emptyList() : Collections.unmodifiableList( Arrays.asList( lots ) );
+    }
+
+    /**
+     * @description Adds a food to the index.
+     * @param food Food to add.
+     */
+    public void add( Food food ) {
+        Map<String, Food[]> names = names( food.getLocationPosition(), true );
+        String key = normalize( food.getName() );
+        Food[] lots = names.get( key );
+        if( lots == null ) {
+            names.put( key, new Food[]{ food } );
+        } else {
+            lots = Arrays.copyOf( lots, lots.length + 1 );
+            lots[ lots.length - 1 ] = food;
+            names.put( key, lots );
+        }
+        size++;
+    }
+
+    /**
+     * @description Removes a food from the index.
+     * @param food Food to remove, matched by id.
+     * @return true if it was in the index.
+     */
+    public boolean remove( Food food ) {
+        Map<String, Food[]> names = names( food.getLocationPosition(), false );
+        if( names == null ) return false;
+        String key = normalize( food.getName() );
+        Food[] lots = names.get( key );
+        int lot = lotOf( lots, food.getId() );
+        if( lot < 0 ) return false;
+        if( lots.length == 1 ) {
+            names.remove( key );
+        } else {
+            Food[] kept = new Food[ lots.length - 1 ];
+            System.arraycopy( lots, 0, kept, 0, lot );
+            System.arraycopy( lots, lot + 1, kept, lot, kept.length - lot );
+            names.put( key, kept );
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @description Removes many foods.
+     * @param removed Foods to remove, matched by id.
+     */
+    public void removeAll( Collection<Food> removed ) {
+        for( Food food : removed ) remove( food );
+    }
+
+    /**
+     * @description Puts a food in place of the one it replaces. If the name and location are unchanged
+     * the new food takes the old one's place among the lots, otherwise it moves to its new bucket.
+     * @param replaced The food as it was indexed.
+     * @param food The food replacing it.
+     */
+    public void replace( Food replaced, Food food ) {
+        if( replaced.getId() == food.getId() && replaced.getLocationPosition() == food.getLocationPosition()
+                && replaced.getName().equals( food.getName() ) ) {
+            Map<String, Food[]> names = names( food.getLocationPosition(), true );
+            String key = normalize( food.getName() );
+            Food[] lots = names.get( key );
+            int lot = lotOf( lots, food.getId() );
+            if( lot >= 0 ) {
+                // Copied rather than written in place, so lists handed out by find() do not change.
+                lots = lots.clone();
+                lots[ lot ] = food;
+                names.put( key, lots );
+                return;
+            }
+        }
+        remove( replaced );
+        add( food );
+    }
+
+    private static int lotOf( Food[] lots, long id ) {
+        if( lots == null ) return -1;
+        for( int i = 0; i < lots.length; i++ ) {
+            if( lots[ i ].getId() == id ) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @description Gets the names stored in a location.
+     * @param location Any location position.
+     * @param create Whether to create the map if the location holds nothing yet.
+     * @return The map, or null if there is none and create is false.
+     */
+    private Map<String, Food[]> names( int location, boolean create ) {
+        boolean known = location >= 0 && location < locations.length;
+        Map<String, Food[]> names = known ? locations[ location ] : otherLocations.get( location );
+        if( names == null && create ) {
+            names = new HashMap<>();
+            if( known ) locations[ location ] = names;
+            else otherLocations.put( location, names );
+        }
+        return names;
+    }
+}
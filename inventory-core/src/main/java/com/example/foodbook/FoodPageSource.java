@@ -0,0 +1,28 @@
+package com.example.foodbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @class FoodPageSource
+ * @description A fixed list of stored foods which can be read a range at a time, so a caller only ever
+ * needs the part of the list it is showing. Pages may be read on any thread.
+ */
+public interface FoodPageSource extends Closeable {
+
+    /**
+     * @description Gets how many foods the source holds.
+     * @return The number of foods.
+     */
+    int size();
+
+    /**
+     * @description Reads a range of foods.
+     * @param start Position of the first food to read.
+     * @param count How many foods to read. The range must lie within the source.
+     * @return The foods in the range, in order.
+     * @throws IOException If the storage could not be read.
+     */
+    List<Food> loadPage( int start, int count ) throws IOException;
+}
@@ -0,0 +1,84 @@
+package com.example.foodbook;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @class FoodRepository
+ * @description The storage layer for the foods in the inventory. Implementations persist every add,
+ * edit and delete so that the list survives the process being killed. Mutating calls must never
+ * block the caller on disk, they are expected to be safe to call from the UI thread.
+ */
+public interface FoodRepository {
+
+    /**
+     * @class LoadCallback
+     * @description Receives the stored foods once a load has finished. Called on a background thread.
+     */
+    interface LoadCallback {
+        void onLoaded( List<Food> foods );
+    }
+
+    /**
+     * @description Loads all the stored foods in the background and hands them to the callback.
+     * @param callback Called with the foods in the order they were added.
+     */
+    void load( LoadCallback callback );
+
+    /**
+     * @description Loads all the stored foods, blocking until they have been read.
+     * @return The foods in the order they were added.
+     * @throws IOException If the storage could not be read.
+     */
+    List<Food> loadAll() throws IOException;
+
+    /**
+     * @description Stores a new food. The food is given its id by this call, so an add made before the
+     * first load has finished may wait for the id counter to be read back from storage.
+     * @param food Food to store.
+     */
+    void add( Food food );
+
+    /**
+     * @description Stores many new foods as one batch, written to storage together. The foods are given
+     * consecutive ids by this call, in the order given, with the same wait as add.
+     * @param foods Foods to store.
+     */
+    void addAll( Collection<Food> foods );
+
+    /**
+     * @description Replaces the stored values of an already stored food, matched by its id.
+     * @param food Food holding the new values.
+     */
+    void update( Food food );
+
+    /**
+     * @description Removes a stored food, matched by its id.
+     * @param food Food to remove.
+     */
+    void delete( Food food );
+
+    /**
+     * @description Replaces the stored values of many foods as one batch, written to storage together.
+     * @param foods Foods holding the new values.
+     */
+    void updateAll( Collection<Food> foods );
+
+    /**
+     * @description Removes many stored foods as one batch, written to storage together.
+     * @param foods Foods to remove.
+     */
+    void deleteAll( Collection<Food> foods );
+
+    /**
+     * @description Asks for any pending writes to be written out now instead of waiting for the batch.
+     * Does not block.
+     */
+    void flush();
+
+    /**
+     * @description Writes out anything pending and releases the background thread. Blocks until done.
+     */
+    void close();
+}
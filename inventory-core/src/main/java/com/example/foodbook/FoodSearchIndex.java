@@ -0,0 +1,258 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * @class FoodSearchIndex
+ * @description In-memory search index over the foods for type-ahead search and filtering.
+ * Each food gets a slot number in the order it was added. The words of its name and description are
+ * kept in a sorted map of word to the sorted slots containing it, so a prefix is a range of that map.
+ * Each location has a bitset of its slots, and cost and count are kept in int arrays by slot so range
+ * filters are read without touching the Food objects.
+ * Adds, edits and deletes update only the entries of the food concerned, and a batch of deletes
+ * compacts each posting list it touches once. Slots of deleted foods are
+ * reclaimed by rebuilding once they make up half of the index.
+ * All methods are synchronized so the index can be queried from a background thread while the UI
+ * thread keeps it up to date.
+ */
+public class FoodSearchIndex {
+
+    private final TreeMap<String, int[]> postings = new TreeMap<>();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final BitSet[] locationSlots = new BitSet[ FoodCodec.LOCATIONS.length ];
+    private final BitSet live = new BitSet();
+
+    private Food[] foods = new Food[ 16 ];
+    private String[][] words = new String[ 16 ][];
+    private int[] costs = new int[ 16 ];
+    private int[] counts = new int[ 16 ];
+    private int slotCount;
+
+    /**
+     * Constructor
+     */
+    public FoodSearchIndex() {
+        for( int i = 0; i < locationSlots.length; i++ ) locationSlots[ i ] = new BitSet();
+    }
+
+    public synchronized int size() { return slotsById.size(); }
+
+    /**
+     * @description Adds a food to the index.
+     * @param food Food to add. It must already have its id.
+     */
+    public synchronized void add( Food food ) {
+        if( slotCount == foods.length ) grow();
+        int slot = slotCount++;
+        slotsById.put( food.getId(), slot );
+        live.set( slot );
+        fill( slot, food );
+    }
+
+    /**
+     * @description Replaces the indexed values of a food with those of the food holding the same id.
+     * @param food Food holding the new values.
+     */
+    public synchronized void update( Food food ) {
+        Integer slot = slotsById.get( food.getId() );
+        if( slot == null ) return;
+        String[] foodWords = tokenize( food.getName() + " " + food.getDescription() );
+        if( Arrays.equals( foodWords, words[ slot ] ) ) {
+            // Only the numbers or the location changed, the posting lists can stay as they are.
+            for( BitSet location : locationSlots ) location.clear( slot );
+            fillValues( slot, food );
+            return;
+        }
+        clear( slot );
+        fill( slot, food );
+    }
+
+    /**
+     * @description Removes a food from the index.
+     * @param food Food to remove.
+     */
+    public synchronized void remove( Food food ) {
+        Integer slot = slotsById.remove( food.getId() );
+        if( slot == null ) return;
+        clear( slot );
+        live.clear( slot );
+        foods[ slot ] = null;
+        if( slotCount > 64 && slotsById.size() < slotCount / 2 ) rebuild();
+    }
+
+    /**
+     * @description Removes many foods at once. Each posting list touched is compacted once for the whole
+     * batch instead of once per food, so the cost is bounded by the size of the index rather than by the
+     * number of foods removed times the length of the lists they share.
+     * @param removed Foods to remove.
+     */
+    public synchronized void removeAll( Collection<Food> removed ) {
+        BitSet dead = new BitSet( slotCount );
+        Set<String> touched = new HashSet<>();
+        for( Food food : removed ) {
+            Integer slot = slotsById.remove( food.getId() );
+            if( slot == null ) continue;
+            dead.set( slot );
+            live.clear( slot );
+            for( BitSet location : locationSlots ) location.clear( slot );
+            Collections.addAll( touched, words[ slot ] );
+            words[ slot ] = null;
+            foods[ slot ] = null;
+        }
+        for( String word : touched ) {
+            int[] slots = postings.get( word );
+            int length = slots[ 0 ];
+            int kept = 0;
+            for( int i = 1; i <= length; i++ ) {
+                if( !dead.get( slots[ i ] ) ) slots[ ++kept ] = slots[ i ];
+            }
+            slots[ 0 ] = kept;
+            if( kept == 0 ) postings.remove( word );
+        }
+        if( slotCount > 64 && slotsById.size() < slotCount / 2 ) rebuild();
+    }
+
+    /**
+     * @description Finds the foods matching a filter.
+     * @param filter What to search for.
+     * @return The matching foods in the order they were added to the index.
+     */
+    public synchronized List<Food> query( FoodFilter filter ) {
+        BitSet matches = (BitSet) live.clone();
+
+        if( filter.locationPosition != FoodFilter.ANY_LOCATION ) {
+            if( filter.locationPosition < 0 || filter.locationPosition >= locationSlots.length ) return new ArrayList<>();
+            matches.and( locationSlots[ filter.locationPosition ] );
+        }
+
+        for( String prefix : tokenize( filter.text ) ) {
+            BitSet withPrefix = new BitSet( slotCount );
+            SortedMap<String, int[]> range = postings.subMap( prefix, prefix + Character.MAX_VALUE );
+            for( int[] slots : range.values() ) {
+                for( int i = 1; i <= slots[ 0 ]; i++ ) withPrefix.set( slots[ i ] );
+            }
+            matches.and( withPrefix );
+        }
+
+        List<Food> result = new ArrayList<>();
+        for( int slot = matches.nextSetBit( 0 ); slot >= 0; slot = matches.nextSetBit( slot + 1 ) ) {
+            if( costs[ slot ] < filter.minCost || costs[ slot ] > filter.maxCost ) continue;
+            if( counts[ slot ] < filter.minCount ) continue;
+            result.add( foods[ slot ] );
+        }
+        return result;
+    }
+
+    /**
+     * @description Splits text into the lower case words which are indexed and searched for.
+     * @param text Text to split.
+     * @return The distinct words, in the order they first appear.
+     */
+    static String[] tokenize( String text ) {
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase( Locale.ROOT );
+        int start = -1;
+        for( int i = 0; i <= lower.length(); i++ ) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit( lower.charAt( i ) );
+            if( letter && start < 0 ) start = i;
+            if( !letter && start >= 0 ) {
+                String token = lower.substring( start, i );
+                if( !tokens.contains( token ) ) tokens.add( token );
+                start = -1;
+            }
+        }
+        return tokens.toArray( new String[ 0 ] );
+    }
+
+    private void fill( int slot, Food food ) {
+        fillValues( slot, food );
+        String[] foodWords = tokenize( food.getName() + " " + food.getDescription() );
+        words[ slot ] = foodWords;
+        for( String word : foodWords ) {
+            int[] slots = postings.get( word );
+            if( slots == null ) slots = new int[ 4 ];
+            postings.put( word, insert( slots, slot ) );
+        }
+    }
+
+    private void fillValues( int slot, Food food ) {
+        foods[ slot ] = food;
+        costs[ slot ] = food.getCostValue();
+        counts[ slot ] = food.getCountValue();
+        int location = food.getLocationPosition();
+        if( location >= 0 && location < locationSlots.length ) locationSlots[ location ].set( slot );
+    }
+
+    private void clear( int slot ) {
+        for( BitSet location : locationSlots ) location.clear( slot );
+        for( String word : words[ slot ] ) {
+            int[] slots = delete( postings.get( word ), slot );
+            if( slots[ 0 ] == 0 ) postings.remove( word );
+        }
+        words[ slot ] = null;
+    }
+
+    /**
+     * @description Adds a slot to a sorted posting list. The first element holds the list's length.
+     */
+    private static int[] insert( int[] slots, int slot ) {
+        int length = slots[ 0 ];
+        int position = Arrays.binarySearch( slots, 1, length + 1, slot );
+        if( position >= 0 ) return slots;
+        position = -position - 1;
+        if( length + 1 == slots.length ) slots = Arrays.copyOf( slots, slots.length * 2 );
+        System.arraycopy( slots, position, slots, position + 1, length + 1 - position );
+        slots[ position ] = slot;
+        slots[ 0 ] = length + 1;
+        return slots;
+    }
+
+    /**
+     * @description Removes a slot from a sorted posting list. The first element holds the list's length.
+     */
+    private static int[] delete( int[] slots, int slot ) {
+        int length = slots[ 0 ];
+        int position = Arrays.binarySearch( slots, 1, length + 1, slot );
+        if( position < 0 ) return slots;
+        System.arraycopy( slots, position + 1, slots, position, length - position );
+        slots[ 0 ] = length - 1;
+        return slots;
+    }
+
+    private void grow() {
+        int capacity = foods.length * 2;
+        foods = Arrays.copyOf( foods, capacity );
+        words = Arrays.copyOf( words, capacity );
+        costs = Arrays.copyOf( costs, capacity );
+        counts = Arrays.copyOf( counts, capacity );
+    }
+
+    /**
+     * @description Re-adds the live foods to fresh slots, in their current order, to drop deleted slots.
+     */
+    private void rebuild() {
+        List<Food> kept = new ArrayList<>( slotsById.size() );
+        for( int slot = live.nextSetBit( 0 ); slot >= 0; slot = live.nextSetBit( slot + 1 ) ) kept.add( foods[ slot ] );
+
+        postings.clear();
+        slotsById.clear();
+        live.clear();
+        for( BitSet location : locationSlots ) location.clear();
+        Arrays.fill( foods, null );
+        Arrays.fill( words, null );
+        slotCount = 0;
+        for( Food food : kept ) add( food );
+    }
+}
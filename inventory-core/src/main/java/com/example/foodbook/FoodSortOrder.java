@@ -0,0 +1,65 @@
+package com.example.foodbook;
+
+/**
+ * @class FoodSortOrder
+ * @description How the food list is sorted: a primary key, a secondary key for foods which tie on the
+ * primary one, and whether the primary key runs from high to low. Foods which tie on both keys are
+ * kept in the order of their ids, which is the order they were added.
+ */
+public class FoodSortOrder {
+
+    /**
+     * @enum Key
+     * @description The values the list can be sorted by. Each one is turned into a single long once
+     * per food so comparing two foods does not call the boxed getters.
+     */
+    public enum Key {
+        EXPIRY, NAME, COST, TOTAL_VALUE, LOCATION;
+
+        /**
+         * @description Gets the sort key of a food.
+         * For NAME this only holds the first three characters, case folded, so foods with equal keys
+         * still have to be compared by their full names.
+         * @param food Food to read.
+         * @return The key, where a smaller key sorts first.
+         */
+        public long of( Food food ) {
+            switch ( this ) {
+                case EXPIRY: return food.getBestBeforeMillis();
+                case NAME: return namePrefix( food.getName() );
+                case COST: return food.getCostValue();
+                case TOTAL_VALUE: return (long) food.getCostValue() * food.getCountValue();
+                case LOCATION: return food.getLocationPosition();
+                default: throw new IllegalStateException();
+            }
+        }
+    }
+
+    public final Key primary, secondary;
+    public final boolean descending;
+
+    /**
+     * Constructor
+     * @param primary Key the foods are sorted by.
+     * @param secondary Key used when two foods have the same primary key.
+     * @param descending true to sort the primary key from high to low.
+     */
+    public FoodSortOrder( Key primary, Key secondary, boolean descending ) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.descending = descending;
+    }
+
+    /**
+     * @description Packs the first three characters of a name into a long, in the same order
+     * String.CASE_INSENSITIVE_ORDER puts them. Shorter names are padded with zeros so they sort first.
+     */
+    static long namePrefix( String name ) {
+        long key = 0;
+        for( int i = 0; i < 3; i++ ) {
+            char c = i < name.length() ? Character.toLowerCase( Character.toUpperCase( name.charAt( i ) ) ) : 0;
+            key = ( key << 16 ) | c;
+        }
+        return key;
+    }
+}
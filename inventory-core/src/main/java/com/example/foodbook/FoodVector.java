@@ -0,0 +1,408 @@
+package com.example.foodbook;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * @class FoodVector
+ * @description Immutable list of foods stored as a tree of 32 wide nodes. Every change returns a new
+ * vector which shares all untouched nodes with the old one: appending, replacing or removing a food
+ * copies only the nodes on the path to it, O( log32 n ) small arrays, while anyone still holding the
+ * old vector keeps seeing it unchanged. That makes a vector safe to hand to any number of threads.
+ * Branches keep the running sizes of their children so leaves may hold fewer than 32 foods, which is
+ * what lets a food be removed from the middle without shifting everything after it.
+ */
+public final class FoodVector implements Iterable<Food> {
+
+    static final int WIDTH = 32;
+
+    private static final FoodVector EMPTY = new FoodVector( new Food[ 0 ], 0, 0 );
+
+    /**
+     * @class Branch
+     * @description Inner node. ends[ i ] is the number of foods in children 0 to i.
+     */
+    private static final class Branch {
+        final Object[] children;
+        final int[] ends;
+
+        Branch( Object[] children, int[] ends ) {
+            this.children = children;
+            this.ends = ends;
+        }
+    }
+
+    // A Food[] leaf when height is 0, otherwise a Branch.
+    private final Object root;
+    private final int size;
+    private final int height;
+
+    private FoodVector( Object root, int size, int height ) {
+        this.root = root;
+        this.size = size;
+        this.height = height;
+    }
+
+    public static FoodVector empty() { return EMPTY; }
+
+    /**
+     * @description Builds a vector from a list in one O( n ) pass, with every leaf full.
+     * @param foods Foods in order.
+     * @return A vector holding the foods.
+     */
+    public static FoodVector of( List<Food> foods ) {
+        int count = foods.size();
+        if( count == 0 ) return EMPTY;
+        Object[] level = new Object[ ( count + WIDTH - 1 ) / WIDTH ];
+        int[] sizes = new int[ level.length ];
+        for( int i = 0; i < level.length; i++ ) {
+            int from = i * WIDTH;
+            Food[] leaf = new Food[ Math.min( WIDTH, count - from ) ];
+            for( int j = 0; j < leaf.length; j++ ) leaf[ j ] = foods.get( from + j );
+            level[ i ] = leaf;
+            sizes[ i ] = leaf.length;
+        }
+        int height = 0;
+        while( level.length > 1 ) {
+            Object[] parents = new Object[ ( level.length + WIDTH - 1 ) / WIDTH ];
+            int[] parentSizes = new int[ parents.length ];
+            for( int i = 0; i < parents.length; i++ ) {
+                int from = i * WIDTH;
+                int width = Math.min( WIDTH, level.length - from );
+                Object[] children = Arrays.copyOfRange( level, from, from + width );
+                int[] ends = new int[ width ];
+                int end = 0;
+                for( int j = 0; j < width; j++ ) {
+                    end += sizes[ from + j ];
+                    ends[ j ] = end;
+                }
+                parents[ i ] = new Branch( children, ends );
+                parentSizes[ i ] = end;
+            }
+            level = parents;
+            sizes = parentSizes;
+            height++;
+        }
+        return new FoodVector( level[ 0 ], count, height );
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @description Gets the food at a position.
+     * @param index Position of the food.
+     * @return The food.
+     */
+    public Food get( int index ) {
+        checkIndex( index );
+        Object node = root;
+        for( int h = height; h > 0; h-- ) {
+            Branch branch = (Branch) node;
+            int child = childFor( branch.ends, index );
+            if( child > 0 ) index -= branch.ends[ child - 1 ];
+            node = branch.children[ child ];
+        }
+        return ( (Food[]) node )[ index ];
+    }
+
+    /**
+     * @description Adds a food to the end.
+     * @param food Food to add.
+     * @return The new vector.
+     */
+    public FoodVector plus( Food food ) {
+        Object appended = append( root, height, food, -1, 1 );
+        if( appended != null ) return new FoodVector( appended, size + 1, height );
+        return new FoodVector( grow( wrap( food, -1, height, 1 ), 1 ), size + 1, height + 1 );
+    }
+
+    /**
+     * @description Adds foods to the end. The last leaf is filled first, after which the foods are added
+     * a full leaf at a time, so adding k foods copies O( k / 32 * log32 n ) nodes.
+     * @param foods Foods to add, in order.
+     * @return The new vector.
+     */
+    public FoodVector plusAll( Collection<Food> foods ) {
+        if( isEmpty() ) {
+            return foods instanceof List ? of( (List<Food>) foods ) : of( Arrays.asList( foods.toArray( new Food[ 0 ] ) ) );
+        }
+        FoodVector vector = this;
+        Iterator<Food> remaining = foods.iterator();
+        int left = foods.size();
+        while( left > 0 && vector.size % WIDTH != 0 ) {
+            vector = vector.plus( remaining.next() );
+            left--;
+        }
+        while( left > 0 ) {
+            Food[] leaf = new Food[ Math.min( WIDTH, left ) ];
+            for( int i = 0; i < leaf.length; i++ ) leaf[ i ] = remaining.next();
+            left -= leaf.length;
+            vector = vector.plusLeaf( leaf );
+        }
+        return vector;
+    }
+
+    /**
+     * @description Puts a food in place of the one at a position.
+     * @param index Position to replace.
+     * @param food Food taking its place.
+     * @return The new vector.
+     */
+    public FoodVector with( int index, Food food ) {
+        checkIndex( index );
+        return new FoodVector( set( root, height, index, food ), size, height );
+    }
+
+    /**
+     * @description Removes the food at a position. A leaf left with only a few foods is merged into its
+     * neighbour when they fit in one, so removals do not leave the tree full of near empty leaves.
+     * @param index Position to remove.
+     * @return The new vector.
+     */
+    public FoodVector minus( int index ) {
+        checkIndex( index );
+        if( size == 1 ) return EMPTY;
+        Object node = remove( root, height, index );
+        int newHeight = height;
+        while( newHeight > 0 && ( (Branch) node ).children.length == 1 ) {
+            node = ( (Branch) node ).children[ 0 ];
+            newHeight--;
+        }
+        return new FoodVector( node, size - 1, newHeight );
+    }
+
+    /**
+     * @description Finds a food by identity.
+     * @param food Food to look for.
+     * @return Its position, or -1 if it is not in the vector.
+     */
+    public int indexOf( Food food ) {
+        return indexOf( root, height, food, -1 );
+    }
+
+    /**
+     * @description Finds a food by its id.
+     * @param id Id to look for.
+     * @return Position of the first food holding the id, or -1 if there is none.
+     */
+    public int indexOfId( long id ) {
+        return indexOf( root, height, null, id );
+    }
+
+    /**
+     * @description Gets a read only list view. The vector can not change, so neither can the view.
+     * @return The view.
+     */
+    public List<Food> asList() {
+        return new AbstractList<Food>() {
+            @Override
+            public Food get( int index ) { return FoodVector.this.get( index ); }
+
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public Iterator<Food> iterator() { return FoodVector.this.iterator(); }
+        };
+    }
+
+    /**
+     * @description Iterates the foods in order, walking the tree a leaf at a time.
+     */
+    @Override
+    public Iterator<Food> iterator() {
+        return new Iterator<Food>() {
+            private int next;
+            private Food[] leaf;
+            private int leafEnd;
+
+            @Override
+            public boolean hasNext() { return next < size; }
+
+            @Override
+            public Food next() {
+                if( next >= size ) throw new NoSuchElementException();
+                if( next >= leafEnd ) {
+                    Object node = root;
+                    int offset = next;
+                    for( int h = height; h > 0; h-- ) {
+                        Branch branch = (Branch) node;
+                        int child = childFor( branch.ends, offset );
+                        if( child > 0 ) offset -= branch.ends[ child - 1 ];
+                        node = branch.children[ child ];
+                    }
+                    leaf = (Food[]) node;
+                    leafEnd = next - offset + leaf.length;
+                }
+                return leaf[ leaf.length - ( leafEnd - next++ ) ];
+            }
+        };
+    }
+
+    private FoodVector plusLeaf( Food[] leaf ) {
+        if( height == 0 ) {
+            Object[] children = { root, leaf };
+            return new FoodVector( new Branch( children, new int[]{ size, size + leaf.length } ), size + leaf.length, 1 );
+        }
+        Object appended = append( root, height, leaf, 0, leaf.length );
+        if( appended != null ) return new FoodVector( appended, size + leaf.length, height );
+        return new FoodVector( grow( wrap( leaf, 0, height, leaf.length ), leaf.length ), size + leaf.length, height + 1 );
+    }
+
+    /**
+     * @description Puts a new root above the current one, with the given subtree as its second child.
+     */
+    private Object grow( Object sibling, int siblingSize ) {
+        return new Branch( new Object[]{ root, sibling }, new int[]{ size, size + siblingSize } );
+    }
+
+    /**
+     * @description Adds an item to the right edge of a subtree. The item is a Food when itemHeight is -1,
+     * otherwise a node of that height.
+     * @return The new subtree, or null if its right edge is full.
+     */
+    private static Object append( Object node, int h, Object item, int itemHeight, int count ) {
+        if( h == 0 ) {
+            Food[] leaf = (Food[]) node;
+            if( leaf.length == WIDTH ) return null;
+            Food[] copy = Arrays.copyOf( leaf, leaf.length + 1 );
+            copy[ leaf.length ] = (Food) item;
+            return copy;
+        }
+        Branch branch = (Branch) node;
+        int last = branch.children.length - 1;
+        if( h - 1 > itemHeight ) {
+            Object appended = append( branch.children[ last ], h - 1, item, itemHeight, count );
+            if( appended != null ) {
+                Object[] children = branch.children.clone();
+                int[] ends = branch.ends.clone();
+                children[ last ] = appended;
+                ends[ last ] += count;
+                return new Branch( children, ends );
+            }
+        }
+        if( last + 1 == WIDTH ) return null;
+        Object[] children = Arrays.copyOf( branch.children, last + 2 );
+        int[] ends = Arrays.copyOf( branch.ends, last + 2 );
+        children[ last + 1 ] = wrap( item, itemHeight, h - 1, count );
+        ends[ last + 1 ] = ends[ last ] + count;
+        return new Branch( children, ends );
+    }
+
+    /**
+     * @description Puts single child nodes above an item until it is a node of the given height.
+     */
+    private static Object wrap( Object item, int itemHeight, int h, int count ) {
+        if( itemHeight < 0 ) {
+            item = new Food[]{ (Food) item };
+            itemHeight = 0;
+        }
+        for( ; itemHeight < h; itemHeight++ ) item = new Branch( new Object[]{ item }, new int[]{ count } );
+        return item;
+    }
+
+    private static Object set( Object node, int h, int index, Food food ) {
+        if( h == 0 ) {
+            Food[] leaf = ( (Food[]) node ).clone();
+            leaf[ index ] = food;
+            return leaf;
+        }
+        Branch branch = (Branch) node;
+        int child = childFor( branch.ends, index );
+        int offset = child == 0 ? 0 : branch.ends[ child - 1 ];
+        Object[] children = branch.children.clone();
+        children[ child ] = set( children[ child ], h - 1, index - offset, food );
+        return new Branch( children, branch.ends );
+    }
+
+    /**
+     * @return The subtree without the food, or null if the food was all it held.
+     */
+    private static Object remove( Object node, int h, int index ) {
+        if( h == 0 ) {
+            Food[] leaf = (Food[]) node;
+            if( leaf.length == 1 ) return null;
+            Food[] copy = new Food[ leaf.length - 1 ];
+            System.arraycopy( leaf, 0, copy, 0, index );
+            System.arraycopy( leaf, index + 1, copy, index, copy.length - index );
+            return copy;
+        }
+        Branch branch = (Branch) node;
+        int child = childFor( branch.ends, index );
+        int offset = child == 0 ? 0 : branch.ends[ child - 1 ];
+        Object shrunk = remove( branch.children[ child ], h - 1, index - offset );
+        int width = branch.children.length;
+        if( shrunk == null ) {
+            if( width == 1 ) return null;
+            Object[] children = new Object[ width - 1 ];
+            int[] ends = new int[ width - 1 ];
+            for( int i = 0, j = 0; i < width; i++ ) {
+                if( i == child ) continue;
+                children[ j ] = branch.children[ i ];
+                ends[ j++ ] = branch.ends[ i ] - ( i > child ? 1 : 0 );
+            }
+            return new Branch( children, ends );
+        }
+        if( h == 1 && width > 1 && ( (Food[]) shrunk ).length < WIDTH / 4 ) {
+            int neighbour = child > 0 ? child - 1 : child + 1;
+            Food[] other = (Food[]) branch.children[ neighbour ];
+            Food[] leaf = (Food[]) shrunk;
+            if( other.length + leaf.length <= WIDTH ) {
+                int first = Math.min( child, neighbour );
+                Food[] merged = new Food[ other.length + leaf.length ];
+                Food[] left = first == child ? leaf : other;
+                Food[] right = first == child ? other : leaf;
+                System.arraycopy( left, 0, merged, 0, left.length );
+                System.arraycopy( right, 0, merged, left.length, right.length );
+                Object[] children = new Object[ width - 1 ];
+                int[] ends = new int[ width - 1 ];
+                for( int i = 0, j = 0; i < width; i++ ) {
+                    if( i == first + 1 ) continue;
+                    children[ j ] = i == first ? merged : branch.children[ i ];
+                    ends[ j++ ] = branch.ends[ i == first ? first + 1 : i ] - ( i >= first ? 1 : 0 );
+                }
+                return new Branch( children, ends );
+            }
+        }
+        Object[] children = branch.children.clone();
+        int[] ends = branch.ends.clone();
+        children[ child ] = shrunk;
+        for( int i = child; i < width; i++ ) ends[ i ]--;
+        return new Branch( children, ends );
+    }
+
+    /**
+     * @description Scans a subtree leaf by leaf for a food, or for an id when food is null.
+     * @return Position within the subtree, or -1.
+     */
+    private static int indexOf( Object node, int h, Food food, long id ) {
+        if( h == 0 ) {
+            Food[] leaf = (Food[]) node;
+            for( int i = 0; i < leaf.length; i++ ) {
+                if( food == null ? leaf[ i ].getId() == id : leaf[ i ] == food ) return i;
+            }
+            return -1;
+        }
+        Branch branch = (Branch) node;
+        for( int i = 0; i < branch.children.length; i++ ) {
+            int found = indexOf( branch.children[ i ], h - 1, food, id );
+            if( found >= 0 ) return i == 0 ? found : branch.ends[ i - 1 ] + found;
+        }
+        return -1;
+    }
+
+    private static int childFor( int[] ends, int index ) {
+        int child = 0;
+        while( ends[ child ] <= index ) child++;
+        return child;
+    }
+
+    private void checkIndex( int index ) {
+        if( index < 0 || index >= size ) throw new IndexOutOfBoundsException( "Index " + index + ", size " + size );
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * @class Inventory
+ * @description The list of stored foods together with everything derived from it: the running cost
+ * totals, the expiry index, the search index, the name index and, when one is chosen, the sorted view. Every change goes through this class so the derived structures are
+ * updated by the same call that changes the list and can never drift from it.
+ * Foods must be replaced rather than mutated in place, otherwise their old values can not be taken out
+ * of the totals and the index.
+ * The foods are kept in a FoodVector, and after every change the inventory publishes an
+ * InventorySnapshot of them. The inventory itself belongs to one writer thread, see InventoryWriter,
+ * while snapshots can be read from any thread without locking.
+ */
+public class Inventory {
+
+    /**
+     * @class Replacement
+     * @description The foods a replaceAll actually changed: before holds the stored foods and after the
+     * foods which took their places, matched by position and in list order. Replacements for foods no
+     * longer stored are in neither.
+     */
+    public static class Replacement {
+        public final List<Food> before, after;
+
+        Replacement( List<Food> before, List<Food> after ) {
+            this.before = before;
+            this.after = after;
+        }
+
+        public boolean isEmpty() { return before.isEmpty(); }
+    }
+
+    private FoodVector foods = FoodVector.empty();
+    private long version;
+    private volatile InventorySnapshot snapshot = InventorySnapshot.EMPTY;
+    private final InventoryTotals totals = new InventoryTotals();
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final FoodSearchIndex searchIndex = new FoodSearchIndex();
+    private final FoodNameIndex nameIndex = new FoodNameIndex();
+    private final TimeZone zone = TimeZone.getDefault();
+    // Null while the foods are shown in the order they were added.
+    private SortedFoodList sorted;
+
+    /**
+     * @description Gets the foods in the order they were added.
+     * @return A read only list, which keeps showing the foods as they are now after later changes.
+     */
+    public List<Food> getFoods() { return foods.asList(); }
+
+    /**
+     * @description Gets the snapshot published after the latest change. Safe from any thread.
+     * @return The snapshot.
+     */
+    public InventorySnapshot getSnapshot() { return snapshot; }
+
+    public InventoryTotals getTotals() { return totals; }
+    public ExpiryIndex getExpiryIndex() { return expiryIndex; }
+    public FoodSearchIndex getSearchIndex() { return searchIndex; }
+    public FoodNameIndex getNameIndex() { return nameIndex; }
+
+    /**
+     * @description Gets the foods in the order they are shown: sorted if a sort order is set, otherwise
+     * in the order they were added.
+     * @return A read only view of the list, only valid until the inventory next changes.
+     */
+    public List<Food> getDisplayedFoods() {
+        return sorted == null ? getFoods() : sorted.asList();
+    }
+
+    /**
+     * @description Sets how the displayed foods are sorted. The foods are sorted once here and then
+     * kept in order as they change.
+     * @param order The order, or null to show the foods in the order they were added.
+     */
+    public void setSortOrder( FoodSortOrder order ) {
+        if( order == null ) {
+            sorted = null;
+            return;
+        }
+        sorted = new SortedFoodList( order );
+        sorted.setAll( foods.asList() );
+    }
+
+    /**
+     * @description Sets a sort order from foods already sorted on another thread, so the writer does not
+     * have to sort them. Sort a snapshot's foods into a new SortedFoodList, then pass it here.
+     * @param presorted The foods of a snapshot, sorted by the new order. Kept by the inventory.
+     * @param version Version of that snapshot. If the inventory has changed since, the foods are sorted
+     *                again here.
+     */
+    public void setSortOrder( SortedFoodList presorted, long version ) {
+        if( version != this.version ) presorted.setAll( foods.asList() );
+        sorted = presorted;
+    }
+
+    public FoodSortOrder getSortOrder() { return sorted == null ? null : sorted.getOrder(); }
+
+    public int size() { return foods.size(); }
+    public Food get( int index ) { return foods.get( index ); }
+    public int indexOf( Food food ) { return foods.indexOf( food ); }
+    public long getVersion() { return version; }
+
+    /**
+     * @description Finds a food by its id.
+     * @param id Id of the food.
+     * @param hint Where the food is expected to be. Checked first, so a correct hint costs O( 1 ).
+     * @return The position of the food, or -1 if it is not in the list.
+     */
+    public int indexOfId( long id, int hint ) {
+        if( hint >= 0 && hint < foods.size() && foods.get( hint ).getId() == id ) return hint;
+        return foods.indexOfId( id );
+    }
+
+    /**
+     * @description Finds the foods now stored under a set of ids, e.g. the rows selected in the list,
+     * which may have been edited or removed since they were shown.
+     * @param ids Ids of the foods.
+     * @return The stored foods holding those ids, in list order. Ids no longer stored are left out.
+     */
+    public List<Food> findAll( Set<Long> ids ) {
+        List<Food> found = new ArrayList<>( Math.min( ids.size(), foods.size() ) );
+        if( ids.isEmpty() ) return found;
+        for( Food food : foods ) {
+            if( ids.contains( food.getId() ) ) found.add( food );
+        }
+        return found;
+    }
+
+    /**
+     * @description Applies an edit to the food holding an id, wherever it is now.
+     * @param id Id of the edited food.
+     * @param hint Where the food was when the edit started.
+     * @param delta The changed fields.
+     * @return The edited food, or null if the food has been removed since.
+     */
+    public Food applyEdit( long id, int hint, FoodDelta delta ) {
+        int index = indexOfId( id, hint );
+        if( index < 0 ) return null;
+        if( delta.isEmpty() ) return foods.get( index );
+        Food edited = delta.applyTo( foods.get( index ) );
+        replace( index, edited );
+        return edited;
+    }
+
+    /**
+     * @description Finds the stored lot a new food can be merged into: the oldest food of the same
+     * item, by normalized name, in the same location and expiring on the same day. Foods of the item
+     * expiring on other days are separate lots and are never returned.
+     * @param food The food about to be added.
+     * @return The lot, or null if the food should be added as a lot of its own.
+     */
+    public Food findMergeTarget( Food food ) {
+        long day = expiryDay( food );
+        for( Food lot : nameIndex.find( food.getName(), food.getLocationPosition() ) ) {
+            if( expiryDay( lot ) == day ) return lot;
+        }
+        return null;
+    }
+
+    /**
+     * @description Adds a food's count to a stored lot instead of adding the food. The lot keeps its
+     * name, description and dates, and its cost becomes the rounded average cost per item over both,
+     * so the total value changes by about the added food's value.
+     * @param lot Stored food to merge into.
+     * @param added Food being added. It is not stored, so it needs no id.
+     * @return The merged food, holding the lot's id, or null if the lot is no longer stored.
+     */
+    public Food merge( Food lot, Food added ) {
+        return merge( lot, -1, added );
+    }
+
+    /**
+     * @description Merges into a stored lot whose position is already known, without searching for it
+     * again. See merge( Food, Food ).
+     * @param lot Stored food to merge into.
+     * @param hint Where the lot is, as found by indexOfId. Searched for if it is no longer there.
+     * @param added Food being added.
+     * @return The merged food, or null if the lot is no longer stored.
+     */
+    public Food merge( Food lot, int hint, Food added ) {
+        int index = indexOfId( lot.getId(), hint );
+        if( index < 0 ) return null;
+        Food stored = foods.get( index );
+        int count = stored.getCountValue() + added.getCountValue();
+        long value = (long) stored.getCostValue() * stored.getCountValue() + (long) added.getCostValue() * added.getCountValue();
+        int cost = count == 0 ? added.getCostValue() : (int) Math.round( (double) value / count );
+        Food merged = new Food( stored.getName(), stored.getDescription(), count, new Date( stored.getBestBeforeMillis() ),
+                stored.getLocation(), stored.getLocationPosition(), cost );
+        merged.setId( stored.getId() );
+        replace( index, merged );
+        return merged;
+    }
+
+    /**
+     * @description Gets the day a food expires on, as used by the expiry index.
+     * @param food Food to look at.
+     * @return Days since 1970-01-01 in the inventory's time zone.
+     */
+    public long expiryDay( Food food ) {
+        return EpochDays.fromMillis( food.getBestBeforeMillis(), zone );
+    }
+
+    /**
+     * @description Adds foods to the end of the list.
+     * @param added Foods to add. They must already have their ids.
+     */
+    public void addAll( Collection<Food> added ) {
+        foods = foods.plusAll( added );
+        long[] ids = new long[ added.size() ];
+        long[] days = new long[ added.size() ];
+        int count = 0;
+        for( Food food : added ) {
+            totals.onAdded( food );
+            searchIndex.add( food );
+            nameIndex.add( food );
+            ids[ count ] = food.getId();
+            days[ count ] = expiryDay( food );
+            count++;
+        }
+        expiryIndex.addAll( ids, days, count );
+        if( sorted != null ) sorted.addAll( added );
+        publish();
+    }
+
+    /**
+     * @description Adds a food to the end of the list.
+     * @param food Food to add. It must already have its id.
+     */
+    public void add( Food food ) {
+        foods = foods.plus( food );
+        totals.onAdded( food );
+        expiryIndex.add( food.getId(), expiryDay( food ) );
+        searchIndex.add( food );
+        nameIndex.add( food );
+        if( sorted != null ) sorted.add( food );
+        publish();
+    }
+
+    /**
+     * @description Puts a food in place of the one at a position.
+     * @param index Position of the food being replaced.
+     * @param food Food taking its place.
+     * @return The food which was replaced.
+     */
+    public Food replace( int index, Food food ) {
+        Food replaced = foods.get( index );
+        foods = foods.with( index, food );
+        totals.onReplaced( replaced, food );
+        if( replaced.getId() == food.getId() ) {
+            expiryIndex.update( food.getId(), expiryDay( replaced ), expiryDay( food ) );
+            searchIndex.update( food );
+        } else {
+            expiryIndex.remove( replaced.getId(), expiryDay( replaced ) );
+            expiryIndex.add( food.getId(), expiryDay( food ) );
+            searchIndex.remove( replaced );
+            searchIndex.add( food );
+        }
+        nameIndex.replace( replaced, food );
+        if( sorted != null ) sorted.replace( replaced, food );
+        publish();
+        return replaced;
+    }
+
+    /**
+     * @description Removes a food from the list.
+     * @param food Food to remove.
+     * @return true if the food was in the list.
+     */
+    public boolean remove( Food food ) {
+        int index = foods.indexOf( food );
+        if( index < 0 ) return false;
+        foods = foods.minus( index );
+        totals.onRemoved( food );
+        expiryIndex.remove( food.getId(), expiryDay( food ) );
+        searchIndex.remove( food );
+        nameIndex.remove( food );
+        if( sorted != null ) sorted.remove( food );
+        publish();
+        return true;
+    }
+
+    /**
+     * @description Removes many foods as one operation: the list and every derived structure are each
+     * compacted in a single pass, so removing k of n foods costs O( n ) rather than O( k * n ).
+     * @param removed Foods to remove, matched by id.
+     * @return The foods which were in the list and have been removed, in list order.
+     */
+    public List<Food> removeAll( Collection<Food> removed ) {
+        Set<Long> ids = new HashSet<>( removed.size() * 2 );
+        for( Food food : removed ) ids.add( food.getId() );
+
+        List<Food> gone = new ArrayList<>( ids.size() );
+        List<Food> kept = new ArrayList<>( foods.size() );
+        for( Food food : foods ) {
+            if( ids.contains( food.getId() ) ) {
+                gone.add( food );
+                totals.onRemoved( food );
+            } else {
+                kept.add( food );
+            }
+        }
+        if( gone.isEmpty() ) return gone;
+        foods = FoodVector.of( kept );
+
+        expiryIndex.removeIf( ids::contains );
+        searchIndex.removeAll( gone );
+        nameIndex.removeAll( gone );
+        if( sorted != null ) sorted.removeIf( food -> ids.contains( food.getId() ) );
+        publish();
+        return gone;
+    }
+
+    /**
+     * @description Puts many foods in place of the ones holding the same ids, as one operation with a
+     * single pass over the list. Foods whose id is no longer stored, e.g. deleted since they were
+     * selected, are ignored.
+     * @param replacements Foods holding the new values.
+     * @return The foods which were replaced and the ones which replaced them, so only those are stored
+     * and recorded.
+     */
+    public Replacement replaceAll( Collection<Food> replacements ) {
+        Map<Long, Food> byId = new HashMap<>( replacements.size() * 2 );
+        for( Food food : replacements ) byId.put( food.getId(), food );
+
+        List<Food> replaced = new ArrayList<>( byId.size() );
+        List<Food> applied = new ArrayList<>( byId.size() );
+        FoodVector before = foods;
+        int index = 0;
+        for( Food stored : before ) {
+            Food food = byId.get( stored.getId() );
+            if( food != null ) {
+                foods = foods.with( index, food );
+                replaced.add( stored );
+                applied.add( food );
+                totals.onReplaced( stored, food );
+                expiryIndex.update( food.getId(), expiryDay( stored ), expiryDay( food ) );
+                searchIndex.update( food );
+                nameIndex.replace( stored, food );
+            }
+            index++;
+        }
+        Replacement replacement = new Replacement( replaced, applied );
+        if( replacement.isEmpty() ) return replacement;
+        // Re-sorting once is cheaper than moving each edited food into place on its own.
+        if( sorted != null ) sorted.setAll( foods.asList() );
+        publish();
+        return replacement;
+    }
+
+    /**
+     * @description Publishes the current foods and totals as the latest snapshot. Called at the end of
+     * every change, so readers only ever see the inventory between changes.
+     */
+    private void publish() {
+        long[] locationTotals = new long[ FoodCodec.LOCATIONS.length ];
+        for( int i = 0; i < locationTotals.length; i++ ) locationTotals[ i ] = totals.getTotal( i );
+        snapshot = new InventorySnapshot( ++version, foods, totals.getTotal(), locationTotals );
+    }
+}
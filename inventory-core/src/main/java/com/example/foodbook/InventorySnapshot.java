@@ -0,0 +1,52 @@
+package com.example.foodbook;
+
+import java.util.List;
+
+/**
+ * @class InventorySnapshot
+ * @description The inventory as it was after one change: its foods and cost totals, tagged with a
+ * version which goes up by one with every change. A snapshot never changes once published, so any
+ * thread can read it for as long as it likes without locking and without holding up the writer.
+ */
+public final class InventorySnapshot {
+
+    static final InventorySnapshot EMPTY = new InventorySnapshot( 0, FoodVector.empty(), 0, new long[ FoodCodec.LOCATIONS.length ] );
+
+    private final long version;
+    private final FoodVector foods;
+    private final long total;
+    private final long[] locationTotals;
+
+    InventorySnapshot( long version, FoodVector foods, long total, long[] locationTotals ) {
+        this.version = version;
+        this.foods = foods;
+        this.total = total;
+        this.locationTotals = locationTotals;
+    }
+
+    public long getVersion() { return version; }
+    public FoodVector getFoods() { return foods; }
+    public int size() { return foods.size(); }
+
+    /**
+     * @description Gets the foods in the order they were added.
+     * @return A read only list which stays the same however the inventory changes later.
+     */
+    public List<Food> asList() { return foods.asList(); }
+
+    /**
+     * @description Gets the total cost of every food.
+     * @return sum( cost * count ) over all foods.
+     */
+    public long getTotal() { return total; }
+
+    /**
+     * @description Gets the total cost of the foods in one storage location.
+     * @param locationPosition 0 = Fridge, 1 = Pantry, 2 = Freezer.
+     * @return sum( cost * count ) over the foods in that location, 0 for an unknown location.
+     */
+    public long getTotal( int locationPosition ) {
+        if( locationPosition < 0 || locationPosition >= locationTotals.length ) return 0;
+        return locationTotals[ locationPosition ];
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.foodbook;
+
+/**
+ * @class InventoryTotals
+ * @description Keeps the running total cost of the inventory, defined as sum( cost * count ), both
+ * overall and per storage location. The totals are moved by the difference each add, edit or delete
+ * makes, so keeping them up to date costs the same no matter how many foods are stored.
+ * All arithmetic is done in long so a large inventory can not overflow the way an int sum would.
+ */
+public class InventoryTotals {
+
+    private long total;
+    private final long[] locationTotals = new long[ FoodCodec.LOCATIONS.length ];
+
+    /**
+     * @description Gets the total cost of every food.
+     * @return sum( cost * count ) over all foods.
+     */
+    public long getTotal() { return total; }
+
+    /**
+     * @description Gets the total cost of the foods in one storage location.
+     * @param locationPosition 0 = Fridge, 1 = Pantry, 2 = Freezer.
+     * @return sum( cost * count ) over the foods in that location, 0 for an unknown location.
+     */
+    public long getTotal( int locationPosition ) {
+        if( locationPosition < 0 || locationPosition >= locationTotals.length ) return 0;
+        return locationTotals[ locationPosition ];
+    }
+
+    /**
+     * @description Counts a newly added food.
+     * @param food Food that was added.
+     */
+    public void onAdded( Food food ) {
+        apply( food.getLocationPosition(), value( food.getCostValue(), food.getCountValue() ) );
+    }
+
+    /**
+     * @description Stops counting a removed food.
+     * @param food Food that was removed.
+     */
+    public void onRemoved( Food food ) {
+        apply( food.getLocationPosition(), -value( food.getCostValue(), food.getCountValue() ) );
+    }
+
+    /**
+     * @description Moves the totals from a food's old values to its new ones.
+     * @param oldCost Cost per item before the edit.
+     * @param oldCount Count before the edit.
+     * @param oldLocationPosition Location before the edit.
+     * @param food The food holding its new values.
+     */
+    public void onChanged( int oldCost, int oldCount, int oldLocationPosition, Food food ) {
+        apply( oldLocationPosition, -value( oldCost, oldCount ) );
+        onAdded( food );
+    }
+
+    /**
+     * @description Moves the totals from one food to the food which replaces it.
+     * @param before The food being replaced.
+     * @param after The food taking its place.
+     */
+    public void onReplaced( Food before, Food after ) {
+        onRemoved( before );
+        onAdded( after );
+    }
+
+    /**
+     * @description Clears the totals and counts every given food.
+     * @param foods Foods to count.
+     */
+    public void reset( Iterable<Food> foods ) {
+        total = 0;
+        for( int i = 0; i < locationTotals.length; i++ ) locationTotals[ i ] = 0;
+        for( Food food : foods ) onAdded( food );
+    }
+
+    /**
+     * @description Computes the total from scratch by walking every food. Used to check the running totals.
+     * @param foods Foods to sum.
+     * @return sum( cost * count ) over all foods.
+     */
+    public static long recompute( Iterable<Food> foods ) {
+        long sum = 0;
+        for( Food food : foods ) sum += value( food.getCostValue(), food.getCountValue() );
+        return sum;
+    }
+
+    private static long value( int cost, int count ) {
+        return (long) cost * count;
+    }
+
+    private void apply( int locationPosition, long delta ) {
+        total += delta;
+        if( locationPosition >= 0 && locationPosition < locationTotals.length ) {
+            locationTotals[ locationPosition ] += delta;
+        }
+    }
+}
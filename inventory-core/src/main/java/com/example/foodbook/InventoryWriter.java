@@ -0,0 +1,84 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * @class InventoryWriter
+ * @description The single queue every change to an inventory goes through. Changes run one at a time,
+ * in the order they were submitted, on the writer's executor, which must run tasks one after another
+ * (the app's main thread, or a single thread executor). Threads other than the writer never touch the
+ * inventory itself: they read its published snapshots, which never block.
+ * The queue can be held, e.g. until the stored foods have been loaded, so no change is made to an
+ * inventory which does not hold them yet.
+ */
+public class InventoryWriter {
+
+    private final Inventory inventory;
+    private final Executor writer;
+    // Changes submitted while held, in order. Null unless held. Guarded by this.
+    private List<Runnable> held;
+
+    /**
+     * @param inventory The inventory changed through this queue.
+     * @param writer Runs the changes, one after another.
+     */
+    public InventoryWriter( Inventory inventory, Executor writer ) {
+        this.inventory = inventory;
+        this.writer = writer;
+    }
+
+    /**
+     * @description Queues a change.
+     * @param mutation Changes the inventory. Runs on the writer.
+     * @return Completes with the snapshot published once the change is made.
+     */
+    public Future<InventorySnapshot> submit( Consumer<Inventory> mutation ) {
+        FutureTask<InventorySnapshot> task = task( mutation );
+        synchronized ( this ) {
+            if( held != null ) held.add( task );
+            else writer.execute( task );
+        }
+        return task;
+    }
+
+    /**
+     * @description Holds back the changes submitted from now on until release is called.
+     */
+    public synchronized void hold() {
+        if( held == null ) held = new ArrayList<>();
+    }
+
+    /**
+     * @description Queues a change ahead of every change held since hold, then queues those in the
+     * order they were submitted and stops holding.
+     * @param first Changes the inventory before the held changes, e.g. by adding the loaded foods.
+     * @return Completes with the snapshot published once the first change is made.
+     */
+    public synchronized Future<InventorySnapshot> release( Consumer<Inventory> first ) {
+        FutureTask<InventorySnapshot> task = task( first );
+        writer.execute( task );
+        if( held != null ) {
+            for( Runnable waiting : held ) writer.execute( waiting );
+            held = null;
+        }
+        return task;
+    }
+
+    /**
+     * @description Gets the latest published snapshot. Safe from any thread.
+     * @return The snapshot.
+     */
+    public InventorySnapshot getSnapshot() { return inventory.getSnapshot(); }
+
+    private FutureTask<InventorySnapshot> task( Consumer<Inventory> mutation ) {
+        return new FutureTask<>( () -> {
+            mutation.accept( inventory );
+            return inventory.getSnapshot();
+        } );
+    }
+}
@@ -0,0 +1,671 @@
+package com.example.foodbook;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @class JournaledFoodRepository
+ * @implements FoodRepository
+ * @description Stores foods in a directory as a snapshot file plus an append-only journal of the
+ * add/edit/delete operations made since that snapshot was written.
+ * Mutations are encoded on the calling thread and appended to an in-memory batch. The batch is
+ * written to the journal on a single background thread after a short delay, so a burst of edits
+ * becomes one disk write and the caller never waits on disk.
+ * Once the journal holds enough records it is compacted: the snapshot and the journal are folded
+ * into a new snapshot and the journal starts over. Loading reads the snapshot and then replays
+ * only the journal tail.
+ * Each food is stored in the FoodCodec format.
+ */
+public class JournaledFoodRepository implements FoodRepository {
+
+    public static final long DEFAULT_BATCH_DELAY_MS = 500;
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+    static final String SNAPSHOT_FILE = "foods.snapshot";
+    static final String JOURNAL_FILE = "foods.journal";
+
+    private static final int SNAPSHOT_MAGIC = 0x46424B53;
+    private static final int JOURNAL_MAGIC = 0x46424A4C;
+    // Version 2 moved the foods to FoodCodec version 2 and gave the journal a header. Version 3 keeps
+    // the next id in both headers.
+    private static final int SNAPSHOT_VERSION = 3;
+    private static final int JOURNAL_VERSION = 3;
+    // Magic, version and next id, followed in the snapshot by the record count.
+    private static final int SNAPSHOT_HEADER_SIZE = 20;
+    private static final int JOURNAL_HEADER_SIZE = 16;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_EDIT = 2;
+    private static final byte OP_DELETE = 3;
+
+    private final File snapshotFile, journalFile;
+    private final long batchDelayMs;
+    private final int compactThreshold;
+    private final ScheduledExecutorService writer;
+    private final AtomicLong nextId = new AtomicLong( 1 );
+    // Released once the writer thread has restored nextId from the files.
+    private final CountDownLatch opened = new CountDownLatch( 1 );
+
+    // Records waiting to be written to the journal. Guarded by this.
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingRecords;
+    private boolean writeScheduled;
+
+    // Number of records in the journal file. Only touched on the writer thread.
+    private int journalRecords;
+
+    // Null unless metrics are turned on.
+    private volatile MetricsRegistry metrics;
+
+    /**
+     * Constructor
+     * @param directory Directory which will hold the snapshot and journal. Created if missing.
+     */
+    public JournaledFoodRepository( File directory ) {
+        this( directory, DEFAULT_BATCH_DELAY_MS, DEFAULT_COMPACT_THRESHOLD );
+    }
+
+    /**
+     * Constructor
+     * @param directory Directory which will hold the snapshot and journal. Created if missing.
+     * @param batchDelayMs How long a mutation may wait so it can be written together with the ones after it.
+     * @param compactThreshold How many journal records are allowed before they are folded into the snapshot.
+     */
+    public JournaledFoodRepository( File directory, long batchDelayMs, int compactThreshold ) {
+        directory.mkdirs();
+        this.snapshotFile = new File( directory, SNAPSHOT_FILE );
+        this.journalFile = new File( directory, JOURNAL_FILE );
+        this.batchDelayMs = batchDelayMs;
+        this.compactThreshold = compactThreshold;
+        this.writer = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "FoodRepository" );
+            thread.setDaemon( true );
+            return thread;
+        });
+        writer.execute( this::open );
+    }
+
+    /**
+     * @description Starts recording the time spent loading, writing and compacting.
+     * @param metrics Registry to record into, or null to stop recording.
+     */
+    public void setMetrics( MetricsRegistry metrics ) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void load( LoadCallback callback ) {
+        writer.execute( () -> {
+            List<Food> foods;
+            try {
+                foods = readFoods();
+            } catch ( IOException e ) {
+                // Nothing usable on disk. The files are moved aside, where they can still be recovered,
+                // so compaction does not keep failing on them while the journal grows.
+                try {
+                    setAside();
+                } catch ( IOException notMoved ) {
+                    // Left in place. Later writes still go to the journal.
+                }
+                foods = new ArrayList<>();
+            }
+            callback.onLoaded( foods );
+        });
+    }
+
+    @Override
+    public List<Food> loadAll() throws IOException {
+        try {
+            return writer.submit( this::readFoods ).get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( e );
+        } catch ( ExecutionException e ) {
+            if( e.getCause() instanceof IOException ) throw (IOException) e.getCause();
+            throw new IOException( e.getCause() );
+        }
+    }
+
+    /**
+     * @description Opens a paged view of the stored foods as they are now. Anything pending is written
+     * and the journal, if it holds any records, is folded into the snapshot, then only the position of
+     * each record in the snapshot is kept in memory and pages are decoded straight from the file. Later compactions replace the
+     * snapshot with a new file, so the view keeps reading the one it was opened on.
+     * @return A source over the foods in the order they were added. Must be closed.
+     * @throws IOException If the files could not be read.
+     */
+    public FoodPageSource openPageSource() throws IOException {
+        try {
+            return writer.submit( () -> {
+                writePending();
+                if( journalFile.length() > JOURNAL_HEADER_SIZE || !snapshotFile.exists() ) compact();
+                return new SnapshotPageSource( snapshotFile );
+            }).get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( e );
+        } catch ( ExecutionException e ) {
+            if( e.getCause() instanceof IOException ) throw (IOException) e.getCause();
+            throw new IOException( e.getCause() );
+        }
+    }
+
+    /**
+     * @description Gives the food the next id and stores it. An add made before the writer thread has
+     * read the id counter back from disk waits for it, so it can not reuse a stored id. load hands over
+     * the foods only after that, so a caller which makes its adds after its load, as MainActivity does,
+     * never waits here.
+     */
+    @Override
+    public void add( Food food ) {
+        awaitOpened();
+        food.setId( nextId.getAndIncrement() );
+        append( OP_ADD, food.getId(), encode( food ) );
+    }
+
+    @Override
+    public void addAll( Collection<Food> foods ) {
+        if( foods.isEmpty() ) return;
+        awaitOpened();
+        long id = nextId.getAndAdd( foods.size() );
+        long[] ids = new long[ foods.size() ];
+        List<byte[]> payloads = new ArrayList<>( foods.size() );
+        TimeZone zone = TimeZone.getDefault();
+        int i = 0;
+        for( Food food : foods ) {
+            food.setId( id++ );
+            ids[ i++ ] = food.getId();
+            payloads.add( FoodCodec.encode( food, zone ) );
+        }
+        appendAll( OP_ADD, ids, payloads );
+    }
+
+    @Override
+    public void update( Food food ) {
+        append( OP_EDIT, food.getId(), encode( food ) );
+    }
+
+    @Override
+    public void delete( Food food ) {
+        append( OP_DELETE, food.getId(), null );
+    }
+
+    @Override
+    public void updateAll( Collection<Food> foods ) {
+        long[] ids = new long[ foods.size() ];
+        List<byte[]> payloads = new ArrayList<>( foods.size() );
+        TimeZone zone = TimeZone.getDefault();
+        int i = 0;
+        for( Food food : foods ) {
+            ids[ i++ ] = food.getId();
+            payloads.add( FoodCodec.encode( food, zone ) );
+        }
+        appendAll( OP_EDIT, ids, payloads );
+    }
+
+    @Override
+    public void deleteAll( Collection<Food> foods ) {
+        int i = 0;
+        long[] ids = new long[ foods.size() ];
+        for( Food food : foods ) ids[ i++ ] = food.getId();
+        appendAll( OP_DELETE, ids, null );
+    }
+
+    @Override
+    public void flush() {
+        writer.execute( this::writePending );
+    }
+
+    @Override
+    public void close() {
+        writer.execute( this::writePending );
+        writer.shutdown();
+        try {
+            writer.awaitTermination( 10, TimeUnit.SECONDS );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @description Adds one record to the pending batch and makes sure a write is scheduled for it.
+     * @param op Operation code of the record.
+     * @param id Id of the food the operation applies to.
+     * @param payload Encoded food, or null for a delete.
+     */
+    private void append( byte op, long id, byte[] payload ) {
+        synchronized ( this ) {
+            try {
+                DataOutputStream out = new DataOutputStream( pending );
+                writeRecord( out, op, id, payload );
+                out.flush();
+            } catch ( IOException e ) {
+                // Writing to memory can not fail.
+                throw new IllegalStateException( e );
+            }
+            pendingRecords++;
+            if( writeScheduled ) return;
+            writeScheduled = true;
+        }
+        writer.schedule( this::writePending, batchDelayMs, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * @description Adds a batch of records of one kind to the pending batch and writes it straight away,
+     * so the whole batch reaches the journal in one write.
+     * @param op Operation code of the records.
+     * @param ids Id of the food each record applies to.
+     * @param payloads Encoded foods matching ids by position, or null for deletes.
+     */
+    private void appendAll( byte op, long[] ids, List<byte[]> payloads ) {
+        if( ids.length == 0 ) return;
+        synchronized ( this ) {
+            try {
+                DataOutputStream out = new DataOutputStream( pending );
+                for( int i = 0; i < ids.length; i++ ) {
+                    writeRecord( out, op, ids[ i ], payloads == null ? null : payloads.get( i ) );
+                }
+                out.flush();
+            } catch ( IOException e ) {
+                // Writing to memory can not fail.
+                throw new IllegalStateException( e );
+            }
+            pendingRecords += ids.length;
+        }
+        writer.execute( this::writePending );
+    }
+
+    /**
+     * @description Writes the pending batch to the end of the journal in a single write and compacts
+     * the journal if it has grown past the threshold. Runs on the writer thread.
+     */
+    private void writePending() {
+        byte[] batch;
+        int records;
+        synchronized ( this ) {
+            writeScheduled = false;
+            if( pendingRecords == 0 ) return;
+            batch = pending.toByteArray();
+            records = pendingRecords;
+            pending = new ByteArrayOutputStream();
+            pendingRecords = 0;
+        }
+
+        long start = System.nanoTime();
+        // A journal shorter than its header was cut short by a crash and holds no records, so it is started over.
+        boolean newJournal = journalFile.length() < JOURNAL_HEADER_SIZE;
+        try ( FileOutputStream out = new FileOutputStream( journalFile, !newJournal ) ) {
+            if( newJournal ) out.write( journalHeader( nextId.get() ) );
+            out.write( batch );
+        } catch ( IOException e ) {
+            // Put the batch back in front of anything added since so the next write retries it.
+            synchronized ( this ) {
+                ByteArrayOutputStream retry = new ByteArrayOutputStream( batch.length + pending.size() );
+                retry.write( batch, 0, batch.length );
+                retry.write( pending.toByteArray(), 0, pending.size() );
+                pending = retry;
+                pendingRecords += records;
+            }
+            return;
+        }
+
+        MetricsRegistry registry = metrics;
+        if( registry != null ) {
+            registry.record( MetricsRegistry.Operation.STORAGE_WRITE, System.nanoTime() - start );
+            registry.increment( MetricsRegistry.Counter.JOURNAL_RECORDS_WRITTEN, records );
+            registry.increment( MetricsRegistry.Counter.JOURNAL_BYTES_WRITTEN, batch.length );
+        }
+
+        journalRecords += records;
+        if( journalRecords >= compactThreshold ) {
+            try {
+                compact();
+            } catch ( IOException e ) {
+                // The journal is still intact, compaction will be tried again after the next write.
+            }
+        }
+    }
+
+    /**
+     * @description Folds the journal into a new snapshot and removes the journal. The new snapshot is
+     * written to a temporary file first so a crash part way through leaves the old one in place.
+     * @throws IOException If the files could not be read or written.
+     */
+    void compact() throws IOException {
+        long start = System.nanoTime();
+        Map<Long, byte[]> state = readState();
+
+        File tmp = new File( snapshotFile.getPath() + ".tmp" );
+        try ( FileOutputStream file = new FileOutputStream( tmp ) ) {
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( file ) );
+            out.writeInt( SNAPSHOT_MAGIC );
+            out.writeInt( SNAPSHOT_VERSION );
+            // Every id handed out so far, including ones whose food was deleted or is still pending.
+            out.writeLong( nextId.get() );
+            out.writeInt( state.size() );
+            for( Map.Entry<Long, byte[]> entry : state.entrySet() ) {
+                out.writeLong( entry.getKey() );
+                out.writeInt( entry.getValue().length );
+                out.write( entry.getValue() );
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        if( !tmp.renameTo( snapshotFile ) ) throw new IOException( "Could not replace " + snapshotFile );
+        journalFile.delete();
+        journalRecords = 0;
+
+        MetricsRegistry registry = metrics;
+        if( registry != null ) registry.record( MetricsRegistry.Operation.STORAGE_COMPACT, System.nanoTime() - start );
+    }
+
+    /**
+     * @description Writes out anything pending and reads every stored food. Runs on the writer thread.
+     * @return The stored foods in the order they were added.
+     * @throws IOException If the files could not be read.
+     */
+    private List<Food> readFoods() throws IOException {
+        writePending();
+        long start = System.nanoTime();
+        Map<Long, byte[]> state = readState();
+
+        List<Food> foods = new ArrayList<>( state.size() );
+        long maxId = 0;
+        TimeZone zone = TimeZone.getDefault();
+        for( Map.Entry<Long, byte[]> entry : state.entrySet() ) {
+            Food food = decode( entry.getValue(), zone );
+            food.setId( entry.getKey() );
+            foods.add( food );
+            maxId = Math.max( maxId, entry.getKey() );
+        }
+        nextId.accumulateAndGet( maxId + 1, Math::max );
+
+        MetricsRegistry registry = metrics;
+        if( registry != null ) {
+            registry.record( MetricsRegistry.Operation.STORAGE_LOAD, System.nanoTime() - start );
+            registry.increment( MetricsRegistry.Counter.FOODS_LOADED, foods.size() );
+        }
+        return foods;
+    }
+
+    /**
+     * @description Reads the snapshot and replays the journal on top of it.
+     * A record cut short by a crash at the end of the journal is dropped and trimmed from the file.
+     * @return The encoded foods keyed by id, in the order they were added.
+     * @throws IOException If the files could not be read.
+     */
+    private Map<Long, byte[]> readState() throws IOException {
+        LinkedHashMap<Long, byte[]> state = new LinkedHashMap<>();
+
+        if( snapshotFile.exists() ) {
+            try ( DataInputStream in = new DataInputStream(
+                    new BufferedInputStream( new FileInputStream( snapshotFile ) ) ) ) {
+                if( in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION ) {
+                    throw new IOException( "Unknown snapshot format in " + snapshotFile );
+                }
+                in.readLong();
+                int count = in.readInt();
+                for( int i = 0; i < count; i++ ) {
+                    long id = in.readLong();
+                    byte[] payload = new byte[ in.readInt() ];
+                    in.readFully( payload );
+                    state.put( id, payload );
+                }
+            }
+        }
+
+        journalRecords = 0;
+        if( !journalFile.exists() ) return state;
+
+        byte[] journal = new byte[ (int) journalFile.length() ];
+        try ( DataInputStream in = new DataInputStream( new FileInputStream( journalFile ) ) ) {
+            in.readFully( journal );
+        }
+        if( journal.length < JOURNAL_HEADER_SIZE ) return state;
+
+        ByteArrayInputStream bytes = new ByteArrayInputStream( journal );
+        DataInputStream in = new DataInputStream( bytes );
+        if( in.readInt() != JOURNAL_MAGIC || in.readInt() != JOURNAL_VERSION ) {
+            throw new IOException( "Unknown journal format in " + journalFile );
+        }
+        in.readLong();
+        int goodLength = JOURNAL_HEADER_SIZE;
+        try {
+            while( bytes.available() > 0 ) {
+                byte op = in.readByte();
+                long id = in.readLong();
+                if( op == OP_DELETE ) {
+                    state.remove( id );
+                } else {
+                    int length = in.readInt();
+                    if( length < 0 || length > bytes.available() ) throw new EOFException();
+                    byte[] payload = new byte[ length ];
+                    in.readFully( payload );
+                    state.put( id, payload );
+                }
+                journalRecords++;
+                goodLength = journal.length - bytes.available();
+            }
+        } catch ( EOFException e ) {
+            try ( RandomAccessFile file = new RandomAccessFile( journalFile, "rw" ) ) {
+                file.setLength( goodLength );
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @description Moves the snapshot and the journal aside when either was written in a format this
+     * build can not read, so new records are never appended to files nothing can load. load does the
+     * same with files it can not read. The old files
+     * keep their names with a suffix so they can still be recovered. Then restores the id counter from
+     * the headers and from the adds in the journal, and lets add go ahead. Runs on the writer thread
+     * before any other task.
+     */
+    private void open() {
+        try {
+            if( !hasHeader( snapshotFile, SNAPSHOT_MAGIC, SNAPSHOT_VERSION )
+                    || !hasHeader( journalFile, JOURNAL_MAGIC, JOURNAL_VERSION ) ) {
+                setAside();
+            }
+            nextId.accumulateAndGet( readNextId(), Math::max );
+        } catch ( IOException e ) {
+            // Left for load to report. readFoods still raises the counter past every id it reads.
+        } finally {
+            opened.countDown();
+        }
+    }
+
+    /**
+     * @description Renames the snapshot and the journal with an ".unreadable-<millis>" suffix, so the
+     * repository starts over while the old files can still be recovered. The id counter is kept, so
+     * foods stored from now on do not take the ids of the ones set aside. Runs on the writer thread.
+     * @throws IOException If a file could not be renamed.
+     */
+    private void setAside() throws IOException {
+        String suffix = ".unreadable-" + System.currentTimeMillis();
+        for( File file : new File[] { snapshotFile, journalFile } ) {
+            if( file.exists() && !file.renameTo( new File( file.getPath() + suffix ) ) ) {
+                throw new IOException( "Could not move " + file + " aside" );
+            }
+        }
+        journalRecords = 0;
+    }
+
+    /**
+     * @description Finds the id the next add should get: the larger of the counters in the two headers
+     * and one past the highest id added in the journal since its header was written.
+     * @return The next id, at least 1.
+     * @throws IOException If the files could not be read.
+     */
+    private long readNextId() throws IOException {
+        long next = 1;
+        if( snapshotFile.length() >= SNAPSHOT_HEADER_SIZE ) {
+            try ( DataInputStream in = new DataInputStream( new FileInputStream( snapshotFile ) ) ) {
+                in.skipBytes( 8 );
+                next = Math.max( next, in.readLong() );
+            }
+        }
+        if( journalFile.length() < JOURNAL_HEADER_SIZE ) return next;
+
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( journalFile ) ) ) ) {
+            in.skipBytes( 8 );
+            next = Math.max( next, in.readLong() );
+            while( true ) {
+                byte op = in.readByte();
+                long id = in.readLong();
+                if( op == OP_ADD ) next = Math.max( next, id + 1 );
+                if( op != OP_DELETE ) {
+                    int length = in.readInt();
+                    if( length < 0 || in.skipBytes( length ) != length ) break;
+                }
+            }
+        } catch ( EOFException e ) {
+            // The end of the journal, or a torn record which readState will trim.
+        }
+        return next;
+    }
+
+    private void awaitOpened() {
+        boolean interrupted = false;
+        while( true ) {
+            try {
+                opened.await();
+                break;
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if( interrupted ) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * @description Checks the magic number and version at the start of a file.
+     * @return True if the file starts with them, is missing, or is too short to hold them.
+     */
+    private static boolean hasHeader( File file, int magic, int version ) throws IOException {
+        if( file.length() < 8 ) return true;
+        try ( DataInputStream in = new DataInputStream( new FileInputStream( file ) ) ) {
+            return in.readInt() == magic && in.readInt() == version;
+        }
+    }
+
+    private static byte[] journalHeader( long nextId ) {
+        return ByteBuffer.allocate( JOURNAL_HEADER_SIZE ).putInt( JOURNAL_MAGIC ).putInt( JOURNAL_VERSION )
+                .putLong( nextId ).array();
+    }
+
+    /**
+     * @class SnapshotPageSource
+     * @implements FoodPageSource
+     * @description Reads pages of foods from an open snapshot file using the offset of each record.
+     */
+    private static class SnapshotPageSource implements FoodPageSource {
+        private final RandomAccessFile file;
+        // Offset of every record, plus the end of the last one.
+        private final long[] offsets;
+
+        SnapshotPageSource( File snapshot ) throws IOException {
+            // Both are opened before the writer thread can replace the snapshot, so they see the same file.
+            file = new RandomAccessFile( snapshot, "r" );
+            try ( DataInputStream in = new DataInputStream(
+                    new BufferedInputStream( new FileInputStream( snapshot ) ) ) ) {
+                if( in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION ) {
+                    throw new IOException( "Unknown snapshot format in " + snapshot );
+                }
+                in.readLong();
+                int count = in.readInt();
+                offsets = new long[ count + 1 ];
+                long offset = SNAPSHOT_HEADER_SIZE;
+                for( int i = 0; i < count; i++ ) {
+                    offsets[ i ] = offset;
+                    in.readLong();
+                    int length = in.readInt();
+                    if( in.skipBytes( length ) != length ) throw new EOFException();
+                    offset += 12 + length;
+                }
+                offsets[ count ] = offset;
+            } catch ( IOException e ) {
+                file.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int size() { return offsets.length - 1; }
+
+        @Override
+        public synchronized List<Food> loadPage( int start, int count ) throws IOException {
+            byte[] bytes = new byte[ (int) ( offsets[ start + count ] - offsets[ start ] ) ];
+            file.seek( offsets[ start ] );
+            file.readFully( bytes );
+
+            ByteBuffer buffer = ByteBuffer.wrap( bytes );
+            List<Food> foods = new ArrayList<>( count );
+            TimeZone zone = TimeZone.getDefault();
+            try {
+                for( int i = 0; i < count; i++ ) {
+                    long id = buffer.getLong();
+                    int length = buffer.getInt();
+                    int end = buffer.position() + length;
+                    Food food = FoodCodec.read( buffer, zone );
+                    if( buffer.position() != end ) throw new IOException( "Corrupt food record" );
+                    food.setId( id );
+                    foods.add( food );
+                }
+            } catch ( IllegalArgumentException | BufferUnderflowException e ) {
+                throw new IOException( "Corrupt food record", e );
+            }
+            return foods;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            file.close();
+        }
+    }
+
+    private static void writeRecord( DataOutputStream out, byte op, long id, byte[] payload ) throws IOException {
+        out.writeByte( op );
+        out.writeLong( id );
+        if( payload == null ) return;
+        out.writeInt( payload.length );
+        out.write( payload );
+    }
+
+    private static byte[] encode( Food food ) {
+        return FoodCodec.encode( food );
+    }
+
+    private static Food decode( byte[] payload, TimeZone zone ) throws IOException {
+        try {
+            return FoodCodec.decode( payload, zone );
+        } catch ( IllegalArgumentException | BufferUnderflowException e ) {
+            throw new IOException( "Corrupt food record", e );
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.foodbook;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @class LatencyHistogram
+ * @description Fixed-bucket histogram of durations in nanoseconds. Values below 16 ns get a bucket
+ * each; above that every power of two is split into four buckets, so any recorded value is known to
+ * within 25% and the whole range of a long fits in 252 buckets.
+ * Recording is a few atomic increments on preallocated arrays: lock-free, safe from any thread and free
+ * of allocation. Percentiles are only worked out when a snapshot is taken.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKETS = 4;
+    static final int BUCKETS = LINEAR_BUCKETS + ( 63 - 4 ) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @class Snapshot
+     * @description The state of a histogram at one moment. Durations are in nanoseconds.
+     */
+    public static class Snapshot {
+        public final long count, mean, p50, p99, max;
+
+        Snapshot( long count, long mean, long p50, long p99, long max ) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+    }
+
+    /**
+     * @description Records one duration.
+     * @param nanos The duration. Negative values are counted as 0.
+     */
+    public void record( long nanos ) {
+        if( nanos < 0 ) nanos = 0;
+        buckets.incrementAndGet( bucketOf( nanos ) );
+        count.incrementAndGet();
+        total.addAndGet( nanos );
+        long current;
+        while( nanos > ( current = max.get() ) && !max.compareAndSet( current, nanos ) ) {
+            // Another thread raised the max in between, look again.
+        }
+    }
+
+    public long getCount() { return count.get(); }
+
+    /**
+     * @description Takes a snapshot. Recordings made while it is being taken may or may not be included.
+     * @return The count, mean, median, 99th percentile and max. Percentiles are the upper bound of their
+     * bucket, capped at the max.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[ BUCKETS ];
+        long recorded = 0;
+        for( int i = 0; i < BUCKETS; i++ ) {
+            counts[ i ] = buckets.get( i );
+            recorded += counts[ i ];
+        }
+        long largest = max.get();
+        long mean = recorded == 0 ? 0 : total.get() / recorded;
+        return new Snapshot( recorded, mean, percentile( counts, recorded, 0.50, largest ),
+                percentile( counts, recorded, 0.99, largest ), largest );
+    }
+
+    /**
+     * @description Forgets everything recorded so far.
+     */
+    public void reset() {
+        for( int i = 0; i < BUCKETS; i++ ) buckets.set( i, 0 );
+        count.set( 0 );
+        total.set( 0 );
+        max.set( 0 );
+    }
+
+    private static long percentile( long[] counts, long recorded, double quantile, long largest ) {
+        if( recorded == 0 ) return 0;
+        long rank = (long) Math.ceil( quantile * recorded );
+        long seen = 0;
+        for( int i = 0; i < counts.length; i++ ) {
+            seen += counts[ i ];
+            if( seen >= rank ) return Math.min( upperBound( i ), largest );
+        }
+        return largest;
+    }
+
+    static int bucketOf( long nanos ) {
+        if( nanos < LINEAR_BUCKETS ) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros( nanos );
+        int sub = (int) ( ( nanos >>> ( exponent - 2 ) ) & ( SUB_BUCKETS - 1 ) );
+        return LINEAR_BUCKETS + ( exponent - 4 ) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @description Largest value which falls in a bucket. For the very last bucket the shift overflows to
+     * Long.MIN_VALUE, and taking one away wraps round to Long.MAX_VALUE as wanted.
+     */
+    static long upperBound( int bucket ) {
+        if( bucket < LINEAR_BUCKETS ) return bucket;
+        int exponent = ( bucket - LINEAR_BUCKETS ) / SUB_BUCKETS + 4;
+        int sub = ( bucket - LINEAR_BUCKETS ) % SUB_BUCKETS;
+        return ( ( SUB_BUCKETS + sub + 1L ) << ( exponent - 2 ) ) - 1;
+    }
+}
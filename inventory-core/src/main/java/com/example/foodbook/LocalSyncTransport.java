@@ -0,0 +1,35 @@
+package com.example.foodbook;
+
+import java.io.IOException;
+
+/**
+ * @class LocalSyncTransport
+ * @description Transport handing requests straight to a SyncServer in the same process, so devices can
+ * be synced with each other in tests and benchmarks without a network. Counts the bytes it carries.
+ */
+public class LocalSyncTransport implements SyncTransport {
+
+    private final SyncServer server;
+    private long bytesSent, bytesReceived;
+
+    /**
+     * Constructor
+     * @param server Server every request goes to.
+     */
+    public LocalSyncTransport( SyncServer server ) {
+        this.server = server;
+    }
+
+    @Override
+    public byte[] exchange( byte[] request ) throws IOException {
+        byte[] response = server.handle( request );
+        synchronized ( this ) {
+            bytesSent += request.length;
+            bytesReceived += response.length;
+        }
+        return response;
+    }
+
+    public synchronized long getBytesSent() { return bytesSent; }
+    public synchronized long getBytesReceived() { return bytesReceived; }
+}
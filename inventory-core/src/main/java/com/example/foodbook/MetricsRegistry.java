@@ -0,0 +1,99 @@
+package com.example.foodbook;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @class MetricsRegistry
+ * @description The latency histograms and counters for the operations worth watching. Everything is
+ * allocated up front, one histogram per Operation and one slot per Counter, so recording never
+ * allocates or takes a lock and can sit on the hottest paths of the app.
+ * The app only creates a registry in builds with metrics turned on. Classes here take it as an optional
+ * collaborator and skip recording when they have none.
+ */
+public class MetricsRegistry {
+
+    /**
+     * @class Operation
+     * @description Operations whose durations are recorded.
+     */
+    public enum Operation {
+        CREATE_VIEW_HOLDER, BIND_VIEW_HOLDER, LIST_MUTATION, TOTAL_COST, STORAGE_LOAD, STORAGE_WRITE, STORAGE_COMPACT
+    }
+
+    /**
+     * @class Counter
+     * @description Running counts.
+     */
+    public enum Counter {
+        JOURNAL_RECORDS_WRITTEN, JOURNAL_BYTES_WRITTEN, FOODS_LOADED
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[ OPERATIONS.length ];
+    private final AtomicLongArray counters = new AtomicLongArray( COUNTERS.length );
+
+    public MetricsRegistry() {
+        for( int i = 0; i < histograms.length; i++ ) histograms[ i ] = new LatencyHistogram();
+    }
+
+    /**
+     * @description Records how long an operation took.
+     * @param operation The operation.
+     * @param nanos Its duration, usually the difference of two System.nanoTime calls.
+     */
+    public void record( Operation operation, long nanos ) {
+        histograms[ operation.ordinal() ].record( nanos );
+    }
+
+    /**
+     * @description Adds to a counter.
+     * @param counter The counter.
+     * @param delta Amount to add.
+     */
+    public void increment( Counter counter, long delta ) {
+        counters.addAndGet( counter.ordinal(), delta );
+    }
+
+    public LatencyHistogram histogram( Operation operation ) { return histograms[ operation.ordinal() ]; }
+    public long count( Counter counter ) { return counters.get( counter.ordinal() ); }
+
+    /**
+     * @description Writes a snapshot of every operation that has been recorded and every counter, one
+     * per line.
+     * @param out Where to write it.
+     * @throws IOException If out could not be written.
+     */
+    public void dump( Appendable out ) throws IOException {
+        out.append( String.format( Locale.US, "%-24s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "mean", "p50", "p99", "max" ) );
+        for( Operation operation : OPERATIONS ) {
+            LatencyHistogram.Snapshot snapshot = histograms[ operation.ordinal() ].snapshot();
+            if( snapshot.count == 0 ) continue;
+            out.append( String.format( Locale.US, "%-24s %10d %10s %10s %10s %10s%n",
+                    operation.name().toLowerCase( Locale.US ), snapshot.count, duration( snapshot.mean ),
+                    duration( snapshot.p50 ), duration( snapshot.p99 ), duration( snapshot.max ) ) );
+        }
+        for( Counter counter : COUNTERS ) {
+            out.append( String.format( Locale.US, "%-24s %10d%n",
+                    counter.name().toLowerCase( Locale.US ), counters.get( counter.ordinal() ) ) );
+        }
+    }
+
+    /**
+     * @description Forgets everything recorded so far.
+     */
+    public void reset() {
+        for( LatencyHistogram histogram : histograms ) histogram.reset();
+        for( int i = 0; i < COUNTERS.length; i++ ) counters.set( i, 0 );
+    }
+
+    private static String duration( long nanos ) {
+        if( nanos < 10_000 ) return nanos + "ns";
+        if( nanos < 10_000_000 ) return String.format( Locale.US, "%.1fus", nanos / 1e3 );
+        return String.format( Locale.US, "%.1fms", nanos / 1e6 );
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.foodbook;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * @class PagedFoodList
+ * @description A window onto a FoodPageSource which keeps only the pages near what is on screen.
+ * Pages are read on the loader executor and handed back through the deliver executor, which should be
+ * the UI thread; everything apart from the read itself happens there, so the list needs no locking.
+ * As the visible range moves the list reads ahead in the direction of the scroll and drops the pages
+ * furthest from the screen once more foods are held than the budget allows.
+ */
+public class PagedFoodList {
+
+    /**
+     * @class Listener
+     * @description Told when a page has been read so the rows showing placeholders can be rebound.
+     * Called on the deliver executor.
+     */
+    public interface Listener {
+        void onPageLoaded( int start, int count );
+    }
+
+    private final FoodPageSource source;
+    private final int size, pageSize, maxPages, prefetchPages;
+    private final Executor loader, deliver;
+
+    private final Map<Integer, Food[]> pages = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private Listener listener;
+    private int firstVisible, lastVisible, direction = 1;
+    private boolean closed;
+
+    /**
+     * Constructor
+     * @param source Where the pages are read from.
+     * @param pageSize How many foods are read at a time.
+     * @param maxLoadedFoods Budget of foods held in memory. At least the visible pages are always kept.
+     * @param prefetchPages How many pages past the visible range are read ahead of the scroll.
+     * @param loader Runs the page reads.
+     * @param deliver Receives the pages read, normally the UI thread.
+     */
+    public PagedFoodList( FoodPageSource source, int pageSize, int maxLoadedFoods, int prefetchPages,
+                          Executor loader, Executor deliver ) {
+        this.source = source;
+        this.size = source.size();
+        this.pageSize = pageSize;
+        this.maxPages = Math.max( 1, maxLoadedFoods / pageSize );
+        this.prefetchPages = prefetchPages;
+        this.loader = loader;
+        this.deliver = deliver;
+    }
+
+    public void setListener( Listener listener ) { this.listener = listener; }
+
+    public int size() { return size; }
+
+    /**
+     * @description Gets how many foods are currently held in memory.
+     * @return The number of foods in the loaded pages.
+     */
+    public int loadedCount() {
+        int count = 0;
+        for( Food[] page : pages.values() ) count += page.length;
+        return count;
+    }
+
+    /**
+     * @description Gets the food at a position if its page is loaded, and asks for the page otherwise.
+     * @param position Position in the list.
+     * @return The food, or null while its page is still being read.
+     */
+    public Food get( int position ) {
+        int page = position / pageSize;
+        Food[] foods = pages.get( page );
+        if( foods == null ) {
+            request( page );
+            return null;
+        }
+        return foods[ position - page * pageSize ];
+    }
+
+    /**
+     * @description Tells the list which positions are on screen. Reads the visible pages and the ones
+     * ahead of the scroll, then drops pages over the budget.
+     * @param first First visible position.
+     * @param last Last visible position.
+     */
+    public void onVisibleRange( int first, int last ) {
+        if( size == 0 || first < 0 || last < first ) return;
+        if( first != firstVisible ) direction = first > firstVisible ? 1 : -1;
+        firstVisible = first;
+        lastVisible = Math.min( last, size - 1 );
+
+        int firstPage = firstVisible / pageSize;
+        int lastPage = lastVisible / pageSize;
+        for( int page = firstPage; page <= lastPage; page++ ) request( page );
+        for( int i = 1; i <= prefetchPages; i++ ) {
+            request( direction > 0 ? lastPage + i : firstPage - i );
+        }
+        evict();
+    }
+
+    /**
+     * @description Drops every page and closes the source. Pages still being read are discarded.
+     */
+    public void close() {
+        closed = true;
+        pages.clear();
+        try {
+            source.close();
+        } catch ( IOException e ) {
+            // Nothing more can be read from it either way.
+        }
+    }
+
+    private void request( int page ) {
+        if( closed || page < 0 || page * pageSize >= size ) return;
+        if( pages.containsKey( page ) || !loading.add( page ) ) return;
+
+        int start = page * pageSize;
+        int count = Math.min( pageSize, size - start );
+        loader.execute( () -> {
+            List<Food> foods;
+            try {
+                foods = source.loadPage( start, count );
+            } catch ( IOException e ) {
+                // Leave the rows as placeholders, the page is asked for again when they are next bound.
+                deliver.execute( () -> loading.remove( page ) );
+                return;
+            }
+            Food[] loaded = foods.toArray( new Food[ 0 ] );
+            deliver.execute( () -> {
+                loading.remove( page );
+                if( closed ) return;
+                pages.put( page, loaded );
+                evict();
+                if( listener != null && pages.containsKey( page ) ) listener.onPageLoaded( start, count );
+            });
+        });
+    }
+
+    /**
+     * @description Drops the pages furthest from the visible range until the budget is met. Visible
+     * pages are never dropped.
+     */
+    private void evict() {
+        int firstPage = firstVisible / pageSize;
+        int lastPage = lastVisible / pageSize;
+        while( pages.size() > maxPages ) {
+            int furthest = -1;
+            int furthestDistance = 0;
+            for( int page : pages.keySet() ) {
+                // Doubled so that at equal distance the page behind the scroll goes first.
+                boolean behind = direction > 0 ? page < firstPage : page > lastPage;
+                int distance = 2 * ( page < firstPage ? firstPage - page : page - lastPage ) + ( behind ? 1 : 0 );
+                if( distance > furthestDistance ) {
+                    furthest = page;
+                    furthestDistance = distance;
+                }
+            }
+            if( furthest < 0 ) return;
+            pages.remove( furthest );
+        }
+    }
+}
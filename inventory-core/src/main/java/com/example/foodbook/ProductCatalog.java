@@ -0,0 +1,218 @@
+package com.example.foodbook;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @class ProductCatalog
+ * @description Read only view of a catalogue file written by ProductCatalogWriter. The file is memory
+ * mapped rather than read, so opening it costs nothing on the heap however many products it holds:
+ * the OS pages in only the parts a lookup touches.
+ * A name lookup first narrows the search to the records sharing the key's two byte prefix, using the
+ * small prefix index, then binary searches those records comparing keys in place in the mapping.
+ * Only the products returned are decoded into objects. Barcodes are found by a binary search of the
+ * barcode index. Safe to use from any thread. The mapping is released once the catalogue is no longer
+ * reachable.
+ */
+public class ProductCatalog {
+
+    static final int MAGIC = 0x46424350;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+
+    private static final int PREFIX_ENTRY_BYTES = 8;
+    private static final int BARCODE_ENTRY_BYTES = 12;
+
+    private final ByteBuffer map;
+    private final int count, prefixCount, barcodeCount;
+    private final int offsetsPosition, prefixPosition, barcodePosition;
+
+    private ProductCatalog( ByteBuffer map ) throws IOException {
+        this.map = map;
+        if( map.capacity() < HEADER_BYTES || map.getInt( 0 ) != MAGIC || map.getInt( 4 ) != VERSION ) {
+            throw new IOException( "Not a product catalogue" );
+        }
+        count = map.getInt( 8 );
+        prefixCount = map.getInt( 12 );
+        barcodeCount = map.getInt( 16 );
+        offsetsPosition = (int) map.getLong( 24 );
+        prefixPosition = (int) map.getLong( 32 );
+        barcodePosition = (int) map.getLong( 40 );
+        if( barcodePosition + (long) barcodeCount * BARCODE_ENTRY_BYTES > map.capacity() ) {
+            throw new IOException( "Truncated product catalogue" );
+        }
+    }
+
+    /**
+     * @description Maps a catalogue file.
+     * @param file File written by ProductCatalogWriter.
+     * @return The catalogue.
+     * @throws IOException If the file could not be mapped or is not a catalogue.
+     */
+    public static ProductCatalog open( File file ) throws IOException {
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ) ) {
+            return map( raf.getChannel(), 0, raf.length() );
+        }
+    }
+
+    /**
+     * @description Maps a catalogue stored as part of a larger file, such as an uncompressed APK asset.
+     * The mapping stays valid after the channel is closed.
+     * @param channel Channel over the file.
+     * @param position Where the catalogue starts.
+     * @param size Length of the catalogue.
+     * @return The catalogue.
+     * @throws IOException If the range could not be mapped or is not a catalogue.
+     */
+    public static ProductCatalog map( FileChannel channel, long position, long size ) throws IOException {
+        if( size > Integer.MAX_VALUE ) throw new IOException( "Catalogue larger than 2 GB" );
+        return new ProductCatalog( channel.map( FileChannel.MapMode.READ_ONLY, position, size ) );
+    }
+
+    public int size() { return count; }
+
+    /**
+     * @description Finds a product by name, ignoring case and surrounding spaces.
+     * @param name Name to look for.
+     * @return The product, or null if it is not in the catalogue.
+     */
+    public CatalogProduct find( String name ) {
+        byte[] key = ProductCatalogWriter.key( name );
+        if( key.length == 0 ) return null;
+        int index = lowerBound( key );
+        if( index < count && compareKey( index, key, key.length ) == 0 ) return decode( index );
+        return null;
+    }
+
+    /**
+     * @description Finds a product by barcode.
+     * @param barcode EAN/UPC code.
+     * @return The product, or null if no product has it.
+     */
+    public CatalogProduct findByBarcode( long barcode ) {
+        int low = 0, high = barcodeCount - 1;
+        while( low <= high ) {
+            int middle = ( low + high ) >>> 1;
+            long found = map.getLong( barcodePosition + middle * BARCODE_ENTRY_BYTES );
+            if( found < barcode ) low = middle + 1;
+            else if( found > barcode ) high = middle - 1;
+            else return decode( map.getInt( barcodePosition + middle * BARCODE_ENTRY_BYTES + 8 ) );
+        }
+        return null;
+    }
+
+    /**
+     * @description Lists the products whose names start with what has been typed so far, in name order.
+     * @param prefix Start of the name, case and surrounding spaces ignored.
+     * @param limit Most products to return.
+     * @return Up to limit products.
+     */
+    public List<CatalogProduct> suggest( String prefix, int limit ) {
+        List<CatalogProduct> products = new ArrayList<>( Math.min( limit, 16 ) );
+        byte[] key = ProductCatalogWriter.key( prefix );
+        if( key.length == 0 ) return products;
+        for( int index = lowerBound( key ); index < count && products.size() < limit; index++ ) {
+            if( !startsWith( index, key ) ) break;
+            products.add( decode( index ) );
+        }
+        return products;
+    }
+
+    /**
+     * @description Packs the first two bytes of a key into an int, missing bytes as 0. Keys sort in the
+     * same order as their codes.
+     */
+    static int prefixCode( byte[] key, int length ) {
+        int first = length > 0 ? key[ 0 ] & 0xFF : 0;
+        int second = length > 1 ? key[ 1 ] & 0xFF : 0;
+        return first << 8 | second;
+    }
+
+    /**
+     * @description Finds the first record whose key is not below the given key, searching only the
+     * records in the prefix index range the key can fall in.
+     */
+    private int lowerBound( byte[] key ) {
+        int code = prefixCode( key, key.length );
+        // Every key from the first with a one byte key's prefix on sorts after it.
+        if( key.length == 1 ) return prefixStart( code );
+        int low = prefixStart( code );
+        int high = prefixStart( code + 1 );
+        while( low < high ) {
+            int middle = ( low + high ) >>> 1;
+            if( compareKey( middle, key, key.length ) < 0 ) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @description Gets the number of the first record whose prefix code is at least code.
+     */
+    private int prefixStart( int code ) {
+        int low = 0, high = prefixCount;
+        while( low < high ) {
+            int middle = ( low + high ) >>> 1;
+            if( map.getInt( prefixPosition + middle * PREFIX_ENTRY_BYTES ) < code ) low = middle + 1;
+            else high = middle;
+        }
+        return low == prefixCount ? count : map.getInt( prefixPosition + low * PREFIX_ENTRY_BYTES + 4 );
+    }
+
+    private int recordOffset( int index ) {
+        return map.getInt( offsetsPosition + index * 4 );
+    }
+
+    /**
+     * @description Compares a record's key with the first length bytes of key, in place in the mapping.
+     */
+    private int compareKey( int index, byte[] key, int length ) {
+        int offset = recordOffset( index );
+        int stored = map.getShort( offset ) & 0xFFFF;
+        int common = Math.min( stored, length );
+        for( int i = 0; i < common; i++ ) {
+            int difference = ( map.get( offset + 2 + i ) & 0xFF ) - ( key[ i ] & 0xFF );
+            if( difference != 0 ) return difference;
+        }
+        return stored - length;
+    }
+
+    private boolean startsWith( int index, byte[] key ) {
+        int offset = recordOffset( index );
+        if( ( map.getShort( offset ) & 0xFFFF ) < key.length ) return false;
+        for( int i = 0; i < key.length; i++ ) {
+            if( map.get( offset + 2 + i ) != key[ i ] ) return false;
+        }
+        return true;
+    }
+
+    private CatalogProduct decode( int index ) {
+        int offset = recordOffset( index );
+        int keyLength = map.getShort( offset ) & 0xFFFF;
+        String key = string( offset + 2, keyLength );
+        offset += 2 + keyLength;
+        int nameLength = map.getShort( offset ) & 0xFFFF;
+        String name = nameLength == 0 ? key : string( offset + 2, nameLength );
+        offset += 2 + nameLength;
+        int descriptionLength = map.getShort( offset ) & 0xFFFF;
+        String description = string( offset + 2, descriptionLength );
+        offset += 2 + descriptionLength;
+        long barcode = map.getLong( offset );
+        int cost = map.getInt( offset + 8 );
+        int shelfLife = map.getShort( offset + 12 ) & 0xFFFF;
+        int location = map.get( offset + 14 );
+        return new CatalogProduct( name, barcode, description, cost, shelfLife, location );
+    }
+
+    private String string( int offset, int length ) {
+        byte[] bytes = new byte[ length ];
+        for( int i = 0; i < length; i++ ) bytes[ i ] = map.get( offset + i );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
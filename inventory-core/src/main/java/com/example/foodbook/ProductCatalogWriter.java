@@ -0,0 +1,185 @@
+package com.example.foodbook;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @class ProductCatalogWriter
+ * @description Builds the binary catalogue file read by ProductCatalog, from products in memory or
+ * from a CSV file with the header "name,barcode,description,cost,shelf_life_days,location".
+ * The file holds, after a fixed header:
+ *   the records, sorted by lookup key, each as key, name, description (u16 length + UTF-8 bytes, an
+ *   empty name meaning the name is the key), barcode (long), cost (int), shelf life (u16) and location (byte);
+ *   the offset of every record (int);
+ *   the prefix index: every distinct two byte key prefix with the number of the first record holding it;
+ *   the barcode index: every barcode with the number of its record, sorted by barcode.
+ * The file is written to a temporary file and renamed into place, so a reader never maps half a file.
+ */
+public final class ProductCatalogWriter {
+
+    static final String CSV_HEADER = "name,barcode,description,cost,shelf_life_days,location";
+
+    private ProductCatalogWriter() {}
+
+    /**
+     * @description Gets the lookup key of a name: trimmed and lower case, as UTF-8.
+     * @param name A product name or a prefix of one.
+     * @return The key bytes.
+     */
+    static byte[] key( String name ) {
+        return name.trim().toLowerCase( Locale.ROOT ).getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * @description Writes a catalogue file. Of several products with the same key only the first is kept.
+     * @param products Products in any order.
+     * @param file File to write. Replaced if it exists.
+     * @return How many products were written.
+     * @throws IOException If the file could not be written.
+     */
+    public static int write( Collection<CatalogProduct> products, File file ) throws IOException {
+        int count = products.size();
+        byte[][] keys = new byte[ count ][];
+        CatalogProduct[] byIndex = products.toArray( new CatalogProduct[ 0 ] );
+        Integer[] order = new Integer[ count ];
+        for( int i = 0; i < count; i++ ) {
+            keys[ i ] = key( byIndex[ i ].getName() );
+            order[ i ] = i;
+        }
+        // A stable sort, so the first of several equal keys stays first.
+        Arrays.sort( order, ( a, b ) -> compare( keys[ a ], keys[ b ] ) );
+
+        File tmp = new File( file.getPath() + ".tmp" );
+        int written = 0;
+        int[] offsets = new int[ count ];
+        List<long[]> barcodes = new ArrayList<>();
+        int[] prefixCodes = new int[ count ];
+        int[] prefixStarts = new int[ count ];
+        int prefixes = 0;
+        try ( FileOutputStream stream = new FileOutputStream( tmp ) ) {
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream, 1 << 16 ) );
+            out.write( new byte[ ProductCatalog.HEADER_BYTES ] );
+            byte[] previous = null;
+            for( int i = 0; i < count; i++ ) {
+                byte[] key = keys[ order[ i ] ];
+                if( previous != null && compare( previous, key ) == 0 ) continue;
+                previous = key;
+                CatalogProduct product = byIndex[ order[ i ] ];
+
+                int code = ProductCatalog.prefixCode( key, key.length );
+                if( prefixes == 0 || prefixCodes[ prefixes - 1 ] != code ) {
+                    prefixCodes[ prefixes ] = code;
+                    prefixStarts[ prefixes++ ] = written;
+                }
+                if( product.getBarcode() != 0 ) barcodes.add( new long[]{ product.getBarcode(), written } );
+
+                if( out.size() == Integer.MAX_VALUE ) throw new IOException( "Catalogue larger than 2 GB" );
+                offsets[ written++ ] = out.size();
+                byte[] name = product.getName().getBytes( StandardCharsets.UTF_8 );
+                writeBytes( out, key );
+                writeBytes( out, Arrays.equals( name, key ) ? new byte[ 0 ] : name );
+                writeBytes( out, product.getDescription().getBytes( StandardCharsets.UTF_8 ) );
+                out.writeLong( product.getBarcode() );
+                out.writeInt( product.getCost() );
+                out.writeShort( Math.min( product.getShelfLifeDays(), 0xFFFF ) );
+                out.writeByte( product.getLocationPosition() );
+            }
+
+            long offsetsPosition = out.size();
+            for( int i = 0; i < written; i++ ) out.writeInt( offsets[ i ] );
+            long prefixPosition = out.size();
+            for( int i = 0; i < prefixes; i++ ) {
+                out.writeInt( prefixCodes[ i ] );
+                out.writeInt( prefixStarts[ i ] );
+            }
+            long barcodePosition = out.size();
+            barcodes.sort( ( a, b ) -> Long.compare( a[ 0 ], b[ 0 ] ) );
+            for( long[] barcode : barcodes ) {
+                out.writeLong( barcode[ 0 ] );
+                out.writeInt( (int) barcode[ 1 ] );
+            }
+            if( out.size() == Integer.MAX_VALUE ) throw new IOException( "Catalogue larger than 2 GB" );
+            out.flush();
+
+            try ( RandomAccessFile header = new RandomAccessFile( tmp, "rw" ) ) {
+                header.writeInt( ProductCatalog.MAGIC );
+                header.writeInt( ProductCatalog.VERSION );
+                header.writeInt( written );
+                header.writeInt( prefixes );
+                header.writeInt( barcodes.size() );
+                header.writeInt( 0 );
+                header.writeLong( offsetsPosition );
+                header.writeLong( prefixPosition );
+                header.writeLong( barcodePosition );
+            }
+            stream.getFD().sync();
+        }
+        if( !tmp.renameTo( file ) ) throw new IOException( "Could not replace " + file );
+        return written;
+    }
+
+    /**
+     * @description Reads products from CSV. Rows with a missing name or a number that can not be read
+     * are skipped.
+     * @param in CSV text starting with the header line.
+     * @return The products in file order.
+     * @throws IOException If in could not be read or does not start with the expected header.
+     */
+    public static List<CatalogProduct> readCsv( Reader in ) throws IOException {
+        FoodCsv.RecordReader records = new FoodCsv.RecordReader( in );
+        List<String> fields = new ArrayList<>();
+        if( !records.next( fields ) || !CSV_HEADER.equals( String.join( ",", fields ).trim() ) ) {
+            throw new IOException( "Expected header " + CSV_HEADER );
+        }
+        List<CatalogProduct> products = new ArrayList<>();
+        while( records.next( fields ) ) {
+            if( fields.size() != 6 || fields.get( 0 ).trim().isEmpty() ) continue;
+            try {
+                String barcode = fields.get( 1 ).trim();
+                products.add( new CatalogProduct( fields.get( 0 ).trim(),
+                        barcode.isEmpty() ? 0 : Long.parseLong( barcode ), fields.get( 2 ).trim(),
+                        Integer.parseInt( fields.get( 3 ).trim() ), Integer.parseInt( fields.get( 4 ).trim() ),
+                        location( fields.get( 5 ).trim() ) ) );
+            } catch ( NumberFormatException e ) {
+                // Not a usable row.
+            }
+        }
+        return products;
+    }
+
+    private static int location( String name ) {
+        for( int i = 0; i < FoodCodec.LOCATIONS.length; i++ ) {
+            if( FoodCodec.LOCATIONS[ i ].equalsIgnoreCase( name ) ) return i;
+        }
+        return 0;
+    }
+
+    private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException {
+        if( bytes.length > 0xFFFF ) throw new IOException( "Field longer than 65535 bytes" );
+        out.writeShort( bytes.length );
+        out.write( bytes );
+    }
+
+    /**
+     * @description Orders keys byte by byte, unsigned, which is also the order ProductCatalog searches in.
+     */
+    static int compare( byte[] a, byte[] b ) {
+        int length = Math.min( a.length, b.length );
+        for( int i = 0; i < length; i++ ) {
+            int difference = ( a[ i ] & 0xFF ) - ( b[ i ] & 0xFF );
+            if( difference != 0 ) return difference;
+        }
+        return a.length - b.length;
+    }
+}
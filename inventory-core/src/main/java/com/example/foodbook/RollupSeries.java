@@ -0,0 +1,135 @@
+package com.example.foodbook;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @class RollupSeries
+ * @description Running sums of consumption events per time bucket, kept for every storage location
+ * and for all of them together. Buckets are keyed by the epoch day they start on and kept sorted, so
+ * a range is found with a binary search and read straight out of one flat array.
+ * Events nearly always land in the newest bucket, which is checked first, so adding one is O( 1 ).
+ */
+final class RollupSeries {
+
+    static final int ADDED_COUNT = 0;
+    static final int USED_COUNT = 1;
+    static final int ADDED_VALUE = 2;
+    static final int USED_VALUE = 3;
+    static final int FIELDS = 4;
+
+    // One slot per known location, then one for every location together.
+    static final int SLOTS = FoodCodec.LOCATIONS.length + 1;
+    private static final int STRIDE = SLOTS * FIELDS;
+
+    private long[] keys = new long[ 16 ];
+    private long[] sums = new long[ 16 * STRIDE ];
+    private int size;
+
+    int size() { return size; }
+
+    /**
+     * @description Adds one event to its bucket, creating the bucket if needed.
+     * @param key First day of the bucket.
+     * @param location Location of the food, counted only in the total if it is not a known location.
+     * @param countDelta Change in count.
+     * @param valueDelta Change in cost * count.
+     */
+    void add( long key, int location, int countDelta, long valueDelta ) {
+        int base = bucket( key ) * STRIDE;
+        addTo( base + ( SLOTS - 1 ) * FIELDS, countDelta, valueDelta );
+        if( location >= 0 && location < SLOTS - 1 ) addTo( base + location * FIELDS, countDelta, valueDelta );
+    }
+
+    /**
+     * @description Reads the buckets in a range which hold any events.
+     * @param location A location position, or -1 for every location together.
+     * @param fromKey First bucket day to include.
+     * @param toKey Last bucket day to include.
+     * @return One point per bucket, oldest first.
+     */
+    List<ConsumptionHistory.Point> query( int location, long fromKey, long toKey ) {
+        int slot = location < 0 || location >= SLOTS - 1 ? SLOTS - 1 : location;
+        int from = search( fromKey );
+        if( from < 0 ) from = -from - 1;
+        List<ConsumptionHistory.Point> points = new ArrayList<>();
+        for( int i = from; i < size && keys[ i ] <= toKey; i++ ) {
+            int offset = i * STRIDE + slot * FIELDS;
+            if( sums[ offset + ADDED_COUNT ] == 0 && sums[ offset + USED_COUNT ] == 0
+                    && sums[ offset + ADDED_VALUE ] == 0 && sums[ offset + USED_VALUE ] == 0 ) continue;
+            points.add( new ConsumptionHistory.Point( keys[ i ], sums[ offset + ADDED_COUNT ], sums[ offset + USED_COUNT ],
+                    sums[ offset + ADDED_VALUE ], sums[ offset + USED_VALUE ] ) );
+        }
+        return points;
+    }
+
+    /**
+     * @description Drops every bucket starting before a day.
+     * @param key First bucket day to keep.
+     */
+    void removeBefore( long key ) {
+        int from = search( key );
+        if( from < 0 ) from = -from - 1;
+        if( from == 0 ) return;
+        System.arraycopy( keys, from, keys, 0, size - from );
+        System.arraycopy( sums, from * STRIDE, sums, 0, ( size - from ) * STRIDE );
+        Arrays.fill( sums, ( size - from ) * STRIDE, size * STRIDE, 0 );
+        size -= from;
+    }
+
+    void write( DataOutputStream out ) throws IOException {
+        out.writeInt( size );
+        for( int i = 0; i < size; i++ ) {
+            out.writeLong( keys[ i ] );
+            for( int j = 0; j < STRIDE; j++ ) out.writeLong( sums[ i * STRIDE + j ] );
+        }
+    }
+
+    void read( DataInputStream in ) throws IOException {
+        int count = in.readInt();
+        if( count < 0 ) throw new IOException( "Bad rollup size " + count );
+        size = 0;
+        ensureCapacity( count );
+        for( int i = 0; i < count; i++ ) {
+            keys[ i ] = in.readLong();
+            for( int j = 0; j < STRIDE; j++ ) sums[ i * STRIDE + j ] = in.readLong();
+        }
+        size = count;
+    }
+
+    private void addTo( int offset, int countDelta, long valueDelta ) {
+        if( countDelta > 0 ) sums[ offset + ADDED_COUNT ] += countDelta;
+        else sums[ offset + USED_COUNT ] -= countDelta;
+        if( valueDelta > 0 ) sums[ offset + ADDED_VALUE ] += valueDelta;
+        else sums[ offset + USED_VALUE ] -= valueDelta;
+    }
+
+    private int bucket( long key ) {
+        if( size > 0 && keys[ size - 1 ] == key ) return size - 1;
+        int index = size > 0 && keys[ size - 1 ] < key ? -size - 1 : search( key );
+        if( index >= 0 ) return index;
+        index = -index - 1;
+        ensureCapacity( size + 1 );
+        System.arraycopy( keys, index, keys, index + 1, size - index );
+        System.arraycopy( sums, index * STRIDE, sums, ( index + 1 ) * STRIDE, ( size - index ) * STRIDE );
+        keys[ index ] = key;
+        Arrays.fill( sums, index * STRIDE, ( index + 1 ) * STRIDE, 0 );
+        size++;
+        return index;
+    }
+
+    private int search( long key ) {
+        return Arrays.binarySearch( keys, 0, size, key );
+    }
+
+    private void ensureCapacity( int capacity ) {
+        if( capacity <= keys.length ) return;
+        int grown = Math.max( capacity, keys.length * 2 );
+        keys = Arrays.copyOf( keys, grown );
+        sums = Arrays.copyOf( sums, grown * STRIDE );
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.foodbook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * @class SortedFoodList
+ * @description Keeps foods sorted by a FoodSortOrder. The sort keys of each food are extracted once
+ * into primitive arrays which sit alongside the foods, so sorting and searching compare longs instead
+ * of calling the boxed getters of Food. Names are only compared in full when their packed prefixes tie.
+ * After the initial sort a single added, edited or removed food is moved into place with a binary
+ * search and an array copy, and a batch of added foods is sorted on its own and merged in, instead of
+ * sorting the whole list again.
+ */
+public class SortedFoodList {
+
+    private static final int RUN_LENGTH = 32;
+
+    private final FoodSortOrder order;
+    private final int sign;
+
+    private Food[] foods = new Food[ 16 ];
+    private long[] primaryKeys = new long[ 16 ];
+    private long[] secondaryKeys = new long[ 16 ];
+    private int size;
+
+    /**
+     * Constructor
+     * @param order How the foods are sorted.
+     */
+    public SortedFoodList( FoodSortOrder order ) {
+        this.order = order;
+        this.sign = order.descending ? -1 : 1;
+    }
+
+    public FoodSortOrder getOrder() { return order; }
+    public int size() { return size; }
+    public Food get( int index ) { return foods[ index ]; }
+
+    /**
+     * @description Gets the sorted foods.
+     * @return A read only view which is only valid until the list next changes.
+     */
+    public List<Food> asList() {
+        return Collections.unmodifiableList( Arrays.asList( foods ).subList( 0, size ) );
+    }
+
+    /**
+     * @description Sorts a list of foods without keeping them.
+     * @param foods Foods to sort.
+     * @param order How to sort them.
+     * @return A new sorted list.
+     */
+    public static List<Food> sort( Collection<Food> foods, FoodSortOrder order ) {
+        SortedFoodList sorted = new SortedFoodList( order );
+        sorted.setAll( foods );
+        return new ArrayList<>( sorted.asList() );
+    }
+
+    /**
+     * @description Replaces the contents with the given foods and sorts them.
+     * @param all Foods to hold.
+     */
+    public void setAll( Collection<Food> all ) {
+        int count = all.size();
+        int capacity = Math.max( 16, count );
+        foods = all.toArray( new Food[ capacity ] );
+        primaryKeys = new long[ capacity ];
+        secondaryKeys = new long[ capacity ];
+        for( int i = 0; i < count; i++ ) {
+            primaryKeys[ i ] = sign * order.primary.of( foods[ i ] );
+            secondaryKeys[ i ] = order.secondary.of( foods[ i ] );
+        }
+        size = count;
+        mergeSort();
+    }
+
+    /**
+     * @description Adds many foods, as when a CSV file is imported in batches. Only the new foods are
+     * sorted, and they are then merged into the list from the back, so the foods already held are each
+     * moved at most once instead of being sorted again.
+     * @param added Foods to add.
+     */
+    public void addAll( Collection<Food> added ) {
+        SortedFoodList batch = new SortedFoodList( order );
+        batch.setAll( added );
+        int count = batch.size;
+        if( count == 0 ) return;
+
+        if( size + count > foods.length ) {
+            int capacity = Math.max( size + count, foods.length * 2 );
+            foods = Arrays.copyOf( foods, capacity );
+            primaryKeys = Arrays.copyOf( primaryKeys, capacity );
+            secondaryKeys = Arrays.copyOf( secondaryKeys, capacity );
+        }
+        int held = size - 1, next = count - 1;
+        for( int out = size + count - 1; next >= 0; out-- ) {
+            int from;
+            if( held >= 0 && compare( primaryKeys[ held ], secondaryKeys[ held ], foods[ held ],
+                    batch.primaryKeys[ next ], batch.secondaryKeys[ next ], batch.foods[ next ] ) > 0 ) {
+                from = held--;
+                foods[ out ] = foods[ from ];
+                primaryKeys[ out ] = primaryKeys[ from ];
+                secondaryKeys[ out ] = secondaryKeys[ from ];
+            } else {
+                from = next--;
+                foods[ out ] = batch.foods[ from ];
+                primaryKeys[ out ] = batch.primaryKeys[ from ];
+                secondaryKeys[ out ] = batch.secondaryKeys[ from ];
+            }
+        }
+        size += count;
+    }
+
+    /**
+     * @description Adds a food at its sorted position.
+     * @param food Food to add.
+     * @return The position it was added at.
+     */
+    public int add( Food food ) {
+        long primary = sign * order.primary.of( food );
+        long secondary = order.secondary.of( food );
+        int position = search( primary, secondary, food );
+        if( position < 0 ) position = -position - 1;
+
+        if( size == foods.length ) {
+            foods = Arrays.copyOf( foods, size * 2 );
+            primaryKeys = Arrays.copyOf( primaryKeys, size * 2 );
+            secondaryKeys = Arrays.copyOf( secondaryKeys, size * 2 );
+        }
+        System.arraycopy( foods, position, foods, position + 1, size - position );
+        System.arraycopy( primaryKeys, position, primaryKeys, position + 1, size - position );
+        System.arraycopy( secondaryKeys, position, secondaryKeys, position + 1, size - position );
+        foods[ position ] = food;
+        primaryKeys[ position ] = primary;
+        secondaryKeys[ position ] = secondary;
+        size++;
+        return position;
+    }
+
+    /**
+     * @description Removes a food. The food must still hold the values it had when it was added.
+     * @param food Food to remove.
+     * @return true if the food was in the list.
+     */
+    public boolean remove( Food food ) {
+        int position = search( sign * order.primary.of( food ), order.secondary.of( food ), food );
+        if( position < 0 || foods[ position ].getId() != food.getId() ) return false;
+
+        System.arraycopy( foods, position + 1, foods, position, size - position - 1 );
+        System.arraycopy( primaryKeys, position + 1, primaryKeys, position, size - position - 1 );
+        System.arraycopy( secondaryKeys, position + 1, secondaryKeys, position, size - position - 1 );
+        foods[ --size ] = null;
+        return true;
+    }
+
+    /**
+     * @description Removes every food matching a test in a single pass, keeping the rest in order.
+     * @param isRemoved Given each food, true if it should be removed.
+     * @return How many foods were removed.
+     */
+    public int removeIf( Predicate<Food> isRemoved ) {
+        int kept = 0;
+        for( int i = 0; i < size; i++ ) {
+            if( isRemoved.test( foods[ i ] ) ) continue;
+            foods[ kept ] = foods[ i ];
+            primaryKeys[ kept ] = primaryKeys[ i ];
+            secondaryKeys[ kept ] = secondaryKeys[ i ];
+            kept++;
+        }
+        int removed = size - kept;
+        Arrays.fill( foods, kept, size, null );
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * @description Moves a food to the position of its edited values.
+     * @param before The food as it was added.
+     * @param after The food holding the new values.
+     * @return The new position of the food.
+     */
+    public int replace( Food before, Food after ) {
+        remove( before );
+        return add( after );
+    }
+
+    /**
+     * @description Binary search for a food by its keys.
+     * @return The position of the food, or ( -insertion point - 1 ) if it is not in the list.
+     */
+    private int search( long primary, long secondary, Food food ) {
+        int low = 0, high = size - 1;
+        while( low <= high ) {
+            int mid = ( low + high ) >>> 1;
+            int compared = compare( primaryKeys[ mid ], secondaryKeys[ mid ], foods[ mid ], primary, secondary, food );
+            if( compared < 0 ) low = mid + 1;
+            else if( compared > 0 ) high = mid - 1;
+            else return mid;
+        }
+        return -( low + 1 );
+    }
+
+    private int compare( long primaryA, long secondaryA, Food a, long primaryB, long secondaryB, Food b ) {
+        int compared = Long.compare( primaryA, primaryB );
+        if( compared == 0 && order.primary == FoodSortOrder.Key.NAME ) {
+            compared = sign * String.CASE_INSENSITIVE_ORDER.compare( a.getName(), b.getName() );
+        }
+        if( compared != 0 ) return compared;
+
+        compared = Long.compare( secondaryA, secondaryB );
+        if( compared == 0 && order.secondary == FoodSortOrder.Key.NAME ) {
+            compared = String.CASE_INSENSITIVE_ORDER.compare( a.getName(), b.getName() );
+        }
+        if( compared != 0 ) return compared;
+
+        return Long.compare( a.getId(), b.getId() );
+    }
+
+    /**
+     * @description Stable sort of the foods and their keys. Runs of RUN_LENGTH are insertion sorted in
+     * place, then merged bottom up between the arrays and a second set of the same size, moving the
+     * keys with the foods so every comparison reads neighbouring memory.
+     */
+    private void mergeSort() {
+        for( int low = 0; low < size; low += RUN_LENGTH ) {
+            int high = Math.min( low + RUN_LENGTH, size );
+            for( int i = low + 1; i < high; i++ ) {
+                Food food = foods[ i ];
+                long primary = primaryKeys[ i ], secondary = secondaryKeys[ i ];
+                int j = i - 1;
+                while( j >= low && compare( primaryKeys[ j ], secondaryKeys[ j ], foods[ j ], primary, secondary, food ) > 0 ) {
+                    foods[ j + 1 ] = foods[ j ];
+                    primaryKeys[ j + 1 ] = primaryKeys[ j ];
+                    secondaryKeys[ j + 1 ] = secondaryKeys[ j ];
+                    j--;
+                }
+                foods[ j + 1 ] = food;
+                primaryKeys[ j + 1 ] = primary;
+                secondaryKeys[ j + 1 ] = secondary;
+            }
+        }
+        if( size <= RUN_LENGTH ) return;
+
+        Food[] fromFoods = foods, toFoods = new Food[ foods.length ];
+        long[] fromPrimary = primaryKeys, toPrimary = new long[ foods.length ];
+        long[] fromSecondary = secondaryKeys, toSecondary = new long[ foods.length ];
+        for( int width = RUN_LENGTH; width < size; width *= 2 ) {
+            for( int low = 0; low < size; low += 2 * width ) {
+                int mid = Math.min( low + width, size ), high = Math.min( low + 2 * width, size );
+                int left = low, right = mid;
+                for( int out = low; out < high; out++ ) {
+                    int from;
+                    if( right >= high || ( left < mid && compare( fromPrimary[ left ], fromSecondary[ left ], fromFoods[ left ],
+                            fromPrimary[ right ], fromSecondary[ right ], fromFoods[ right ] ) <= 0 ) ) {
+                        from = left++;
+                    } else {
+                        from = right++;
+                    }
+                    toFoods[ out ] = fromFoods[ from ];
+                    toPrimary[ out ] = fromPrimary[ from ];
+                    toSecondary[ out ] = fromSecondary[ from ];
+                }
+            }
+            Food[] swapFoods = fromFoods; fromFoods = toFoods; toFoods = swapFoods;
+            long[] swap = fromPrimary; fromPrimary = toPrimary; toPrimary = swap;
+            swap = fromSecondary; fromSecondary = toSecondary; toSecondary = swap;
+        }
+        foods = fromFoods;
+        primaryKeys = fromPrimary;
+        secondaryKeys = fromSecondary;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.foodbook;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @class StringPool
+ * @description Hands out a small int for each distinct string so that repeated names, descriptions and
+ * locations are stored once. The pool only grows; FoodColumns rebuilds it once enough entries have
+ * gone unused.
+ */
+public class StringPool {
+
+    private final HashMap<String, Integer> codes = new HashMap<>();
+    private String[] strings = new String[ 16 ];
+    private int size;
+
+    /**
+     * @description Gets the code of a string, adding it to the pool if it is new.
+     * @param value String to look up. Must not be null.
+     * @return The code of the string.
+     */
+    public int intern( String value ) {
+        Integer code = codes.get( value );
+        if( code != null ) return code;
+        if( size == strings.length ) strings = Arrays.copyOf( strings, size * 2 );
+        strings[ size ] = value;
+        codes.put( value, size );
+        return size++;
+    }
+
+    /**
+     * @description Gets the string behind a code.
+     * @param code A code returned by intern.
+     * @return The pooled string.
+     */
+    public String get( int code ) { return strings[ code ]; }
+
+    /**
+     * @description Gets how many distinct strings the pool holds.
+     * @return The number of strings.
+     */
+    public int size() { return size; }
+}
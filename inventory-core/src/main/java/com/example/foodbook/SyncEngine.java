@@ -0,0 +1,372 @@
+package com.example.foodbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @class SyncEngine
+ * @description Keeps one device's inventory in step with the other devices of a household by
+ * exchanging only what changed. Local changes are recorded as they are made, the same way as for
+ * ConsumptionLog, and folded per item into the fields which changed since the last sync. A sync sends
+ * them to the server as one compressed batch and receives, also as one batch, only the items the other
+ * devices changed since this device last synced, which apply() then puts into the inventory.
+ * Items are known across devices by an id made of the id of the device which created them and a number
+ * from that device's own item counter, kept with the rest of the engine. Local ids are not used, as the
+ * storage may hand out a deleted food's id again, and the new food must not pass for the old one. Each item carries a VersionVector, so the server can tell a resend from a new
+ * change and an edit made on top of the latest version from a concurrent one; see SyncServer for how
+ * concurrent edits are merged.
+ * Recording and applying run on the thread which changes the inventory, sync() on a background thread.
+ */
+public class SyncEngine {
+
+    private static final int STATE_MAGIC = 0x46425345;
+
+    /**
+     * @class Result
+     * @description What one sync received, to be put into the inventory with apply().
+     */
+    public static final class Result {
+        final List<SyncProtocol.Record> records;
+        private final int changesSent;
+        private final long bytesSent, bytesReceived;
+
+        Result( List<SyncProtocol.Record> records, int changesSent, long bytesSent, long bytesReceived ) {
+            this.records = records;
+            this.changesSent = changesSent;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+        }
+
+        public int getChangesSent() { return changesSent; }
+        public int getItemsReceived() { return records.size(); }
+        public long getBytesSent() { return bytesSent; }
+        public long getBytesReceived() { return bytesReceived; }
+    }
+
+    /**
+     * @class Pending
+     * @description The local changes to one item since it was last sent.
+     */
+    private static final class Pending {
+        int mask;
+        int countDelta;
+        // The item as it is now, for the values of the changed fields.
+        Food latest;
+    }
+
+    private final int device;
+    // The last change number this device gave out, and its Lamport clock.
+    private long counter, clock;
+    // The last item number this device gave out.
+    private long itemCounter;
+    // The server sequence number read up to.
+    private long since;
+
+    private final Map<Long, Long> localIds = new HashMap<>();
+    private final Map<Long, Long> itemIds = new HashMap<>();
+    private final Map<Long, VersionVector> versions = new HashMap<>();
+    private final Map<Long, Pending> pending = new LinkedHashMap<>();
+    // Changes sent but not acknowledged. Sent again, unchanged, until a response arrives.
+    private List<SyncProtocol.Change> unacknowledged = Collections.emptyList();
+
+    /**
+     * Constructor
+     * @param device Id of this device, between 1 and 2^24 - 1, different on every device of the
+     * household. Usually picked at random on first launch and then stored.
+     */
+    public SyncEngine( int device ) {
+        if( device <= 0 || device > SyncProtocol.MAX_DEVICE ) throw new IllegalArgumentException( "Bad device id " + device );
+        this.device = device;
+    }
+
+    public int getDevice() { return device; }
+
+    /**
+     * @description Gets how many items have changes waiting to be sent.
+     */
+    public synchronized int getPendingCount() { return pending.size() + unacknowledged.size(); }
+
+    /**
+     * @description Records foods which were stored before syncing was set up, as if they had just been
+     * added. Foods already known are skipped.
+     * @param foods The stored foods.
+     */
+    public synchronized void track( Collection<Food> foods ) {
+        for( Food food : foods ) {
+            if( !itemIds.containsKey( food.getId() ) ) recordChange( null, food );
+        }
+    }
+
+    /**
+     * @description Records how a food changed, to be sent with the next sync.
+     * @param before The food before the change, or null if it was added.
+     * @param after The food after the change, or null if it was deleted.
+     */
+    public synchronized void recordChange( Food before, Food after ) {
+        if( before == null ) {
+            if( after == null ) return;
+            long itemId = (long) device << 32 | ++itemCounter;
+            bind( itemId, after.getId() );
+            Pending change = new Pending();
+            change.mask = SyncProtocol.CREATED | SyncProtocol.ALL_VALUES;
+            change.countDelta = after.getCountValue();
+            change.latest = after;
+            pending.put( itemId, change );
+            return;
+        }
+        Long itemId = itemIds.get( before.getId() );
+        if( itemId == null ) return;
+        Pending change = pending.get( itemId );
+        if( after == null ) {
+            if( change != null && ( change.mask & SyncProtocol.CREATED ) != 0 && !versions.containsKey( itemId ) ) {
+                // Never sent, so the other devices need not hear of it at all.
+                pending.remove( itemId );
+                unbind( itemId );
+                return;
+            }
+            if( change == null ) change = new Pending();
+            change.mask = ( change.mask & SyncProtocol.CREATED ) | SyncProtocol.DELETED;
+            change.latest = before;
+            pending.put( itemId, change );
+            unbind( itemId );
+            return;
+        }
+        int mask = changedFields( before, after );
+        if( mask == 0 ) return;
+        if( change == null ) {
+            change = new Pending();
+            pending.put( itemId, change );
+        }
+        change.mask |= mask;
+        change.countDelta += after.getCountValue() - before.getCountValue();
+        change.latest = after;
+    }
+
+    /**
+     * @description Sends the recorded changes and receives the other devices' changes. Blocks on the
+     * transport, so it must not run on the UI thread. If the transport fails the changes stay recorded,
+     * and are sent again by the next sync.
+     * @param transport Carries the messages.
+     * @return What was received, to be handed to apply() on the thread which changes the inventory.
+     * @throws IOException If the transport failed or the response could not be read.
+     */
+    public Result sync( SyncTransport transport ) throws IOException {
+        List<SyncProtocol.Change> changes;
+        byte[] request;
+        synchronized ( this ) {
+            changes = new ArrayList<>( unacknowledged.size() + pending.size() );
+            changes.addAll( unacknowledged );
+            for( Map.Entry<Long, Pending> entry : pending.entrySet() ) changes.add( toChange( entry.getKey(), entry.getValue() ) );
+            pending.clear();
+            unacknowledged = changes;
+            request = request( changes );
+        }
+
+        byte[] response = transport.exchange( request );
+
+        List<SyncProtocol.Record> records;
+        long newSince;
+        try ( DataInputStream in = SyncProtocol.readMessage( response ) ) {
+            newSince = in.readLong();
+            int count = in.readInt();
+            if( count < 0 ) throw new IOException( "Bad sync response" );
+            records = new ArrayList<>( count );
+            for( int i = 0; i < count; i++ ) records.add( SyncProtocol.Record.read( in ) );
+        }
+        synchronized ( this ) {
+            unacknowledged = Collections.emptyList();
+            since = Math.max( since, newSince );
+        }
+        return new Result( records, changes.size(), request.length, response.length );
+    }
+
+    /**
+     * @description Puts the items received by a sync into the inventory and the repository, as one
+     * batch of adds, one of edits and one of deletes. Items changed locally since the sync started are
+     * left alone: the server merges those changes with these next time and sends the result back.
+     * @param result What sync() received.
+     * @param inventory Inventory to change.
+     * @param repository Storage to change. New items are given their local ids by it.
+     */
+    public synchronized void apply( Result result, Inventory inventory, FoodRepository repository ) {
+        List<Food> added = new ArrayList<>();
+        List<Long> addedItems = new ArrayList<>();
+        List<Food> updated = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        for( SyncProtocol.Record record : result.records ) {
+            if( pending.containsKey( record.itemId ) ) continue;
+            clock = Math.max( clock, record.clock );
+            versions.put( record.itemId, record.version );
+            Long localId = localIds.get( record.itemId );
+            if( record.deleted ) {
+                if( localId == null ) continue;
+                removed.add( localId );
+                unbind( record.itemId );
+            } else if( localId == null ) {
+                added.add( record.toFood( 0 ) );
+                addedItems.add( record.itemId );
+            } else {
+                updated.add( record.toFood( localId ) );
+            }
+        }
+        if( !added.isEmpty() ) {
+            // One call gives every new item its local id and writes them together.
+            repository.addAll( added );
+            for( int i = 0; i < added.size(); i++ ) bind( addedItems.get( i ), added.get( i ).getId() );
+            inventory.addAll( added );
+        }
+        if( !updated.isEmpty() ) {
+            // An item deleted locally while the sync ran is not stored again.
+            Inventory.Replacement replaced = inventory.replaceAll( updated );
+            if( !replaced.isEmpty() ) repository.updateAll( replaced.after );
+        }
+        if( !removed.isEmpty() ) {
+            List<Food> stored = new ArrayList<>( removed.size() );
+            for( long localId : removed ) {
+                int index = inventory.indexOfId( localId, -1 );
+                if( index >= 0 ) stored.add( inventory.get( index ) );
+            }
+            repository.deleteAll( inventory.removeAll( stored ) );
+        }
+    }
+
+    /**
+     * @description Writes everything the engine keeps, including changes not sent yet, so syncing can
+     * carry on where it left off after the app restarts.
+     * @param out Where to write it.
+     * @throws IOException If out could not be written.
+     */
+    public synchronized void write( DataOutputStream out ) throws IOException {
+        out.writeInt( STATE_MAGIC );
+        out.writeInt( device );
+        out.writeLong( counter );
+        out.writeLong( itemCounter );
+        out.writeLong( clock );
+        out.writeLong( since );
+        out.writeInt( localIds.size() );
+        for( Map.Entry<Long, Long> entry : localIds.entrySet() ) {
+            out.writeLong( entry.getKey() );
+            out.writeLong( entry.getValue() );
+        }
+        out.writeInt( versions.size() );
+        for( Map.Entry<Long, VersionVector> entry : versions.entrySet() ) {
+            out.writeLong( entry.getKey() );
+            entry.getValue().write( out );
+        }
+        out.writeInt( pending.size() );
+        for( Map.Entry<Long, Pending> entry : pending.entrySet() ) {
+            out.writeLong( entry.getKey() );
+            out.writeByte( entry.getValue().mask );
+            out.writeInt( entry.getValue().countDelta );
+            byte[] food = FoodCodec.encode( entry.getValue().latest );
+            out.writeInt( food.length );
+            out.write( food );
+        }
+        out.writeInt( unacknowledged.size() );
+        for( SyncProtocol.Change change : unacknowledged ) change.write( out );
+    }
+
+    /**
+     * @description Reads an engine written by write().
+     * @param in Where to read it from.
+     * @return The engine.
+     * @throws IOException If in could not be read or does not hold an engine.
+     */
+    public static SyncEngine read( DataInputStream in ) throws IOException {
+        if( in.readInt() != STATE_MAGIC ) throw new IOException( "Not a sync engine state" );
+        SyncEngine engine;
+        try {
+            engine = new SyncEngine( in.readInt() );
+        } catch ( IllegalArgumentException e ) {
+            throw new IOException( e.getMessage() );
+        }
+        engine.counter = in.readLong();
+        engine.itemCounter = in.readLong();
+        engine.clock = in.readLong();
+        engine.since = in.readLong();
+        for( int i = in.readInt(); i > 0; i-- ) engine.bind( in.readLong(), in.readLong() );
+        for( int i = in.readInt(); i > 0; i-- ) engine.versions.put( in.readLong(), VersionVector.read( in ) );
+        for( int i = in.readInt(); i > 0; i-- ) {
+            long itemId = in.readLong();
+            Pending change = new Pending();
+            change.mask = in.readUnsignedByte();
+            change.countDelta = in.readInt();
+            byte[] food = new byte[ in.readInt() ];
+            in.readFully( food );
+            try {
+                change.latest = FoodCodec.decode( food );
+            } catch ( IllegalArgumentException e ) {
+                throw new IOException( "Bad pending change", e );
+            }
+            engine.pending.put( itemId, change );
+        }
+        int count = in.readInt();
+        List<SyncProtocol.Change> changes = new ArrayList<>( Math.max( 0, count ) );
+        for( int i = 0; i < count; i++ ) changes.add( SyncProtocol.Change.read( in ) );
+        if( !changes.isEmpty() ) engine.unacknowledged = changes;
+        return engine;
+    }
+
+    private SyncProtocol.Change toChange( long itemId, Pending pending ) {
+        SyncProtocol.Change change = new SyncProtocol.Change();
+        change.itemId = itemId;
+        change.base = versions.getOrDefault( itemId, VersionVector.EMPTY );
+        change.version = change.base.with( device, ++counter );
+        change.stamp = ++clock << SyncProtocol.DEVICE_BITS | device;
+        change.mask = pending.mask;
+        Food food = pending.latest;
+        change.name = food.getName();
+        change.description = food.getDescription();
+        change.countDelta = pending.countDelta;
+        change.bestBefore = food.getBestBeforeMillis();
+        change.location = food.getLocation();
+        change.locationPosition = food.getLocationPosition();
+        change.cost = food.getCostValue();
+        // Anything sent next for the item builds on this change.
+        versions.put( itemId, change.version );
+        return change;
+    }
+
+    private byte[] request( List<SyncProtocol.Change> changes ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 64 + changes.size() * 32 );
+        try ( DataOutputStream out = SyncProtocol.startMessage( bytes ) ) {
+            out.writeInt( device );
+            out.writeLong( since );
+            out.writeInt( changes.size() );
+            for( SyncProtocol.Change change : changes ) change.write( out );
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int changedFields( Food before, Food after ) {
+        int mask = 0;
+        if( !before.getName().equals( after.getName() ) ) mask |= SyncProtocol.NAME;
+        if( !before.getDescription().equals( after.getDescription() ) ) mask |= SyncProtocol.DESCRIPTION;
+        if( before.getCountValue() != after.getCountValue() ) mask |= SyncProtocol.COUNT;
+        if( before.getBestBeforeMillis() != after.getBestBeforeMillis() ) mask |= SyncProtocol.BEST_BEFORE;
+        if( before.getLocationPosition() != after.getLocationPosition() || !before.getLocation().equals( after.getLocation() ) ) {
+            mask |= SyncProtocol.LOCATION;
+        }
+        if( before.getCostValue() != after.getCostValue() ) mask |= SyncProtocol.COST;
+        return mask;
+    }
+
+    private void bind( long itemId, long localId ) {
+        localIds.put( itemId, localId );
+        itemIds.put( localId, itemId );
+    }
+
+    private void unbind( long itemId ) {
+        Long localId = localIds.remove( itemId );
+        if( localId != null ) itemIds.remove( localId );
+    }
+}
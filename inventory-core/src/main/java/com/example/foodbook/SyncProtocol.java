@@ -0,0 +1,178 @@
+package com.example.foodbook;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @class SyncProtocol
+ * @description The messages SyncEngine and SyncServer exchange through a SyncTransport.
+ * A request carries the device id, the server sequence number the device has read up to, and a batch
+ * of Changes: only the fields of an item that changed since the device last sent it. A response
+ * carries the new sequence number and a Record, the whole merged state, of every item changed by
+ * other devices since. Each message is a short header followed by the body, deflated.
+ */
+final class SyncProtocol {
+
+    static final int MAGIC = 0x46425359;
+    static final int VERSION = 1;
+
+    // Fields a Change sets. CREATED marks a new item, sent with every field.
+    static final int DESCRIPTION = 1;
+    static final int COUNT = 1 << 1;
+    static final int BEST_BEFORE = 1 << 2;
+    static final int LOCATION = 1 << 3;
+    static final int COST = 1 << 4;
+    static final int DELETED = 1 << 5;
+    static final int CREATED = 1 << 6;
+    static final int NAME = 1 << 7;
+    static final int ALL_VALUES = NAME | DESCRIPTION | COUNT | BEST_BEFORE | LOCATION | COST;
+
+    // Lamport stamps keep the device id in their low bits, so equal clocks still order by device.
+    static final int DEVICE_BITS = 24;
+    static final int MAX_DEVICE = ( 1 << DEVICE_BITS ) - 1;
+
+    private SyncProtocol() {}
+
+    /**
+     * @class Change
+     * @description The changes one device made to one item since it last sent it. The count travels
+     * as a difference, so changes made on different devices at once add up. The other fields are only
+     * present if set in the mask, and win over the server's value if their stamp is later.
+     */
+    static final class Change {
+        long itemId;
+        VersionVector base;
+        VersionVector version;
+        long stamp;
+        int mask;
+        String name, description, location;
+        int countDelta, locationPosition, cost;
+        long bestBefore;
+
+        void write( DataOutputStream out ) throws IOException {
+            out.writeLong( itemId );
+            base.write( out );
+            version.write( out );
+            out.writeLong( stamp );
+            out.writeByte( mask );
+            if( ( mask & ( CREATED | NAME ) ) != 0 ) out.writeUTF( name );
+            if( ( mask & DESCRIPTION ) != 0 ) out.writeUTF( description );
+            if( ( mask & COUNT ) != 0 ) out.writeInt( countDelta );
+            if( ( mask & BEST_BEFORE ) != 0 ) out.writeLong( bestBefore );
+            if( ( mask & LOCATION ) != 0 ) {
+                out.writeUTF( location );
+                out.writeByte( locationPosition );
+            }
+            if( ( mask & COST ) != 0 ) out.writeInt( cost );
+        }
+
+        static Change read( DataInputStream in ) throws IOException {
+            Change change = new Change();
+            change.itemId = in.readLong();
+            change.base = VersionVector.read( in );
+            change.version = VersionVector.read( in );
+            change.stamp = in.readLong();
+            change.mask = in.readUnsignedByte();
+            if( ( change.mask & ( CREATED | NAME ) ) != 0 ) change.name = in.readUTF();
+            if( ( change.mask & DESCRIPTION ) != 0 ) change.description = in.readUTF();
+            if( ( change.mask & COUNT ) != 0 ) change.countDelta = in.readInt();
+            if( ( change.mask & BEST_BEFORE ) != 0 ) change.bestBefore = in.readLong();
+            if( ( change.mask & LOCATION ) != 0 ) {
+                change.location = in.readUTF();
+                change.locationPosition = in.readUnsignedByte();
+            }
+            if( ( change.mask & COST ) != 0 ) change.cost = in.readInt();
+            return change;
+        }
+    }
+
+    /**
+     * @class Record
+     * @description The merged state of an item as the server holds it. A deleted item is only its id
+     * and version.
+     */
+    static final class Record {
+        long itemId;
+        VersionVector version;
+        // The latest Lamport clock among the item's changes, so receivers keep their clocks ahead.
+        long clock;
+        boolean deleted;
+        String name, description, location;
+        int count, locationPosition, cost;
+        long bestBefore;
+
+        Food toFood( long localId ) {
+            Food food = new Food( name, description, count, new Date( bestBefore ), location, locationPosition, cost );
+            food.setId( localId );
+            return food;
+        }
+
+        void write( DataOutputStream out ) throws IOException {
+            out.writeLong( itemId );
+            version.write( out );
+            out.writeLong( clock );
+            out.writeBoolean( deleted );
+            if( deleted ) return;
+            out.writeUTF( name );
+            out.writeUTF( description );
+            out.writeInt( count );
+            out.writeLong( bestBefore );
+            out.writeUTF( location );
+            out.writeByte( locationPosition );
+            out.writeInt( cost );
+        }
+
+        static Record read( DataInputStream in ) throws IOException {
+            Record record = new Record();
+            record.itemId = in.readLong();
+            record.version = VersionVector.read( in );
+            record.clock = in.readLong();
+            record.deleted = in.readBoolean();
+            if( record.deleted ) return record;
+            record.name = in.readUTF();
+            record.description = in.readUTF();
+            record.count = in.readInt();
+            record.bestBefore = in.readLong();
+            record.location = in.readUTF();
+            record.locationPosition = in.readUnsignedByte();
+            record.cost = in.readInt();
+            return record;
+        }
+    }
+
+    /**
+     * @description Starts a message. The body written to the returned stream is deflated into bytes,
+     * and the message is complete once the stream is closed.
+     * @param bytes Receives the message.
+     * @return Stream to write the body to.
+     * @throws IOException If the header could not be written.
+     */
+    static DataOutputStream startMessage( ByteArrayOutputStream bytes ) throws IOException {
+        DataOutputStream header = new DataOutputStream( bytes );
+        header.writeInt( MAGIC );
+        header.writeByte( VERSION );
+        return new DataOutputStream( new BufferedOutputStream( new DeflaterOutputStream( bytes ), 8192 ) );
+    }
+
+    /**
+     * @description Opens a message written by startMessage.
+     * @param message The whole message.
+     * @return Stream to read the body from.
+     * @throws IOException If message is not a sync message of this version.
+     */
+    static DataInputStream readMessage( byte[] message ) throws IOException {
+        DataInputStream header = new DataInputStream( new ByteArrayInputStream( message ) );
+        if( message.length < 5 || header.readInt() != MAGIC || header.readUnsignedByte() != VERSION ) {
+            throw new IOException( "Not a sync message" );
+        }
+        return new DataInputStream( new BufferedInputStream( new InflaterInputStream( header ), 8192 ) );
+    }
+}
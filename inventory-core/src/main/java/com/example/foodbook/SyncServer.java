@@ -0,0 +1,152 @@
+package com.example.foodbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @class SyncServer
+ * @description Stand-in sync server holding the merged state of every item, for tests, benchmarks and
+ * LocalSyncTransport. A real server only has to implement the same handle().
+ * Every accepted change gives its item the next sequence number, and items are also indexed by that
+ * number, so a device asking for everything after the number it last read gets only the items changed
+ * since, without a scan of the whole inventory.
+ * Changes are merged deterministically, whatever order devices sync in:
+ *   a change whose version the item already includes is a resend and is ignored;
+ *   counts add up, so two devices each using one item leave two fewer, never below zero;
+ *   every other field keeps the value with the latest Lamport stamp, ties going to the higher device;
+ *   a deletion wins over any edit.
+ * A change made without having seen the item's latest version is counted as a conflict, and the merged
+ * item is sent back to the device that made it.
+ */
+public class SyncServer {
+
+    private static final int STAMPED_FIELDS = 5;
+    private static final int DESCRIPTION_STAMP = 0, BEST_BEFORE_STAMP = 1, LOCATION_STAMP = 2, COST_STAMP = 3,
+            NAME_STAMP = 4;
+
+    /**
+     * @class Item
+     * @description An item's merged state plus the stamp of the change each field was last set by.
+     */
+    private static final class Item {
+        final SyncProtocol.Record record = new SyncProtocol.Record();
+        final long[] stamps = new long[ STAMPED_FIELDS ];
+        long sequence;
+        int lastDevice;
+        // Whether the last change conflicted, in which case its device is sent the merged item too.
+        boolean conflicted;
+    }
+
+    private final Map<Long, Item> items = new HashMap<>();
+    private final TreeMap<Long, Item> bySequence = new TreeMap<>();
+    private long sequence;
+    private long conflicts;
+
+    public synchronized int size() { return items.size(); }
+    public synchronized long getConflictCount() { return conflicts; }
+
+    /**
+     * @description Handles one request: merges the device's changes, then answers with every item
+     * changed since the sequence number it sent.
+     * @param request Request built by SyncEngine.
+     * @return The response.
+     * @throws IOException If request is not a valid sync request.
+     */
+    public synchronized byte[] handle( byte[] request ) throws IOException {
+        int device;
+        long since;
+        try ( DataInputStream in = SyncProtocol.readMessage( request ) ) {
+            device = in.readInt();
+            since = in.readLong();
+            int count = in.readInt();
+            if( device <= 0 || device > SyncProtocol.MAX_DEVICE || count < 0 ) throw new IOException( "Bad sync request" );
+            for( int i = 0; i < count; i++ ) apply( device, SyncProtocol.Change.read( in ) );
+        }
+
+        List<Item> changed = new ArrayList<>();
+        for( Item item : bySequence.tailMap( since, false ).values() ) {
+            // The device already holds what it sent, unless it was merged with a change it had not seen.
+            if( item.lastDevice != device || item.conflicted ) changed.add( item );
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 64 + changed.size() * 48 );
+        try ( DataOutputStream out = SyncProtocol.startMessage( bytes ) ) {
+            out.writeLong( sequence );
+            out.writeInt( changed.size() );
+            for( Item item : changed ) item.record.write( out );
+        }
+        return bytes.toByteArray();
+    }
+
+    private void apply( int device, SyncProtocol.Change change ) {
+        Item item = items.get( change.itemId );
+        if( item == null ) {
+            // Edits to an item the server never saw created can not be merged into anything.
+            if( ( change.mask & SyncProtocol.CREATED ) == 0 ) return;
+            item = new Item();
+            SyncProtocol.Record record = item.record;
+            record.itemId = change.itemId;
+            record.version = VersionVector.EMPTY;
+            record.name = change.name;
+            record.description = "";
+            record.location = FoodCodec.LOCATIONS[ 0 ];
+            items.put( change.itemId, item );
+        } else if( item.record.version.includes( change.version ) ) {
+            return;
+        }
+
+        SyncProtocol.Record record = item.record;
+        item.conflicted = !change.base.includes( record.version );
+        if( item.conflicted ) conflicts++;
+        if( !record.deleted ) {
+            if( ( change.mask & SyncProtocol.DELETED ) != 0 ) {
+                record.deleted = true;
+                record.name = record.description = record.location = null;
+            } else {
+                merge( item, change );
+            }
+        }
+        record.version = record.version.merge( change.version );
+        record.clock = Math.max( record.clock, change.stamp >>> SyncProtocol.DEVICE_BITS );
+        item.lastDevice = device;
+
+        if( item.sequence != 0 ) bySequence.remove( item.sequence );
+        item.sequence = ++sequence;
+        bySequence.put( item.sequence, item );
+    }
+
+    private static void merge( Item item, SyncProtocol.Change change ) {
+        SyncProtocol.Record record = item.record;
+        long[] stamps = item.stamps;
+        if( ( change.mask & SyncProtocol.COUNT ) != 0 ) {
+            record.count = (int) Math.max( 0, Math.min( Integer.MAX_VALUE, (long) record.count + change.countDelta ) );
+        }
+        if( ( change.mask & SyncProtocol.NAME ) != 0 && change.stamp > stamps[ NAME_STAMP ] ) {
+            record.name = change.name;
+            stamps[ NAME_STAMP ] = change.stamp;
+        }
+        if( ( change.mask & SyncProtocol.DESCRIPTION ) != 0 && change.stamp > stamps[ DESCRIPTION_STAMP ] ) {
+            record.description = change.description;
+            stamps[ DESCRIPTION_STAMP ] = change.stamp;
+        }
+        if( ( change.mask & SyncProtocol.BEST_BEFORE ) != 0 && change.stamp > stamps[ BEST_BEFORE_STAMP ] ) {
+            record.bestBefore = change.bestBefore;
+            stamps[ BEST_BEFORE_STAMP ] = change.stamp;
+        }
+        if( ( change.mask & SyncProtocol.LOCATION ) != 0 && change.stamp > stamps[ LOCATION_STAMP ] ) {
+            record.location = change.location;
+            record.locationPosition = change.locationPosition;
+            stamps[ LOCATION_STAMP ] = change.stamp;
+        }
+        if( ( change.mask & SyncProtocol.COST ) != 0 && change.stamp > stamps[ COST_STAMP ] ) {
+            record.cost = change.cost;
+            stamps[ COST_STAMP ] = change.stamp;
+        }
+    }
+}
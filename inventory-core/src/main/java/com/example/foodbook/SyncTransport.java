@@ -0,0 +1,22 @@
+package com.example.foodbook;
+
+import java.io.IOException;
+
+/**
+ * @class SyncTransport
+ * @description Carries a SyncEngine's requests to a sync server and brings back the responses. The
+ * messages are opaque, already compressed bytes, so a transport only has to move them: in process to a
+ * SyncServer, as LocalSyncTransport does, or over HTTP or a socket to a real one.
+ */
+public interface SyncTransport {
+
+    /**
+     * @description Sends one request and waits for its response. Called on the syncing thread, never
+     * on the UI thread.
+     * @param request Request built by SyncEngine.
+     * @return The server's response.
+     * @throws IOException If the server could not be reached. The engine then sends the same changes
+     * again next time, which the server recognises and applies only once.
+     */
+    byte[] exchange( byte[] request ) throws IOException;
+}
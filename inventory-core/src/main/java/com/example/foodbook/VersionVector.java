@@ -0,0 +1,169 @@
+package com.example.foodbook;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @class VersionVector
+ * @description Immutable version vector: for each device, the number of the latest of its changes
+ * included. Comparing two vectors tells whether one version descends from the other or whether they
+ * were changed concurrently on different devices.
+ * Devices are kept sorted in a pair of arrays. An item is rarely changed on more than a handful of
+ * devices, so the vectors stay a few entries long and every operation is a linear merge.
+ */
+public final class VersionVector {
+
+    public static final VersionVector EMPTY = new VersionVector( new int[ 0 ], new long[ 0 ] );
+
+    /**
+     * @class Order
+     * @description How two versions relate.
+     */
+    public enum Order { EQUAL, BEFORE, AFTER, CONCURRENT }
+
+    private final int[] devices;
+    private final long[] counters;
+
+    private VersionVector( int[] devices, long[] counters ) {
+        this.devices = devices;
+        this.counters = counters;
+    }
+
+    /**
+     * @description Gets the latest change of a device included in this version.
+     * @param device Device id.
+     * @return The change number, 0 if none of the device's changes are included.
+     */
+    public long get( int device ) {
+        int index = Arrays.binarySearch( devices, device );
+        return index < 0 ? 0 : counters[ index ];
+    }
+
+    public int size() { return devices.length; }
+
+    /**
+     * @description Gets this version with a device's entry set to a later change.
+     * @param device Device making the change.
+     * @param counter Number of the change, above any the device made before.
+     * @return The new version.
+     */
+    public VersionVector with( int device, long counter ) {
+        int index = Arrays.binarySearch( devices, device );
+        if( index >= 0 ) {
+            long[] newCounters = counters.clone();
+            newCounters[ index ] = Math.max( counter, counters[ index ] );
+            return new VersionVector( devices, newCounters );
+        }
+        index = -index - 1;
+        int[] newDevices = new int[ devices.length + 1 ];
+        long[] newCounters = new long[ devices.length + 1 ];
+        System.arraycopy( devices, 0, newDevices, 0, index );
+        System.arraycopy( counters, 0, newCounters, 0, index );
+        newDevices[ index ] = device;
+        newCounters[ index ] = counter;
+        System.arraycopy( devices, index, newDevices, index + 1, devices.length - index );
+        System.arraycopy( counters, index, newCounters, index + 1, devices.length - index );
+        return new VersionVector( newDevices, newCounters );
+    }
+
+    /**
+     * @description Gets the version including every change of both versions.
+     * @param other Version to merge with.
+     * @return The entry by entry maximum.
+     */
+    public VersionVector merge( VersionVector other ) {
+        int[] mergedDevices = new int[ devices.length + other.devices.length ];
+        long[] mergedCounters = new long[ mergedDevices.length ];
+        int i = 0, j = 0, size = 0;
+        while( i < devices.length || j < other.devices.length ) {
+            if( j == other.devices.length || ( i < devices.length && devices[ i ] < other.devices[ j ] ) ) {
+                mergedDevices[ size ] = devices[ i ];
+                mergedCounters[ size++ ] = counters[ i++ ];
+            } else if( i == devices.length || other.devices[ j ] < devices[ i ] ) {
+                mergedDevices[ size ] = other.devices[ j ];
+                mergedCounters[ size++ ] = other.counters[ j++ ];
+            } else {
+                mergedDevices[ size ] = devices[ i ];
+                mergedCounters[ size++ ] = Math.max( counters[ i++ ], other.counters[ j++ ] );
+            }
+        }
+        return new VersionVector( Arrays.copyOf( mergedDevices, size ), Arrays.copyOf( mergedCounters, size ) );
+    }
+
+    /**
+     * @description Compares this version with another.
+     * @param other Version to compare with.
+     * @return BEFORE if other includes every change of this one and more, AFTER the other way round,
+     * CONCURRENT if each includes a change the other does not.
+     */
+    public Order compare( VersionVector other ) {
+        boolean less = false, greater = false;
+        int i = 0, j = 0;
+        while( i < devices.length || j < other.devices.length ) {
+            if( j == other.devices.length || ( i < devices.length && devices[ i ] < other.devices[ j ] ) ) {
+                if( counters[ i++ ] > 0 ) greater = true;
+            } else if( i == devices.length || other.devices[ j ] < devices[ i ] ) {
+                if( other.counters[ j++ ] > 0 ) less = true;
+            } else {
+                long mine = counters[ i++ ], theirs = other.counters[ j++ ];
+                if( mine < theirs ) less = true;
+                else if( mine > theirs ) greater = true;
+            }
+        }
+        if( less && greater ) return Order.CONCURRENT;
+        return less ? Order.BEFORE : greater ? Order.AFTER : Order.EQUAL;
+    }
+
+    /**
+     * @description Whether this version includes every change of another.
+     */
+    public boolean includes( VersionVector other ) {
+        Order order = compare( other );
+        return order == Order.EQUAL || order == Order.AFTER;
+    }
+
+    void write( DataOutput out ) throws IOException {
+        if( devices.length > 0xFF ) throw new IOException( "Version vector of more than 255 devices" );
+        out.writeByte( devices.length );
+        for( int i = 0; i < devices.length; i++ ) {
+            out.writeInt( devices[ i ] );
+            out.writeLong( counters[ i ] );
+        }
+    }
+
+    static VersionVector read( DataInput in ) throws IOException {
+        int size = in.readUnsignedByte();
+        if( size == 0 ) return EMPTY;
+        int[] devices = new int[ size ];
+        long[] counters = new long[ size ];
+        for( int i = 0; i < size; i++ ) {
+            devices[ i ] = in.readInt();
+            counters[ i ] = in.readLong();
+            if( i > 0 && devices[ i ] <= devices[ i - 1 ] ) throw new IOException( "Version vector out of order" );
+        }
+        return new VersionVector( devices, counters );
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        return other instanceof VersionVector && Arrays.equals( devices, ( (VersionVector) other ).devices )
+                && Arrays.equals( counters, ( (VersionVector) other ).counters );
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode( devices ) + Arrays.hashCode( counters );
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder( "{" );
+        for( int i = 0; i < devices.length; i++ ) {
+            if( i > 0 ) text.append( ", " );
+            text.append( devices[ i ] ).append( '=' ).append( counters[ i ] );
+        }
+        return text.append( '}' ).toString();
+    }
+}
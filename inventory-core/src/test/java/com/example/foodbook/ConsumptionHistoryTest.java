@@ -0,0 +1,251 @@
+package com.example.foodbook;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the consumption history rollups and their storage. Ingest and query times are
+ * HistoryBenchmark in :inventory-benchmarks.
+ */
+public class ConsumptionHistoryTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone( "UTC" );
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long millis( long epochDay ) {
+        return epochDay * EpochDays.MILLIS_PER_DAY + 3_600_000L;
+    }
+
+    private static Food food( long id, int count, int cost, int location ) {
+        Food food = new Food( "Food " + id, "Item", count, new Date( 0 ), FoodCodec.LOCATIONS[ location ], location, cost );
+        food.setId( id );
+        return food;
+    }
+
+    @Test
+    public void bucketStarts_matchTheCalendar() {
+        for( long day = -800_000; day < 800_000; day += 13 ) {
+            LocalDate date = LocalDate.ofEpochDay( day );
+            assertEquals( date.withDayOfMonth( 1 ).toEpochDay(), EpochDays.startOfMonth( day ) );
+            assertEquals( date.with( DayOfWeek.MONDAY ).toEpochDay(), EpochDays.startOfWeek( day ) );
+        }
+        assertEquals( LocalDate.of( 2024, 2, 1 ).toEpochDay(), EpochDays.startOfMonth( LocalDate.of( 2024, 2, 29 ).toEpochDay() ) );
+    }
+
+    @Test
+    public void rollups_sumPerBucketAndLocation() {
+        ConsumptionHistory history = new ConsumptionHistory( UTC );
+        long monday = LocalDate.of( 2024, 1, 29 ).toEpochDay();
+        history.record( millis( monday ), 1, 0, 6, 600 );
+        history.record( millis( monday ), 1, 0, -2, -200 );
+        history.record( millis( monday + 1 ), 2, 1, 3, 150 );
+        history.record( millis( monday + 3 ), 2, 1, -1, -50 );
+        // Sunday 2024-02-04, same week, next month.
+        history.record( millis( monday + 6 ), 3, -1, -4, -40 );
+
+        List<ConsumptionHistory.Point> fridgeDays = history.query( ConsumptionHistory.Granularity.DAY, 0, monday, monday + 6 );
+        assertEquals( 1, fridgeDays.size() );
+        assertEquals( 6, fridgeDays.get( 0 ).addedCount );
+        assertEquals( 2, fridgeDays.get( 0 ).usedCount );
+        assertEquals( 600, fridgeDays.get( 0 ).addedValue );
+        assertEquals( 200, fridgeDays.get( 0 ).usedValue );
+
+        List<ConsumptionHistory.Point> weeks = history.query( ConsumptionHistory.Granularity.WEEK,
+                ConsumptionHistory.ALL_LOCATIONS, monday + 2, monday + 6 );
+        assertEquals( 1, weeks.size() );
+        assertEquals( monday, weeks.get( 0 ).startDay );
+        assertEquals( 9, weeks.get( 0 ).addedCount );
+        assertEquals( 7, weeks.get( 0 ).usedCount );
+        assertEquals( 290, weeks.get( 0 ).usedValue );
+
+        List<ConsumptionHistory.Point> months = history.query( ConsumptionHistory.Granularity.MONTH,
+                ConsumptionHistory.ALL_LOCATIONS, monday - 60, monday + 60 );
+        assertEquals( 2, months.size() );
+        assertEquals( LocalDate.of( 2024, 1, 1 ).toEpochDay(), months.get( 0 ).startDay );
+        assertEquals( 2, months.get( 0 ).usedCount );
+        assertEquals( 5, months.get( 1 ).usedCount );
+
+        assertTrue( history.query( ConsumptionHistory.Granularity.DAY, 2, monday, monday + 6 ).isEmpty() );
+    }
+
+    @Test
+    public void outOfOrderEvents_landInTheirBucket() {
+        ConsumptionHistory history = new ConsumptionHistory( UTC );
+        history.record( millis( 100 ), 1, 0, 1, 10 );
+        history.record( millis( 90 ), 1, 0, 1, 10 );
+        history.record( millis( 95 ), 1, 0, 1, 10 );
+        history.record( millis( 90 ), 1, 0, 1, 10 );
+
+        List<ConsumptionHistory.Point> points = history.query( ConsumptionHistory.Granularity.DAY, 0, 0, 200 );
+        assertEquals( 3, points.size() );
+        assertEquals( 90, points.get( 0 ).startDay );
+        assertEquals( 2, points.get( 0 ).addedCount );
+        assertEquals( 95, points.get( 1 ).startDay );
+        assertEquals( 100, points.get( 2 ).startDay );
+    }
+
+    @Test
+    public void compact_dropsExpiredEventsButKeepsCoarseRollups() {
+        ConsumptionHistory history = new ConsumptionHistory( UTC );
+        long today = 20_000;
+        for( long day = today - 1000; day <= today; day++ ) history.record( millis( day ), day, 1, -1, -10 );
+
+        int dropped = history.compact( today );
+
+        assertEquals( 1001 - ConsumptionHistory.RAW_RETENTION_DAYS - 1, dropped );
+        assertEquals( ConsumptionHistory.RAW_RETENTION_DAYS + 1, history.eventCount() );
+        List<ConsumptionHistory.Point> days = history.query( ConsumptionHistory.Granularity.DAY, 1, today - 1000, today );
+        assertEquals( today - ConsumptionHistory.DAILY_RETENTION_DAYS, days.get( 0 ).startDay );
+        long usedByMonth = 0;
+        for( ConsumptionHistory.Point point : history.query( ConsumptionHistory.Granularity.MONTH, 1, today - 1000, today ) ) {
+            usedByMonth += point.usedCount;
+        }
+        assertEquals( 1001, usedByMonth );
+    }
+
+    @Test
+    public void log_survivesReopenAndCompaction() throws IOException, ExecutionException, InterruptedException {
+        File dir = folder.newFolder();
+        long day = 19_500;
+        ConsumptionLog log = new ConsumptionLog( dir, UTC );
+        Food milk = food( 1, 4, 100, 0 );
+        log.recordChange( null, milk, millis( day ) );
+        log.recordChange( milk, food( 1, 1, 100, 0 ), millis( day + 1 ) );
+        // A move does not change the count or the value, so it leaves no event.
+        log.recordChange( milk, food( 1, 4, 100, 2 ), millis( day + 1 ) );
+        log.recordChanges( Arrays.asList( food( 2, 5, 20, 1 ), food( 3, 2, 30, 1 ) ),
+                Collections.singletonList( food( 2, 3, 20, 1 ) ), millis( day + 2 ) );
+        log.close();
+
+        ConsumptionLog reopened = new ConsumptionLog( dir, UTC );
+        // Anything queued runs after loading, so waiting on it waits for the load.
+        assertEquals( 0, (int) reopened.compact( day + 3 ).get() );
+        assertFalse( new File( dir, ConsumptionLog.LOG_FILE ).exists() );
+        assertEquals( 4, reopened.getHistory().eventCount() );
+        assertEquals( 300 + 40 + 60, usedValue( reopened, day ) );
+        reopened.recordChange( null, food( 4, 1, 5, 2 ), millis( day + 3 ) );
+        reopened.close();
+
+        ConsumptionLog again = new ConsumptionLog( dir, UTC );
+        again.compact( day + 3 ).get();
+        assertEquals( 5, again.getHistory().eventCount() );
+        List<ConsumptionHistory.Point> week = again.getHistory().query( ConsumptionHistory.Granularity.WEEK,
+                ConsumptionHistory.ALL_LOCATIONS, day, day + 3 );
+        long added = 0;
+        for( ConsumptionHistory.Point point : week ) added += point.addedValue;
+        assertEquals( 405, added );
+        again.close();
+    }
+
+    @Test
+    public void tornLogRecord_isTrimmed() throws IOException, ExecutionException, InterruptedException {
+        File dir = folder.newFolder();
+        ConsumptionLog log = new ConsumptionLog( dir, UTC );
+        log.recordChange( null, food( 1, 2, 10, 0 ), millis( 10 ) );
+        log.close();
+        File logFile = new File( dir, ConsumptionLog.LOG_FILE );
+        try ( FileOutputStream out = new FileOutputStream( logFile, true ) ) {
+            out.write( new byte[]{ 1, 2, 3 } );
+        }
+
+        ConsumptionLog reopened = new ConsumptionLog( dir, UTC );
+        reopened.compact( 10 ).get();
+        assertEquals( 1, reopened.getHistory().eventCount() );
+        reopened.close();
+    }
+
+    /**
+     * A crash after the new checkpoint is renamed into place but before the log is deleted leaves the
+     * old log behind. Its events are already in the checkpoint and must not be replayed.
+     */
+    @Test
+    public void logLeftByACrashedCompaction_isNotReplayed() throws IOException, ExecutionException, InterruptedException {
+        File dir = folder.newFolder();
+        ConsumptionLog log = new ConsumptionLog( dir, UTC );
+        log.recordChange( null, food( 1, 2, 10, 0 ), millis( 10 ) );
+        log.recordChange( null, food( 2, 3, 10, 1 ), millis( 10 ) );
+        log.close();
+        File logFile = new File( dir, ConsumptionLog.LOG_FILE );
+        byte[] folded = Files.readAllBytes( logFile.toPath() );
+
+        ConsumptionLog compacted = new ConsumptionLog( dir, UTC );
+        compacted.compact( 10 ).get();
+        compacted.close();
+        Files.write( logFile.toPath(), folded );
+
+        ConsumptionLog reopened = new ConsumptionLog( dir, UTC );
+        reopened.recordChange( null, food( 3, 1, 10, 2 ), millis( 11 ) );
+        reopened.compact( 11 ).get();
+        assertEquals( 3, reopened.getHistory().eventCount() );
+        reopened.close();
+    }
+
+    @Test
+    public void unreadableFiles_areMovedAsideNotOverwritten() throws IOException, ExecutionException, InterruptedException {
+        File dir = folder.newFolder();
+        byte[] garbage = { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0, 1, 2, 3, 4, 5, 6 };
+        Files.write( new File( dir, ConsumptionLog.CHECKPOINT_FILE ).toPath(), garbage );
+
+        ConsumptionLog log = new ConsumptionLog( dir, UTC );
+        log.recordChange( null, food( 1, 2, 10, 0 ), millis( 10 ) );
+        log.compact( 10 ).get();
+        log.close();
+
+        File[] setAside = dir.listFiles( ( directory, name ) -> name.startsWith( ConsumptionLog.CHECKPOINT_FILE + ".unreadable-" ) );
+        assertEquals( 1, setAside.length );
+        assertArrayEquals( garbage, Files.readAllBytes( setAside[ 0 ].toPath() ) );
+        ConsumptionLog reopened = new ConsumptionLog( dir, UTC );
+        reopened.compact( 10 ).get();
+        assertEquals( 1, reopened.getHistory().eventCount() );
+        reopened.close();
+    }
+
+    @Test
+    public void millionEvents_rollUpToAYear() {
+        ConsumptionHistory history = new ConsumptionHistory( UTC );
+        Random random = new Random( 1 );
+        int events = 1_000_000;
+        long firstDay = 18_000;
+        for( int i = 0; i < events; i++ ) {
+            long day = firstDay + (long) i * 4 * 365 / events;
+            history.record( millis( day ), random.nextInt( 10_000 ), random.nextInt( 3 ),
+                    random.nextInt( 7 ) - 4, random.nextInt( 2000 ) - 1200 );
+        }
+
+        long lastDay = firstDay + 4 * 365 - 1;
+        List<ConsumptionHistory.Point> days = history.query( ConsumptionHistory.Granularity.DAY, 1, lastDay - 364, lastDay );
+        List<ConsumptionHistory.Point> weeks = history.query( ConsumptionHistory.Granularity.WEEK, 1, lastDay - 364, lastDay );
+        List<ConsumptionHistory.Point> months = history.query( ConsumptionHistory.Granularity.MONTH, 1, lastDay - 364, lastDay );
+        assertEquals( 365, days.size() );
+        assertTrue( weeks.size() <= 54 );
+        assertTrue( months.size() <= 13 );
+    }
+
+    private static long usedValue( ConsumptionLog log, long day ) {
+        long used = 0;
+        for( ConsumptionHistory.Point point : log.getHistory().query( ConsumptionHistory.Granularity.DAY,
+                ConsumptionHistory.ALL_LOCATIONS, day, day + 10 ) ) {
+            used += point.usedValue;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the depletion rates, the run-out queue and the shopping list. Update times are
+ * ForecastBenchmark in :inventory-benchmarks.
+ */
+public class DepletionForecastTest {
+
+    private static final long DAY = EpochDays.MILLIS_PER_DAY;
+    private static final long START = EpochDays.toMillis( 20_000 );
+
+    private static Food food( long id, String name, int count, int location, int cost ) {
+        Food food = new Food( name, "Item", count, new Date( START ), FoodCodec.LOCATIONS[ location ], location, cost );
+        food.setId( id );
+        return food;
+    }
+
+    private static Food withCount( Food food, int count ) {
+        return food( food.getId(), food.getName(), count, food.getLocationPosition(), food.getCostValue() );
+    }
+
+    @Test
+    public void steadyUse_convergesOnTheRate() {
+        DepletionForecast forecast = new DepletionForecast();
+        Food milk = food( 1, "Milk", 200, 0, 3 );
+        forecast.recordChange( null, milk, START );
+        long now = START;
+        for( int day = 1; day <= 60; day++ ) {
+            now = START + day * DAY;
+            Food used = withCount( milk, milk.getCountValue() - 2 );
+            forecast.recordChange( milk, used, now );
+            milk = used;
+        }
+
+        assertEquals( 2.0, forecast.getDailyRate( "milk" ), 0.01 );
+        // 80 left at 2 a day.
+        assertEquals( now + 40 * DAY, forecast.getRunOutMillis( "MILK" ), DAY / 10 );
+        assertEquals( DepletionForecast.NEVER, forecast.getRunOutMillis( "Bread" ) );
+    }
+
+    @Test
+    public void rate_followsAChangeInUse() {
+        DepletionForecast forecast = new DepletionForecast( 7 );
+        Food eggs = food( 1, "Eggs", 1000, 0, 1 );
+        forecast.recordChange( null, eggs, START );
+        long now = START;
+        for( int day = 1; day <= 90; day++ ) {
+            now = START + day * DAY;
+            Food used = withCount( eggs, eggs.getCountValue() - ( day <= 60 ? 1 : 4 ) );
+            forecast.recordChange( eggs, used, now );
+            eggs = used;
+        }
+        // Four half lives after the change, 1 + 3 * ( 1 - 2^-4.3 ).
+        assertEquals( 3.85, forecast.getDailyRate( "Eggs" ), 0.01 );
+
+        // Several uses at the same moment still give a finite rate.
+        Food used = withCount( eggs, eggs.getCountValue() - 1 );
+        forecast.recordChange( eggs, used, now );
+        forecast.recordChange( used, withCount( used, used.getCountValue() - 1 ), now );
+        double rate = forecast.getDailyRate( "Eggs" );
+        assertTrue( rate > 4 && !Double.isInfinite( rate ) );
+    }
+
+    @Test
+    public void purchase_onlyAddsStock() {
+        DepletionForecast forecast = new DepletionForecast();
+        Food bread = food( 1, "Bread", 4, 1, 3 );
+        forecast.recordChange( null, bread, START );
+        Food used = withCount( bread, 2 );
+        forecast.recordChange( bread, used, START + 2 * DAY );
+        double rate = forecast.getDailyRate( "Bread" );
+        long runOut = forecast.getRunOutMillis( "Bread" );
+
+        // A second lot in another location, and more added to the first.
+        forecast.recordChange( null, food( 2, "bread", 3, 2, 3 ), START + 3 * DAY );
+        forecast.recordChange( used, withCount( used, 5 ), START + 3 * DAY );
+
+        assertEquals( rate, forecast.getDailyRate( "Bread" ), 0 );
+        assertEquals( 1, forecast.size() );
+        // 2 + 3 + 3 left instead of 2.
+        assertEquals( START + 2 * DAY + ( runOut - START - 2 * DAY ) * 4, forecast.getRunOutMillis( "Bread" ), 1 );
+    }
+
+    @Test
+    public void deleteIsAUse_renameIsNot() {
+        DepletionForecast forecast = new DepletionForecast();
+        Food cheese = food( 1, "Cheese", 2, 0, 5 );
+        Food yogurt = food( 2, "Yogurt", 6, 0, 1 );
+        forecast.recordChanges( Collections.<Food>emptyList(), Arrays.asList( cheese, yogurt ), START );
+
+        forecast.recordChange( cheese, null, START + DAY );
+        assertTrue( forecast.getDailyRate( "Cheese" ) > 0 );
+        assertEquals( START + DAY, forecast.getRunOutMillis( "Cheese" ) );
+
+        forecast.recordChange( yogurt, food( 2, "Greek yogurt", 6, 0, 1 ), START + DAY );
+        assertEquals( 0, forecast.getDailyRate( "Yogurt" ), 0 );
+        assertEquals( 0, forecast.getDailyRate( "Greek yogurt" ), 0 );
+        assertEquals( 3, forecast.size() );
+    }
+
+    @Test
+    public void shoppingList_estimatesCosts() {
+        DepletionForecast forecast = new DepletionForecast();
+        Food milk = food( 1, "Milk", 3, 0, 2 );
+        Food rice = food( 2, "Rice", 10, 1, 4 );
+        Food salt = food( 3, "Salt", 1, 1, 1 );
+        forecast.recordChanges( Collections.<Food>emptyList(), Arrays.asList( milk, rice, salt ), START );
+        // Milk goes at a carton a day, rice at one bag every ten days.
+        forecast.recordChange( milk, withCount( milk, 1 ), START + 2 * DAY );
+        forecast.recordChange( rice, withCount( rice, 9 ), START + 10 * DAY );
+
+        DepletionForecast.ShoppingList list = forecast.shoppingList( START + 2 * DAY, 3, 7 );
+        assertEquals( 1, list.getEntries().size() );
+        DepletionForecast.Entry entry = list.getEntries().get( 0 );
+        assertEquals( "Milk", entry.name );
+        assertEquals( 1, entry.stock );
+        assertEquals( (int) Math.ceil( entry.dailyRate * 7 ), entry.quantity );
+        assertEquals( entry.quantity * 2L, list.getTotalCost() );
+
+        // Looking far enough ahead takes in the rice, never the unused salt.
+        list = forecast.shoppingList( START + 2 * DAY, 400, 7 );
+        assertEquals( 2, list.getEntries().size() );
+        assertEquals( "Rice", list.getEntries().get( 1 ).name );
+        assertEquals( list.getEntries().get( 0 ).getCost() + list.getEntries().get( 1 ).getCost(), list.getTotalCost() );
+    }
+
+    @Test
+    public void randomChanges_matchAScan() {
+        Random random = new Random( 5 );
+        DepletionForecast forecast = new DepletionForecast();
+        List<Food> foods = new ArrayList<>();
+        long now = START;
+        for( int step = 0; step < 20_000; step++ ) {
+            now += random.nextInt( 6 * 60 * 60 * 1000 );
+            int action = random.nextInt( 10 );
+            if( action == 0 || foods.isEmpty() ) {
+                Food food = food( step + 1, "Food " + random.nextInt( 300 ), 1 + random.nextInt( 20 ), 0, random.nextInt( 9 ) );
+                foods.add( food );
+                forecast.recordChange( null, food, now );
+            } else if( action == 1 ) {
+                forecast.recordChange( foods.remove( random.nextInt( foods.size() ) ), null, now );
+            } else {
+                int index = random.nextInt( foods.size() );
+                Food before = foods.get( index );
+                Food after = withCount( before, Math.max( 0, before.getCountValue() + random.nextInt( 5 ) - 3 ) );
+                foods.set( index, after );
+                forecast.recordChange( before, after, now );
+            }
+        }
+
+        // The list walks the heap. Sorting every item's prediction must give the same order.
+        List<DepletionForecast.Entry> entries = forecast.shoppingList( now, 10_000, 7 ).getEntries();
+        List<Long> scanned = new ArrayList<>();
+        for( int i = 0; i < 300; i++ ) {
+            long runOut = forecast.getRunOutMillis( "Food " + i );
+            if( runOut <= now + 10_000 * DAY ) scanned.add( runOut );
+        }
+        Collections.sort( scanned );
+        List<Long> listed = new ArrayList<>();
+        for( DepletionForecast.Entry entry : entries ) listed.add( entry.runOutMillis );
+        assertEquals( scanned, listed );
+
+        // The stocks recorded change by change match the foods left.
+        forecast.track( foods, now );
+        assertEquals( listed.size(), forecast.shoppingList( now, 10_000, 7 ).getEntries().size() );
+        for( DepletionForecast.Entry entry : forecast.shoppingList( now, 10_000, 7 ).getEntries() ) {
+            int stock = 0;
+            for( Food food : foods ) if( food.getName().equals( entry.name ) ) stock += food.getCountValue();
+            assertEquals( stock, entry.stock );
+        }
+    }
+
+    @Test
+    public void write_readBack() throws IOException {
+        DepletionForecast forecast = new DepletionForecast( 10 );
+        Food milk = food( 1, "Milk", 6, 0, 2 );
+        forecast.recordChange( null, milk, START );
+        forecast.recordChange( milk, withCount( milk, 3 ), START + 3 * DAY );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        forecast.write( new DataOutputStream( bytes ) );
+        DepletionForecast read = DepletionForecast.read( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+        read.track( Collections.singletonList( withCount( milk, 3 ) ), START + 4 * DAY );
+
+        assertEquals( forecast.getDailyRate( "Milk" ), read.getDailyRate( "Milk" ), 0 );
+        assertEquals( forecast.getRunOutMillis( "Milk" ), read.getRunOutMillis( "Milk" ) );
+        assertEquals( 2, read.shoppingList( START + 4 * DAY, 30, 7 ).getEntries().get( 0 ).unitCost );
+    }
+}
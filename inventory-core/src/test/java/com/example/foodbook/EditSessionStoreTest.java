@@ -0,0 +1,159 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for editing through an edit session, including foods moving while the editor is
+ * open. The latency against handing the food through the Intent as encoded bytes is EditSessionBenchmark
+ * in :inventory-benchmarks.
+ */
+public class EditSessionStoreTest {
+
+    private static Food food( int i ) {
+        Food food = new Food( "Food " + i, "Description " + i, i % 12, new Date( EpochDays.toMillis( 19_000 + i % 400 ) ),
+                FoodCodec.LOCATIONS[ i % 3 ], i % 3, i % 50 );
+        food.setId( i + 1 );
+        return food;
+    }
+
+    private static Inventory inventory( int size ) {
+        List<Food> foods = new ArrayList<>( size );
+        for( int i = 0; i < size; i++ ) foods.add( food( i ) );
+        Inventory inventory = new Inventory();
+        inventory.addAll( foods );
+        return inventory;
+    }
+
+    /**
+     * What NewFoodActivity does on confirm: build a food from the fields and commit the difference.
+     */
+    private static void confirm( EditSessionStore store, long id, int count, int cost ) {
+        Food stored = store.get( id );
+        Food edited = new Food( stored.getName(), stored.getDescription(), count, new Date( stored.getBestBeforeMillis() ),
+                stored.getLocation(), stored.getLocationPosition(), cost );
+        assertTrue( store.commit( id, FoodDelta.diff( stored, edited ) ) );
+    }
+
+    @Test
+    public void edit_landsOnItsFoodAfterEarlierFoodsAreDeleted() {
+        Inventory inventory = inventory( 100 );
+        EditSessionStore store = new EditSessionStore();
+        Food target = inventory.get( 50 );
+        store.open( target, 50 );
+
+        // While the editor is open, foods in front of the target are deleted and its position shifts.
+        inventory.removeAll( inventory.getFoods().subList( 10, 20 ) );
+        inventory.remove( inventory.get( 0 ) );
+        Food nowAt50 = inventory.get( 50 );
+        confirm( store, target.getId(), 99, 7 );
+
+        EditSessionStore.Session session = store.take( target.getId() );
+        Food edited = inventory.applyEdit( target.getId(), session.getPositionHint(), session.getDelta() );
+        assertEquals( target.getId(), edited.getId() );
+        assertEquals( 99, inventory.get( inventory.indexOfId( target.getId(), -1 ) ).getCountValue() );
+        assertSame( nowAt50, inventory.get( 50 ) );
+        assertEquals( InventoryTotals.recompute( inventory.getFoods() ), inventory.getTotals().getTotal() );
+        assertEquals( 0, store.size() );
+    }
+
+    @Test
+    public void edit_ofDeletedFood_isDropped() {
+        Inventory inventory = inventory( 10 );
+        EditSessionStore store = new EditSessionStore();
+        Food target = inventory.get( 3 );
+        store.open( target, 3 );
+        inventory.remove( target );
+        confirm( store, target.getId(), 5, 5 );
+
+        EditSessionStore.Session session = store.take( target.getId() );
+        assertNull( inventory.applyEdit( target.getId(), session.getPositionHint(), session.getDelta() ) );
+        assertEquals( 9, inventory.size() );
+    }
+
+    @Test
+    public void delta_keepsChangesMadeToOtherFieldsMeanwhile() {
+        Inventory inventory = inventory( 10 );
+        EditSessionStore store = new EditSessionStore();
+        Food target = inventory.get( 4 );
+        store.open( target, 4 );
+
+        // A batch move happens while the editor is open, then the editor only changes the cost.
+        inventory.replaceAll( BatchEdits.moveTo( Collections.singletonList( target ), 2 ) );
+        confirm( store, target.getId(), target.getCountValue(), 42 );
+
+        EditSessionStore.Session session = store.take( target.getId() );
+        Food edited = inventory.applyEdit( target.getId(), session.getPositionHint(), session.getDelta() );
+        assertEquals( 42, edited.getCostValue() );
+        assertEquals( 2, edited.getLocationPosition() );
+        assertEquals( target.getCountValue(), edited.getCountValue() );
+        // The live food handed to the editor was never changed.
+        assertEquals( 4 % 50, target.getCostValue() );
+    }
+
+    @Test
+    public void cancel_dropsOnlyUncommittedSessions() {
+        EditSessionStore store = new EditSessionStore();
+        Food unsaved = food( 1 );
+        Food saved = food( 2 );
+        store.open( unsaved, 1 );
+        store.open( saved, 2 );
+        confirm( store, saved.getId(), 1, 1 );
+
+        // Leaving the editor without saving drops the session, leaving after saving keeps it for MainActivity.
+        store.cancel( unsaved.getId() );
+        store.cancel( saved.getId() );
+        assertNull( store.get( unsaved.getId() ) );
+        assertNotNull( store.take( saved.getId() ).getDelta() );
+        assertFalse( store.commit( saved.getId(), new FoodDelta() ) );
+        assertEquals( 0, store.size() );
+    }
+
+    @Test
+    public void session_endsWithTheSameTotalsAsTheIntentRoundTrip() {
+        Inventory byIntent = inventory( 1_000 );
+        Inventory bySession = inventory( 1_000 );
+        EditSessionStore store = new EditSessionStore();
+
+        editThroughIntent( byIntent, 2_000 );
+        editThroughSession( bySession, store, 2_000 );
+
+        assertEquals( byIntent.getTotals().getTotal(), bySession.getTotals().getTotal() );
+        for( int location = 0; location < 3; location++ ) {
+            assertEquals( byIntent.getTotals().getTotal( location ), bySession.getTotals().getTotal( location ) );
+        }
+        assertEquals( 0, store.size() );
+    }
+
+    /**
+     * The path before edit sessions: the food is encoded into the Intent, decoded by the editor, changed,
+     * encoded into the result and decoded again before replacing whatever is at the remembered index.
+     */
+    private static void editThroughIntent( Inventory inventory, int edits ) {
+        for( int i = 0; i < edits; i++ ) {
+            int index = ( i * 7919 ) % inventory.size();
+            Food inEditor = FoodCodec.decode( FoodCodec.encode( inventory.get( index ) ) );
+            inEditor.setCount( i % 12 );
+            inEditor.setCost( i % 50 );
+            Food saved = FoodCodec.decode( FoodCodec.encode( inEditor ) );
+            inventory.replace( index, saved );
+        }
+    }
+
+    private static void editThroughSession( Inventory inventory, EditSessionStore store, int edits ) {
+        for( int i = 0; i < edits; i++ ) {
+            int index = ( i * 7919 ) % inventory.size();
+            Food food = inventory.get( index );
+            store.open( food, index );
+            confirm( store, food.getId(), i % 12, i % 50 );
+            EditSessionStore.Session session = store.take( food.getId() );
+            inventory.applyEdit( food.getId(), session.getPositionHint(), session.getDelta() );
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the expiry index, checked against scanning the food list. The time comparison is
+ * ExpiryBenchmark in :inventory-benchmarks.
+ */
+public class ExpiryIndexTest {
+
+    private static final long TODAY = 19_300;
+
+    private static Food food( long id, long epochDay ) {
+        Food food = new Food( "Food " + id, "", 1, new Date( EpochDays.toMillis( epochDay ) ), "Fridge", 0, 1 );
+        food.setId( id );
+        return food;
+    }
+
+    /** The linear scan the index replaces. */
+    private static long[] scan( List<Food> foods, long fromDay, long toDay ) {
+        List<Food> matches = new ArrayList<>();
+        for( Food food : foods ) {
+            long day = EpochDays.fromMillis( food.getBestBeforeDate() );
+            if( day >= fromDay && day <= toDay ) matches.add( food );
+        }
+        matches.sort( ( a, b ) -> {
+            int byDay = Long.compare( EpochDays.fromMillis( a.getBestBeforeDate() ), EpochDays.fromMillis( b.getBestBeforeDate() ) );
+            return byDay != 0 ? byDay : Long.compare( a.getId(), b.getId() );
+        });
+        long[] ids = new long[ matches.size() ];
+        for( int i = 0; i < ids.length; i++ ) ids[ i ] = matches.get( i ).getId();
+        return ids;
+    }
+
+    @Test
+    public void rangeQuery_isOrderedAndInclusive() {
+        ExpiryIndex index = new ExpiryIndex();
+        index.add( 3, TODAY + 2 );
+        index.add( 1, TODAY + 5 );
+        index.add( 2, TODAY + 2 );
+        index.add( 4, TODAY - 1 );
+
+        assertArrayEquals( new long[] { 2, 3, 1 }, index.idsBetween( TODAY, TODAY + 5 ) );
+        assertEquals( 2, index.countBetween( TODAY, TODAY + 4 ) );
+        assertEquals( TODAY + 2, index.nextExpiringDay( TODAY ) );
+        assertEquals( 2, index.nextExpiringId( TODAY ) );
+        assertEquals( ExpiryIndex.NONE, index.nextExpiringDay( TODAY + 6 ) );
+    }
+
+    @Test
+    public void update_movesFoodToNewDay() {
+        ExpiryIndex index = new ExpiryIndex();
+        index.add( 1, TODAY + 10 );
+        index.add( 2, TODAY + 3 );
+        index.update( 1, TODAY + 10, TODAY + 1 );
+
+        assertEquals( 1, index.nextExpiringId( TODAY ) );
+        assertEquals( 0, index.countBetween( TODAY + 4, TODAY + 30 ) );
+        assertFalse( index.remove( 1, TODAY + 10 ) );
+        assertEquals( 2, index.size() );
+    }
+
+    @Test
+    public void inventory_keepsIndexInStepWithEdits() {
+        Inventory inventory = new Inventory();
+        Food milk = food( 1, TODAY + 7 );
+        inventory.add( milk );
+        inventory.add( food( 2, TODAY + 9 ) );
+
+        inventory.replace( 0, food( 1, TODAY + 12 ) );
+        assertEquals( 2, inventory.getExpiryIndex().nextExpiringId( TODAY ) );
+
+        inventory.remove( inventory.get( 1 ) );
+        assertEquals( 1, inventory.getExpiryIndex().size() );
+        assertEquals( TODAY + 12, inventory.getExpiryIndex().nextExpiringDay( TODAY ) );
+    }
+
+    @Test
+    public void randomQueries_matchLinearScan() {
+        Random random = new Random( 7 );
+        List<Food> foods = new ArrayList<>();
+        ExpiryIndex index = new ExpiryIndex();
+        for( int i = 1; i <= 5_000; i++ ) {
+            Food food = food( i, TODAY - 30 + random.nextInt( 400 ) );
+            foods.add( food );
+            // Half added one at a time, half in bulk, so both paths are checked.
+            if( i <= 2_500 ) index.add( food.getId(), EpochDays.fromMillis( food.getBestBeforeDate() ) );
+        }
+        long[] ids = new long[ 2_500 ];
+        long[] days = new long[ 2_500 ];
+        for( int i = 0; i < 2_500; i++ ) {
+            ids[ i ] = foods.get( 2_500 + i ).getId();
+            days[ i ] = EpochDays.fromMillis( foods.get( 2_500 + i ).getBestBeforeDate() );
+        }
+        index.addAll( ids, days, 2_500 );
+        for( int i = 0; i < 200; i++ ) {
+            long from = TODAY - 40 + random.nextInt( 450 );
+            long to = from + random.nextInt( 30 );
+            assertArrayEquals( scan( foods, from, to ), index.idsBetween( from, to ) );
+        }
+    }
+
+    @Test
+    public void hundredThousandFoods_matchALinearScan() {
+        int size = 100_000;
+        Random random = new Random( 11 );
+        List<Food> foods = new ArrayList<>( size );
+        ExpiryIndex index = new ExpiryIndex();
+        long[] ids = new long[ size ];
+        long[] days = new long[ size ];
+        long firstFromToday = Long.MAX_VALUE;
+        for( int i = 0; i < size; i++ ) {
+            Food food = food( i + 1, TODAY - 30 + random.nextInt( 730 ) );
+            foods.add( food );
+            ids[ i ] = food.getId();
+            days[ i ] = EpochDays.fromMillis( food.getBestBeforeDate() );
+            if( days[ i ] >= TODAY ) firstFromToday = Math.min( firstFromToday, days[ i ] );
+        }
+        index.addAll( ids, days, size );
+
+        long[] week = index.idsBetween( TODAY, TODAY + 7 );
+        assertTrue( week.length > 0 );
+        assertArrayEquals( scan( foods, TODAY, TODAY + 7 ), week );
+        assertEquals( firstFromToday, index.nextExpiringDay( TODAY ) );
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the expiry scan, run against a fake clock.
+ */
+public class ExpiryScannerTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone( "UTC" );
+    private static final long TODAY = 19_300;
+
+    /** Clock stuck at noon on TODAY whose nanoTime moves 1000 ns on every read. */
+    private static class FakeClock implements ExpiryScanner.Clock {
+        long nanos;
+
+        @Override public long currentTimeMillis() { return TODAY * EpochDays.MILLIS_PER_DAY + 12 * 3_600_000L; }
+        @Override public long nanoTime() { return nanos += 1000; }
+    }
+
+    private static Food food( String name, long epochDay ) {
+        return new Food( name, "", 1, new Date( epochDay * EpochDays.MILLIS_PER_DAY ), "Fridge", 0, 1 );
+    }
+
+    @Test
+    public void scan_splitsExpiredAndExpiringSoon() {
+        List<Food> foods = new ArrayList<>();
+        foods.add( food( "old milk", TODAY - 1 ) );
+        foods.add( food( "bread", TODAY ) );
+        foods.add( food( "cheese", TODAY + 3 ) );
+        foods.add( food( "rice", TODAY + 4 ) );
+
+        ExpiryScanner.Report report = new ExpiryScanner( new FakeClock(), UTC, 3, 10 ).scan( foods );
+
+        assertEquals( 1, report.expired.size() );
+        assertEquals( "old milk", report.expired.get( 0 ).getName() );
+        assertEquals( 2, report.expiringSoon.size() );
+        assertEquals( "bread", report.expiringSoon.get( 0 ).getName() );
+        assertEquals( "cheese", report.expiringSoon.get( 1 ).getName() );
+        assertEquals( 4, report.scanned );
+    }
+
+    @Test
+    public void scan_walksInBoundedChunks() {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 1_050; i++ ) foods.add( food( "food " + i, TODAY - 10 + i % 20 ) );
+
+        ExpiryScanner scanner = new ExpiryScanner( new FakeClock(), UTC, 2, 100 );
+        ExpiryScanner.Scan scan = scanner.start( foods );
+        int steps = 1;
+        while( scan.step() ) steps++;
+        ExpiryScanner.Report report = scan.finish();
+
+        assertEquals( 11, steps );
+        assertEquals( 1_050, report.scanned );
+        assertEquals( 530, report.expired.size() );
+        assertEquals( 156, report.expiringSoon.size() );
+    }
+
+    @Test
+    public void chunksHandedIn_matchAScanOfTheList() {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 1_050; i++ ) foods.add( food( "food " + i, TODAY - 10 + i % 20 ) );
+        ExpiryScanner scanner = new ExpiryScanner( new FakeClock(), UTC, 2, 100 );
+        ExpiryScanner.Report expected = scanner.scan( foods );
+
+        ExpiryScanner.Scan scan = scanner.start();
+        assertFalse( scan.step() );
+        for( int start = 0; start < foods.size(); start += 300 ) {
+            scan.step( foods.subList( start, Math.min( start + 300, foods.size() ) ) );
+        }
+        ExpiryScanner.Report report = scan.finish();
+
+        assertEquals( 1_050, report.scanned );
+        assertEquals( expected.expired, report.expired );
+        assertEquals( expected.expiringSoon, report.expiringSoon );
+    }
+
+    @Test
+    public void stoppingEarly_reportsOnlyWhatWasScanned() {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 500; i++ ) foods.add( food( "food " + i, TODAY - 1 ) );
+
+        ExpiryScanner.Scan scan = new ExpiryScanner( new FakeClock(), UTC, 0, 100 ).start( foods );
+        scan.step();
+        scan.step();
+        ExpiryScanner.Report report = scan.finish();
+
+        assertEquals( 200, report.scanned );
+        assertEquals( 200, report.expired.size() );
+    }
+
+    @Test
+    public void metrics_recordEachRun() {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 250; i++ ) foods.add( food( "food " + i, TODAY + 30 ) );
+
+        ExpiryScanner scanner = new ExpiryScanner( new FakeClock(), UTC, 3, 100 );
+        assertTrue( scanner.scan( foods ).isEmpty() );
+        scanner.scan( foods );
+
+        ExpiryScanner.Metrics metrics = scanner.getMetrics();
+        assertEquals( 2, metrics.runs );
+        assertEquals( 500, metrics.itemsScanned );
+        // Three chunks per run, each timed as one 1000 ns tick of the fake clock.
+        assertEquals( 3_000, metrics.lastRunNanos );
+        assertEquals( 6_000, metrics.totalRunNanos );
+        assertEquals( 1_000, metrics.longestChunkNanos );
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the binary Food format, plus a size comparison against java.io.Serializable. The speed
+ * comparison is SerializationBenchmark in :inventory-benchmarks.
+ */
+public class FoodCodecTest {
+
+    private static Food food( int i ) {
+        Food food = new Food( "Food " + i, "Description " + i, i % 12,
+                new Date( EpochDays.toMillis( 19_000 + i % 400 ) ), FoodCodec.LOCATIONS[ i % 3 ], i % 3, i % 50 );
+        food.setId( i + 1 );
+        return food;
+    }
+
+    private static void assertSameFood( Food expected, Food actual ) {
+        assertEquals( expected.getId(), actual.getId() );
+        assertEquals( expected.getName(), actual.getName() );
+        assertEquals( expected.getDescription(), actual.getDescription() );
+        assertEquals( expected.getCount(), actual.getCount() );
+        assertEquals( expected.getBestBeforeDate(), actual.getBestBeforeDate() );
+        assertEquals( expected.getLocation(), actual.getLocation() );
+        assertEquals( expected.getLocationPosition(), actual.getLocationPosition() );
+        assertEquals( expected.getCost(), actual.getCost() );
+    }
+
+    @Test
+    public void roundTrip_keepsEveryField() {
+        Food food = food( 7 );
+        byte[] bytes = FoodCodec.encode( food );
+        assertEquals( FoodCodec.encodedSize( food ), bytes.length );
+        assertSameFood( food, FoodCodec.decode( bytes ) );
+    }
+
+    @Test
+    public void roundTrip_customLocationAndUnicode() {
+        Food food = new Food( "Cr\u00e8me br\u00fbl\u00e9e \ud83c\udf6e", "", -3, new Date( EpochDays.toMillis( -5 ) ),
+                "Garage", 1, Integer.MAX_VALUE );
+        food.setId( Long.MAX_VALUE );
+        byte[] bytes = FoodCodec.encode( food );
+        assertEquals( FoodCodec.encodedSize( food ), bytes.length );
+        assertSameFood( food, FoodCodec.decode( bytes ) );
+    }
+
+    @Test
+    public void bestBeforeDate_isKeptToTheDay() {
+        long noon = EpochDays.toMillis( 19_500 ) + 12 * 3_600_000L;
+        Food food = new Food( "Milk", "2%", 1, new Date( noon ), "Fridge", 0, 4 );
+        assertEquals( EpochDays.toMillis( 19_500 ), (long) FoodCodec.decode( FoodCodec.encode( food ) ).getBestBeforeDate() );
+    }
+
+    @Test
+    public void givenZone_countsTheDayThere() {
+        TimeZone auckland = TimeZone.getTimeZone( "Pacific/Auckland" );
+        long midnight = EpochDays.toMillis( 19_500, auckland );
+        Food food = new Food( "Milk", "2%", 1, new Date( midnight + 23 * 3_600_000L ), "Fridge", 0, 4 );
+
+        byte[] bytes = FoodCodec.encode( food, auckland );
+        assertEquals( bytes.length, FoodCodec.encodedSize( food, auckland ) );
+        assertEquals( midnight, FoodCodec.decode( bytes, auckland ).getBestBeforeMillis() );
+    }
+
+    @Test
+    public void buffer_holdsFoodsBackToBack() {
+        ByteBuffer buffer = ByteBuffer.allocate( 1024 );
+        for( int i = 0; i < 10; i++ ) FoodCodec.write( buffer, food( i ) );
+        buffer.flip();
+        for( int i = 0; i < 10; i++ ) assertSameFood( food( i ), FoodCodec.read( buffer ) );
+        assertFalse( buffer.hasRemaining() );
+    }
+
+    @Test
+    public void roundTrip_locationPositionOutsideAByte() {
+        for( int position : new int[] { -1, 127, 128, 100_000, Integer.MIN_VALUE } ) {
+            Food food = new Food( "Rice", "", 2, new Date( EpochDays.toMillis( 19_000 ) ), "Garage", position, 3 );
+            byte[] bytes = FoodCodec.encode( food );
+            assertEquals( FoodCodec.encodedSize( food ), bytes.length );
+            assertSameFood( food, FoodCodec.decode( bytes ) );
+        }
+    }
+
+    @Test
+    public void version1_isStillRead() {
+        ByteBuffer buffer = ByteBuffer.allocate( 64 );
+        buffer.put( (byte) 1 );
+        // Position 2 with the custom location bit.
+        buffer.put( (byte) 0x82 );
+        FoodCodec.writeVarint( buffer, 5 );
+        putAscii( buffer, "Rice" );
+        putAscii( buffer, "" );
+        FoodCodec.writeVarint( buffer, FoodCodec.zigZag( 2 ) );
+        FoodCodec.writeVarint( buffer, FoodCodec.zigZag( 3 ) );
+        FoodCodec.writeVarint( buffer, FoodCodec.zigZag( 19_000 ) );
+        putAscii( buffer, "Garage" );
+        buffer.flip();
+
+        Food expected = new Food( "Rice", "", 2, new Date( EpochDays.toMillis( 19_000 ) ), "Garage", 2, 3 );
+        expected.setId( 5 );
+        assertSameFood( expected, FoodCodec.read( buffer ) );
+        assertFalse( buffer.hasRemaining() );
+    }
+
+    private static void putAscii( ByteBuffer buffer, String value ) {
+        FoodCodec.writeVarint( buffer, value.length() );
+        for( int i = 0; i < value.length(); i++ ) buffer.put( (byte) value.charAt( i ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void unknownVersion_isRejected() {
+        byte[] bytes = FoodCodec.encode( food( 1 ) );
+        bytes[ 0 ] = 99;
+        FoodCodec.decode( bytes );
+    }
+
+    @Test
+    public void encoding_isSmallerThanSerializable() throws Exception {
+        Food[] foods = new Food[ 1_000 ];
+        for( int i = 0; i < foods.length; i++ ) foods[ i ] = food( i );
+
+        assertTrue( runCodec( foods ) < runSerializable( foods ) );
+    }
+
+    private static long runCodec( Food[] foods ) {
+        long total = 0;
+        for( Food food : foods ) {
+            byte[] bytes = FoodCodec.encode( food );
+            total += bytes.length;
+            FoodCodec.decode( bytes );
+        }
+        return total;
+    }
+
+    /**
+     * Each food is written on its own stream, the way an Intent extra holds a single Serializable.
+     */
+    private static long runSerializable( Food[] foods ) throws IOException, ClassNotFoundException {
+        long total = 0;
+        for( Food food : foods ) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+                out.writeObject( food );
+            }
+            total += bytes.size();
+            try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) ) {
+                in.readObject();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the column store, plus a footprint comparison against a plain list of foods at
+ * 100k items. The total value scan comparison is TotalsBenchmark in :inventory-benchmarks.
+ */
+public class FoodColumnsTest {
+
+    /**
+     * A food as it comes out of storage: every string is its own instance, even when the text repeats.
+     */
+    private static Food storedFood( Random random, long id ) {
+        int location = random.nextInt( 3 );
+        Food food = new Food( "Product " + random.nextInt( 1000 ), "Brand " + random.nextInt( 200 ),
+                random.nextInt( 12 ), new Date( EpochDays.toMillis( 19_000 + random.nextInt( 400 ) ) ),
+                new String( FoodCodec.LOCATIONS[ location ] ), location, random.nextInt( 50 ) );
+        food.setId( id );
+        return food;
+    }
+
+    private static void assertSameFood( Food expected, Food actual ) {
+        assertEquals( expected.getId(), actual.getId() );
+        assertEquals( expected.getName(), actual.getName() );
+        assertEquals( expected.getDescription(), actual.getDescription() );
+        assertEquals( expected.getCountValue(), actual.getCountValue() );
+        assertEquals( expected.getBestBeforeMillis(), actual.getBestBeforeMillis() );
+        assertEquals( expected.getLocation(), actual.getLocation() );
+        assertEquals( expected.getLocationPosition(), actual.getLocationPosition() );
+        assertEquals( expected.getCostValue(), actual.getCostValue() );
+    }
+
+    @Test
+    public void rows_readBackAsFoods() {
+        FoodColumns columns = new FoodColumns();
+        Food custom = new Food( "Ice", "", 1, new Date( EpochDays.toMillis( 19_100 ) ), "Garage freezer", 2, 3 );
+        custom.setId( 9 );
+        Random random = new Random( 1 );
+        Food stored = storedFood( random, 10 );
+        columns.add( custom );
+        columns.add( stored );
+
+        assertSameFood( custom, columns.get( 0 ) );
+        assertSameFood( stored, columns.get( 1 ) );
+        assertEquals( 1, columns.indexOfId( 10 ) );
+        assertEquals( -1, columns.indexOfId( 11 ) );
+    }
+
+    @Test
+    public void strings_areStoredOnce() {
+        FoodColumns columns = new FoodColumns();
+        for( int i = 0; i < 1000; i++ ) {
+            columns.add( new Food( new String( "Milk" ), new String( "2%" ), 1, new Date( 0 ), "Fridge", 0, 4 ) );
+        }
+        assertEquals( 2, columns.getStringPool().size() );
+        assertSame( columns.getName( 0 ), columns.getName( 999 ) );
+    }
+
+    @Test
+    public void randomEdits_matchAList() {
+        Random random = new Random( 7 );
+        FoodColumns columns = new FoodColumns();
+        List<Food> foods = new ArrayList<>();
+        long nextId = 1;
+
+        for( int i = 0; i < 50_000; i++ ) {
+            int op = random.nextInt( 3 );
+            if( op == 0 || foods.isEmpty() ) {
+                Food food = storedFood( random, nextId++ );
+                foods.add( food );
+                columns.add( food );
+            } else if( op == 1 ) {
+                int row = random.nextInt( foods.size() );
+                Food food = storedFood( random, foods.get( row ).getId() );
+                foods.set( row, food );
+                columns.set( row, food );
+            } else {
+                int row = random.nextInt( foods.size() );
+                foods.remove( row );
+                columns.remove( row );
+            }
+        }
+
+        assertEquals( foods.size(), columns.size() );
+        List<Food> view = columns.asList();
+        for( int i = 0; i < foods.size(); i++ ) assertSameFood( foods.get( i ), view.get( i ) );
+        assertEquals( InventoryTotals.recompute( foods ), columns.totalValue() );
+        // Names and descriptions are drawn from 1200 strings, the pool must not keep every one ever seen.
+        assertTrue( columns.getStringPool().size() <= 1200 + 1024 );
+    }
+
+    @Test
+    public void footprint_100k() {
+        int size = 100_000;
+        Runtime runtime = Runtime.getRuntime();
+
+        long baseline = usedHeap( runtime );
+        List<Food> foods = new ArrayList<>();
+        Random random = new Random( 3 );
+        for( int i = 0; i < size; i++ ) foods.add( storedFood( random, i + 1 ) );
+        long listBytes = usedHeap( runtime ) - baseline;
+
+        baseline = usedHeap( runtime );
+        FoodColumns columns = new FoodColumns();
+        random = new Random( 3 );
+        for( int i = 0; i < size; i++ ) columns.add( storedFood( random, i + 1 ) );
+        long columnBytes = usedHeap( runtime ) - baseline;
+
+        assertEquals( InventoryTotals.recompute( foods ), columns.totalValue() );
+        assertEquals( size, foods.size() );
+        assertTrue( columnBytes < listBytes / 2 );
+    }
+
+    private static long usedHeap( Runtime runtime ) {
+        for( int i = 0; i < 3; i++ ) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
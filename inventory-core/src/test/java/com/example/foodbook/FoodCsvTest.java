@@ -0,0 +1,216 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CSV import and export, including a streamed import of a million rows.
+ */
+public class FoodCsvTest {
+
+    private static final long TODAY = 19_000;
+
+    /**
+     * Collects everything the import reports.
+     */
+    private static class Collector implements FoodCsv.ImportListener {
+        final List<Food> foods = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int batches;
+        long lastProgress;
+
+        @Override
+        public void onBatch( List<Food> batch ) {
+            batches++;
+            foods.addAll( batch );
+        }
+
+        @Override
+        public void onProgress( long rowsRead ) { lastProgress = rowsRead; }
+
+        @Override
+        public void onRowError( long line, String message ) { errors.add( line + ": " + message ); }
+    }
+
+    private static Collector read( String csv, int batchSize ) throws IOException {
+        Collector collector = new Collector();
+        FoodCsv.read( new StringReader( csv ), batchSize, TODAY, collector );
+        return collector;
+    }
+
+    @Test
+    public void quotedFields_keepCommasQuotesAndNewlines() throws IOException {
+        Collector result = read( FoodCsv.HEADER + "\r\n"
+                + "\"Milk, 2%\",\"Said \"\"fresh\"\"\nyesterday\",2,2022-10-01,Fridge,4\r\n", 10 );
+        assertTrue( result.errors.isEmpty() );
+        Food milk = result.foods.get( 0 );
+        assertEquals( "Milk, 2%", milk.getName() );
+        assertEquals( "Said \"fresh\"\nyesterday", milk.getDescription() );
+        assertEquals( 2, milk.getCountValue() );
+        assertEquals( 4, milk.getCostValue() );
+        assertEquals( 0, milk.getLocationPosition() );
+    }
+
+    @Test
+    public void missingRequiredFields_areReportedAndSkipped() throws IOException {
+        Collector result = read( "Eggs,,12,,Pantry,3\n"
+                + ",,1,,,1\n"
+                + "Bread,,,,,2\n"
+                + "Jam,,1,,Cellar,2\n"
+                + "Rice,,one,,,2\n"
+                + "Beans,,1,2022-13-01,,2\n"
+                + "Peas,,1,,freezer,2.75\n"
+                + "Tea,,1,,,NaN\n"
+                + "Salt,,1,,,Infinity\n"
+                + "Gold,,1,,,1e20\n", 2 );
+        assertEquals( 3, result.foods.size() );
+        assertEquals( 7, result.errors.size() );
+        assertTrue( result.errors.get( 0 ).startsWith( "2:" ) );
+        assertTrue( result.errors.get( 6 ).startsWith( "10:" ) );
+        assertEquals( 10, result.lastProgress );
+
+        Food eggs = result.foods.get( 0 );
+        assertEquals( 1, eggs.getLocationPosition() );
+        assertEquals( TODAY, EpochDays.fromMillis( eggs.getBestBeforeMillis() ) );
+        Food jam = result.foods.get( 1 );
+        assertEquals( "Cellar", jam.getLocation() );
+        assertEquals( FoodCsv.CUSTOM_LOCATION_POSITION, jam.getLocationPosition() );
+        Food peas = result.foods.get( 2 );
+        assertEquals( "Freezer", peas.getLocation() );
+        assertEquals( 2, peas.getLocationPosition() );
+        assertEquals( 2, peas.getCostValue() );
+    }
+
+    @Test
+    public void foods_areHandedOverInBatches() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for( int i = 0; i < 25; i++ ) csv.append( "Food " ).append( i ).append( ",,1,,,1\n" );
+        Collector result = read( csv.toString(), 10 );
+        assertEquals( 25, result.foods.size() );
+        assertEquals( 3, result.batches );
+    }
+
+    @Test
+    public void export_readsBackTheSame() throws IOException {
+        List<Food> foods = Arrays.asList(
+                new Food( "Cr\u00e8me, fra\u00eeche", "Tub \"large\"", 1, new Date( EpochDays.toMillis( 19_100 ) ), "Fridge", 0, 6 ),
+                new Food( "Oats", "", 3, new Date( EpochDays.toMillis( 19_400 ) ), "Pantry", 1, 2 ),
+                new Food( "Paint", "", 1, new Date( EpochDays.toMillis( 19_400 ) ), "Garage",
+                        FoodCsv.CUSTOM_LOCATION_POSITION, 30 ) );
+        StringWriter out = new StringWriter();
+        FoodCsv.write( out, foods );
+
+        Collector result = read( out.toString(), 10 );
+        assertTrue( result.errors.isEmpty() );
+        assertEquals( foods.size(), result.foods.size() );
+        for( int i = 0; i < foods.size(); i++ ) {
+            Food expected = foods.get( i );
+            Food actual = result.foods.get( i );
+            assertEquals( expected.getName(), actual.getName() );
+            assertEquals( expected.getDescription(), actual.getDescription() );
+            assertEquals( expected.getCountValue(), actual.getCountValue() );
+            assertEquals( expected.getBestBeforeMillis(), actual.getBestBeforeMillis() );
+            assertEquals( expected.getLocation(), actual.getLocation() );
+            assertEquals( expected.getLocationPosition(), actual.getLocationPosition() );
+            assertEquals( expected.getCostValue(), actual.getCostValue() );
+        }
+    }
+
+    @Test( expected = IOException.class )
+    public void unterminatedQuote_failsTheImport() throws IOException {
+        read( "\"Milk,,1,,,1\n", 10 );
+    }
+
+    @Test
+    public void negativeCountOrCost_isARowError() throws IOException {
+        Collector result = read( "Milk,,-1,,,2\n"
+                + "Eggs,,12,,,-3\n"
+                + "Rice,,1,,,-0.5\n"
+                + "Tea,,0,,,0\n", 10 );
+        assertEquals( 1, result.foods.size() );
+        assertEquals( "Tea", result.foods.get( 0 ).getName() );
+        assertEquals( 3, result.errors.size() );
+        assertEquals( "1: Count must not be negative", result.errors.get( 0 ) );
+        assertEquals( "2: Cost must not be negative", result.errors.get( 1 ) );
+    }
+
+    @Test
+    public void unterminatedQuoteInALongFile_stopsAtTheFieldLimit() {
+        StringBuilder csv = new StringBuilder( "\"Milk,,1,,,1\n" );
+        while( csv.length() <= 2 * FoodCsv.MAX_FIELD_LENGTH ) csv.append( "Food,,1,,,1\n" );
+        try {
+            read( csv.toString(), 10 );
+            fail();
+        } catch ( IOException e ) {
+            assertEquals( "Field longer than " + FoodCsv.MAX_FIELD_LENGTH + " characters on line 1", e.getMessage() );
+        }
+    }
+
+    @Test
+    public void millionRows_areStreamedInBatches() throws IOException {
+        int rows = 1_000_000;
+        final int[] largest = new int[ 1 ];
+        final long[] lastId = new long[ 1 ];
+        Collector counter = new Collector() {
+            @Override
+            public void onBatch( List<Food> batch ) {
+                batches++;
+                largest[ 0 ] = Math.max( largest[ 0 ], batch.size() );
+                lastId[ 0 ] += batch.size();
+                assertEquals( "Food " + lastId[ 0 ], batch.get( batch.size() - 1 ).getName() );
+            }
+        };
+
+        // Rows are generated as they are read so the file itself never sits in memory.
+        FoodCsv.Result result = FoodCsv.read( new GeneratedCsv( rows ), 500, TODAY, counter );
+
+        assertEquals( rows, result.rows );
+        assertEquals( 0, result.rejected );
+        assertEquals( rows / 500, counter.batches );
+        assertEquals( 500, largest[ 0 ] );
+        assertEquals( rows, lastId[ 0 ] );
+        assertEquals( rows, counter.lastProgress );
+    }
+
+    /**
+     * A Reader producing rows of CSV on demand.
+     */
+    private static class GeneratedCsv extends Reader {
+        private final int rows;
+        private int row = -1;
+        private String current = "";
+        private int offset;
+
+        GeneratedCsv( int rows ) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read( char[] buffer, int off, int len ) {
+            if( offset == current.length() ) {
+                if( ++row > rows ) return -1;
+                current = row == 0 ? FoodCsv.HEADER + "\n"
+                        : "\"Food " + row + "\",Description " + row + "," + row % 12 + ",2023-0"
+                          + ( 1 + row % 9 ) + "-1" + row % 10 + "," + FoodCodec.LOCATIONS[ row % 3 ] + "," + row % 50 + "\n";
+                offset = 0;
+            }
+            int count = Math.min( len, current.length() - offset );
+            current.getChars( offset, offset + count, buffer, off );
+            offset += count;
+            return count;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
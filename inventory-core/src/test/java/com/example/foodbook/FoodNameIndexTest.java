@@ -0,0 +1,213 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the name index and the merge of duplicate foods into stored lots. The insert time
+ * is InsertBenchmark in :inventory-benchmarks.
+ */
+public class FoodNameIndexTest {
+
+    private static Food food( long id, String name, int count, long day, int location, int cost ) {
+        Food food = new Food( name, "Item", count, new Date( EpochDays.toMillis( day ) ),
+                FoodCodec.LOCATIONS[ location ], location, cost );
+        food.setId( id );
+        return food;
+    }
+
+    private static List<Long> ids( List<Food> foods ) {
+        List<Long> ids = new ArrayList<>();
+        for( Food food : foods ) ids.add( food.getId() );
+        return ids;
+    }
+
+    @Test
+    public void normalize_foldsCaseAndSpaces() {
+        assertEquals( "whole milk", FoodNameIndex.normalize( "  Whole \t MILK \n" ) );
+        assertEquals( "eggs", FoodNameIndex.normalize( "eggs" ) );
+        assertEquals( "", FoodNameIndex.normalize( "   " ) );
+    }
+
+    @Test
+    public void find_isBucketedByLocation() {
+        FoodNameIndex index = new FoodNameIndex();
+        index.add( food( 1, "Milk", 1, 100, 0, 2 ) );
+        index.add( food( 2, "milk ", 1, 105, 0, 2 ) );
+        index.add( food( 3, "Milk", 1, 100, 2, 2 ) );
+        index.add( food( 4, "Bread", 1, 100, 1, 2 ) );
+
+        assertEquals( 4, index.size() );
+        assertEquals( Arrays.asList( 1L, 2L ), ids( index.find( " MILK", 0 ) ) );
+        assertEquals( Collections.singletonList( 3L ), ids( index.find( "milk", 2 ) ) );
+        assertTrue( index.find( "milk", 1 ).isEmpty() );
+        assertTrue( index.find( "milk", 7 ).isEmpty() );
+        assertTrue( index.find( "cheese", 0 ).isEmpty() );
+    }
+
+    @Test
+    public void customLocations_haveBucketsOfTheirOwn() {
+        FoodNameIndex index = new FoodNameIndex();
+        Food garage = new Food( "Water", "Item", 6, new Date( 0 ), "Garage", -1, 1 );
+        garage.setId( 1 );
+        Food shed = new Food( "Water", "Item", 6, new Date( 0 ), "Shed", 1_000_000, 1 );
+        shed.setId( 2 );
+        index.add( garage );
+        index.add( shed );
+
+        assertEquals( Collections.singletonList( 1L ), ids( index.find( "water", -1 ) ) );
+        assertEquals( Collections.singletonList( 2L ), ids( index.find( "water", 1_000_000 ) ) );
+        assertTrue( index.find( "water", -2 ).isEmpty() );
+        assertTrue( index.remove( garage ) );
+        assertFalse( index.remove( garage ) );
+        assertEquals( 1, index.size() );
+    }
+
+    @Test
+    public void index_followsEditsAndDeletes() {
+        Inventory inventory = new Inventory();
+        Food milk = food( 1, "Milk", 2, 100, 0, 2 );
+        Food older = food( 2, "Milk", 1, 90, 0, 2 );
+        inventory.add( milk );
+        inventory.add( older );
+        List<Food> before = inventory.getNameIndex().find( "milk", 0 );
+
+        // A count change keeps the lot where it was.
+        Food counted = food( 1, "Milk", 5, 100, 0, 2 );
+        inventory.replace( 0, counted );
+        assertSame( counted, inventory.getNameIndex().find( "milk", 0 ).get( 0 ) );
+        assertEquals( 2, before.get( 0 ).getCountValue() );
+
+        // A move takes it to the other location's bucket.
+        inventory.applyEdit( 1, 0, FoodDelta.diff( counted, food( 1, "Milk", 5, 100, 2, 2 ) ) );
+        assertEquals( Collections.singletonList( 2L ), ids( inventory.getNameIndex().find( "milk", 0 ) ) );
+        assertEquals( Collections.singletonList( 1L ), ids( inventory.getNameIndex().find( "milk", 2 ) ) );
+
+        inventory.remove( inventory.get( 1 ) );
+        assertTrue( inventory.getNameIndex().find( "milk", 0 ).isEmpty() );
+
+        inventory.addAll( Arrays.asList( food( 3, "Eggs", 6, 120, 0, 3 ), food( 4, "Eggs", 6, 121, 0, 3 ) ) );
+        inventory.replaceAll( Collections.singletonList( food( 4, "Eggs", 12, 121, 1, 3 ) ) );
+        assertEquals( Collections.singletonList( 3L ), ids( inventory.getNameIndex().find( "eggs", 0 ) ) );
+        assertEquals( Collections.singletonList( 4L ), ids( inventory.getNameIndex().find( "eggs", 1 ) ) );
+        inventory.removeAll( Arrays.asList( food( 3, "Eggs", 6, 120, 0, 3 ), food( 1, "Milk", 5, 100, 2, 2 ) ) );
+        assertEquals( 1, inventory.getNameIndex().size() );
+        assertTrue( inventory.getNameIndex().find( "eggs", 0 ).isEmpty() );
+    }
+
+    @Test
+    public void findMergeTarget_onlyMatchesTheSameDay() {
+        Inventory inventory = new Inventory();
+        inventory.add( food( 1, "Yogurt", 4, 200, 0, 1 ) );
+        inventory.add( food( 2, "Yogurt", 4, 210, 0, 1 ) );
+
+        assertEquals( 2, inventory.findMergeTarget( food( 0, " yogurt", 2, 210, 0, 1 ) ).getId() );
+        // Another best before date is kept as a lot of its own.
+        assertNull( inventory.findMergeTarget( food( 0, "Yogurt", 2, 205, 0, 1 ) ) );
+        // So is the same item in another location.
+        assertNull( inventory.findMergeTarget( food( 0, "Yogurt", 2, 210, 1, 1 ) ) );
+    }
+
+    @Test
+    public void merge_addsCountsAndKeepsTheValue() {
+        Inventory inventory = new Inventory();
+        inventory.add( food( 1, "Bread", 1, 100, 1, 3 ) );
+        Food lot = food( 2, "Milk", 2, 100, 0, 2 );
+        inventory.add( lot );
+
+        Food merged = inventory.merge( lot, food( 0, "MILK", 3, 100, 0, 4 ) );
+
+        assertEquals( 2, merged.getId() );
+        assertEquals( "Milk", merged.getName() );
+        assertEquals( 5, merged.getCountValue() );
+        // ( 2 * 2 + 3 * 4 ) / 5 = 3.2
+        assertEquals( 3, merged.getCostValue() );
+        assertEquals( 2, inventory.size() );
+        assertSame( merged, inventory.get( 1 ) );
+        assertEquals( 3 + 5 * 3, inventory.getTotals().getTotal() );
+        assertEquals( Collections.singletonList( merged ), inventory.getNameIndex().find( "milk", 0 ) );
+
+        // A position which is out of date is searched past.
+        Food again = inventory.merge( merged, 0, food( 0, "Milk", 1, 100, 0, 3 ) );
+        assertEquals( 6, again.getCountValue() );
+        assertSame( again, inventory.get( 1 ) );
+
+        inventory.remove( again );
+        assertNull( inventory.merge( lot, food( 0, "Milk", 1, 100, 0, 2 ) ) );
+    }
+
+    @Test
+    public void randomChanges_matchAScan() {
+        Random random = new Random( 7 );
+        String[] names = { "Milk", "milk", "Eggs", " EGGS ", "Bread", "Cheese" };
+        Inventory inventory = new Inventory();
+        long nextId = 1;
+        for( int step = 0; step < 5000; step++ ) {
+            int action = random.nextInt( 4 );
+            if( action < 2 || inventory.size() == 0 ) {
+                inventory.add( food( nextId++, names[ random.nextInt( names.length ) ], 1, 100 + random.nextInt( 3 ),
+                        random.nextInt( 3 ), 1 ) );
+            } else if( action == 2 ) {
+                int index = random.nextInt( inventory.size() );
+                Food stored = inventory.get( index );
+                inventory.replace( index, food( stored.getId(), names[ random.nextInt( names.length ) ], 2,
+                        100 + random.nextInt( 3 ), random.nextInt( 3 ), 1 ) );
+            } else {
+                inventory.remove( inventory.get( random.nextInt( inventory.size() ) ) );
+            }
+        }
+
+        assertEquals( inventory.size(), inventory.getNameIndex().size() );
+        for( String name : names ) {
+            for( int location = 0; location < 3; location++ ) {
+                List<Long> scanned = new ArrayList<>();
+                for( Food food : inventory.getFoods() ) {
+                    if( food.getLocationPosition() == location
+                            && FoodNameIndex.normalize( food.getName() ).equals( FoodNameIndex.normalize( name ) ) ) {
+                        scanned.add( food.getId() );
+                    }
+                }
+                List<Long> found = ids( inventory.getNameIndex().find( name, location ) );
+                Collections.sort( found );
+                Collections.sort( scanned );
+                assertEquals( scanned, found );
+            }
+        }
+    }
+
+    /**
+     * Adds 100,000 foods, checking each for a lot to merge into first as the app does, with one in
+     * five a duplicate of a stored food.
+     */
+    @Test
+    public void hundredThousandInserts_mergeEveryDuplicate() {
+        int size = 100_000;
+        Random random = new Random( 3 );
+        Inventory inventory = new Inventory();
+        int merged = 0;
+        for( int i = 0; i < size; i++ ) {
+            int item = random.nextInt( 5 ) == 0 && i > 0 ? random.nextInt( i ) : i;
+            Food food = food( i + 1, "Food " + item, 1, 19_000 + item % 400, item % 3, 2 );
+            Food lot = inventory.findMergeTarget( food );
+            if( lot == null ) {
+                inventory.add( food );
+            } else {
+                inventory.merge( lot, food );
+                merged++;
+            }
+        }
+
+        assertTrue( merged > 0 );
+        assertEquals( size - merged, inventory.size() );
+        assertEquals( inventory.size(), inventory.getNameIndex().size() );
+        assertEquals( 2L * size, inventory.getTotals().getTotal() );
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the search index, checked against filtering the list directly. Query times at
+ * 100k foods are SearchBenchmark in :inventory-benchmarks.
+ */
+public class FoodSearchIndexTest {
+
+    private static final String[] NAMES = { "Milk", "Almond milk", "Cheddar cheese", "Bread", "Brown rice",
+            "Rice noodles", "Frozen peas", "Chicken breast", "Broccoli", "Apple juice" };
+    private static final String[] DESCRIPTIONS = { "", "organic", "2% fat", "whole grain", "family pack", "on sale" };
+
+    private static long nextId = 1;
+
+    private static Food food( Random random ) {
+        int location = random.nextInt( 3 );
+        Food food = new Food( NAMES[ random.nextInt( NAMES.length ) ] + " " + random.nextInt( 1000 ),
+                DESCRIPTIONS[ random.nextInt( DESCRIPTIONS.length ) ], random.nextInt( 20 ), new Date( 0 ),
+                FoodCodec.LOCATIONS[ location ], location, random.nextInt( 50 ) );
+        food.setId( nextId++ );
+        return food;
+    }
+
+    /** The same filter applied by walking every food. */
+    private static List<Food> filter( List<Food> foods, FoodFilter filter ) {
+        String[] prefixes = FoodSearchIndex.tokenize( filter.text );
+        List<Food> result = new ArrayList<>();
+        for( Food food : foods ) {
+            if( filter.locationPosition != FoodFilter.ANY_LOCATION && food.getLocationPosition() != filter.locationPosition ) continue;
+            if( food.getCost() < filter.minCost || food.getCost() > filter.maxCost || food.getCount() < filter.minCount ) continue;
+            String[] words = FoodSearchIndex.tokenize( food.getName() + " " + food.getDescription() );
+            boolean all = true;
+            for( String prefix : prefixes ) {
+                boolean any = false;
+                for( String word : words ) any |= word.startsWith( prefix );
+                all &= any;
+            }
+            if( all ) result.add( food );
+        }
+        return result;
+    }
+
+    private static FoodFilter randomFilter( Random random ) {
+        String[] texts = { "", "m", "mil", "milk", "br", "rice", "ch", "org", "2", "apple j", "xyz" };
+        int location = random.nextInt( 4 ) - 1;
+        int minCost = random.nextBoolean() ? Integer.MIN_VALUE : random.nextInt( 25 );
+        int maxCost = random.nextBoolean() ? Integer.MAX_VALUE : 25 + random.nextInt( 25 );
+        int minCount = random.nextBoolean() ? Integer.MIN_VALUE : random.nextInt( 10 );
+        return new FoodFilter( texts[ random.nextInt( texts.length ) ], location, minCost, maxCost, minCount );
+    }
+
+    @Test
+    public void prefixSearch_matchesWordStartsOfNameAndDescription() {
+        FoodSearchIndex index = new FoodSearchIndex();
+        Food milk = new Food( "Almond Milk", "unsweetened", 1, new Date( 0 ), "Fridge", 0, 4 );
+        milk.setId( 1 );
+        Food bread = new Food( "Bread", "whole grain", 1, new Date( 0 ), "Pantry", 1, 3 );
+        bread.setId( 2 );
+        index.add( milk );
+        index.add( bread );
+
+        assertEquals( 1, index.query( FoodFilter.text( "mil" ) ).size() );
+        assertEquals( 1, index.query( FoodFilter.text( "GRAIN" ) ).size() );
+        assertEquals( 0, index.query( FoodFilter.text( "lmond" ) ).size() );
+        assertEquals( 2, index.query( FoodFilter.text( "" ) ).size() );
+        assertEquals( 1, index.query( new FoodFilter( "", 1, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE ) ).size() );
+    }
+
+    @Test
+    public void edit_reindexesOnlyThatFood() {
+        FoodSearchIndex index = new FoodSearchIndex();
+        Food peas = new Food( "Peas", "garden", 1, new Date( 0 ), "Freezer", 2, 2 );
+        peas.setId( 1 );
+        index.add( peas );
+
+        Food edited = new Food( "Peas", "snap", 1, new Date( 0 ), "Fridge", 0, 2 );
+        edited.setId( 1 );
+        index.update( edited );
+
+        assertTrue( index.query( FoodFilter.text( "garden" ) ).isEmpty() );
+        assertSame( edited, index.query( FoodFilter.text( "snap" ) ).get( 0 ) );
+        assertTrue( index.query( new FoodFilter( "", 2, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE ) ).isEmpty() );
+    }
+
+    @Test
+    public void randomMutations_matchDirectFiltering() {
+        Random random = new Random( 5 );
+        List<Food> foods = new ArrayList<>();
+        FoodSearchIndex index = new FoodSearchIndex();
+
+        for( int round = 0; round < 3_000; round++ ) {
+            int op = random.nextInt( 4 );
+            if( op < 2 || foods.isEmpty() ) {
+                Food food = food( random );
+                foods.add( food );
+                index.add( food );
+            } else if( op == 2 ) {
+                int position = random.nextInt( foods.size() );
+                Food edited = food( random );
+                edited.setId( foods.get( position ).getId() );
+                foods.set( position, edited );
+                index.update( edited );
+            } else {
+                index.remove( foods.remove( random.nextInt( foods.size() ) ) );
+            }
+
+            if( round % 50 == 0 ) {
+                FoodFilter filter = randomFilter( random );
+                assertEquals( filter( foods, filter ), index.query( filter ) );
+            }
+        }
+        assertEquals( foods.size(), index.size() );
+    }
+
+    @Test
+    public void typeAheadAt100k_matchesFiltering() {
+        Random random = new Random( 9 );
+        List<Food> foods = new ArrayList<>();
+        FoodSearchIndex index = new FoodSearchIndex();
+        for( int i = 0; i < 100_000; i++ ) {
+            Food food = food( random );
+            foods.add( food );
+            index.add( food );
+        }
+
+        String[] typed = { "c", "ch", "chi", "chic", "chick", "chicken", "chicken b" };
+        for( String text : typed ) {
+            FoodFilter filter = new FoodFilter( text, 0, Integer.MIN_VALUE, 30, 1 );
+            assertEquals( filter( foods, filter ), index.query( filter ) );
+        }
+
+        Food edited = food( random );
+        edited.setId( foods.get( 500 ).getId() );
+        foods.set( 500, edited );
+        index.update( edited );
+        FoodFilter filter = FoodFilter.text( "chicken" );
+        assertEquals( filter( foods, filter ), index.query( filter ) );
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the persistent food vector, checked against an ArrayList doing the same random
+ * appends, replacements and removals.
+ */
+public class FoodVectorTest {
+
+    private static Food food( long id ) {
+        Food food = new Food( "Food " + id, "Item", 1, new Date( 0 ), "Fridge", 0, 1 );
+        food.setId( id );
+        return food;
+    }
+
+    private static void assertSame( List<Food> expected, FoodVector vector ) {
+        assertEquals( expected.size(), vector.size() );
+        for( int i = 0; i < expected.size(); i++ ) assertTrue( "at " + i, expected.get( i ) == vector.get( i ) );
+        int index = 0;
+        for( Food food : vector ) assertTrue( "iterating at " + index, expected.get( index++ ) == food );
+        assertEquals( expected.size(), index );
+    }
+
+    @Test
+    public void randomChanges_matchAnArrayList() {
+        Random random = new Random( 7 );
+        List<Food> expected = new ArrayList<>();
+        FoodVector vector = FoodVector.empty();
+        long nextId = 1;
+        for( int step = 0; step < 40_000; step++ ) {
+            int op = random.nextInt( 10 );
+            if( op < 5 || expected.isEmpty() ) {
+                Food food = food( nextId++ );
+                expected.add( food );
+                vector = vector.plus( food );
+            } else if( op < 7 ) {
+                int index = random.nextInt( expected.size() );
+                Food food = food( nextId++ );
+                expected.set( index, food );
+                vector = vector.with( index, food );
+            } else if( op < 9 ) {
+                int index = random.nextInt( expected.size() );
+                expected.remove( index );
+                vector = vector.minus( index );
+            } else {
+                List<Food> added = new ArrayList<>();
+                for( int i = random.nextInt( 100 ); i > 0; i-- ) added.add( food( nextId++ ) );
+                expected.addAll( added );
+                vector = vector.plusAll( added );
+            }
+            if( step % 1000 == 0 ) assertSame( expected, vector );
+        }
+        assertSame( expected, vector );
+        while( !expected.isEmpty() ) {
+            int index = random.nextInt( expected.size() );
+            expected.remove( index );
+            vector = vector.minus( index );
+        }
+        assertSame( expected, vector );
+        assertTrue( vector.isEmpty() );
+    }
+
+    @Test
+    public void changes_leaveOlderVersionsAlone() {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 5000; i++ ) foods.add( food( i + 1 ) );
+        FoodVector original = FoodVector.of( foods );
+
+        FoodVector edited = original.with( 1234, food( 9999 ) ).minus( 10 ).plus( food( 10_000 ) );
+
+        assertSame( foods, original );
+        assertEquals( 9999, edited.get( 1233 ).getId() );
+        assertEquals( 12, edited.get( 10 ).getId() );
+        assertEquals( 10_000, edited.get( 4999 ).getId() );
+        assertEquals( 1234, original.indexOf( foods.get( 1234 ) ) );
+        assertEquals( -1, edited.indexOf( foods.get( 1234 ) ) );
+    }
+
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void get_outOfRange_throws() {
+        FoodVector.empty().plus( food( 1 ) ).get( 1 );
+    }
+
+    /**
+     * Editing one food of a 1M food vector copies a few small arrays, a path from the root to the leaf,
+     * rather than the list. A copy would allocate over 4 MB per edit.
+     */
+    @Test
+    public void edit_doesNotCopyTheList() {
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 1_000_000; i++ ) foods.add( food( i + 1 ) );
+        FoodVector large = FoodVector.of( foods );
+        Food replacement = food( 0 );
+        Random random = new Random( 1 );
+        for( int i = 0; i < 1000; i++ ) large.with( random.nextInt( 1_000_000 ), replacement );
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes( thread );
+        FoodVector edited = large;
+        for( int i = 0; i < 1000; i++ ) edited = edited.with( random.nextInt( 1_000_000 ), replacement );
+        long allocated = threads.getThreadAllocatedBytes( thread ) - before;
+
+        assertTrue( allocated + " bytes", allocated < 1000 * 16_384L );
+        assertEquals( large.size(), edited.size() );
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the batch delete, move and count operations of the inventory. How deleting k of
+ * n foods scales is measured by BatchDeleteBenchmark in :inventory-benchmarks.
+ */
+public class InventoryBatchTest {
+
+    private static final FoodSortOrder BY_EXPIRY =
+            new FoodSortOrder( FoodSortOrder.Key.EXPIRY, FoodSortOrder.Key.NAME, false );
+
+    private static List<Food> foods( int size ) {
+        Random random = new Random( size );
+        List<Food> foods = new ArrayList<>( size );
+        for( int i = 0; i < size; i++ ) {
+            int location = random.nextInt( 3 );
+            // Every name shares the word "food" so its posting list is as long as the inventory.
+            Food food = new Food( "Food " + i, "Item", random.nextInt( 12 ),
+                    new Date( EpochDays.toMillis( 19_000 + random.nextInt( 400 ) ) ), FoodCodec.LOCATIONS[ location ],
+                    location, random.nextInt( 50 ) );
+            food.setId( i + 1 );
+            foods.add( food );
+        }
+        return foods;
+    }
+
+    private static Inventory inventory( List<Food> foods ) {
+        Inventory inventory = new Inventory();
+        inventory.setSortOrder( BY_EXPIRY );
+        inventory.addAll( foods );
+        return inventory;
+    }
+
+    /**
+     * Every n-th food, the same selection no matter the order the foods are in.
+     */
+    private static List<Food> everyNth( List<Food> foods, int n ) {
+        List<Food> picked = new ArrayList<>();
+        for( int i = 0; i < foods.size(); i += n ) picked.add( foods.get( i ) );
+        return picked;
+    }
+
+    private static void assertConsistent( Inventory inventory ) {
+        assertEquals( InventoryTotals.recompute( inventory.getFoods() ), inventory.getTotals().getTotal() );
+        assertEquals( inventory.size(), inventory.getExpiryIndex().size() );
+        assertEquals( inventory.size(), inventory.getSearchIndex().size() );
+        assertEquals( inventory.size(), inventory.getDisplayedFoods().size() );
+        assertEquals( inventory.size(), inventory.getSearchIndex().query( FoodFilter.text( "food" ) ).size() );
+    }
+
+    @Test
+    public void removeAll_matchesRemovingOneAtATime() {
+        List<Food> foods = foods( 2_000 );
+        Inventory batch = inventory( foods );
+        Inventory single = inventory( foods );
+        List<Food> removed = everyNth( foods, 3 );
+
+        assertEquals( removed.size(), batch.removeAll( removed ).size() );
+        for( Food food : removed ) single.remove( food );
+
+        assertEquals( single.getFoods(), batch.getFoods() );
+        assertEquals( single.getDisplayedFoods(), batch.getDisplayedFoods() );
+        assertEquals( single.getTotals().getTotal(), batch.getTotals().getTotal() );
+        assertConsistent( batch );
+    }
+
+    @Test
+    public void removeAll_ignoresFoodsNotInTheInventory() {
+        List<Food> foods = foods( 10 );
+        Inventory inventory = inventory( foods.subList( 0, 5 ) );
+        assertEquals( 2, inventory.removeAll( foods.subList( 3, 10 ) ).size() );
+        assertEquals( 3, inventory.size() );
+        assertConsistent( inventory );
+    }
+
+    @Test
+    public void moveAndAdjust_updateTotalsAndFilters() {
+        List<Food> foods = foods( 1_000 );
+        Inventory inventory = inventory( foods );
+        List<Food> selected = everyNth( foods, 4 );
+
+        inventory.replaceAll( BatchEdits.moveTo( selected, 2 ) );
+        assertConsistent( inventory );
+        FoodFilter freezer = new FoodFilter( "", 2, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE );
+        List<Food> inFreezer = inventory.getSearchIndex().query( freezer );
+        for( Food food : selected ) assertTrue( inFreezer.stream().anyMatch( f -> f.getId() == food.getId() ) );
+
+        List<Food> before = new ArrayList<>( inventory.getFoods() );
+        inventory.replaceAll( BatchEdits.adjustCount( everyNth( before, 4 ), -100 ) );
+        assertConsistent( inventory );
+        for( int i = 0; i < before.size(); i += 4 ) assertEquals( 0, inventory.get( i ).getCountValue() );
+        for( int i = 1; i < before.size(); i += 4 ) {
+            assertEquals( before.get( i ).getCountValue(), inventory.get( i ).getCountValue() );
+        }
+    }
+
+    @Test
+    public void replaceAll_returnsOnlyTheFoodsItReplaced() {
+        List<Food> foods = foods( 10 );
+        Inventory inventory = inventory( foods );
+        List<Food> selected = foods.subList( 2, 6 );
+        inventory.removeAll( foods.subList( 3, 5 ) );
+
+        Inventory.Replacement replaced = inventory.replaceAll( BatchEdits.adjustCount( selected, 1 ) );
+        assertEquals( 2, replaced.before.size() );
+        assertEquals( 2, replaced.after.size() );
+        assertSame( foods.get( 2 ), replaced.before.get( 0 ) );
+        assertSame( foods.get( 5 ), replaced.before.get( 1 ) );
+        assertEquals( foods.get( 5 ).getId(), replaced.after.get( 1 ).getId() );
+        assertEquals( foods.get( 5 ).getCountValue() + 1, replaced.after.get( 1 ).getCountValue() );
+        assertEquals( 8, inventory.size() );
+        assertConsistent( inventory );
+
+        assertTrue( inventory.replaceAll( BatchEdits.adjustCount( foods.subList( 3, 5 ), 1 ) ).isEmpty() );
+    }
+
+    @Test
+    public void findAll_resolvesIdsToTheFoodsStoredNow() {
+        List<Food> foods = foods( 10 );
+        Inventory inventory = inventory( foods );
+        Set<Long> ids = new HashSet<>( Arrays.asList( foods.get( 2 ).getId(), foods.get( 4 ).getId(), 99L ) );
+
+        // Two count changes in a row, each based on what is stored rather than what was shown.
+        inventory.replaceAll( BatchEdits.adjustCount( inventory.findAll( ids ), 1 ) );
+        inventory.replaceAll( BatchEdits.adjustCount( inventory.findAll( ids ), 1 ) );
+        inventory.removeAll( foods.subList( 4, 5 ) );
+
+        List<Food> found = inventory.findAll( ids );
+        assertEquals( 1, found.size() );
+        assertEquals( foods.get( 2 ).getId(), found.get( 0 ).getId() );
+        assertEquals( foods.get( 2 ).getCountValue() + 2, found.get( 0 ).getCountValue() );
+        assertTrue( inventory.findAll( new HashSet<>() ).isEmpty() );
+    }
+
+    @Test
+    public void presortedOrder_isSortedAgainOnlyIfTheInventoryChanged() {
+        List<Food> foods = foods( 500 );
+        Inventory inventory = new Inventory();
+        inventory.addAll( foods );
+
+        InventorySnapshot snapshot = inventory.getSnapshot();
+        SortedFoodList sorted = new SortedFoodList( BY_EXPIRY );
+        sorted.setAll( snapshot.asList() );
+        inventory.setSortOrder( sorted, snapshot.getVersion() );
+        assertEquals( SortedFoodList.sort( foods, BY_EXPIRY ), inventory.getDisplayedFoods() );
+
+        snapshot = inventory.getSnapshot();
+        sorted = new SortedFoodList( BY_EXPIRY );
+        sorted.setAll( snapshot.asList() );
+        inventory.removeAll( everyNth( foods, 2 ) );
+        inventory.setSortOrder( sorted, snapshot.getVersion() );
+        assertEquals( SortedFoodList.sort( inventory.getFoods(), BY_EXPIRY ), inventory.getDisplayedFoods() );
+        assertConsistent( inventory );
+    }
+}
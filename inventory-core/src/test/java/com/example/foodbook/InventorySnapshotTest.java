@@ -0,0 +1,160 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the published inventory snapshots, plus a stress test of readers checking every
+ * snapshot they see while a writer keeps changing the inventory.
+ */
+public class InventorySnapshotTest {
+
+    private static Food food( Random random, long id ) {
+        int location = random.nextInt( 3 );
+        Food food = new Food( "Food " + id, "Item", random.nextInt( 12 ), new Date( EpochDays.toMillis( 19_000 + random.nextInt( 400 ) ) ),
+                FoodCodec.LOCATIONS[ location ], location, random.nextInt( 50 ) );
+        food.setId( id );
+        return food;
+    }
+
+    @Test
+    public void snapshot_keepsShowingTheInventoryItWasTakenOf() {
+        Random random = new Random( 1 );
+        Inventory inventory = new Inventory();
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 100; i++ ) foods.add( food( random, i + 1 ) );
+        inventory.addAll( foods );
+        InventorySnapshot before = inventory.getSnapshot();
+
+        inventory.remove( foods.get( 3 ) );
+        inventory.replace( 0, food( random, 500 ) );
+        inventory.add( food( random, 501 ) );
+        InventorySnapshot after = inventory.getSnapshot();
+
+        assertEquals( 1, before.getVersion() );
+        assertEquals( 4, after.getVersion() );
+        assertEquals( foods, before.asList() );
+        assertEquals( InventoryTotals.recompute( foods ), before.getTotal() );
+        assertEquals( 100, after.size() );
+        assertEquals( 500, after.getFoods().get( 0 ).getId() );
+        assertEquals( inventory.getTotals().getTotal(), after.getTotal() );
+        for( int i = 0; i < 3; i++ ) assertEquals( inventory.getTotals().getTotal( i ), after.getTotal( i ) );
+    }
+
+    @Test
+    public void unchangedInventory_publishesNothingNew() {
+        Inventory inventory = new Inventory();
+        InventorySnapshot empty = inventory.getSnapshot();
+        assertEquals( 0, empty.size() );
+        assertFalse( inventory.remove( food( new Random( 1 ), 1 ) ) );
+        assertTrue( inventory.removeAll( Collections.singletonList( food( new Random( 1 ), 1 ) ) ).isEmpty() );
+        assertSame( empty, inventory.getSnapshot() );
+    }
+
+    /**
+     * One writer thread makes random changes through an InventoryWriter while four readers keep taking
+     * snapshots. Every snapshot must be internally consistent, its total matching its foods, and each
+     * reader must see the versions only ever go up.
+     */
+    @Test
+    public void heldWriter_runsTheReleasingChangeFirst() {
+        Random random = new Random( 2 );
+        Inventory inventory = new Inventory();
+        InventoryWriter writer = new InventoryWriter( inventory, Runnable::run );
+        writer.hold();
+        Food added = food( random, 2 );
+        Future<InventorySnapshot> add = writer.submit( target -> target.add( added ) );
+        assertFalse( add.isDone() );
+        assertEquals( 0, inventory.size() );
+
+        Food loaded = food( random, 1 );
+        writer.release( target -> target.addAll( Collections.singletonList( loaded ) ) );
+        assertTrue( add.isDone() );
+        assertEquals( 1, inventory.get( 0 ).getId() );
+        assertEquals( 2, inventory.get( 1 ).getId() );
+
+        writer.submit( target -> target.remove( added ) );
+        assertEquals( 1, inventory.size() );
+    }
+
+    @Test
+    public void readersAlongsideAWriter_onlySeeConsistentSnapshots() throws Exception {
+        Inventory inventory = new Inventory();
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        InventoryWriter writer = new InventoryWriter( inventory, writerThread );
+        Random random = new Random( 3 );
+        List<Food> initial = new ArrayList<>();
+        for( int i = 0; i < 10_000; i++ ) initial.add( food( random, i + 1 ) );
+        writer.submit( target -> target.addAll( initial ) ).get();
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong checked = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for( int r = 0; r < 4; r++ ) {
+            Thread reader = new Thread( () -> {
+                long lastVersion = 0;
+                try {
+                    while( !done.get() ) {
+                        InventorySnapshot snapshot = writer.getSnapshot();
+                        assertTrue( snapshot.getVersion() >= lastVersion );
+                        lastVersion = snapshot.getVersion();
+                        assertEquals( InventoryTotals.recompute( snapshot.getFoods() ), snapshot.getTotal() );
+                        assertEquals( snapshot.getTotal(), snapshot.getTotal( 0 ) + snapshot.getTotal( 1 ) + snapshot.getTotal( 2 ) );
+                        checked.incrementAndGet();
+                    }
+                } catch ( Throwable e ) {
+                    failure.compareAndSet( null, e );
+                }
+            } );
+            reader.start();
+            readers.add( reader );
+        }
+
+        Future<InventorySnapshot> last = null;
+        long nextId = initial.size() + 1;
+        for( int i = 0; i < 5_000; i++ ) {
+            int op = random.nextInt( 4 );
+            long id = nextId++;
+            Food added = food( random, id );
+            int pick = random.nextInt( Integer.MAX_VALUE );
+            last = writer.submit( target -> {
+                if( op == 0 || target.size() == 0 ) {
+                    target.add( added );
+                } else if( op == 1 ) {
+                    target.remove( target.get( pick % target.size() ) );
+                } else if( op == 2 ) {
+                    target.replace( pick % target.size(), added );
+                } else {
+                    List<Food> batch = new ArrayList<>();
+                    for( int j = 0; j < 10; j++ ) batch.add( target.get( ( pick + j * 997 ) % target.size() ) );
+                    target.replaceAll( BatchEdits.adjustCount( batch, 1 ) );
+                }
+            } );
+        }
+        InventorySnapshot finalSnapshot = last.get();
+        done.set( true );
+        for( Thread reader : readers ) reader.join();
+        writerThread.shutdown();
+        assertTrue( writerThread.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        if( failure.get() != null ) throw new AssertionError( failure.get() );
+        assertEquals( 5_001, finalSnapshot.getVersion() );
+        assertEquals( InventoryTotals.recompute( inventory.getFoods() ), finalSnapshot.getTotal() );
+        assertTrue( checked.get() > 0 );
+    }
+}
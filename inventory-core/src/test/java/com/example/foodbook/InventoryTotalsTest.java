@@ -0,0 +1,92 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests checking the running totals against a full recompute.
+ */
+public class InventoryTotalsTest {
+
+    private static Food food( Random random ) {
+        int location = random.nextInt( 3 );
+        return new Food( "Food", "", random.nextInt( 1000 ), new Date( 0 ), FoodCodec.LOCATIONS[ location ],
+                location, random.nextInt( 100_000 ) );
+    }
+
+    private static long recompute( List<Food> foods, int locationPosition ) {
+        long sum = 0;
+        for( Food food : foods ) {
+            if( food.getLocationPosition() == locationPosition ) sum += (long) food.getCost() * food.getCount();
+        }
+        return sum;
+    }
+
+    @Test
+    public void largeValues_doNotOverflow() {
+        InventoryTotals totals = new InventoryTotals();
+        Food food = new Food( "Caviar", "", Integer.MAX_VALUE, new Date( 0 ), "Fridge", 0, Integer.MAX_VALUE );
+        totals.onAdded( food );
+        totals.onAdded( food );
+        assertEquals( 2L * Integer.MAX_VALUE * Integer.MAX_VALUE, totals.getTotal() );
+    }
+
+    @Test
+    public void edit_movesValueBetweenLocations() {
+        InventoryTotals totals = new InventoryTotals();
+        Food food = new Food( "Peas", "", 2, new Date( 0 ), "Fridge", 0, 5 );
+        totals.onAdded( food );
+
+        food.setLocationPosition( 2 );
+        food.setCount( 3 );
+        totals.onChanged( 5, 2, 0, food );
+
+        assertEquals( 15, totals.getTotal() );
+        assertEquals( 0, totals.getTotal( 0 ) );
+        assertEquals( 15, totals.getTotal( 2 ) );
+    }
+
+    @Test
+    public void randomMutations_matchFullRecompute() {
+        Random random = new Random( 42 );
+        List<Food> foods = new ArrayList<>();
+        InventoryTotals totals = new InventoryTotals();
+
+        for( int i = 0; i < 100_000; i++ ) {
+            Food food = food( random );
+            foods.add( food );
+            totals.onAdded( food );
+        }
+
+        for( int i = 0; i < 200_000; i++ ) {
+            int op = random.nextInt( 3 );
+            if( op == 0 || foods.isEmpty() ) {
+                Food food = food( random );
+                foods.add( food );
+                totals.onAdded( food );
+            } else if( op == 1 ) {
+                int index = random.nextInt( foods.size() );
+                Food replacement = food( random );
+                totals.onReplaced( foods.set( index, replacement ), replacement );
+            } else {
+                // Swap with the last element so the removal itself stays cheap.
+                int index = random.nextInt( foods.size() );
+                Food removed = foods.get( index );
+                foods.set( index, foods.get( foods.size() - 1 ) );
+                foods.remove( foods.size() - 1 );
+                totals.onRemoved( removed );
+            }
+        }
+
+        assertEquals( InventoryTotals.recompute( foods ), totals.getTotal() );
+        for( int location = 0; location < 3; location++ ) {
+            assertEquals( recompute( foods, location ), totals.getTotal( location ) );
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.foodbook;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the journal and snapshot storage. Cold load times for large inventories are
+ * StorageBenchmark in :inventory-benchmarks.
+ */
+public class JournaledFoodRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Food food( int i ) {
+        return new Food( "Food " + i, "Description " + i, i % 12, new Date( 1664582400000L + i * 86400000L ),
+                "Pantry", 1, i % 50 );
+    }
+
+    @Test
+    public void addEditDelete_surviveReopen() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir );
+        Food milk = food( 1 );
+        Food eggs = food( 2 );
+        Food bread = food( 3 );
+        repository.add( milk );
+        repository.add( eggs );
+        repository.add( bread );
+        eggs.setCount( 11 );
+        repository.update( eggs );
+        repository.delete( milk );
+        repository.close();
+
+        List<Food> loaded = new JournaledFoodRepository( dir ).loadAll();
+        assertEquals( 2, loaded.size() );
+        assertEquals( "Food 2", loaded.get( 0 ).getName() );
+        assertEquals( 11, (int) loaded.get( 0 ).getCount() );
+        assertEquals( eggs.getId(), loaded.get( 0 ).getId() );
+        assertEquals( "Food 3", loaded.get( 1 ).getName() );
+        assertEquals( EpochDays.fromMillis( bread.getBestBeforeDate() ),
+                EpochDays.fromMillis( loaded.get( 1 ).getBestBeforeDate() ) );
+    }
+
+    @Test
+    public void compaction_keepsStateAndEmptiesJournal() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir, 0, 10 );
+        for( int i = 0; i < 25; i++ ) {
+            repository.add( food( i ) );
+        }
+        List<Food> beforeClose = repository.loadAll();
+        repository.close();
+
+        assertTrue( new File( dir, JournaledFoodRepository.SNAPSHOT_FILE ).exists() );
+        List<Food> loaded = new JournaledFoodRepository( dir ).loadAll();
+        assertEquals( beforeClose.size(), loaded.size() );
+        for( int i = 0; i < loaded.size(); i++ ) {
+            assertEquals( beforeClose.get( i ).getId(), loaded.get( i ).getId() );
+        }
+    }
+
+    @Test
+    public void newIds_continueAfterReload() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir );
+        repository.add( food( 1 ) );
+        repository.add( food( 2 ) );
+        repository.close();
+
+        repository = new JournaledFoodRepository( dir );
+        repository.loadAll();
+        Food added = food( 3 );
+        repository.add( added );
+        assertEquals( 3, added.getId() );
+        repository.close();
+    }
+
+    @Test
+    public void addAll_givesConsecutiveIds() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir );
+        repository.add( food( 1 ) );
+        List<Food> batch = Arrays.asList( food( 2 ), food( 3 ), food( 4 ) );
+        repository.addAll( batch );
+        for( int i = 0; i < batch.size(); i++ ) assertEquals( i + 2, batch.get( i ).getId() );
+        repository.close();
+
+        repository = new JournaledFoodRepository( dir );
+        List<Food> loaded = repository.loadAll();
+        assertEquals( 4, loaded.size() );
+        assertEquals( "Food 4", loaded.get( 3 ).getName() );
+        Food added = food( 5 );
+        repository.add( added );
+        assertEquals( 5, added.getId() );
+        repository.close();
+    }
+
+    @Test
+    public void addBeforeLoad_getsAFreshId() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir );
+        for( int i = 1; i <= 3; i++ ) repository.add( food( i ) );
+        repository.close();
+
+        // Added straight after opening, before anything was loaded.
+        repository = new JournaledFoodRepository( dir );
+        Food added = food( 4 );
+        repository.add( added );
+        assertEquals( 4, added.getId() );
+        assertEquals( 4, repository.loadAll().size() );
+        repository.close();
+    }
+
+    @Test
+    public void deletedHighestId_isNotReused() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir, 0, Integer.MAX_VALUE );
+        Food last = null;
+        for( int i = 1; i <= 3; i++ ) repository.add( last = food( i ) );
+        repository.delete( last );
+        repository.close();
+
+        // Once from the journal alone, and once after the journal was folded into the snapshot.
+        repository = new JournaledFoodRepository( dir, 0, Integer.MAX_VALUE );
+        Food added = food( 4 );
+        repository.add( added );
+        assertEquals( 4, added.getId() );
+        repository.delete( added );
+        repository.loadAll();
+        repository.compact();
+        repository.close();
+
+        repository = new JournaledFoodRepository( dir );
+        added = food( 5 );
+        repository.add( added );
+        assertEquals( 5, added.getId() );
+        assertEquals( 3, repository.loadAll().size() );
+        repository.close();
+    }
+
+    @Test
+    public void pageSource_onlyCompactsAJournalWithRecords() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir, 0, Integer.MAX_VALUE );
+        MetricsRegistry metrics = new MetricsRegistry();
+        repository.setMetrics( metrics );
+        LatencyHistogram compactions = metrics.histogram( MetricsRegistry.Operation.STORAGE_COMPACT );
+
+        // An empty directory still needs a snapshot to page over.
+        repository.openPageSource().close();
+        assertEquals( 1, compactions.getCount() );
+        repository.add( food( 1 ) );
+        FoodPageSource source = repository.openPageSource();
+        assertEquals( 1, source.size() );
+        source.close();
+        assertEquals( 2, compactions.getCount() );
+
+        source = repository.openPageSource();
+        assertEquals( 1, source.size() );
+        source.close();
+        assertEquals( 2, compactions.getCount() );
+        repository.close();
+    }
+
+    @Test
+    public void tornJournalTail_isDropped() throws IOException {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir );
+        repository.add( food( 1 ) );
+        repository.close();
+
+        // Half of a record, as if the process died during the write.
+        try ( FileOutputStream out = new FileOutputStream( new File( dir, JournaledFoodRepository.JOURNAL_FILE ), true ) ) {
+            out.write( new byte[] { 1, 0, 0, 0 } );
+        }
+
+        repository = new JournaledFoodRepository( dir );
+        assertEquals( 1, repository.loadAll().size() );
+        repository.add( food( 2 ) );
+        repository.close();
+        assertEquals( 2, new JournaledFoodRepository( dir ).loadAll().size() );
+    }
+
+    @Test
+    public void olderFormat_isMovedAside() throws IOException {
+        File dir = folder.newFolder();
+        // A version 1 snapshot holding one food, and a version 1 journal, which had no header.
+        try ( DataOutputStream out = new DataOutputStream( new FileOutputStream( new File( dir, JournaledFoodRepository.SNAPSHOT_FILE ) ) ) ) {
+            out.writeInt( 0x46424B53 );
+            out.writeInt( 1 );
+            out.writeInt( 1 );
+            out.writeLong( 1 );
+            out.writeInt( 3 );
+            out.write( new byte[] { 1, 1, 1 } );
+        }
+        try ( FileOutputStream out = new FileOutputStream( new File( dir, JournaledFoodRepository.JOURNAL_FILE ) ) ) {
+            out.write( new byte[] { 3, 0, 0, 0, 0, 0, 0, 0, 1 } );
+        }
+
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir );
+        assertTrue( repository.loadAll().isEmpty() );
+        repository.add( food( 1 ) );
+        repository.close();
+
+        assertEquals( 1, new JournaledFoodRepository( dir ).loadAll().size() );
+        int setAside = 0;
+        for( String name : dir.list() ) if( name.contains( ".unreadable-" ) ) setAside++;
+        assertEquals( 2, setAside );
+    }
+
+    @Test
+    public void corruptSnapshot_isMovedAsideOnLoad() throws Exception {
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir, 0, 1 );
+        repository.add( food( 1 ) );
+        repository.add( food( 2 ) );
+        repository.close();
+        File snapshot = new File( dir, JournaledFoodRepository.SNAPSHOT_FILE );
+        assertTrue( snapshot.exists() );
+        // Cut off inside the second record, keeping the header.
+        try ( RandomAccessFile file = new RandomAccessFile( snapshot, "rw" ) ) {
+            file.setLength( file.length() - 4 );
+        }
+
+        repository = new JournaledFoodRepository( dir, 0, 1 );
+        AtomicReference<List<Food>> loaded = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch( 1 );
+        repository.load( foods -> {
+            loaded.set( foods );
+            done.countDown();
+        });
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( loaded.get().isEmpty() );
+        Food added = food( 3 );
+        repository.add( added );
+        assertEquals( 3, added.getId() );
+        repository.close();
+
+        List<Food> reloaded = new JournaledFoodRepository( dir ).loadAll();
+        assertEquals( 1, reloaded.size() );
+        assertEquals( "Food 3", reloaded.get( 0 ).getName() );
+        int setAside = 0;
+        for( String name : dir.list() ) if( name.contains( ".unreadable-" ) ) setAside++;
+        assertEquals( 1, setAside );
+    }
+
+    /**
+     * Writes 10,000 foods, half folded into the snapshot and half left in the journal, then checks a cold
+     * start of a new repository over the same directory reads every one back.
+     */
+    @Test
+    public void coldLoad_10k_readsSnapshotAndJournal() throws IOException {
+        int size = 10_000;
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir, 0, Integer.MAX_VALUE );
+        for( int i = 0; i < size / 2; i++ ) {
+            repository.add( food( i ) );
+        }
+        repository.loadAll();
+        repository.compact();
+        for( int i = size / 2; i < size; i++ ) {
+            repository.add( food( i ) );
+        }
+        repository.close();
+
+        List<Food> loaded = new JournaledFoodRepository( dir ).loadAll();
+
+        assertEquals( size, loaded.size() );
+        boolean[] seen = new boolean[ size + 1 ];
+        for( Food food : loaded ) {
+            int id = (int) food.getId();
+            assertFalse( seen[ id ] );
+            seen[ id ] = true;
+            assertEquals( "Food " + ( id - 1 ), food.getName() );
+        }
+    }
+}
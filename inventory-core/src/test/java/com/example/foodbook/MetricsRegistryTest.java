@@ -0,0 +1,123 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the latency histogram and the metrics registry, plus an allocation count of
+ * 100k recordings.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void buckets_coverEveryValueWithinAQuarter() {
+        assertEquals( 0, LatencyHistogram.bucketOf( 0 ) );
+        assertEquals( 15, LatencyHistogram.bucketOf( 15 ) );
+        assertEquals( LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf( Long.MAX_VALUE ) );
+        assertEquals( Long.MAX_VALUE, LatencyHistogram.upperBound( LatencyHistogram.BUCKETS - 1 ) );
+
+        long[] samples = { 16, 17, 19, 20, 31, 32, 1000, 123_456, 1L << 40, ( 1L << 40 ) - 1, Long.MAX_VALUE / 3 };
+        for( long value : samples ) {
+            int bucket = LatencyHistogram.bucketOf( value );
+            assertTrue( value + " above its bucket", value <= LatencyHistogram.upperBound( bucket ) );
+            assertTrue( value + " below its bucket", value > LatencyHistogram.upperBound( bucket - 1 ) );
+            assertTrue( value + " bucket too wide", LatencyHistogram.upperBound( bucket ) - value <= value / 4 );
+        }
+    }
+
+    @Test
+    public void snapshot_givesPercentilesCappedAtTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for( int i = 1; i <= 1000; i++ ) histogram.record( i * 1000L );
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals( 1000, snapshot.count );
+        assertEquals( 500_500, snapshot.mean );
+        assertEquals( 1_000_000, snapshot.max );
+        assertTrue( snapshot.p50 >= 500_000 && snapshot.p50 <= 625_000 );
+        assertTrue( snapshot.p99 >= 990_000 && snapshot.p99 <= 1_000_000 );
+
+        histogram.reset();
+        assertEquals( 0, histogram.snapshot().count );
+        assertEquals( 0, histogram.snapshot().p99 );
+    }
+
+    @Test
+    public void record_fromManyThreads_losesNothing() throws InterruptedException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        int threads = 4;
+        int perThread = 100_000;
+        CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] workers = new Thread[ threads ];
+        for( int t = 0; t < threads; t++ ) {
+            long offset = t;
+            workers[ t ] = new Thread( () -> {
+                try {
+                    start.await();
+                } catch ( InterruptedException e ) {
+                    return;
+                }
+                for( int i = 0; i < perThread; i++ ) {
+                    metrics.record( MetricsRegistry.Operation.LIST_MUTATION, i + offset );
+                    metrics.increment( MetricsRegistry.Counter.JOURNAL_RECORDS_WRITTEN, 1 );
+                }
+            } );
+            workers[ t ].start();
+        }
+        start.countDown();
+        for( Thread worker : workers ) worker.join();
+
+        LatencyHistogram.Snapshot snapshot = metrics.histogram( MetricsRegistry.Operation.LIST_MUTATION ).snapshot();
+        assertEquals( threads * perThread, snapshot.count );
+        assertEquals( perThread - 1 + threads - 1, snapshot.max );
+        assertEquals( threads * perThread, metrics.count( MetricsRegistry.Counter.JOURNAL_RECORDS_WRITTEN ) );
+    }
+
+    @Test
+    public void dump_listsRecordedOperationsAndCounters() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.record( MetricsRegistry.Operation.BIND_VIEW_HOLDER, 2_500 );
+        metrics.increment( MetricsRegistry.Counter.FOODS_LOADED, 42 );
+
+        StringBuilder out = new StringBuilder();
+        metrics.dump( out );
+        String text = out.toString();
+        assertTrue( text, text.contains( "bind_view_holder" ) );
+        assertTrue( text, text.contains( "2500ns" ) );
+        assertFalse( text, text.contains( "create_view_holder" ) );
+        assertTrue( text, text.matches( "(?s).*foods_loaded\\s+42.*" ) );
+    }
+
+    /**
+     * Records 100k durations and counts on one thread and checks that none of it allocates, so the
+     * timing calls can stay in the bind path.
+     */
+    @Test
+    public void record100k_allocatesNothing() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        for( int i = 0; i < 20; i++ ) recordAll( metrics );
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long overhead = threads.getThreadAllocatedBytes( thread );
+        overhead = threads.getThreadAllocatedBytes( thread ) - overhead;
+
+        long before = threads.getThreadAllocatedBytes( thread );
+        recordAll( metrics );
+        long allocated = threads.getThreadAllocatedBytes( thread ) - before - overhead;
+
+        assertEquals( 0, allocated );
+    }
+
+    private static void recordAll( MetricsRegistry metrics ) {
+        for( int i = 0; i < 100_000; i++ ) {
+            metrics.record( MetricsRegistry.Operation.BIND_VIEW_HOLDER, i * 37L );
+            metrics.increment( MetricsRegistry.Counter.JOURNAL_BYTES_WRITTEN, 64 );
+        }
+    }
+}
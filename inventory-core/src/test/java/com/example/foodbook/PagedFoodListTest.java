@@ -0,0 +1,144 @@
+package com.example.foodbook;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the paged food list, plus a scroll through 200k stored foods comparing the heap
+ * held by the pages against loading the whole inventory.
+ */
+public class PagedFoodListTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Executor NOW = Runnable::run;
+
+    private static Food food( int i ) {
+        return new Food( "Food " + i, "Description " + i, i % 12, new Date( EpochDays.toMillis( 19_000 + i % 400 ) ),
+                FoodCodec.LOCATIONS[ i % 3 ], i % 3, i % 50 );
+    }
+
+    /**
+     * Serves foods made up on the fly and counts the pages read.
+     */
+    private static class CountingSource implements FoodPageSource {
+        final int size;
+        final List<Integer> starts = new ArrayList<>();
+
+        CountingSource( int size ) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public List<Food> loadPage( int start, int count ) {
+            starts.add( start );
+            List<Food> foods = new ArrayList<>( count );
+            for( int i = start; i < start + count; i++ ) foods.add( food( i ) );
+            return foods;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    @Test
+    public void get_returnsPlaceholderUntilPageArrives() {
+        List<Runnable> queued = new ArrayList<>();
+        PagedFoodList list = new PagedFoodList( new CountingSource( 100 ), 10, 50, 1, queued::add, NOW );
+        List<Integer> loaded = new ArrayList<>();
+        list.setListener( ( start, count ) -> loaded.add( start ) );
+
+        assertNull( list.get( 25 ) );
+        assertNull( list.get( 26 ) );
+        assertEquals( 1, queued.size() );
+
+        queued.get( 0 ).run();
+        assertEquals( "Food 25", list.get( 25 ).getName() );
+        assertEquals( 20, (int) loaded.get( 0 ) );
+    }
+
+    @Test
+    public void scroll_prefetchesAheadInItsDirection() {
+        CountingSource source = new CountingSource( 1000 );
+        PagedFoodList list = new PagedFoodList( source, 10, 100, 2, NOW, NOW );
+
+        list.onVisibleRange( 500, 509 );
+        list.onVisibleRange( 505, 514 );
+        assertTrue( source.starts.contains( 530 ) );
+        assertTrue( source.starts.contains( 520 ) );
+        assertFalse( source.starts.contains( 480 ) );
+
+        source.starts.clear();
+        list.onVisibleRange( 480, 489 );
+        assertTrue( source.starts.contains( 470 ) );
+        assertTrue( source.starts.contains( 460 ) );
+    }
+
+    @Test
+    public void eviction_keepsVisiblePagesAndDropsTheFurthest() {
+        CountingSource source = new CountingSource( 1000 );
+        PagedFoodList list = new PagedFoodList( source, 10, 40, 1, NOW, NOW );
+
+        for( int first = 0; first <= 300; first += 5 ) {
+            list.onVisibleRange( first, first + 19 );
+            assertTrue( list.loadedCount() <= 40 );
+        }
+        for( int i = 300; i < 320; i++ ) assertNotNull( list.get( i ) );
+        // The start of the list was dropped long ago and has to be read again.
+        source.starts.clear();
+        assertNull( list.get( 0 ) );
+        assertEquals( 0, (int) source.starts.get( 0 ) );
+    }
+
+    @Test
+    public void scroll_200kStoredFoods() throws IOException {
+        int size = 200_000;
+        int budget = 2_000;
+        File dir = folder.newFolder();
+        JournaledFoodRepository repository = new JournaledFoodRepository( dir, 0, Integer.MAX_VALUE );
+        for( int i = 0; i < size; i++ ) repository.add( food( i ) );
+
+        Runtime runtime = Runtime.getRuntime();
+        long baseline = usedHeap( runtime );
+        List<Food> all = repository.loadAll();
+        long fullHeap = usedHeap( runtime ) - baseline;
+        assertEquals( size, all.size() );
+        all = null;
+
+        baseline = usedHeap( runtime );
+        FoodPageSource source = repository.openPageSource();
+        PagedFoodList list = new PagedFoodList( source, 100, budget, 2, NOW, NOW );
+        int maxLoaded = 0;
+        for( int first = 0; first < size; first += 7 ) {
+            int last = Math.min( size - 1, first + 14 );
+            list.onVisibleRange( first, last );
+            for( int i = first; i <= last; i++ ) assertEquals( "Food " + i, list.get( i ).getName() );
+            maxLoaded = Math.max( maxLoaded, list.loadedCount() );
+        }
+        long pagedHeap = usedHeap( runtime ) - baseline;
+        list.close();
+        repository.close();
+
+        assertTrue( maxLoaded <= budget );
+        assertTrue( pagedHeap < fullHeap / 4 );
+    }
+
+    private static long usedHeap( Runtime runtime ) {
+        for( int i = 0; i < 3; i++ ) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.foodbook;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the catalogue file format and its lookups, including a catalogue of one million
+ * products. Build and lookup times are CatalogBenchmark in :inventory-benchmarks.
+ */
+public class ProductCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ProductCatalog build( CatalogProduct... products ) throws IOException {
+        File file = new File( folder.getRoot(), "catalog.bin" );
+        ProductCatalogWriter.write( Arrays.asList( products ), file );
+        return ProductCatalog.open( file );
+    }
+
+    private static List<String> names( List<CatalogProduct> products ) {
+        List<String> names = new ArrayList<>();
+        for( CatalogProduct product : products ) names.add( product.getName() );
+        return names;
+    }
+
+    @Test
+    public void find_ignoresCaseAndSpaces() throws IOException {
+        ProductCatalog catalog = build(
+                new CatalogProduct( "Whole Milk", 5000112637922L, "1 litre", 129, 7, 0 ),
+                new CatalogProduct( "Frozen Peas", 0, "Garden peas", 150, 365, 2 ),
+                new CatalogProduct( "Cr\u00e8me Fra\u00eeche", 0, "", 180, 14, 0 ) );
+
+        assertEquals( 3, catalog.size() );
+        CatalogProduct milk = catalog.find( "  whole MILK " );
+        assertEquals( "Whole Milk", milk.getName() );
+        assertEquals( "1 litre", milk.getDescription() );
+        assertEquals( 129, milk.getCost() );
+        assertEquals( 7, milk.getShelfLifeDays() );
+        assertEquals( 0, milk.getLocationPosition() );
+        assertEquals( 5000112637922L, milk.getBarcode() );
+        assertEquals( 2, catalog.find( "frozen peas" ).getLocationPosition() );
+        assertEquals( "Cr\u00e8me Fra\u00eeche", catalog.find( "CR\u00c8ME FRA\u00ceCHE" ).getName() );
+        assertNull( catalog.find( "Whole" ) );
+        assertNull( catalog.find( "Whole Milk 2" ) );
+        assertNull( catalog.find( "" ) );
+        assertEquals( 19_007, milk.bestBeforeDay( 19_000 ) );
+    }
+
+    @Test
+    public void findByBarcode_findsOnlyKnownCodes() throws IOException {
+        ProductCatalog catalog = build(
+                new CatalogProduct( "Butter", 5000128000011L, "", 200, 60, 0 ),
+                new CatalogProduct( "Apples", 0, "", 30, 21, 1 ),
+                new CatalogProduct( "Oats", 5000128000004L, "", 90, 365, 1 ) );
+
+        assertEquals( "Butter", catalog.findByBarcode( 5000128000011L ).getName() );
+        assertEquals( "Oats", catalog.findByBarcode( 5000128000004L ).getName() );
+        assertNull( catalog.findByBarcode( 5000128000005L ) );
+        // 0 means no barcode, so it never finds the products without one.
+        assertNull( catalog.findByBarcode( 0 ) );
+    }
+
+    @Test
+    public void suggest_listsPrefixMatchesInOrder() throws IOException {
+        ProductCatalog catalog = build(
+                new CatalogProduct( "Bread", 0, "", 100, 5, 1 ),
+                new CatalogProduct( "Brie", 0, "", 300, 20, 0 ),
+                new CatalogProduct( "Broccoli", 0, "", 60, 6, 0 ),
+                new CatalogProduct( "Bacon", 0, "", 250, 10, 0 ),
+                new CatalogProduct( "B", 0, "", 1, 1, 0 ),
+                new CatalogProduct( "Carrots", 0, "", 50, 20, 0 ) );
+
+        assertEquals( Arrays.asList( "B", "Bacon", "Bread", "Brie", "Broccoli" ), names( catalog.suggest( "b", 10 ) ) );
+        assertEquals( Arrays.asList( "Bread", "Brie", "Broccoli" ), names( catalog.suggest( "BR", 10 ) ) );
+        assertEquals( Arrays.asList( "Bread", "Brie" ), names( catalog.suggest( "br", 2 ) ) );
+        assertEquals( Arrays.asList( "Brie" ), names( catalog.suggest( "bri", 10 ) ) );
+        assertTrue( catalog.suggest( "bz", 10 ).isEmpty() );
+        assertTrue( catalog.suggest( "z", 10 ).isEmpty() );
+        assertTrue( catalog.suggest( " ", 10 ).isEmpty() );
+    }
+
+    @Test
+    public void duplicateNames_keepTheFirst() throws IOException {
+        ProductCatalog catalog = build(
+                new CatalogProduct( "Eggs", 0, "Free range", 250, 28, 0 ),
+                new CatalogProduct( "EGGS", 0, "Caged", 150, 28, 1 ) );
+
+        assertEquals( 1, catalog.size() );
+        assertEquals( "Free range", catalog.find( "eggs" ).getDescription() );
+    }
+
+    @Test
+    public void readCsv_skipsRowsItCanNotUse() throws IOException {
+        String csv = ProductCatalogWriter.CSV_HEADER + "\n"
+                + "Cheddar,5010000000001,\"Mature, 400g\",350,30,fridge\n"
+                + ",1,Nameless,1,1,Fridge\n"
+                + "Rice,,Basmati,200,abc,Pantry\n"
+                + "Ice Cream,,,400,180,Freezer\n"
+                + "Salt,,,50,1000,Cellar\n";
+
+        List<CatalogProduct> products = ProductCatalogWriter.readCsv( new StringReader( csv ) );
+
+        assertEquals( Arrays.asList( "Cheddar", "Ice Cream", "Salt" ), names( products ) );
+        assertEquals( "Mature, 400g", products.get( 0 ).getDescription() );
+        assertEquals( 5010000000001L, products.get( 0 ).getBarcode() );
+        assertEquals( 0, products.get( 0 ).getLocationPosition() );
+        assertEquals( 2, products.get( 1 ).getLocationPosition() );
+        assertEquals( 0, products.get( 2 ).getLocationPosition() );
+    }
+
+    @Test( expected = IOException.class )
+    public void readCsv_rejectsWrongHeader() throws IOException {
+        ProductCatalogWriter.readCsv( new StringReader( "name,cost\nMilk,100\n" ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void open_rejectsOtherFiles() throws IOException {
+        File file = folder.newFile();
+        try ( FileOutputStream out = new FileOutputStream( file ) ) {
+            out.write( new byte[ 100 ] );
+        }
+        ProductCatalog.open( file );
+    }
+
+    /**
+     * Builds a catalogue of one million products and checks name, barcode and prefix lookups across it.
+     */
+    @Test
+    public void millionProducts_buildAndLookup() throws IOException {
+        int count = 1_000_000;
+        Random random = new Random( 1 );
+        List<CatalogProduct> products = new ArrayList<>( count );
+        for( int i = 0; i < count; i++ ) {
+            products.add( new CatalogProduct( "Product " + Integer.toString( i, 36 ) + " " + ( i % 97 ),
+                    i % 3 == 0 ? 4_000_000_000_000L + i : 0, "Description " + i,
+                    random.nextInt( 1000 ), random.nextInt( 400 ), i % 3 ) );
+        }
+        File file = new File( folder.getRoot(), "catalog.bin" );
+        assertEquals( count, ProductCatalogWriter.write( products, file ) );
+
+        ProductCatalog catalog = ProductCatalog.open( file );
+        assertEquals( count, catalog.size() );
+        int lookups = 10_000;
+        int found = 0;
+        for( int i = 0; i < lookups; i++ ) {
+            int index = random.nextInt( count );
+            CatalogProduct product = catalog.find( products.get( index ).getName().toUpperCase() );
+            if( product != null && product.getCost() == products.get( index ).getCost() ) found++;
+        }
+        for( int i = 0; i < lookups; i++ ) {
+            int index = random.nextInt( count / 3 ) * 3;
+            if( catalog.findByBarcode( 4_000_000_000_000L + index ) != null ) found++;
+        }
+        int suggested = 0;
+        for( int i = 0; i < lookups; i++ ) {
+            suggested += catalog.suggest( "product " + Integer.toString( 36 + random.nextInt( 36 * 36 - 36 ), 36 ), 8 ).size();
+        }
+
+        assertEquals( 2 * lookups, found );
+        assertEquals( 8 * lookups, suggested );
+        assertEquals( 8, catalog.suggest( "p", 8 ).size() );
+    }
+}
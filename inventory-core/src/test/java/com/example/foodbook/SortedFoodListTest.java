@@ -0,0 +1,128 @@
+package com.example.foodbook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the sorted food list, checked against Collections.sort with a comparator over
+ * the boxed getters. The time comparison is SortBenchmark in :inventory-benchmarks.
+ */
+public class SortedFoodListTest {
+
+    private static final String[] NAMES = { "Milk", "milk", "Milkshake", "Mi", "Bread", "Apples", "apple pie",
+            "Zucchini", "Eggs", "Eggplant" };
+
+    private static long nextId = 1;
+
+    private static Food food( Random random ) {
+        int location = random.nextInt( 3 );
+        Food food = new Food( NAMES[ random.nextInt( NAMES.length ) ], "", random.nextInt( 10 ),
+                new Date( 1_660_000_000_000L + random.nextInt( 60 ) * EpochDays.MILLIS_PER_DAY ),
+                FoodCodec.LOCATIONS[ location ], location, random.nextInt( 2_000 ) );
+        food.setId( nextId++ );
+        return food;
+    }
+
+    /** The comparator a naive implementation would write, using the boxed getters on every comparison. */
+    private static Comparator<Food> boxedComparator( FoodSortOrder order ) {
+        Comparator<Food> primary = boxedKey( order.primary );
+        if( order.descending ) primary = primary.reversed();
+        return primary.thenComparing( boxedKey( order.secondary ) ).thenComparing( Food::getId );
+    }
+
+    private static Comparator<Food> boxedKey( FoodSortOrder.Key key ) {
+        switch ( key ) {
+            case EXPIRY: return ( a, b ) -> a.getBestBeforeDate().compareTo( b.getBestBeforeDate() );
+            case NAME: return ( a, b ) -> String.CASE_INSENSITIVE_ORDER.compare( a.getName(), b.getName() );
+            case COST: return ( a, b ) -> a.getCost().compareTo( b.getCost() );
+            case TOTAL_VALUE: return ( a, b ) -> Long.compare( (long) a.getCost() * a.getCount(), (long) b.getCost() * b.getCount() );
+            default: return ( a, b ) -> Integer.compare( a.getLocationPosition(), b.getLocationPosition() );
+        }
+    }
+
+    private static List<FoodSortOrder> allOrders() {
+        List<FoodSortOrder> orders = new ArrayList<>();
+        for( FoodSortOrder.Key primary : FoodSortOrder.Key.values() ) {
+            for( FoodSortOrder.Key secondary : FoodSortOrder.Key.values() ) {
+                orders.add( new FoodSortOrder( primary, secondary, false ) );
+                orders.add( new FoodSortOrder( primary, secondary, true ) );
+            }
+        }
+        return orders;
+    }
+
+    @Test
+    public void namePrefix_ordersLikeCaseInsensitiveCompare() {
+        assertTrue( FoodSortOrder.namePrefix( "Mi" ) < FoodSortOrder.namePrefix( "milk" ) );
+        assertEquals( FoodSortOrder.namePrefix( "MILK" ), FoodSortOrder.namePrefix( "milkshake" ) );
+        assertTrue( FoodSortOrder.namePrefix( "apple" ) < FoodSortOrder.namePrefix( "Bread" ) );
+    }
+
+    @Test
+    public void everyOrder_matchesBoxedComparator() {
+        Random random = new Random( 3 );
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 2_000; i++ ) foods.add( food( random ) );
+
+        for( FoodSortOrder order : allOrders() ) {
+            List<Food> expected = new ArrayList<>( foods );
+            expected.sort( boxedComparator( order ) );
+            assertEquals( expected, SortedFoodList.sort( foods, order ) );
+        }
+    }
+
+    @Test
+    public void incrementalChanges_keepListSorted() {
+        Random random = new Random( 4 );
+        FoodSortOrder order = new FoodSortOrder( FoodSortOrder.Key.NAME, FoodSortOrder.Key.EXPIRY, true );
+        List<Food> foods = new ArrayList<>();
+        for( int i = 0; i < 500; i++ ) foods.add( food( random ) );
+        SortedFoodList sorted = new SortedFoodList( order );
+        sorted.setAll( foods );
+
+        for( int i = 0; i < 2_000; i++ ) {
+            int op = random.nextInt( 3 );
+            if( op == 0 ) {
+                Food food = food( random );
+                foods.add( food );
+                sorted.add( food );
+            } else if( op == 1 ) {
+                int position = random.nextInt( foods.size() );
+                Food edited = food( random );
+                edited.setId( foods.get( position ).getId() );
+                sorted.replace( foods.set( position, edited ), edited );
+            } else {
+                assertTrue( sorted.remove( foods.remove( random.nextInt( foods.size() ) ) ) );
+            }
+        }
+
+        List<Food> expected = new ArrayList<>( foods );
+        expected.sort( boxedComparator( order ) );
+        assertEquals( expected, sorted.asList() );
+    }
+
+    @Test
+    public void batches_areMergedIntoTheList() {
+        Random random = new Random( 5 );
+        for( FoodSortOrder order : allOrders() ) {
+            List<Food> foods = new ArrayList<>();
+            SortedFoodList sorted = new SortedFoodList( order );
+            for( int batch = 0; batch < 6; batch++ ) {
+                List<Food> added = new ArrayList<>();
+                for( int i = random.nextInt( 40 ); i > 0; i-- ) added.add( food( random ) );
+                foods.addAll( added );
+                sorted.addAll( added );
+            }
+            List<Food> expected = new ArrayList<>( foods );
+            expected.sort( boxedComparator( order ) );
+            assertEquals( expected, sorted.asList() );
+        }
+    }
+}